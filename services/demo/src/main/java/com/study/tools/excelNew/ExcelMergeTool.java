@@ -3,12 +3,16 @@ package com.study.tools.excelNew;
 import com.study.tools.excelNew.processor.DataProcessor;
 import com.study.tools.highExcelTools.core.ExcelReader;
 import com.study.tools.highExcelTools.core.ExcelWriter;
+import com.study.tools.highExcelTools.util.CancellationToken;
+import com.study.tools.highExcelTools.util.MergeCancelledException;
 import lombok.extern.slf4j.Slf4j;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -32,6 +36,34 @@ public class ExcelMergeTool {
      * @return 合并结果
      */
     public <T> MergeResult<T> mergeExcel(MergeConfig<T> config) {
+        return mergeExcel(config, new CancellationToken());
+    }
+    
+    /**
+     * 异步合并Excel文件
+     * 取消标记被取消后，合并在读取的下一行或写入前停止，删除未完成的输出文件，Future以失败结果完成
+     *
+     * @param config 合并配置
+     * @param token 取消标记
+     * @param executor 执行合并任务的执行器
+     * @param <T> 数据模型类型
+     * @return 合并结果
+     */
+    public <T> CompletableFuture<MergeResult<T>> mergeExcelAsync(MergeConfig<T> config, CancellationToken token,
+                                                                Executor executor) {
+        return CompletableFuture.supplyAsync(() -> mergeExcel(config, token), executor);
+    }
+    
+    /**
+     * 合并Excel文件(可取消)
+     * 读取阶段在行边界检查取消标记，处理和写入前各检查一次
+     *
+     * @param config 合并配置
+     * @param token 取消标记
+     * @param <T> 数据模型类型
+     * @return 合并结果，取消时success为false
+     */
+    public <T> MergeResult<T> mergeExcel(MergeConfig<T> config, CancellationToken token) {
         long startTime = System.currentTimeMillis();
         // 生成唯一的合并操作ID，用于日志跟踪
         String mergeId = UUID.randomUUID().toString().substring(0, 8);
@@ -110,7 +142,7 @@ public class ExcelMergeTool {
             readerConfig.setBatchSize(5000);
             
             // 创建Excel读取器并使用上面配置的线程池
-            ExcelReader<T> reader = new ExcelReader<T>(readerConfig, executor, mergeId);
+            ExcelReader<T> reader = new ExcelReader<T>(readerConfig, executor, mergeId, token);
             // 读取所有文件数据
             List<T> allData = reader.readFiles(config.getSourceFiles(), config.getModelClass());
 
@@ -118,6 +150,7 @@ public class ExcelMergeTool {
             reportProgress(config.getProgressCallback(), 30, 100, "读取完成");
 
             // 处理数据（过滤、去重）
+            token.throwIfCancelled();
             DataProcessor<T> processor = new DataProcessor<>(config, mergeId);
             List<T> processedData = processor.process(allData);
 
@@ -144,6 +177,7 @@ public class ExcelMergeTool {
             writerConfig.setAutoCloseStream(true); // 自动关闭流
             
             // 创建Excel写入器
+            token.throwIfCancelled();
             ExcelWriter<T> writer = new ExcelWriter<T>(writerConfig, mergeId);
             // 写入处理后的数据
             writer.write(processedData);
@@ -165,6 +199,16 @@ public class ExcelMergeTool {
                     .build();
 
         } catch (Exception e) {
+            if (token.isCancelled() || MergeCancelledException.isCause(e)) {
+                // 取消时不保留未完成的输出文件
+                log.warn("[{}] 合并已取消: {}", mergeId, token.getReason());
+                deleteOutput(config.getTargetFile());
+                return MergeResult.<T>builder()
+                        .success(false)
+                        .errorMessage("合并已取消" + (token.getReason() != null ? ": " + token.getReason() : ""))
+                        .timeMillis(System.currentTimeMillis() - startTime)
+                        .build();
+            }
             // 处理过程中的任何异常
             log.error("[{}] 合并过程中发生错误", mergeId, e);
             return MergeResult.<T>builder()
@@ -282,6 +326,17 @@ public class ExcelMergeTool {
         }
     }
     
+    /**
+     * 删除未完成的输出文件
+     */
+    private void deleteOutput(String targetFile) {
+        try {
+            Files.deleteIfExists(Paths.get(targetFile));
+        } catch (Exception e) {
+            log.warn("删除未完成的输出文件失败: {}", targetFile, e);
+        }
+    }
+    
     /**
      * 清理临时目录
      */
@@ -0,0 +1,47 @@
+package com.study.tools.excelNew;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 目录监听合并配置
+ *
+ * @param <T> 数据模型类型
+ */
+@Builder
+@Getter
+public class WatchConfig<T> {
+    /** 监听的落地目录 */
+    private final String sourceDir;
+    
+    /** 目标文件路径，实际输出为按序号编号的分段文件，如 merged_00001.xlsx */
+    private final String targetFile;
+    
+    /** 数据模型类 */
+    private final Class<T> modelClass;
+    
+    /** 键提取器，设置后跨文件去重(只保留每个键首次出现的行)，键追加到状态日志并保存在磁盘键存储中，需要可序列化 */
+    private final Function<T, Object> keyExtractor;
+    
+    /** 过滤条件 */
+    private final Predicate<T> filter;
+    
+    /** 文件大小保持不变多久后认为写入完成(毫秒) */
+    @Builder.Default
+    private final long settleMillis = 2000;
+    
+    /** 检查文件是否稳定的间隔(毫秒) */
+    @Builder.Default
+    private final long pollMillis = 500;
+    
+    /** 启动时是否处理目录中已存在的文件 */
+    @Builder.Default
+    private final boolean includeExisting = true;
+    
+    /** 批处理大小 */
+    @Builder.Default
+    private final int batchSize = 5000;
+} 
\ No newline at end of file
@@ -5,7 +5,7 @@ import com.study.tools.excelNew.ProgressCallback;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -63,10 +63,11 @@ public class DataProcessor<T> {
     }
     
     /**
-     * 数据去重
+     * 数据去重，结果按每个键首次出现的位置排列
      */
     private List<T> deduplicateData(List<T> data) {
-        Map<Object, T> uniqueMap = new HashMap<>(data.size());
+        // LinkedHashMap保持插入顺序，合并时覆盖值不改变键的位置
+        Map<Object, T> uniqueMap = new LinkedHashMap<>(data.size());
         
         for (T item : data) {
             Object key = config.getKeyExtractor().apply(item);
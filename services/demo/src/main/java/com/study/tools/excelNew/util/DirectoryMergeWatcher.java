@@ -0,0 +1,816 @@
+package com.study.tools.excelNew.util;
+
+import com.study.tools.excelNew.WatchConfig;
+import com.study.tools.highExcelTools.config.ExcelConfig;
+import com.study.tools.highExcelTools.core.ExcelReader;
+import com.study.tools.highExcelTools.core.ExcelWriter;
+import com.study.tools.highExcelTools.processor.DiskKeyStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * 目录监听增量合并
+ * <p>
+ * 基于WatchService监听落地目录，新出现的.xlsx/.xls/.csv文件在大小保持不变一段时间后视为写入完成；
+ * 每轮检查中稳定下来的文件只读取一次，过滤、跨文件去重后写入一个新的分段输出文件(merged_00001.xlsx、merged_00002.xlsx...)，
+ * 已处理的文件不会再次读取。分段文件先写到临时文件再原子改名，出现即完整可用。
+ * </p>
+ * <p>
+ * 每轮新增的已处理文件、去重键和分段序号追加到输出目录的日志文件(.merged_journal)，每轮只写本轮的变化；
+ * 重启时按日志恢复，不会重复输出已发布的数据，记录数明显多于恢复后的内容时在启动时压缩日志。
+ * 去重键保存在{@link DiskKeyStore}的临时文件中，不占用堆内存；已处理的文件从监听目录删除或移走后不再记录，
+ * 同名文件再次出现时重新处理。
+ * </p>
+ * <p>
+ * 一轮中有文件读取失败时本轮不发布任何数据，失败的文件移到隔离目录(merged_quarantine)，其余文件重新合并；
+ * 修复后把文件放回监听目录即可重新处理。
+ * </p>
+ * <p>
+ * 从首次发现文件到其数据所在分段文件可用的耗时作为延迟指标，通过{@link #getLastLatencyMillis()}等方法获取。
+ * </p>
+ *
+ * @param <T> 数据模型类型
+ */
+@Slf4j
+public class DirectoryMergeWatcher<T> implements AutoCloseable {
+    // 日志记录头: 长度 + CRC32
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES + Long.BYTES;
+    // 压缩后每条记录保存的键数
+    private static final int COMPACT_KEYS_PER_RECORD = 10000;
+    // 记录数超过压缩后记录数的两倍再加上该值时压缩
+    private static final int MIN_COMPACT_RECORDS = 64;
+    
+    private final WatchConfig<T> config;
+    private final String watchId;
+    private final Path sourceDir;
+    private final Path targetDir;
+    // 分段文件名前缀和扩展名
+    private final String partPrefix;
+    private final String partSuffix;
+    // 状态日志和隔离目录
+    private final Path journalFile;
+    private final Path quarantineDir;
+    // 追加写入的状态日志，只由监听线程写入
+    private FileChannel journal;
+    
+    private final WatchService watchService;
+    private final Thread watchThread;
+    // 读取文件使用的线程池
+    private final ExecutorService readExecutor;
+    private volatile boolean running = true;
+    
+    // 等待稳定的文件，启动后只由监听线程访问
+    private final Map<Path, PendingFile> pendingFiles = new HashMap<>();
+    // 已处理且仍在监听目录中的文件，变化追加到状态日志
+    private final Set<Path> ingestedFiles = ConcurrentHashMap.newKeySet();
+    // 已提交的去重键，没有键提取器时为null；本轮的键提交后才写入
+    private final DiskKeyStore seenKeys;
+    // 已发布的分段文件
+    private final List<String> publishedParts = new CopyOnWriteArrayList<>();
+    private int partIndex;
+    
+    // 延迟和吞吐指标
+    private final AtomicLong totalRows = new AtomicLong();
+    private final AtomicLong lastLatencyMillis = new AtomicLong(-1);
+    private final AtomicLong maxLatencyMillis = new AtomicLong(-1);
+    private final AtomicLong totalLatencyMillis = new AtomicLong();
+    private final AtomicLong latencySamples = new AtomicLong();
+    
+    public DirectoryMergeWatcher(WatchConfig<T> config) throws IOException {
+        this.config = config;
+        this.watchId = UUID.randomUUID().toString().substring(0, 8);
+        this.sourceDir = Paths.get(config.getSourceDir()).toAbsolutePath().normalize();
+        if (!Files.isDirectory(sourceDir)) {
+            throw new IllegalArgumentException(config.getSourceDir() + " 不是有效的目录");
+        }
+        
+        Path target = Paths.get(config.getTargetFile()).toAbsolutePath().normalize();
+        this.targetDir = target.getParent();
+        if (sourceDir.equals(targetDir)) {
+            throw new IllegalArgumentException("输出目录不能与监听目录相同: " + sourceDir);
+        }
+        Files.createDirectories(targetDir);
+        String fileName = target.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        this.partPrefix = (dot > 0 ? fileName.substring(0, dot) : fileName) + "_";
+        this.partSuffix = dot > 0 ? fileName.substring(dot) : ".xlsx";
+        this.journalFile = targetDir.resolve("." + partPrefix + "journal");
+        this.quarantineDir = targetDir.resolve(partPrefix + "quarantine");
+        this.seenKeys = config.getKeyExtractor() != null ?
+                new DiskKeyStore(Paths.get(System.getProperty("java.io.tmpdir")), "watch-" + watchId, 1024) : null;
+        WatchService service = null;
+        try {
+            this.partIndex = restoreState();
+            this.journal = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            // 停止期间删除的已处理文件
+            forgetMissing();
+            service = FileSystems.getDefault().newWatchService();
+            sourceDir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException | RuntimeException e) {
+            closeQuietly(service);
+            closeQuietly(journal);
+            closeKeys();
+            throw e;
+        }
+        this.watchService = service;
+        this.readExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "excel-watch-read-" + watchId);
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        if (config.isIncludeExisting()) {
+            scanDirectory();
+        } else {
+            // 已存在的文件视为已处理
+            JournalRecord record = new JournalRecord(partIndex);
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(sourceDir)) {
+                for (Path path : stream) {
+                    if (isExcelFile(path) && !ingestedFiles.contains(path)) {
+                        record.addedFiles.add(path.toString());
+                    }
+                }
+            }
+            if (!record.addedFiles.isEmpty()) {
+                appendJournal(record);
+                record.addedFiles.forEach(file -> ingestedFiles.add(Paths.get(file)));
+            }
+        }
+        
+        this.watchThread = new Thread(this::watchLoop, "excel-watch-" + watchId);
+        this.watchThread.setDaemon(true);
+        this.watchThread.start();
+        log.info("[{}] 开始监听目录: {}，输出目录: {}", watchId, sourceDir, targetDir);
+    }
+    
+    /**
+     * 是否为支持的数据文件(忽略以.或~开头的临时文件)
+     */
+    static boolean isExcelFile(Path path) {
+        String name = path.getFileName().toString();
+        if (name.startsWith(".") || name.startsWith("~")) {
+            return false;
+        }
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".xlsx") || lower.endsWith(".xls") || lower.endsWith(".csv");
+    }
+    
+    private void watchLoop() {
+        try {
+            while (running) {
+                WatchKey key = watchService.poll(config.getPollMillis(), TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            // 事件丢失时重新扫描目录，并清理已不存在的已处理文件
+                            scanDirectory();
+                            forgetMissing();
+                        } else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                            forget(Collections.singletonList(sourceDir.resolve((Path) event.context())));
+                        } else {
+                            track(sourceDir.resolve((Path) event.context()));
+                        }
+                    }
+                    key.reset();
+                }
+                
+                List<PendingFile> settled = collectSettled(System.currentTimeMillis());
+                if (!settled.isEmpty()) {
+                    ingest(settled);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("[{}] 目录监听异常，停止监听: {}", watchId, sourceDir, e);
+        }
+    }
+    
+    private void scanDirectory() {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(sourceDir)) {
+            for (Path path : stream) {
+                track(path);
+            }
+        } catch (IOException e) {
+            log.warn("[{}] 扫描目录失败: {}", watchId, sourceDir, e);
+        }
+    }
+    
+    /**
+     * 已处理的文件被删除或移走后不再记录，同名文件再次出现时重新处理
+     */
+    private void forget(List<Path> paths) {
+        JournalRecord record = new JournalRecord(partIndex);
+        for (Path path : paths) {
+            if (ingestedFiles.contains(path)) {
+                record.removedFiles.add(path.toString());
+            }
+        }
+        if (record.removedFiles.isEmpty()) {
+            return;
+        }
+        try {
+            appendJournal(record);
+            record.removedFiles.forEach(file -> ingestedFiles.remove(Paths.get(file)));
+        } catch (IOException e) {
+            // 保留记录只会使同名文件不再处理，下次删除事件或事件丢失时重试
+            log.warn("[{}] 记录已删除的文件失败: {}", watchId, record.removedFiles, e);
+        }
+    }
+    
+    private void forgetMissing() {
+        List<Path> missing = new ArrayList<>();
+        for (Path path : ingestedFiles) {
+            if (!Files.exists(path)) {
+                missing.add(path);
+            }
+        }
+        forget(missing);
+    }
+    
+    /**
+     * 记录新出现或被修改的文件，开始等待其稳定
+     */
+    private void track(Path path) {
+        if (!isExcelFile(path) || ingestedFiles.contains(path) || !Files.isRegularFile(path)) {
+            return;
+        }
+        pendingFiles.computeIfAbsent(path, p -> new PendingFile(p, System.currentTimeMillis()));
+    }
+    
+    /**
+     * 取出大小在settleMillis内没有变化的文件
+     */
+    private List<PendingFile> collectSettled(long now) {
+        List<PendingFile> settled = new ArrayList<>();
+        Iterator<PendingFile> iterator = pendingFiles.values().iterator();
+        while (iterator.hasNext()) {
+            PendingFile file = iterator.next();
+            long size;
+            try {
+                size = Files.size(file.path);
+            } catch (IOException e) {
+                // 文件已被移走
+                iterator.remove();
+                continue;
+            }
+            if (size != file.lastSize) {
+                file.lastSize = size;
+                file.lastChangeMillis = now;
+            } else if (size > 0 && now - file.lastChangeMillis >= config.getSettleMillis()) {
+                settled.add(file);
+                iterator.remove();
+            }
+        }
+        settled.sort((a, b) -> a.path.getFileName().toString().compareTo(b.path.getFileName().toString()));
+        return settled;
+    }
+    
+    /**
+     * 读取本轮稳定的文件，过滤、去重后写入一个新的分段文件；有文件读取失败时隔离该文件后重新合并其余文件
+     */
+    private void ingest(List<PendingFile> files) {
+        List<PendingFile> remaining = new ArrayList<>(files);
+        while (!remaining.isEmpty()) {
+            PendingFile failed = ingestRound(remaining);
+            if (failed == null) {
+                return;
+            }
+            quarantine(failed.path);
+            remaining.remove(failed);
+        }
+    }
+    
+    /**
+     * 合并一轮文件
+     * @return 读取失败的文件(本轮已回滚，没有发布任何数据)，成功时返回null
+     */
+    private PendingFile ingestRound(List<PendingFile> files) {
+        Path part = targetDir.resolve(partName(partIndex + 1));
+        Path tempPart = tempPartOf(part);
+        
+        ExcelConfig<T> excelConfig = ExcelConfig.<T>builder()
+                .modelClass(config.getModelClass())
+                .targetFile(tempPart.toString())
+                .batchSize(config.getBatchSize())
+                .maxConcurrentFiles(1)
+                .continueOnError(true)  // 单行转换失败只跳过该行，整个文件失败通过getFileErrorCount判断
+                .build();
+        ExcelReader<T> reader = new ExcelReader<>(excelConfig, readExecutor, watchId);
+        ExcelWriter<T> writer = new ExcelWriter<>(excelConfig, watchId);
+        long[] partRows = new long[1];
+        // 本轮新增的去重键，随本轮提交写入日志和键存储，失败时直接丢弃
+        Set<Object> roundKeys = new LinkedHashSet<>();
+        Exception[] writeFailure = new Exception[1];
+        boolean committed = false;
+        
+        try {
+            for (PendingFile file : files) {
+                int fileErrors = reader.getFileErrorCount();
+                Exception failure = null;
+                try {
+                    reader.readFilesWithCallback(Collections.singletonList(file.path.toString()),
+                            config.getModelClass(), batch -> {
+                                List<T> accepted = accept(batch, roundKeys);
+                                if (accepted.isEmpty()) {
+                                    return;
+                                }
+                                try {
+                                    writer.append(accepted);
+                                } catch (Exception e) {
+                                    // 读取器把回调异常当作批次错误记录后继续，这里单独记下
+                                    writeFailure[0] = e;
+                                    throw new RuntimeException("写入分段文件失败", e);
+                                }
+                                partRows[0] += accepted.size();
+                            });
+                } catch (Exception e) {
+                    failure = e;
+                }
+                if (writeFailure[0] != null) {
+                    throw new IOException("写入分段文件失败: " + tempPart, writeFailure[0]);
+                }
+                if (failure != null || reader.getFileErrorCount() > fileErrors) {
+                    log.error("[{}] 读取文件失败，本轮不发布分段文件: {}", watchId, file.path, failure);
+                    return file;
+                }
+            }
+            writer.finish();
+            
+            // 先追加引用新分段的日志记录(提交点)，再改名发布；改名前退出时由启动恢复补做改名
+            JournalRecord record = new JournalRecord(partRows[0] > 0 ? partIndex + 1 : partIndex);
+            files.forEach(file -> record.addedFiles.add(file.path.toString()));
+            record.keys.addAll(roundKeys);
+            appendJournal(record);
+            committed = true;
+            files.forEach(file -> ingestedFiles.add(file.path));
+            for (Object key : roundKeys) {
+                seenKeys.addNew(key);
+            }
+            if (partRows[0] > 0) {
+                partIndex++;
+                Files.move(tempPart, part, StandardCopyOption.ATOMIC_MOVE);
+            }
+            // 指标先于分段文件列表更新，外部看到新分段时指标已包含它
+            recordIngested(files, partRows[0]);
+            if (partRows[0] > 0) {
+                publishedParts.add(part.toString());
+            }
+        } catch (IOException e) {
+            if (committed) {
+                log.error("[{}] 发布分段文件失败，重启时按状态日志恢复: {}", watchId, part, e);
+                return null;
+            }
+            log.error("[{}] 发布分段文件失败，稍后重试: {}", watchId, part, e);
+            requeue(files);
+            return null;
+        } finally {
+            writer.abort();
+            if (!committed) {
+                deleteQuietly(tempPart);
+            }
+        }
+        
+        log.info("[{}] 增量合并 {} 个文件，新增 {} 行，输出: {}，最大延迟: {}ms",
+                watchId, files.size(), partRows[0], partRows[0] > 0 ? part : "无", maxLatencyMillis.get());
+        return null;
+    }
+    
+    /**
+     * 发布失败的文件重新等待稳定，settleMillis后再次合并
+     */
+    private void requeue(List<PendingFile> files) {
+        long now = System.currentTimeMillis();
+        for (PendingFile file : files) {
+            file.lastChangeMillis = now;
+            pendingFiles.put(file.path, file);
+        }
+    }
+    
+    /**
+     * 把读取失败的文件移到隔离目录，移动失败时留在原处，等文件再次变化后重试
+     */
+    private void quarantine(Path path) {
+        try {
+            Files.createDirectories(quarantineDir);
+            Path target = quarantineDir.resolve(path.getFileName());
+            Files.move(path, target, StandardCopyOption.REPLACE_EXISTING);
+            log.warn("[{}] 文件已隔离: {} -> {}", watchId, path, target);
+        } catch (IOException e) {
+            log.error("[{}] 隔离文件失败，保留在监听目录: {}", watchId, path, e);
+        }
+    }
+    
+    /**
+     * 记录新增行数以及从发现文件到数据可用的延迟
+     */
+    private void recordIngested(List<PendingFile> files, long rows) {
+        long now = System.currentTimeMillis();
+        for (PendingFile file : files) {
+            long latency = now - file.firstSeenMillis;
+            lastLatencyMillis.set(latency);
+            maxLatencyMillis.accumulateAndGet(latency, Math::max);
+            totalLatencyMillis.addAndGet(latency);
+            latencySamples.incrementAndGet();
+        }
+        totalRows.addAndGet(rows);
+    }
+    
+    /**
+     * 过滤并按键去重(键集合即增量状态，不需要重新读取已处理的文件)
+     * @param roundKeys 收集本轮新增的键
+     */
+    private List<T> accept(List<T> batch, Set<Object> roundKeys) {
+        List<T> accepted = new ArrayList<>(batch.size());
+        for (T item : batch) {
+            if (config.getFilter() != null && !config.getFilter().test(item)) {
+                continue;
+            }
+            if (config.getKeyExtractor() != null) {
+                Object key = config.getKeyExtractor().apply(item);
+                if (seenKeys.contains(key) || !roundKeys.add(key)) {
+                    continue;
+                }
+            }
+            accepted.add(item);
+        }
+        return accepted;
+    }
+    
+    private String partName(int index) {
+        return String.format("%s%05d%s", partPrefix, index, partSuffix);
+    }
+    
+    private static Path tempPartOf(Path part) {
+        return part.resolveSibling("." + part.getFileName() + ".tmp");
+    }
+    
+    /**
+     * 按状态日志恢复已处理文件和去重键，返回已提交的分段序号
+     * <p>
+     * 日志末尾写了一半的记录(追加时退出)截掉；状态已提交但分段文件还是临时文件时补做改名；
+     * 其余未提交的临时分段文件直接删除。没有日志时按输出目录中已有分段文件的最大序号继续编号。
+     * </p>
+     */
+    private int restoreState() throws IOException {
+        int committed;
+        if (Files.exists(journalFile)) {
+            int[] maxPart = new int[1];
+            long[] keys = new long[1];
+            int records = readJournal(journalFile, record -> {
+                maxPart[0] = Math.max(maxPart[0], record.partIndex);
+                record.addedFiles.forEach(file -> ingestedFiles.add(Paths.get(file)));
+                record.removedFiles.forEach(file -> ingestedFiles.remove(Paths.get(file)));
+                // 日志中的键各不相同
+                for (Object key : record.keys) {
+                    seenKeys.addNew(key);
+                }
+                keys[0] += record.keys.size();
+            });
+            committed = maxPart[0];
+            
+            if (committed > 0) {
+                Path part = targetDir.resolve(partName(committed));
+                Path tempPart = tempPartOf(part);
+                if (!Files.exists(part) && Files.exists(tempPart)) {
+                    Files.move(tempPart, part, StandardCopyOption.ATOMIC_MOVE);
+                    log.info("[{}] 恢复已提交的分段文件: {}", watchId, part);
+                }
+            }
+            log.info("[{}] 恢复监听状态，已处理文件: {}，去重键: {}，分段序号: {}，日志记录: {}",
+                    watchId, ingestedFiles.size(), keys[0], committed, records);
+            
+            // 压缩后的记录数: 一条文件清单加上分块保存的键
+            long compactRecords = 1 + (keys[0] + COMPACT_KEYS_PER_RECORD - 1) / COMPACT_KEYS_PER_RECORD;
+            if (records > 2 * compactRecords + MIN_COMPACT_RECORDS) {
+                compactJournal(committed);
+            }
+        } else {
+            committed = lastPartIndex();
+        }
+        
+        Pattern tempPattern = Pattern.compile("\\." + Pattern.quote(partPrefix) + "\\d+" + Pattern.quote(partSuffix) + "\\.tmp");
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(targetDir)) {
+            for (Path path : stream) {
+                if (tempPattern.matcher(path.getFileName().toString()).matches()) {
+                    deleteQuietly(path);
+                }
+            }
+        }
+        return committed;
+    }
+    
+    /**
+     * 逐条读取日志记录，遇到不完整或校验失败的记录时截掉日志末尾
+     * @return 有效的记录数
+     */
+    private int readJournal(Path file, Consumer<JournalRecord> consumer) throws IOException {
+        long valid = 0;
+        int records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                byte[] data;
+                long checksum;
+                try {
+                    checksum = in.readLong();
+                    if (length < 0) {
+                        break;
+                    }
+                    data = new byte[length];
+                    in.readFully(data);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(data);
+                if (crc.getValue() != checksum) {
+                    break;
+                }
+                try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(data))) {
+                    consumer.accept((JournalRecord) objectIn.readObject());
+                } catch (ClassNotFoundException | ClassCastException e) {
+                    throw new IOException("状态日志格式错误: " + file, e);
+                }
+                valid += RECORD_HEADER_BYTES + length;
+                records++;
+            }
+        }
+        if (valid < Files.size(file)) {
+            log.warn("[{}] 截掉状态日志末尾不完整的记录: {}，保留 {} 字节", watchId, file, valid);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+        }
+        return records;
+    }
+    
+    /**
+     * 把日志重写为一条当前文件清单加上分块保存的键，写完后原子替换
+     */
+    private void compactJournal(int committed) throws IOException {
+        Path temp = journalFile.resolveSibling(journalFile.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            JournalRecord files = new JournalRecord(committed);
+            ingestedFiles.forEach(path -> files.addedFiles.add(path.toString()));
+            writeRecord(out, files);
+            
+            JournalRecord[] chunk = {new JournalRecord(committed)};
+            IOException[] failure = new IOException[1];
+            readJournal(journalFile, record -> {
+                for (Object key : record.keys) {
+                    chunk[0].keys.add(key);
+                    if (chunk[0].keys.size() >= COMPACT_KEYS_PER_RECORD && failure[0] == null) {
+                        try {
+                            writeRecord(out, chunk[0]);
+                        } catch (IOException e) {
+                            failure[0] = e;
+                        }
+                        chunk[0] = new JournalRecord(committed);
+                    }
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            if (!chunk[0].keys.isEmpty()) {
+                writeRecord(out, chunk[0]);
+            }
+            out.force(true);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+        Files.move(temp, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("[{}] 状态日志已压缩: {}", watchId, journalFile);
+    }
+    
+    /**
+     * 追加一条日志记录并刷到磁盘，写入失败时截掉写了一半的记录
+     */
+    private void appendJournal(JournalRecord record) throws IOException {
+        long size = journal.size();
+        try {
+            writeRecord(journal, record);
+            journal.force(false);
+        } catch (IOException e) {
+            try {
+                journal.truncate(size);
+            } catch (IOException truncateError) {
+                e.addSuppressed(truncateError);
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * 记录格式: 长度(int) + CRC32(long) + 序列化的记录
+     */
+    private static void writeRecord(FileChannel channel, JournalRecord record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {
+            objectOut.writeObject(record);
+        }
+        byte[] data = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_BYTES + data.length);
+        buffer.putInt(data.length).putLong(crc.getValue()).put(data).flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+    
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("[{}] 删除临时文件失败: {}", watchId, path, e);
+        }
+    }
+    
+    /**
+     * 输出目录中已有分段文件的最大序号，没有状态日志时据此继续编号
+     */
+    private int lastPartIndex() throws IOException {
+        Pattern pattern = Pattern.compile(Pattern.quote(partPrefix) + "(\\d+)" + Pattern.quote(partSuffix));
+        int max = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(targetDir)) {
+            for (Path path : stream) {
+                Matcher matcher = pattern.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    max = Math.max(max, Integer.parseInt(matcher.group(1)));
+                }
+            }
+        }
+        return max;
+    }
+    
+    /**
+     * 已处理且仍在监听目录中的文件数
+     */
+    public int getIngestedFileCount() {
+        return ingestedFiles.size();
+    }
+    
+    /**
+     * 已写入分段文件的总行数
+     */
+    public long getTotalRows() {
+        return totalRows.get();
+    }
+    
+    /**
+     * 已发布的分段文件路径，按发布顺序
+     */
+    public List<String> getPublishedParts() {
+        return Collections.unmodifiableList(publishedParts);
+    }
+    
+    /**
+     * 最近处理的文件从发现到可用的延迟(毫秒)，尚未处理文件时为-1
+     */
+    public long getLastLatencyMillis() {
+        return lastLatencyMillis.get();
+    }
+    
+    /**
+     * 最大延迟(毫秒)，尚未处理文件时为-1
+     */
+    public long getMaxLatencyMillis() {
+        return maxLatencyMillis.get();
+    }
+    
+    /**
+     * 平均延迟(毫秒)，尚未处理文件时为-1
+     */
+    public long getAverageLatencyMillis() {
+        long count = latencySamples.get();
+        return count == 0 ? -1 : totalLatencyMillis.get() / count;
+    }
+    
+    /**
+     * 停止监听，正在进行的增量合并完成后返回
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            watchThread.join(TimeUnit.SECONDS.toMillis(60));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            log.warn("[{}] 关闭WatchService失败", watchId, e);
+        }
+        readExecutor.shutdownNow();
+        try {
+            journal.close();
+        } catch (IOException e) {
+            log.warn("[{}] 关闭状态日志失败", watchId, e);
+        }
+        closeKeys();
+        log.info("[{}] 停止监听目录: {}，共处理 {} 个文件，{} 行", watchId, sourceDir, ingestedFiles.size(), totalRows.get());
+    }
+    
+    private static void closeQuietly(AutoCloseable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                // 忽略
+            }
+        }
+    }
+    
+    private void closeKeys() {
+        if (seenKeys != null) {
+            seenKeys.close();
+        }
+    }
+    
+    /**
+     * 状态日志记录: 一轮提交的变化，去重键需要可序列化
+     */
+    private static class JournalRecord implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
+        // 记录写入时已提交的分段序号
+        private final int partIndex;
+        private final ArrayList<String> addedFiles = new ArrayList<>();
+        private final ArrayList<String> removedFiles = new ArrayList<>();
+        private final ArrayList<Object> keys = new ArrayList<>();
+        
+        private JournalRecord(int partIndex) {
+            this.partIndex = partIndex;
+        }
+    }
+    
+    /**
+     * 等待稳定的文件
+     */
+    private static class PendingFile {
+        private final Path path;
+        private final long firstSeenMillis;
+        private long lastSize = -1;
+        private long lastChangeMillis;
+        
+        private PendingFile(Path path, long firstSeenMillis) {
+            this.path = path;
+            this.firstSeenMillis = firstSeenMillis;
+            this.lastChangeMillis = firstSeenMillis;
+        }
+    }
+} 
\ No newline at end of file
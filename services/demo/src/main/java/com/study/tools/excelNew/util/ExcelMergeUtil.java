@@ -3,9 +3,11 @@ package com.study.tools.excelNew.util;
 import com.study.tools.excelNew.ExcelMergeTool;
 import com.study.tools.excelNew.MergeConfig;
 import com.study.tools.excelNew.MergeResult;
+import com.study.tools.excelNew.WatchConfig;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -89,4 +91,33 @@ public class ExcelMergeUtil {
                     .build();
         }
     }
+    
+    /**
+     * 监听目录，持续增量合并新落地的Excel/CSV文件
+     * 每个文件只读取一次，新数据写入按序号编号的分段输出文件，使用完毕后调用close()停止监听
+     *
+     * @param sourceDir 监听的落地目录
+     * @param targetFile 目标文件(分段文件以其文件名加序号命名)
+     * @param modelClass 数据模型类
+     * @param <T> 数据模型类型
+     * @return 目录监听器
+     */
+    public static <T> DirectoryMergeWatcher<T> watchDirectory(String sourceDir, String targetFile, Class<T> modelClass) throws IOException {
+        return watchDirectory(WatchConfig.<T>builder()
+                .sourceDir(sourceDir)
+                .targetFile(targetFile)
+                .modelClass(modelClass)
+                .build());
+    }
+    
+    /**
+     * 按配置监听目录，持续增量合并新落地的文件
+     *
+     * @param config 监听配置
+     * @param <T> 数据模型类型
+     * @return 目录监听器
+     */
+    public static <T> DirectoryMergeWatcher<T> watchDirectory(WatchConfig<T> config) throws IOException {
+        return new DirectoryMergeWatcher<>(config);
+    }
 } 
\ No newline at end of file
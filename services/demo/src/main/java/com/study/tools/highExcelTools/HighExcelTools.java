@@ -1,29 +1,54 @@
 package com.study.tools.highExcelTools;
 
+import com.study.tools.highExcelTools.config.AggregationSpec;
 import com.study.tools.highExcelTools.config.ErrorCallback;
 import com.study.tools.highExcelTools.config.ExcelConfig;
+import com.study.tools.highExcelTools.config.JoinSpec;
 import com.study.tools.highExcelTools.config.ProgressCallback;
 import com.study.tools.highExcelTools.core.ExcelReader;
 import com.study.tools.highExcelTools.core.ExcelWriter;
+import com.study.tools.highExcelTools.core.FileBatchConsumer;
+import com.study.tools.highExcelTools.model.DedupStatistics;
 import com.study.tools.highExcelTools.model.ErrorCollector;
 import com.study.tools.highExcelTools.model.ErrorRecord;
 import com.study.tools.highExcelTools.model.ExcelResult;
+import com.study.tools.highExcelTools.model.MergeHandle;
+import com.study.tools.highExcelTools.model.Row;
+import com.study.tools.highExcelTools.model.RowSchema;
+import com.study.tools.highExcelTools.processor.Aggregator;
 import com.study.tools.highExcelTools.processor.DataProcessor;
+import com.study.tools.highExcelTools.processor.ExternalSorter;
+import com.study.tools.highExcelTools.processor.HashJoiner;
+import com.study.tools.highExcelTools.processor.RowPipeline;
+import com.study.tools.highExcelTools.util.CancellationToken;
+import com.study.tools.highExcelTools.util.FieldRowCodec;
 import com.study.tools.highExcelTools.util.MemoryMonitor;
+import com.study.tools.highExcelTools.util.MergeCancelledException;
+import com.study.tools.highExcelTools.util.ProgressDispatcher;
+import com.study.tools.highExcelTools.util.RowCodec;
+import com.study.tools.highExcelTools.util.RowValueCodec;
+import com.study.tools.highExcelTools.util.SortKeys;
 import com.study.tools.highExcelTools.util.ThreadPoolManager;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -33,9 +58,13 @@ import java.util.function.Function;
  */
 @Slf4j
 public class HighExcelTools {
+    // 异步合并共享线程池的线程数和排队上限
+    private static final int ASYNC_MERGE_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+    private static final int ASYNC_MERGE_QUEUE_CAPACITY = 64;
+    
     /**
      * 合并多个Excel文件
-     * 
+     *
      * @param config 合并配置
      * @param <T> 数据模型类型
      * @return 合并结果
@@ -43,6 +72,105 @@ public class HighExcelTools {
     public <T> ExcelResult<T> mergeExcel(ExcelConfig<T> config) {
         // 生成操作ID，用于跟踪日志和关联各处理组件
         String operationId = UUID.randomUUID().toString().substring(0, 8);
+        return mergeExcel(config, operationId, new CancellationToken());
+    }
+    
+    /**
+     * 异步合并多个Excel文件
+     * 合并在共享的有界线程池中执行，同时执行的合并数超过线程数时排队，排队数超过上限时Future以拒绝异常完成。
+     * 返回的句柄可随时取消：取消后在下一个批次边界停止，释放线程池，删除未完成的输出文件，
+     * Future以取消结果(包含已读取行数、已处理批次数和耗时)正常完成；直接取消Future同样会触发协作式取消
+     *
+     * @param config 合并配置
+     * @param <T> 数据模型类型
+     * @return 合并任务句柄
+     */
+    public <T> MergeHandle<T> mergeExcelAsync(ExcelConfig<T> config) {
+        return mergeExcelAsync(config, AsyncMergeExecutorHolder.EXECUTOR);
+    }
+    
+    /**
+     * 在调用方提供的执行器中异步合并多个Excel文件
+     *
+     * @param config 合并配置
+     * @param asyncExecutor 执行合并任务的执行器(与读取线程池无关)
+     * @param <T> 数据模型类型
+     * @return 合并任务句柄
+     */
+    public <T> MergeHandle<T> mergeExcelAsync(ExcelConfig<T> config, Executor asyncExecutor) {
+        String operationId = UUID.randomUUID().toString().substring(0, 8);
+        CancellationToken token = new CancellationToken();
+        CompletableFuture<ExcelResult<T>> future = new CompletableFuture<>();
+        
+        // Future被直接取消时，通知合并流程停止
+        future.whenComplete((result, e) -> {
+            if (future.isCancelled()) {
+                token.cancel("Future已取消");
+            }
+        });
+        
+        try {
+            asyncExecutor.execute(() -> {
+                // 排队期间已取消的任务不再执行
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(mergeExcel(config, operationId, token));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("[{}] 异步合并任务被拒绝，排队任务过多", operationId);
+            future.completeExceptionally(e);
+        }
+        
+        return new MergeHandle<>(operationId, future, token);
+    }
+    
+    /**
+     * 异步合并共享线程池，首次使用时创建
+     * 线程数固定、队列有界，空闲线程超时后退出，守护线程不阻止JVM退出
+     */
+    private static final class AsyncMergeExecutorHolder {
+        static final ThreadPoolExecutor EXECUTOR = createExecutor();
+        
+        private static ThreadPoolExecutor createExecutor() {
+            AtomicInteger threadNumber = new AtomicInteger(1);
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    ASYNC_MERGE_THREADS, ASYNC_MERGE_THREADS,
+                    60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(ASYNC_MERGE_QUEUE_CAPACITY),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "excel-merge-async-" + threadNumber.getAndIncrement());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+    
+    /**
+     * 合并多个Excel文件(可取消)
+     * 由调用方持有取消标记，适用于在自有线程或任务调度器中执行合并
+     *
+     * @param config 合并配置
+     * @param token 取消标记
+     * @param <T> 数据模型类型
+     * @return 合并结果，取消时isCancelled()为true
+     */
+    public <T> ExcelResult<T> mergeExcel(ExcelConfig<T> config, CancellationToken token) {
+        String operationId = UUID.randomUUID().toString().substring(0, 8);
+        return mergeExcel(config, operationId, token);
+    }
+    
+    /**
+     * 合并多个Excel文件(可取消)
+     */
+    private <T> ExcelResult<T> mergeExcel(ExcelConfig<T> config, String operationId, CancellationToken token) {
         long startTime = System.currentTimeMillis();
         
         log.info("[{}] 开始合并Excel文件，文件数量: {}", operationId, config.getSourceFiles().size());
@@ -58,8 +186,24 @@ public class HighExcelTools {
         ExecutorService executor = null;
         // 是否需要关闭线程池的标志
         boolean needShutdownExecutor = false;
+        // 数据处理器声明，在finally块中释放去重索引
+        DataProcessor<T> processor = null;
+        // 外部排序器声明，在finally块中删除临时有序段
+        ExternalSorter<T> sorter = null;
+        // 分组聚合处理器声明，在finally块中删除溢写文件
+        Aggregator<T> aggregator = null;
+        // 连接处理器声明，在finally块中删除分区文件
+        HashJoiner<T, ?> joiner = null;
+        // 读取器和写入器声明，取消时用于统计已读取行数和关闭未完成的输出文件
+        ExcelReader<T> reader = null;
+        ExcelWriter<T> writer = null;
+        final AtomicInteger batchCount = new AtomicInteger(0);
+        // 进度分发器，读取、处理、写入共用，在finally块中停止
+        final ProgressDispatcher progress = ProgressDispatcher.create(config, operationId);
         
         try {
+            progress.start();
+            
             // 创建目标目录
             Path outputPath = Paths.get(config.getTargetFile());
             Files.createDirectories(outputPath.getParent());
@@ -74,7 +218,8 @@ public class HighExcelTools {
             
             // 监控线程池状态
             // 创建后台守护线程定期监控线程池状态并动态调整线程池大小
-            if (executor instanceof ThreadPoolExecutor) {
+            // 外部提供的共享线程池由提供方监控，避免每次合并各启动一个监控线程
+            if (config.getExecutor() == null && executor instanceof ThreadPoolExecutor) {
                 final ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor) executor;
                 // 创建守护线程，每5秒监控一次线程池状态
                 Thread monitorThread = new Thread(() -> {
@@ -97,45 +242,95 @@ public class HighExcelTools {
             }
             
             // 报告进度: 开始阶段
-            reportProgress(config.getProgressCallback(), 0, 100, "初始化", "准备合并文件");
+            progress.onProgress(0, 100, "初始化", "准备合并文件");
             
             // 创建读取器
-            ExcelReader<T> reader = new ExcelReader<>(config, executor, operationId);
+            reader = new ExcelReader<>(config, executor, operationId, token, progress);
             
             // 创建数据处理器
-            DataProcessor<T> processor = new DataProcessor<>(config, operationId);
+            processor = new DataProcessor<>(config, operationId, progress);
+            final DataProcessor<T> batchProcessor = processor;
             
             // 创建写入器
-            ExcelWriter<T> writer = new ExcelWriter<>(config, operationId);
+            writer = new ExcelWriter<>(config, operationId, progress);
+            final ExcelWriter<T> batchWriter = writer;
+            
+            // 配置了排序时，处理后的数据进入外部排序器，不在内存中累积
+            if (config.hasSort()) {
+                sorter = createSorter(config, operationId);
+            }
+            final ExternalSorter<T> batchSorter = sorter;
+            
+            // 配置了分组聚合时，处理后的数据同时进入聚合阶段
+            if (config.getAggregation() != null) {
+                aggregator = new Aggregator<>(config.getAggregation(), operationId,
+                        (item, e) -> batchProcessor.handleKeyExtractionError("分组键提取", item, e));
+            }
+            final Aggregator<T> batchAggregator = aggregator;
+            // 只输出汇总时不保留明细行
+            final boolean keepDetail = config.getAggregation() == null || !config.getAggregation().isSummaryOnly();
+            
+            // 配置了连接补全时，先读取参考数据建立哈希表
+            if (config.getJoin() != null) {
+                progress.onProgress(5, 100, "连接", "读取参考数据");
+                joiner = new HashJoiner<>(config.getJoin(), config, executor, operationId, token);
+                joiner.build();
+            }
+            final HashJoiner<T, ?> batchJoiner = joiner;
             
             // 流式处理数据
             // 使用线程安全的集合存储处理结果
             final List<T> processedData = Collections.synchronizedList(new ArrayList<>());
-            final AtomicInteger batchCount = new AtomicInteger(0);
             
-            BiConsumer<List<T>, Boolean> processBatch = (batch, isLastBatch) -> {
+            // 有序模式下每个文件一个结果分段，同一文件的批次由同一线程按行顺序回调
+            final int fileCount = config.getSourceFiles().size();
+            final List<List<T>> fileSegments = new ArrayList<>(fileCount);
+            if (config.isPreserveOrder()) {
+                for (int i = 0; i < fileCount; i++) {
+                    fileSegments.add(new ArrayList<>());
+                }
+            }
+            
+            // 最终数据交给下游: 聚合、排序或结果列表
+            final Consumer<List<T>> downstream = rows -> {
+                if (rows.isEmpty()) return;
+                try {
+                    if (batchAggregator != null) {
+                        batchAggregator.accumulate(rows);
+                    }
+                    if (keepDetail && batchSorter != null) {
+                        batchSorter.add(rows);
+                    } else if (keepDetail) {
+                        processedData.addAll(rows);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+            
+            FileBatchConsumer<T> processBatch = (fileIndex, batch) -> {
                 try {
+                    token.throwIfCancelled();
                     if (batch.isEmpty()) return;
                     
                     // 处理批次数据(过滤、去重)
-                    List<T> processed = processor.process(batch);
+                    List<T> processed = batchProcessor.process(batch);
                     
-                    // 添加到最终结果
-                    if (!processed.isEmpty()) {
-                        processedData.addAll(processed);
+                    // 有序模式先按文件暂存，全局去重后再连接和聚合，避免跨批次重复行被重复计入
+                    if (config.isPreserveOrder()) {
+                        fileSegments.get(fileIndex).addAll(processed);
+                    } else {
+                        downstream.accept(batchJoiner != null ? batchJoiner.probe(processed) : processed);
                     }
                     
                     // 报告进度
                     int batchNum = batchCount.incrementAndGet();
                     if (batchNum % 10 == 0) {
-                        log.info("[{}] 已处理 {} 个数据批次，当前内存: {}", 
+                        log.info("[{}] 已处理 {} 个数据批次，当前内存: {}",
                                 operationId, batchNum, MemoryMonitor.getMemoryInfo());
                     }
-                    
-                    // 如果是最后一批，写入结果
-                    if (isLastBatch && !processedData.isEmpty()) {
-                        writer.write(processedData);
-                    }
+                } catch (MergeCancelledException e) {
+                    throw e;
                 } catch (Exception e) {
                     log.error("[{}] 处理数据批次时发生错误", operationId, e);
                     throw new RuntimeException("处理数据批次时发生错误", e);
@@ -143,36 +338,148 @@ public class HighExcelTools {
             };
             
             // 使用流式读取并处理
-            Consumer<List<T>> batchHandler = batch -> processBatch.accept(batch, false);
-            reader.readFilesWithCallback(config.getSourceFiles(), config.getModelClass(), batchHandler);
+            reader.readFilesWithCallback(config.getSourceFiles(), config.getModelClass(), processBatch);
+            token.throwIfCancelled();
             
-            // 处理最后一批
-            processBatch.accept(new ArrayList<>(), true);
+            // 有序模式：按文件顺序拼接各分段，再做一次全局保序去重
+            if (config.isPreserveOrder()) {
+                List<T> ordered = new ArrayList<>();
+                for (int i = 0; i < fileCount; i++) {
+                    ordered.addAll(fileSegments.get(i));
+                    fileSegments.set(i, null);
+                }
+                ordered = batchProcessor.deduplicateOrdered(ordered);
+                if (joiner != null) {
+                    if (joiner.isGraceMode()) {
+                        log.warn("[{}] 参考数据超过内存上限，分区哈希连接的输出按分区排列，不保持原始顺序", operationId);
+                    }
+                    ordered = joiner.probe(ordered);
+                }
+                downstream.accept(ordered);
+            }
+            
+            // 分区哈希连接在读取结束后逐个分区输出
+            if (joiner != null) {
+                int chunkSize = config.getBatchSize() > 0 ? config.getBatchSize() : 5000;
+                joiner.finish(downstream, chunkSize);
+            }
+            
+            // 无模型读取时按各文件表头的并集写出(配置了自定义表头时按自定义表头对齐)
+            if (Row.class.equals(config.getModelClass()) && config.getHeadList() == null) {
+                RowSchema outputSchema = reader.getMergedSchema();
+                if (outputSchema != null) {
+                    writer.setOutputSchema(outputSchema);
+                }
+            }
+            
+            // 先写汇总Sheet(位于明细Sheet之前)，明细写入在autoCloseStream=false时会关闭写入器
+            long summaryRows = 0;
+            if (aggregator != null) {
+                progress.onProgress(85, 100, "聚合", "写入汇总Sheet");
+                AggregationSpec<T> aggregation = config.getAggregation();
+                List<List<String>> summaryHead = aggregation.head();
+                int chunkSize = config.getBatchSize() > 0 ? config.getBatchSize() : 5000;
+                summaryRows = aggregator.writeTo(rows -> {
+                    token.throwIfCancelled();
+                    try {
+                        batchWriter.appendToSheet(aggregation.getSheetName(), summaryHead, rows);
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new RuntimeException("写入汇总Sheet失败", e);
+                    }
+                }, chunkSize);
+            }
+            
+            // 写入结果
+            long totalRows;
+            if (sorter != null) {
+                // k路归并结果逐块写入，不在内存中保留完整结果
+                progress.onProgress(90, 100, "排序", "归并有序段并写入");
+                int chunkSize = config.getBatchSize() > 0 ? config.getBatchSize() : 5000;
+                totalRows = sorter.mergeTo(chunk -> {
+                    token.throwIfCancelled();
+                    try {
+                        batchWriter.append(chunk);
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new RuntimeException("写入排序结果失败", e);
+                    }
+                }, chunkSize);
+            } else {
+                totalRows = processedData.size();
+                progress.setExpectedWriteRows(totalRows);
+                if (!processedData.isEmpty()) {
+                    writer.write(processedData);
+                }
+            }
             
             // 完成写入
             writer.finish();
             
             // 报告进度: 完成阶段
-            reportProgress(config.getProgressCallback(), 100, 100, "完成", "文件合并完成");
+            progress.onProgress(100, 100, "完成", "文件合并完成");
             
             // 计算耗时
             long timeMillis = System.currentTimeMillis() - startTime;
             
-            log.info("[{}] 合并完成，总行数: {}, 耗时: {}ms", 
-                    operationId, processedData.size(), timeMillis);
+            log.info("[{}] 合并完成，总行数: {}, 耗时: {}ms",
+                    operationId, totalRows, timeMillis);
             
-            return ExcelResult.success(
+            // 排序模式下结果已直接写入文件，不返回数据列表
+            ExcelResult<T> result = ExcelResult.success(
                     "MERGE",
                     processedData,
-                    processedData.size(),
+                    (int) totalRows,
                     timeMillis,
                     config.getTargetFile()
             );
             
+            result.setSummaryRows(summaryRows);
+            
+            // 附加去重统计(布隆过滤器误判率和命中情况)
+            DedupStatistics dedupStatistics = processor.getDedupStatistics();
+            if (dedupStatistics != null) {
+                log.info("[{}] 布隆过滤去重统计: 检查键数={}, 跳过精确查找={}, 误判={}, 观测误判率={}, 跨批次重复={}",
+                        operationId, dedupStatistics.getKeysChecked(), dedupStatistics.getExactLookupsSkipped(),
+                        dedupStatistics.getFalsePositives(), dedupStatistics.getObservedFalsePositiveRate(),
+                        dedupStatistics.getCrossBatchDuplicates());
+                result.setDedupStatistics(dedupStatistics);
+            }
+            
+            return result;
+            
         } catch (Exception e) {
+            if (token.isCancelled() || MergeCancelledException.isCause(e)) {
+                return cancelMerge(config, operationId, token, reader, writer, progress, batchCount.get(), startTime);
+            }
             log.error("[{}] 合并过程中发生错误", operationId, e);
             return ExcelResult.failure("MERGE", "合并失败: " + e.getMessage(), e);
         } finally {
+            // 停止进度发布，最后一次进度在调度线程中回调
+            progress.close();
+            
+            // 释放去重索引
+            if (processor != null) {
+                processor.close();
+            }
+            
+            // 删除排序临时文件
+            if (sorter != null) {
+                sorter.close();
+            }
+            
+            // 删除聚合溢写文件
+            if (aggregator != null) {
+                aggregator.close();
+            }
+            
+            // 删除连接分区文件
+            if (joiner != null) {
+                joiner.close();
+            }
+            
             // 关闭线程池
             // 只有在需要关闭的情况下才关闭线程池
             // needShutdownExecutor为true说明线程池是内部创建的，需要由本类负责关闭
@@ -184,9 +491,46 @@ public class HighExcelTools {
         }
     }
     
+    /**
+     * 取消后的清理: 关闭写入器，删除未完成的输出文件，返回部分统计
+     */
+    private <T> ExcelResult<T> cancelMerge(ExcelConfig<T> config, String operationId, CancellationToken token,
+                                           ExcelReader<T> reader, ExcelWriter<T> writer,
+                                           ProgressDispatcher progress, int batches, long startTime) {
+        if (writer != null) {
+            writer.abort();
+        }
+        try {
+            Files.deleteIfExists(Paths.get(config.getTargetFile()));
+        } catch (IOException e) {
+            log.warn("[{}] 删除未完成的输出文件失败: {}", operationId, config.getTargetFile(), e);
+        }
+        
+        long rowsRead = reader != null ? reader.getTotalProcessedRows() : 0;
+        long timeMillis = System.currentTimeMillis() - startTime;
+        String reason = token.getReason() != null ? token.getReason() : "未知原因";
+        log.warn("[{}] 合并已取消({})，已读取 {} 行，已处理 {} 个批次，耗时: {}ms",
+                operationId, reason, rowsRead, batches, timeMillis);
+        
+        progress.onProgress(100, 100, "取消", "合并已取消");
+        return ExcelResult.cancelled("MERGE", reason, (int) rowsRead, batches, timeMillis);
+    }
+    
+    /**
+     * 创建行处理管道
+     * 通过ExcelConfig.pipeline设置后在过滤器之后、去重之前执行，管道中的map、filter、flatMap、peek融合为逐行循环执行，dedup为断点
+     *
+     * @param modelClass 数据模型类，合并前校验与配置的模型类一致
+     * @param <T> 数据模型类型
+     * @return 空管道
+     */
+    public static <T> RowPipeline<T, T> pipeline(Class<T> modelClass) {
+        return RowPipeline.identity(modelClass);
+    }
+    
     /**
      * 快速合并Excel文件
-     * 
+     *
      * @param sourceFiles 源文件列表
      * @param targetFile 目标文件
      * @param modelClass 数据模型类
@@ -200,7 +544,7 @@ public class HighExcelTools {
     
     /**
      * 快速合并Excel文件（带去重）
-     * 
+     *
      * @param sourceFiles 源文件列表
      * @param targetFile 目标文件
      * @param modelClass 数据模型类
@@ -209,8 +553,8 @@ public class HighExcelTools {
      * @return 合并结果
      */
     public <T> ExcelResult<T> quickMergeWithDedup(
-            List<String> sourceFiles, 
-            String targetFile, 
+            List<String> sourceFiles,
+            String targetFile,
             Class<T> modelClass,
             java.util.function.Function<T, Object> keyExtractor) {
         
@@ -218,9 +562,29 @@ public class HighExcelTools {
         return mergeExcel(config);
     }
     
+    /**
+     * 快速合并Excel文件（按long主键去重）
+     *
+     * @param sourceFiles 源文件列表
+     * @param targetFile 目标文件
+     * @param modelClass 数据模型类
+     * @param longKeyExtractor long主键提取器，如 LongKeys.prefixed("USER", 8, UserModel::getId)
+     * @param <T> 数据模型类型
+     * @return 合并结果
+     */
+    public <T> ExcelResult<T> quickMergeWithLongKeyDedup(
+            List<String> sourceFiles,
+            String targetFile,
+            Class<T> modelClass,
+            java.util.function.ToLongFunction<T> longKeyExtractor) {
+        
+        ExcelConfig<T> config = ExcelConfig.longKeyDedupConfig(sourceFiles, targetFile, modelClass, longKeyExtractor);
+        return mergeExcel(config);
+    }
+    
     /**
      * 导出Excel文件
-     * 
+     *
      * @param data 数据
      * @param targetFile 目标文件
      * @param modelClass 数据模型类
@@ -233,7 +597,7 @@ public class HighExcelTools {
     
     /**
      * 导出Excel文件（带进度回调）
-     * 
+     *
      * @param data 数据
      * @param targetFile 目标文件
      * @param modelClass 数据模型类
@@ -253,12 +617,12 @@ public class HighExcelTools {
                 .modelClass(modelClass)
                 .progressCallback(progressCallback)
                 .build();
-                
+        
         // 生成操作ID
         String operationId = UUID.randomUUID().toString().substring(0, 8);
         long startTime = System.currentTimeMillis();
         
-        log.info("[{}] 开始导出Excel文件: {}, 数据行数: {}", 
+        log.info("[{}] 开始导出Excel文件: {}, 数据行数: {}",
                 operationId, targetFile, data.size());
         
         try {
@@ -280,7 +644,7 @@ public class HighExcelTools {
             long timeMillis = System.currentTimeMillis() - startTime;
             double rowsPerSecond = writer.getWriteSpeed();
             
-            log.info("[{}] 导出完成，总行数: {}, 耗时: {}ms, 速度: {:.2f}行/秒", 
+            log.info("[{}] 导出完成，总行数: {}, 耗时: {}ms, 速度: {:.2f}行/秒",
                     operationId, data.size(), timeMillis, rowsPerSecond);
             
             return ExcelResult.success(
@@ -297,6 +661,26 @@ public class HighExcelTools {
         }
     }
     
+    /**
+     * 根据配置创建外部排序器
+     */
+    private <T> ExternalSorter<T> createSorter(ExcelConfig<T> config, String operationId) {
+        Comparator<T> comparator = config.getSortComparator() != null ?
+                config.getSortComparator() : SortKeys.comparator(config.getModelClass(), config.getSortColumns());
+        RowCodec<T> codec;
+        if (config.getSortRowCodec() != null) {
+            codec = config.getSortRowCodec();
+        } else if (Row.class.equals(config.getModelClass())) {
+            @SuppressWarnings("unchecked")
+            RowCodec<T> rowCodec = (RowCodec<T>) new RowValueCodec();
+            codec = rowCodec;
+        } else {
+            codec = new FieldRowCodec<>(config.getModelClass());
+        }
+        return new ExternalSorter<>(comparator, codec, config.getSortMemoryBudgetMb() * 1024 * 1024,
+                config.getSortTempDir(), operationId);
+    }
+    
     /**
      * 验证合并配置
      */
@@ -324,19 +708,76 @@ public class HighExcelTools {
             errors.add("数据模型类不能为空");
         }
         
-        if (config.isEnableDeduplication() && config.getKeyExtractor() == null) {
+        if (config.isEnableDeduplication() && !config.hasDedupKey()) {
             errors.add("启用去重时必须提供键提取器");
         }
         
-        return errors;
-    }
-    
-    /**
-     * 报告进度
-     */
-    private void reportProgress(ProgressCallback callback, long current, long total, String phase, String message) {
-        if (callback != null) {
-            callback.onProgress(current, total, phase, message);
+        if (config.isEnableBloomFilter() && config.getMergeFunction() != null) {
+            errors.add("启用布隆过滤器跨批次去重时不支持合并函数");
+        }
+        
+        if (config.getPipeline() != null && config.getPipeline().getInputType() != null
+                && config.getModelClass() != null
+                && !config.getPipeline().getInputType().isAssignableFrom(config.getModelClass())) {
+            errors.add("处理管道的输入类型 " + config.getPipeline().getInputType().getName()
+                    + " 与数据模型类 " + config.getModelClass().getName() + " 不匹配");
         }
+        
+        if (config.hasSort()) {
+            if (config.getSortMemoryBudgetMb() <= 0) {
+                errors.add("排序内存预算必须大于0");
+            }
+            if (config.getSortComparator() == null && config.getModelClass() != null) {
+                try {
+                    SortKeys.comparator(config.getModelClass(), config.getSortColumns());
+                } catch (IllegalArgumentException e) {
+                    errors.add(e.getMessage());
+                }
+            }
+        }
+        
+        if (config.getAggregation() != null) {
+            AggregationSpec<T> aggregation = config.getAggregation();
+            if (aggregation.getGroupExtractors().isEmpty() && aggregation.getMetrics().isEmpty()) {
+                errors.add("分组聚合至少需要一个分组列或聚合指标");
+            }
+            if (aggregation.getSheetName() == null || aggregation.getSheetName().trim().isEmpty()) {
+                errors.add("汇总Sheet名称不能为空");
+            }
+            if (aggregation.getMaxGroupsInMemory() <= 0) {
+                errors.add("聚合内存分组数上限必须大于0");
+            }
+        }
+        
+        if (config.getJoin() != null) {
+            JoinSpec<T, ?> join = config.getJoin();
+            if (join.getReferenceFiles() == null || join.getReferenceFiles().isEmpty()) {
+                errors.add("连接的参考数据文件不能为空");
+            } else {
+                for (String filePath : join.getReferenceFiles()) {
+                    if (!Files.isRegularFile(Paths.get(filePath))) {
+                        errors.add("参考数据文件不存在: " + filePath);
+                    }
+                }
+            }
+            if (join.getReferenceClass() == null) {
+                errors.add("连接的参考数据模型类不能为空");
+            }
+            if (join.getProbeKey() == null || join.getBuildKey() == null) {
+                errors.add("连接必须提供两侧的连接键提取器");
+            }
+            if (join.getEnricher() == null) {
+                errors.add("连接必须提供补全函数");
+            }
+            if (join.getMaxBuildRows() <= 0 || join.getGracePartitions() <= 0) {
+                errors.add("连接内存行数上限和分区数必须大于0");
+            }
+        }
+        
+        if (config.isPreserveOrder() && config.isEnableBloomFilter()) {
+            errors.add("保持输出顺序时不支持布隆过滤器跨批次去重(有序模式在读取完成后统一做全局去重)");
+        }
+        
+        return errors;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.study.tools.highExcelTools.config;
+
+import com.study.tools.highExcelTools.processor.Accumulator;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 分组聚合配置
+ * <p>
+ * 定义分组列和聚合指标，合并过程中对处理后的数据做流式哈希聚合，结果写入汇总Sheet。
+ * 汇总Sheet的列依次为分组列和指标列，表头使用这里给出的名称。
+ * </p>
+ * 示例:
+ * <pre>
+ * AggregationSpec.&lt;UserModel&gt;create()
+ *     .groupBy("状态", UserModel::getStatus)
+ *     .metric("人数", Accumulators.count())
+ *     .metric("积分合计", Accumulators.sumLong(UserModel::getPoints));
+ * </pre>
+ *
+ * @param <T> 数据模型类型
+ */
+@Getter
+public class AggregationSpec<T> {
+    // 默认汇总Sheet名称
+    public static final String DEFAULT_SHEET_NAME = "汇总";
+    // 默认内存中最多保留的分组数
+    public static final int DEFAULT_MAX_GROUPS_IN_MEMORY = 500_000;
+    
+    private final List<String> groupNames = new ArrayList<>();
+    private final List<Function<T, ?>> groupExtractors = new ArrayList<>();
+    private final List<String> metricNames = new ArrayList<>();
+    private final List<Accumulator<T, ?>> metrics = new ArrayList<>();
+    
+    private String sheetName = DEFAULT_SHEET_NAME;  // 汇总Sheet名称
+    private boolean summaryOnly = false;            // 是否只输出汇总(不写明细行)
+    private int maxGroupsInMemory = DEFAULT_MAX_GROUPS_IN_MEMORY; // 超过该分组数时按分区溢写聚合状态
+    private String spillDir;                        // 溢写临时目录(为空时使用系统临时目录)
+    
+    public static <T> AggregationSpec<T> create() {
+        return new AggregationSpec<>();
+    }
+    
+    /**
+     * 添加分组列
+     * @param name 汇总Sheet中的列名
+     * @param extractor 分组值提取器(值建议为字符串、数值、布尔或日期)
+     */
+    public AggregationSpec<T> groupBy(String name, Function<T, ?> extractor) {
+        groupNames.add(name);
+        groupExtractors.add(extractor);
+        return this;
+    }
+    
+    /**
+     * 添加聚合指标
+     * @param name 汇总Sheet中的列名
+     * @param accumulator 累加器
+     */
+    public AggregationSpec<T> metric(String name, Accumulator<T, ?> accumulator) {
+        metricNames.add(name);
+        metrics.add(accumulator);
+        return this;
+    }
+    
+    public AggregationSpec<T> sheetName(String sheetName) {
+        this.sheetName = sheetName;
+        return this;
+    }
+    
+    public AggregationSpec<T> summaryOnly(boolean summaryOnly) {
+        this.summaryOnly = summaryOnly;
+        return this;
+    }
+    
+    public AggregationSpec<T> maxGroupsInMemory(int maxGroupsInMemory) {
+        this.maxGroupsInMemory = maxGroupsInMemory;
+        return this;
+    }
+    
+    public AggregationSpec<T> spillDir(String spillDir) {
+        this.spillDir = spillDir;
+        return this;
+    }
+    
+    /**
+     * 汇总Sheet表头
+     */
+    public List<List<String>> head() {
+        List<List<String>> head = new ArrayList<>();
+        for (String name : groupNames) {
+            head.add(Collections.singletonList(name));
+        }
+        for (String name : metricNames) {
+            head.add(Collections.singletonList(name));
+        }
+        return head;
+    }
+} 
\ No newline at end of file
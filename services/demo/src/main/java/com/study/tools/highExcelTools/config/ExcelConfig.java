@@ -1,23 +1,31 @@
 package com.study.tools.highExcelTools.config;
 
+import com.alibaba.excel.support.ExcelTypeEnum;
 import com.alibaba.excel.write.handler.WriteHandler;
+import com.study.tools.highExcelTools.model.Row;
+import com.study.tools.highExcelTools.processor.ExactKeyStore;
+import com.study.tools.highExcelTools.processor.RowPipeline;
+import com.study.tools.highExcelTools.util.RowCodec;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.io.OutputStream;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 
 /**
  * Excel配置类
  * 包含Excel导入导出所有可配置选项
- * 
+ *
  * @param <T> 数据模型类型
  */
 @Data
@@ -30,13 +38,15 @@ public class ExcelConfig<T> {
      */
     private List<String> sourceFiles;     // 源文件列表
     private String targetFile;            // 目标文件
+    private OutputStream targetStream;    // 目标输出流(设置时写入该流而不是目标文件，流由调用方关闭)
+    private ExcelTypeEnum targetType;     // 输出文件类型(为空时为xlsx)，csv边写入边输出
     private Class<T> modelClass;          // 数据模型类
     
     /**
      * 头部配置
      */
     private List<List<String>> headList;  // 自定义表头
-    private Map<Integer, String> headMap; // 列索引到表头的映射
+    private Map<Integer, String> headMap; // 列索引到表头的映射(无模型读取时按此选取和命名列，忽略文件表头行文字)
     
     /**
      * 数据处理配置
@@ -44,7 +54,41 @@ public class ExcelConfig<T> {
     private Predicate<T> filter;                // 过滤器
     private boolean enableDeduplication;        // 是否启用去重
     private Function<T, Object> keyExtractor;   // 主键提取器(用于去重)
+    private ToLongFunction<T> longKeyExtractor; // long主键提取器(可选，设置后去重走原始类型快速路径)
     private BiFunction<T, T, T> mergeFunction;  // 数据合并函数
+    private RowPipeline<T, T> pipeline;         // 行处理管道(在过滤器之后、去重之前执行)
+    @Builder.Default
+    private int dedupParallelism = 0;           // 去重并行度(分区数，0表示使用可用处理器数量)
+    @Builder.Default
+    private boolean enableBloomFilter = false;  // 是否启用布隆过滤器预筛的跨批次去重(不支持合并函数)
+    @Builder.Default
+    private long expectedRowCount = 0;          // 预计总行数(用于确定布隆过滤器大小，0表示按默认值)
+    @Builder.Default
+    private double bloomFalsePositiveRate = 0.01; // 布隆过滤器目标误判率
+    private ExactKeyStore dedupKeyStore;        // 跨批次去重的精确键存储(为空时使用临时文件实现DiskKeyStore)
+    private String dedupTempDir;                // 跨批次去重精确键存储的临时目录(为空时使用系统临时目录)
+    @Builder.Default
+    private boolean preserveOrder = false;      // 是否保持输出顺序(按文件列表顺序、文件内行顺序，去重保留首次出现的位置)
+    
+    /**
+     * 排序配置(配置比较器或排序列后，合并结果经外部归并排序后写出)
+     */
+    private Comparator<T> sortComparator;       // 排序比较器(优先于排序列)
+    private List<String> sortColumns;           // 排序列，格式"字段名或表头 [ASC|DESC]"，如"注册时间 DESC"
+    @Builder.Default
+    private long sortMemoryBudgetMb = 256;      // 排序内存预算(MB)，每个有序段在内存中不超过该预算
+    private String sortTempDir;                 // 有序段临时目录(为空时使用系统临时目录)
+    private RowCodec<T> sortRowCodec;           // 有序段行编码器(为空时按模型字段反射编码)
+    
+    /**
+     * 聚合配置(配置后在合并过程中流式分组聚合，结果写入汇总Sheet)
+     */
+    private AggregationSpec<T> aggregation;     // 分组聚合定义
+    
+    /**
+     * 连接配置(配置后合并前按键从参考工作簿补全数据)
+     */
+    private JoinSpec<T, ?> join;                // 哈希连接定义
     
     /**
      * 异常处理配置
@@ -69,12 +113,19 @@ public class ExcelConfig<T> {
      */
     @Builder.Default
     private int batchSize = 5000;          // 批处理大小
-    @Builder.Default 
+    @Builder.Default
     private int bufferSize = 8192;         // 缓冲区大小
     @Builder.Default
     private boolean useInMemory = true;    // 是否使用内存模式
     @Builder.Default
     private boolean autoCloseStream = true;// 是否自动关闭流
+    @Builder.Default
+    private int streamBufferBatches = 4;      // 按流读取时已读取未消费的最大批次数(队列满时读取线程等待消费)，也是写入订阅者的预取批次数
+    private List<String> dictionaryColumns; // 字符串字典列(字段名或表头)，读取时相同取值共用一个String实例
+    @Builder.Default
+    private boolean autoStringDictionary = false; // 是否自动识别低基数字符串列并使用字典
+    @Builder.Default
+    private int dictionaryMaxDistinct = 1024;     // 自动识别时每列的不同值上限，超过后按高基数列处理
     
     /**
      * 线程配置
@@ -92,11 +143,32 @@ public class ExcelConfig<T> {
     private long keepAliveTime = 60L;      // 线程保活时间(秒)
     @Builder.Default
     private int maxConcurrentFiles = 3;    // 最大并发文件数
+    @Builder.Default
+    private int convertThreads = 0;        // 单文件内的行转换线程数(大于1时解析线程只解析单元格，由转换线程并行生成模型对象)
+    @Builder.Default
+    private int parallelSheetThreads = 0;  // 单个大Sheet的分块解析线程数(大于1时xlsx第一个Sheet按行切分后并行解析，按行顺序回调)
+    @Builder.Default
+    private long parallelSheetMinBytes = 128 * 1024 * 1024;  // Sheet解压后达到该字节数才分块解析
+    @Builder.Default
+    private long smallFileBytes = 256 * 1024;            // 小于该字节数的文件视为小文件，多个小文件合并为一个读取任务，0表示不合并
+    @Builder.Default
+    private long smallFileGroupBytes = 8 * 1024 * 1024;  // 每个小文件读取任务累计的最大字节数
+    @Builder.Default
+    private boolean streamingXls = true;   // .xls文件由本工具直接驱动记录流读取(紧凑共享字符串表，读完目标Sheet即停止)，false时使用EasyExcel默认流程
+    @Builder.Default
+    private long sharedStringsHeapBytes = 32 * 1024 * 1024;  // xlsx共享字符串表解压后不超过该字节数时放在堆内存，超过时写入内存映射临时文件
+    @Builder.Default
+    private int sharedStringsCacheEntries = 50_000;          // 共享字符串表在临时文件中时，堆内LRU缓存的字符串数
+    private String sharedStringsTempDir;                     // 共享字符串临时文件目录(为空时使用系统临时目录)，Sheet分块文件也写到该目录
+    @Builder.Default
+    private long readTimeoutMinutes = 0;   // 读取超时(分钟)，超时后取消读取，0表示不限制
     
     /**
      * 回调接口
      */
-    private ProgressCallback progressCallback; // 进度回调
+    private ProgressCallback progressCallback; // 进度回调(在后台调度线程中按间隔回调，不阻塞读写线程)
+    @Builder.Default
+    private long progressIntervalMillis = 500; // 进度回调发布间隔(毫秒)
     
     /**
      * 动态创建简单配置
@@ -138,6 +210,61 @@ public class ExcelConfig<T> {
                 .build();
     }
     
+    /**
+     * 创建带long主键去重的配置
+     * 适用于数值型或固定格式(如 USER%08d)的主键，去重索引不产生装箱对象
+     * @param sourceFiles 源文件
+     * @param targetFile 目标文件
+     * @param modelClass 模型类
+     * @param longKeyExtractor long主键提取器
+     * @return 配置对象
+     */
+    public static <T> ExcelConfig<T> longKeyDedupConfig(
+            List<String> sourceFiles,
+            String targetFile,
+            Class<T> modelClass,
+            ToLongFunction<T> longKeyExtractor) {
+        return ExcelConfig.<T>builder()
+                .sourceFiles(sourceFiles)
+                .targetFile(targetFile)
+                .modelClass(modelClass)
+                .enableDeduplication(true)
+                .longKeyExtractor(longKeyExtractor)
+                .build();
+    }
+    
+    /**
+     * 创建无模型读取的配置
+     * 不需要模型类，每行读取为共享表头的{@link Row}，
+     * 过滤、去重等按表头取值，输出表头为各文件表头的并集
+     * @param sourceFiles 源文件
+     * @param targetFile 目标文件
+     * @return 配置对象
+     */
+    public static ExcelConfig<Row> rowConfig(
+            List<String> sourceFiles,
+            String targetFile) {
+        return ExcelConfig.<Row>builder()
+                .sourceFiles(sourceFiles)
+                .targetFile(targetFile)
+                .modelClass(Row.class)
+                .build();
+    }
+    
+    /**
+     * 是否配置了排序
+     */
+    public boolean hasSort() {
+        return sortComparator != null || (sortColumns != null && !sortColumns.isEmpty());
+    }
+    
+    /**
+     * 是否配置了去重主键提取器
+     */
+    public boolean hasDedupKey() {
+        return keyExtractor != null || longKeyExtractor != null;
+    }
+    
     /**
      * 创建安全处理配置
      * 启用异常数据跳过和记录
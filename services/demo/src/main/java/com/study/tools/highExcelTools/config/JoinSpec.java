@@ -0,0 +1,50 @@
+package com.study.tools.highExcelTools.config;
+
+import com.study.tools.highExcelTools.util.RowCodec;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 哈希连接(数据补全)配置
+ * <p>
+ * 参考工作簿(构建侧，通常较小)先读入内存哈希表，合并的主数据(探测侧)逐批按键查找并补全。
+ * 构建侧行数超过{@link #maxBuildRows}时退化为分区哈希连接(grace hash join)：两侧按键哈希分区溢写到临时目录，再逐个分区连接。
+ * </p>
+ *
+ * @param <T> 主数据模型类型
+ * @param <R> 参考数据模型类型
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JoinSpec<T, R> {
+    /**
+     * 连接类型
+     */
+    public enum JoinType {
+        INNER, // 只保留匹配到参考数据的行
+        LEFT   // 保留所有行，未匹配的行不补全
+    }
+    
+    private List<String> referenceFiles;        // 参考数据文件
+    private Class<R> referenceClass;            // 参考数据模型类
+    private Function<T, Object> probeKey;       // 主数据连接键
+    private Function<R, Object> buildKey;       // 参考数据连接键
+    private BiFunction<T, R, T> enricher;       // 补全函数(可直接修改并返回主数据行)
+    @Builder.Default
+    private JoinType joinType = JoinType.LEFT;  // 连接类型
+    @Builder.Default
+    private int maxBuildRows = 2_000_000;       // 内存哈希表最多容纳的参考数据行数，超过时退化为分区哈希连接
+    @Builder.Default
+    private int gracePartitions = 32;           // 分区哈希连接的分区数
+    private String spillDir;                    // 分区溢写临时目录(为空时使用系统临时目录)
+    private RowCodec<T> probeRowCodec;          // 主数据行编码器(为空时按模型字段反射编码)
+    private RowCodec<R> buildRowCodec;          // 参考数据行编码器(为空时按模型字段反射编码)
+} 
\ No newline at end of file
@@ -0,0 +1,210 @@
+package com.study.tools.highExcelTools.core;
+
+import com.study.tools.highExcelTools.util.MergeCancelledException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.ref.Cleaner;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按需拉取的读取结果迭代器
+ * <p>
+ * 后台线程按{@link ExcelReader#readFilesWithCallback}读取文件，批次放入有界队列；队列满时读取线程在批次回调中等待，
+ * 读取进度由调用方的消费速度决定，堆内最多保留队列中的批次和各文件正在累积的批次。
+ * 同一文件的行按行顺序返回，并发读取多个文件时不同文件的批次交错返回(maxConcurrentFiles为1时按文件顺序)。
+ * </p>
+ * <p>
+ * 读完后自动关闭；提前结束时必须调用{@link #close()}(或关闭{@link ExcelReader#stream}返回的流)，
+ * 读取在各文件的下一个批次回调处停止，close返回时后台线程已退出。迭代器不再被引用而未关闭时由Cleaner兜底关闭。
+ * 非线程安全，只能由一个线程消费。
+ * </p>
+ */
+@Slf4j
+public final class ExcelIterator<T> implements Iterator<T>, AutoCloseable {
+    private static final Cleaner CLEANER = Cleaner.create();
+    
+    private final Producer<T> producer;
+    private final Cleaner.Cleanable cleanable;
+    private List<T> current = Collections.emptyList();
+    private int position;
+    private boolean finished;
+    
+    ExcelIterator(ExcelReader<T> reader, List<String> files, Class<T> modelClass, int bufferBatches,
+                  String processId) {
+        this.producer = new Producer<>(reader, files, modelClass, Math.max(1, bufferBatches), processId);
+        // 清理动作只引用producer，不引用迭代器本身
+        this.cleanable = CLEANER.register(this, producer);
+        producer.start();
+    }
+    
+    @Override
+    public boolean hasNext() {
+        while (position >= current.size()) {
+            if (finished) {
+                return false;
+            }
+            List<T> batch = producer.take();
+            if (batch == Producer.END) {
+                finished = true;
+                current = Collections.emptyList();
+                position = 0;
+                close();
+                producer.rethrowFailure();
+                return false;
+            }
+            current = batch;
+            position = 0;
+        }
+        return true;
+    }
+    
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T item = current.get(position);
+        // 已返回的行不再由迭代器引用
+        current.set(position++, null);
+        return item;
+    }
+    
+    /**
+     * 停止读取并等待后台线程退出，可重复调用
+     */
+    @Override
+    public void close() {
+        finished = true;
+        cleanable.clean();
+    }
+    
+    /**
+     * 后台读取线程和批次队列
+     */
+    private static final class Producer<T> implements Runnable {
+        @SuppressWarnings("rawtypes")
+        private static final List END = new ArrayList<>(0);
+        private static final long OFFER_WAIT_MILLIS = 100;
+        
+        private final ExcelReader<T> reader;
+        private final List<String> files;
+        private final Class<T> modelClass;
+        private final String processId;
+        private final BlockingQueue<List<T>> queue;
+        private final Thread thread;
+        private volatile boolean closed;
+        private volatile Throwable failure;
+        
+        Producer(ExcelReader<T> reader, List<String> files, Class<T> modelClass, int bufferBatches,
+                 String processId) {
+            this.reader = reader;
+            this.files = files;
+            this.modelClass = modelClass;
+            this.processId = processId;
+            this.queue = new ArrayBlockingQueue<>(bufferBatches);
+            this.thread = new Thread(this::produce, "excel-stream-" + processId);
+            this.thread.setDaemon(true);
+        }
+        
+        void start() {
+            thread.start();
+        }
+        
+        private void produce() {
+            try {
+                reader.readFilesWithCallback(files, modelClass, (FileBatchConsumer<T>) (fileIndex, batch) -> {
+                    if (!batch.isEmpty()) {
+                        // 批次列表已移交，直接放入队列
+                        put(batch);
+                    }
+                });
+            } catch (Throwable e) {
+                if (!closed) {
+                    failure = e;
+                }
+            } finally {
+                try {
+                    put(endMarker());
+                } catch (MergeCancelledException ignored) {
+                    // 已关闭，没有消费方等待结束标记
+                }
+            }
+        }
+        
+        /**
+         * 放入批次，队列满时等待消费，关闭后抛出MergeCancelledException停止读取
+         */
+        private void put(List<T> batch) {
+            if (closed) {
+                throw new MergeCancelledException("读取流已关闭");
+            }
+            try {
+                while (!queue.offer(batch, OFFER_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (closed) {
+                        throw new MergeCancelledException("读取流已关闭");
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MergeCancelledException("读取流已关闭");
+            }
+            if (closed) {
+                throw new MergeCancelledException("读取流已关闭");
+            }
+        }
+        
+        List<T> take() {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MergeCancelledException("等待读取结果时被中断");
+            }
+        }
+        
+        void rethrowFailure() {
+            Throwable e = failure;
+            if (e == null) {
+                return;
+            }
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            throw new RuntimeException("读取Excel文件失败: " + e.getMessage(), e);
+        }
+        
+        @SuppressWarnings("unchecked")
+        private static <T> List<T> endMarker() {
+            return (List<T>) END;
+        }
+        
+        /**
+         * 关闭: 读取线程在下一次放入批次时停止，等待其退出
+         */
+        @Override
+        public void run() {
+            closed = true;
+            queue.clear();
+            if (Thread.currentThread() == thread) {
+                return;
+            }
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            queue.clear();
+            log.debug("[{}] 读取流已关闭", processId);
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,167 @@
+package com.study.tools.highExcelTools.core;
+
+import com.study.tools.highExcelTools.util.MergeCancelledException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 以{@link Flow.Publisher}发布读取结果，每个元素为一个批次
+ * <p>
+ * 首次request后由后台线程按{@link ExcelReader#readFilesWithCallback}读取。批次回调在订阅者没有需求时等待，
+ * 读取进度由订阅者的需求决定，每个正在读取的文件最多提前解析一个批次。
+ * onNext在读取线程中串行调用，同一文件的批次按行顺序发布，并发读取多个文件时不同文件的批次交错发布。
+ * </p>
+ * <p>
+ * 只支持一个订阅者(读取器只读取一次)。取消后读取在各文件的下一个批次回调处停止，不再发出任何信号；
+ * 读取失败时发出onError，行错误按读取配置收集，不影响发布。
+ * </p>
+ * <p>
+ * request和cancel只在短暂持有的需求锁内更新状态，不等待正在执行的onNext，可以在onNext中或其它线程调用；
+ * 对订阅者的调用由另一把发布锁串行化。
+ * </p>
+ */
+@Slf4j
+public final class ExcelPublisher<T> implements Flow.Publisher<List<T>> {
+    private final ExcelReader<T> reader;
+    private final List<String> files;
+    private final Class<T> modelClass;
+    private final String processId;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+    
+    ExcelPublisher(ExcelReader<T> reader, List<String> files, Class<T> modelClass, String processId) {
+        this.reader = reader;
+        this.files = files;
+        this.modelClass = modelClass;
+        this.processId = processId;
+    }
+    
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<T>> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+                
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("ExcelPublisher只支持一个订阅者"));
+            return;
+        }
+        subscriber.onSubscribe(new ReadSubscription(subscriber));
+    }
+    
+    private final class ReadSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super List<T>> subscriber;
+        // 需求锁: 保护需求和启动状态，不在持有时调用订阅者
+        private final Object lock = new Object();
+        // 发布锁: 串行化对订阅者的调用
+        private final Object emitLock = new Object();
+        private long demand;
+        private volatile boolean cancelled;
+        private boolean started;
+        private volatile Throwable invalidRequest;
+        
+        ReadSubscription(Flow.Subscriber<? super List<T>> subscriber) {
+            this.subscriber = subscriber;
+        }
+        
+        @Override
+        public void request(long n) {
+            synchronized (lock) {
+                if (cancelled) {
+                    return;
+                }
+                if (n <= 0) {
+                    // 非法请求: 取消订阅并在结束时发出onError
+                    invalidRequest = new IllegalArgumentException("请求数量必须大于0: " + n);
+                    cancelled = true;
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+                lock.notifyAll();
+                if (started) {
+                    return;
+                }
+                started = true;
+            }
+            Thread thread = new Thread(this::read, "excel-publish-" + processId);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        
+        @Override
+        public void cancel() {
+            cancelled = true;
+            synchronized (lock) {
+                // 唤醒等待需求的读取线程
+                lock.notifyAll();
+            }
+        }
+        
+        private void read() {
+            Throwable failure = null;
+            try {
+                if (!cancelled) {
+                    reader.readFilesWithCallback(files, modelClass, (FileBatchConsumer<T>) (fileIndex, batch) -> emit(batch));
+                }
+            } catch (Throwable e) {
+                failure = e;
+            }
+            synchronized (emitLock) {
+                if (invalidRequest != null) {
+                    subscriber.onError(invalidRequest);
+                } else if (cancelled) {
+                    log.debug("[{}] 订阅已取消，停止发布", processId);
+                } else if (failure != null) {
+                    cancelled = true;
+                    subscriber.onError(failure);
+                } else {
+                    cancelled = true;
+                    subscriber.onComplete();
+                }
+            }
+        }
+        
+        /**
+         * 等待需求后发布一个批次，取消后抛出MergeCancelledException停止读取
+         */
+        private void emit(List<T> batch) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            synchronized (emitLock) {
+                synchronized (lock) {
+                    while (demand == 0 && !cancelled) {
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new MergeCancelledException("等待订阅需求时被中断");
+                        }
+                    }
+                    if (cancelled) {
+                        throw new MergeCancelledException("订阅已取消");
+                    }
+                    demand--;
+                }
+                // 调用onNext时不持有需求锁，订阅者可以在其中request或cancel
+                try {
+                    subscriber.onNext(batch);
+                } catch (Throwable e) {
+                    // 订阅者违反规范抛出异常，视为取消
+                    cancelled = true;
+                    log.error("[{}] 订阅者处理批次失败，停止发布", processId, e);
+                    throw new MergeCancelledException("订阅者处理批次失败");
+                }
+            }
+        }
+    }
+} 
\ No newline at end of file
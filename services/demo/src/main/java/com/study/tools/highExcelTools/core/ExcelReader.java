@@ -1,26 +1,48 @@
 package com.study.tools.highExcelTools.core;
 
 import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.cache.selector.ReadCacheSelector;
 import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.enums.CacheLocationEnum;
 import com.alibaba.excel.enums.CellExtraTypeEnum;
 import com.alibaba.excel.event.AnalysisEventListener;
 import com.alibaba.excel.exception.ExcelAnalysisException;
+import com.alibaba.excel.exception.ExcelDataConvertException;
+import com.alibaba.excel.read.builder.ExcelReaderBuilder;
 import com.alibaba.excel.read.listener.ReadListener;
 import com.alibaba.excel.read.metadata.ReadSheet;
+import com.alibaba.excel.support.ExcelTypeEnum;
 import com.study.tools.highExcelTools.config.ExcelConfig;
 import com.study.tools.highExcelTools.config.ProgressCallback;
 import com.study.tools.highExcelTools.model.ErrorCollector;
 import com.study.tools.highExcelTools.model.ErrorRecord;
+import com.study.tools.highExcelTools.model.Row;
+import com.study.tools.highExcelTools.model.RowSchema;
+import com.study.tools.highExcelTools.util.CancellationToken;
 import com.study.tools.highExcelTools.util.MemoryMonitor;
+import com.study.tools.highExcelTools.util.MergeCancelledException;
+import com.study.tools.highExcelTools.util.ModelMetadata;
+import com.study.tools.highExcelTools.util.ProgressDispatcher;
+import com.study.tools.highExcelTools.util.StringDictionary;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Excel读取工具
@@ -36,30 +58,82 @@ public class ExcelReader<T> {
     private static final int DEFAULT_MAX_CONCURRENT_FILES = 3;
     // 内存检查频率
     private static final int MEMORY_CHECK_ROWS = 50_000;
-    // 进度报告间隔
-    private static final int PROGRESS_REPORT_ROWS = 10_000;
+    // 并行转换时每个转换块的行数
+    private static final int CONVERT_CHUNK_ROWS = 1000;
     
     private final ExecutorService executorService;
-    private final ProgressCallback progressCallback;
+    // 进度分发器，读取线程只累加计数，不直接调用进度回调
+    private final ProgressDispatcher progress;
+    // 分发器是否由本读取器创建(是则在每次读取前后启停)
+    private final boolean ownsProgress;
     private final String processId;
     private final ExcelConfig<T> config;
     private final AtomicLong totalProcessedRows = new AtomicLong(0);
+    // 未能完整读取的文件次数(打开、解析失败，不含单行转换失败)
+    private final AtomicInteger fileErrorCount = new AtomicInteger();
+    // 取消标记，每行检查一次
+    private final CancellationToken cancellationToken;
+    
+    // 无模型读取: 表头字符串和表头实例在所有文件、所有行之间共享
+    private final Map<String, String> headerPool = new ConcurrentHashMap<>();
+    private final Map<List<String>, RowSchema> schemaCache = new ConcurrentHashMap<>();
+    // 无模型读取: 各文件的表头，按文件下标
+    private final Map<Integer, RowSchema> fileSchemas = new ConcurrentHashMap<>();
+    // 低基数字符串列字典(未配置时为null)，整个读取任务共用
+    private final StringDictionary stringDictionary;
+    // xlsx共享字符串表存储选择，按表大小在堆内和内存映射临时文件之间选择
+    private final SharedStringCacheSelector sharedStringCacheSelector;
     
     // 异常数据收集器
     @Getter
     private final ErrorCollector<T> errorCollector;
     
     public ExcelReader(ExcelConfig<T> config, ExecutorService executorService, String processId) {
+        this(config, executorService, processId, new CancellationToken());
+    }
+    
+    /**
+     * @param cancellationToken 取消标记，取消后读取在下一行停止并抛出MergeCancelledException
+     */
+    public ExcelReader(ExcelConfig<T> config, ExecutorService executorService, String processId,
+                       CancellationToken cancellationToken) {
+        this(config, executorService, processId, cancellationToken, null);
+    }
+    
+    /**
+     * @param progress 合并流程共用的进度分发器，为空时读取器按配置自行创建
+     */
+    public ExcelReader(ExcelConfig<T> config, ExecutorService executorService, String processId,
+                       CancellationToken cancellationToken, ProgressDispatcher progress) {
+        this.cancellationToken = cancellationToken;
         this.config = config;
         this.executorService = executorService;
-        this.progressCallback = config.getProgressCallback();
+        this.ownsProgress = progress == null;
+        this.progress = progress != null ? progress : ProgressDispatcher.create(config, processId);
         this.processId = processId;
         
         // 初始化错误收集器
         this.errorCollector = new ErrorCollector<>(
-                processId, 
+                processId,
                 !config.isContinueOnError(),  // failFast模式与continueOnError相反
                 config.getMaxErrorCount());
+        
+        // 配置了字典列或自动识别时创建字符串字典
+        boolean hasDictionaryColumns = config.getDictionaryColumns() != null && !config.getDictionaryColumns().isEmpty();
+        this.stringDictionary = hasDictionaryColumns || config.isAutoStringDictionary() ?
+                new StringDictionary(config.getDictionaryColumns(), config.isAutoStringDictionary(),
+                        config.getDictionaryMaxDistinct()) : null;
+        this.sharedStringCacheSelector = sharedStringCacheSelector(config, processId);
+    }
+    
+    private static SharedStringCacheSelector sharedStringCacheSelector(ExcelConfig<?> config, String processId) {
+        return new SharedStringCacheSelector(config.getSharedStringsHeapBytes(), config.getSharedStringsCacheEntries(),
+                tempDir(config), processId);
+    }
+    
+    private static Path tempDir(ExcelConfig<?> config) {
+        return Paths.get(config.getSharedStringsTempDir() != null ?
+                config.getSharedStringsTempDir() : System.getProperty("java.io.tmpdir"));
     }
     
     /**
@@ -69,58 +143,93 @@ public class ExcelReader<T> {
      * @param dataConsumer 数据处理回调
      */
     public void readFilesWithCallback(List<String> files, Class<T> modelClass, Consumer<List<T>> dataConsumer) throws Exception {
+        readFilesWithCallback(files, modelClass, (FileBatchConsumer<T>) (fileIndex, batch) -> dataConsumer.accept(batch));
+    }
+    
+    /**
+     * 流式读取所有Excel文件并通过回调处理数据，回调时带上批次所属文件的下标
+     * 同一文件的批次按行顺序、在同一线程中依次回调，调用方可据此按文件顺序重建确定的输出顺序
+     * @param files 文件列表
+     * @param modelClass 模型类
+     * @param dataConsumer 数据处理回调
+     */
+    public void readFilesWithCallback(List<String> files, Class<T> modelClass, FileBatchConsumer<T> dataConsumer) throws Exception {
         if (files == null || files.isEmpty()) {
             log.warn("[{}] 没有文件需要读取", processId);
             return;
         }
         
-        int maxConcurrentFiles = config.getMaxConcurrentFiles() > 0 ? 
+        int maxConcurrentFiles = config.getMaxConcurrentFiles() > 0 ?
                 config.getMaxConcurrentFiles() : DEFAULT_MAX_CONCURRENT_FILES;
-        int batchSize = config.getBatchSize() > 0 ? 
+        int batchSize = config.getBatchSize() > 0 ?
                 config.getBatchSize() : DEFAULT_BATCH_SIZE;
         
-        log.info("[{}] 开始读取 {} 个文件，最大并发数: {}, 批次大小: {}", 
+        log.info("[{}] 开始读取 {} 个文件，最大并发数: {}, 批次大小: {}",
                 processId, files.size(), maxConcurrentFiles, batchSize);
         
+        if (ownsProgress) {
+            progress.start();
+        }
+        ReadPools pools = new ReadPools();
+        // 行转换线程池在各文件之间共用，与文件读取线程池分开，避免读取任务等待转换任务时占满同一个线程池
+        if (config.getConvertThreads() > 1 && modelClass != null && !Row.class.equals(modelClass)) {
+            AtomicInteger threadIndex = new AtomicInteger();
+            pools.convertExecutor = Executors.newFixedThreadPool(config.getConvertThreads(), r -> {
+                Thread thread = new Thread(r, "excel-convert-" + processId + "-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        // 分块解析线程池同样在各文件之间共用，多个大文件同时分块时分块任务排队
+        if (config.getParallelSheetThreads() > 1) {
+            AtomicInteger threadIndex = new AtomicInteger();
+            pools.sheetParseExecutor = Executors.newFixedThreadPool(config.getParallelSheetThreads(), r -> {
+                Thread thread = new Thread(r, "excel-sheet-" + processId + "-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        try {
+            readFilesInGroups(files, modelClass, dataConsumer, maxConcurrentFiles, batchSize, pools);
+        } finally {
+            pools.close();
+            if (ownsProgress) {
+                progress.close();
+            }
+        }
+    }
+    
+    /**
+     * 按最大并发数分组提交读取任务，每组全部完成后再提交下一组
+     * 小文件先合并为读取单元，一个单元在同一个任务中依次读取，任务数取决于总字节数而不是文件数
+     */
+    private void readFilesInGroups(List<String> files, Class<T> modelClass, FileBatchConsumer<T> dataConsumer,
+                                   int maxConcurrentFiles, int batchSize, ReadPools pools) throws Exception {
         int totalFiles = files.size();
         AtomicInteger completedFiles = new AtomicInteger(0);
-        CountDownLatch latch = new CountDownLatch(totalFiles);
+        // 整体读取超时(0表示不限制)，超时后通过取消标记让读取线程在下一行停止
+        long timeoutMillis = config.getReadTimeoutMinutes() > 0 ?
+                TimeUnit.MINUTES.toMillis(config.getReadTimeoutMinutes()) : 0;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        
+        List<ReadUnit> units = planReadUnits(files, maxConcurrentFiles);
+        if (units.size() < totalFiles) {
+            log.info("[{}] {} 个文件合并为 {} 个读取任务", processId, totalFiles, units.size());
+        }
+        int submittedFiles = 0;
         
         // 分批提交读取任务
-        for (int i = 0; i < totalFiles; i += maxConcurrentFiles) {
-            int endIndex = Math.min(i + maxConcurrentFiles, totalFiles);
-            List<String> batchFiles = files.subList(i, endIndex);
+        for (int i = 0; i < units.size(); i += maxConcurrentFiles) {
+            cancellationToken.throwIfCancelled();
+            List<ReadUnit> batchUnits = units.subList(i, Math.min(i + maxConcurrentFiles, units.size()));
             
             List<Future<?>> futures = new ArrayList<>();
             
             // 提交当前批次的任务
-            for (String file : batchFiles) {
+            for (ReadUnit unit : batchUnits) {
+                submittedFiles += unit.fileIndexes.size();
                 futures.add(executorService.submit(() -> {
-                    try {
-                        readSingleFileWithCallback(file, modelClass, dataConsumer, batchSize);
-                        int completed = completedFiles.incrementAndGet();
-                        reportProgress(completed, totalFiles, "读取文件");
-                        log.info("[{}] 完成文件 {}/{}: {}", processId, completed, totalFiles, file);
-                    } catch (Exception e) {
-                        if (config.isCollectErrors()) {
-                            // 记录整个文件的错误
-                            ErrorRecord<T> errorRecord = ErrorRecord.readError("文件读取", null, file, 
-                                    -1L, "文件读取失败: " + e.getMessage(), e);
-                            boolean shouldStop = errorCollector.collectError(errorRecord);
-                            
-                            if (shouldStop && !config.isContinueOnError()) {
-                                log.error("[{}] 文件读取停止，由于异常: {}", processId, e.getMessage());
-                                throw new RuntimeException("文件读取失败并停止处理: " + file, e);
-                            }
-                        } else {
-                            log.error("[{}] 读取文件失败: {}", processId, file, e);
-                            if (!config.isContinueOnError()) {
-                                throw new RuntimeException("文件读取失败: " + file, e);
-                            }
-                        }
-                    } finally {
-                        latch.countDown();
-                    }
+                    readUnit(unit, files, modelClass, dataConsumer, batchSize, completedFiles, pools);
                     return null;
                 }));
             }
@@ -128,8 +237,24 @@ public class ExcelReader<T> {
             // 等待当前批次的Future完成
             for (Future<?> future : futures) {
                 try {
-                    future.get();
+                    if (timeoutMillis > 0) {
+                        future.get(Math.max(1, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                    } else {
+                        future.get();
+                    }
+                } catch (TimeoutException e) {
+                    log.warn("[{}] 文件读取超过 {} 分钟未完成，停止读取", processId, config.getReadTimeoutMinutes());
+                    cancellationToken.cancel("读取超时");
+                    for (Future<?> pending : futures) {
+                        pending.cancel(true);
+                    }
+                    throw new MergeCancelledException("读取超时");
                 } catch (Exception e) {
+                    if (MergeCancelledException.isCause(e)) {
+                        // 等待其余任务在下一行检查点退出，避免在输出文件被清理时仍有线程回调
+                        awaitQuietly(futures);
+                        throw new MergeCancelledException(cancellationToken.getReason());
+                    }
                     log.error("[{}] 等待文件读取任务完成时发生错误", processId, e);
                     if (!config.isContinueOnError()) {
                         throw e;
@@ -143,161 +268,176 @@ public class ExcelReader<T> {
             // 批次间进行GC，避免内存压力
             MemoryMonitor.checkForGC();
             
-            log.info("[{}] 完成批次 {}/{}, 内存: {}, 异常数据: {}", 
-                    processId, Math.min(endIndex, completedFiles.get()), totalFiles, 
+            log.info("[{}] 完成批次 {}/{}, 内存: {}, 异常数据: {}",
+                    processId, Math.min(submittedFiles, completedFiles.get()), totalFiles,
                     MemoryMonitor.getMemoryInfo(),
                     errorCollector.getErrorCount());
         }
         
-        // 等待所有任务完成
-        boolean allCompleted = latch.await(30, TimeUnit.MINUTES);
-        if (!allCompleted) {
-            log.warn("[{}] 部分文件读取超时未完成", processId);
+        if (stringDictionary != null) {
+            stringDictionary.logStatistics(processId);
         }
         
         // 输出错误统计信息
         if (errorCollector.hasErrors()) {
-            log.warn("[{}] 所有文件读取完成，总处理行数: {}, 异常数据: {}条", 
+            log.warn("[{}] 所有文件读取完成，总处理行数: {}, 异常数据: {}条",
                     processId, totalProcessedRows.get(), errorCollector.getErrorCount());
         } else {
-            log.info("[{}] 所有文件读取完成，总处理行数: {}, 无异常数据", 
+            log.info("[{}] 所有文件读取完成，总处理行数: {}, 无异常数据",
                     processId, totalProcessedRows.get());
         }
     }
     
     /**
-     * 读取单个Excel文件并批量回调
+     * 按文件大小划分读取单元: 大文件单独一个单元，小文件按顺序累计到总字节数达到上限为止
+     * <p>
+     * 单元字节上限不超过小文件总字节数除以并发数，小文件总量不大时也至少拆成maxConcurrentFiles个单元，
+     * 不会因为全部落进同一个单元而只用一个线程读取。
+     * </p>
      */
-    private void readSingleFileWithCallback(String filePath, Class<T> modelClass, Consumer<List<T>> dataConsumer, int callbackBatchSize) {
-        log.info("[{}] 开始读取文件: {}", processId, filePath);
+    private List<ReadUnit> planReadUnits(List<String> files, int maxConcurrentFiles) {
+        long smallFileBytes = config.getSmallFileBytes();
+        long[] sizes = new long[files.size()];
+        long totalSmallBytes = 0;
+        for (int i = 0; i < files.size(); i++) {
+            sizes[i] = new File(files.get(i)).length();
+            if (smallFileBytes > 0 && sizes[i] < smallFileBytes) {
+                totalSmallBytes += sizes[i];
+            }
+        }
+        long groupBytes = Math.min(Math.max(config.getSmallFileGroupBytes(), smallFileBytes),
+                Math.max(1, (totalSmallBytes + maxConcurrentFiles - 1) / maxConcurrentFiles));
         
-        final List<T> batchBuffer = new ArrayList<>(callbackBatchSize);
-        final AtomicLong fileRowCount = new AtomicLong(0);
+        List<ReadUnit> units = new ArrayList<>();
+        ReadUnit smallUnit = null;
+        for (int i = 0; i < files.size(); i++) {
+            long size = sizes[i];
+            if (smallFileBytes <= 0 || size >= smallFileBytes) {
+                units.add(new ReadUnit(i, size));
+                continue;
+            }
+            if (smallUnit == null || smallUnit.bytes + size > groupBytes) {
+                smallUnit = new ReadUnit(i, size);
+                units.add(smallUnit);
+            } else {
+                smallUnit.fileIndexes.add(i);
+                smallUnit.bytes += size;
+            }
+        }
+        return units;
+    }
+    
+    /**
+     * 在一个任务中依次读取单元内的文件，单个文件失败按配置记录或中止，不影响同单元的其它文件
+     * 多文件单元不逐个输出文件日志，读完后输出一条汇总
+     */
+    private void readUnit(ReadUnit unit, List<String> files, Class<T> modelClass, FileBatchConsumer<T> dataConsumer,
+                          int batchSize, AtomicInteger completedFiles, ReadPools pools) {
+        int totalFiles = files.size();
+        boolean grouped = unit.fileIndexes.size() > 1;
+        long startTime = System.currentTimeMillis();
+        long startRows = totalProcessedRows.get();
         
-        try {
-            // 创建监听器
-            ReadListener<T> listener = new AnalysisEventListener<T>() {
-                @Override
-                public void invoke(T data, AnalysisContext context) {
-                    try {
-                        // 只有在数据有效时才处理
-                        if (data != null) {
-                            batchBuffer.add(data);
-                        } else if (config.isCollectErrors() && config.isSkipInvalidData()) {
-                            // 记录空数据错误
-                            long rowIdx = context.readRowHolder() != null ? 
-                                    context.readRowHolder().getRowIndex().longValue() : -1L;
-                            recordRowError(filePath, rowIdx, null, "空数据行", null);
-                        }
-                        
-                        // 累计行数
-                        long currentRow = fileRowCount.incrementAndGet();
-                        long totalRows = totalProcessedRows.incrementAndGet();
-                        
-                        // 达到批次大小，回调处理
-                        if (batchBuffer.size() >= callbackBatchSize) {
-                            processBatch();
-                        }
-                        
-                        // 定期检查内存
-                        if (totalRows % MEMORY_CHECK_ROWS == 0) {
-                            MemoryMonitor.checkForGC(0.75f);
-                        }
-                        
-                        // 定期报告进度
-                        if (currentRow % PROGRESS_REPORT_ROWS == 0) {
-                            reportDetailedProgress(filePath, currentRow);
-                        }
-                    } catch (Exception e) {
-                        long rowIdx = context.readRowHolder() != null ? 
-                                context.readRowHolder().getRowIndex().longValue() : -1L;
-                        handleRowException(filePath, rowIdx, data, e);
-                    }
+        for (int k = 0; k < unit.fileIndexes.size(); k++) {
+            int fileIndex = unit.fileIndexes.get(k);
+            String file = files.get(fileIndex);
+            try {
+                readSingleFileWithCallback(fileIndex, file, null, modelClass, dataConsumer, batchSize, grouped, pools);
+                int completed = completedFiles.incrementAndGet();
+                progress.onProgress(completed, totalFiles, "读取文件");
+                if (grouped) {
+                    log.debug("[{}] 完成文件 {}/{}: {}", processId, completed, totalFiles, file);
+                } else {
+                    log.info("[{}] 完成文件 {}/{}: {}", processId, completed, totalFiles, file);
                 }
-                
-                @Override
-                public void doAfterAllAnalysed(AnalysisContext context) {
-                    // 处理最后一批数据
-                    if (!batchBuffer.isEmpty()) {
-                        processBatch();
-                    }
-                    
-                    log.info("[{}] 文件读取完成: {}, 总行数: {}", 
-                            processId, filePath, fileRowCount.get());
+            } catch (Exception e) {
+                if (MergeCancelledException.isCause(e) || cancellationToken.isCancelled()) {
+                    // 取消不是文件错误，不记录异常数据
+                    throw new MergeCancelledException(cancellationToken.getReason());
                 }
-                
-                @Override
-                public void onException(Exception exception, AnalysisContext context) throws Exception {
-                    // 处理读取过程中的异常
-                    long rowIdx = context.readRowHolder() != null ? 
-                            context.readRowHolder().getRowIndex().longValue() : -1L;
-                            
-                    handleRowException(filePath, rowIdx, null, exception);
+                fileErrorCount.incrementAndGet();
+                if (config.isCollectErrors()) {
+                    // 记录整个文件的错误
+                    ErrorRecord<T> errorRecord = ErrorRecord.readError("文件读取", null, file,
+                            -1L, "文件读取失败: " + e.getMessage(), e);
+                    boolean shouldStop = errorCollector.collectError(errorRecord);
                     
-                    // 如果配置为继续处理，则不抛出异常
-                    if (config.isContinueOnError()) {
-                        // 不抛出异常，继续处理
-                    } else {
-                        // 抛出异常，中断处理
-                        throw exception;
+                    if (shouldStop && !config.isContinueOnError()) {
+                        log.error("[{}] 文件读取停止，由于异常: {}", processId, e.getMessage());
+                        throw new RuntimeException("文件读取失败并停止处理: " + file, e);
                     }
-                }
-                
-                private void processBatch() {
-                    try {
-                        if (batchBuffer.isEmpty()) return;
-                        
-                        // 创建副本以避免并发问题
-                        List<T> batchCopy = new ArrayList<>(batchBuffer);
-                        dataConsumer.accept(batchCopy);
-                        
-                        // 清空缓冲区
-                        batchBuffer.clear();
-                    } catch (Exception e) {
-                        log.error("[{}] 处理数据批次时发生错误", processId, e);
-                        
-                        if (config.isCollectErrors()) {
-                            // 记录批处理错误
-                            ErrorRecord<T> errorRecord = ErrorRecord.processError(
-                                    "批处理", null, "处理数据批次失败: " + e.getMessage(), e);
-                            boolean shouldStop = errorCollector.collectError(errorRecord);
-                            
-                            if (shouldStop && !config.isContinueOnError()) {
-                                throw new RuntimeException("处理数据批次失败并停止处理", e);
-                            }
-                        } else if (!config.isContinueOnError()) {
-                            throw new RuntimeException("处理数据批次失败", e);
-                        }
-                        
-                        // 清空有问题的批次
-                        batchBuffer.clear();
-                    }
-                }
-                
-                private void handleRowException(String source, long rowIndex, T data, Exception e) {
-                    if (config.isCollectErrors()) {
-                        recordRowError(source, rowIndex, data, "处理行数据异常: " + e.getMessage(), e);
-                    }
-                    
-                    if (config.isLogErrors()) {
-                        log.warn("[{}] 行数据处理异常 {}, 行号: {}", processId, source, rowIndex, e);
-                    }
-                    
-                    if (!config.isContinueOnError() && !config.isSkipInvalidData()) {
-                        throw new RuntimeException("行数据处理异常, 文件: " + source + ", 行号: " + rowIndex, e);
+                } else {
+                    log.error("[{}] 读取文件失败: {}", processId, file, e);
+                    if (!config.isContinueOnError()) {
+                        throw new RuntimeException("文件读取失败: " + file, e);
                     }
                 }
-            };
+            }
+        }
+        
+        if (grouped) {
+            // 共享计数器包含其它任务的行数，这里只是近似值
+            log.info("[{}] 完成小文件读取任务: {} 个文件, {} 字节, 约 {} 行, 耗时: {}ms",
+                    processId, unit.fileIndexes.size(), unit.bytes,
+                    totalProcessedRows.get() - startRows, System.currentTimeMillis() - startTime);
+        }
+    }
+    
+    /**
+     * 在调用线程中读取一个输入流(如上传的文件)的第一个Sheet并批量回调，异常按读取配置记录或抛出
+     * 按名称的扩展名识别xls，其余按xlsx读取；xlsx由EasyExcel边接收边复制到临时文件，接收完后解析。读完后关闭输入流
+     * @param sourceName 来源名称(文件名)，用于识别文件类型和记录异常
+     */
+    public void readStreamWithCallback(int fileIndex, String sourceName, InputStream in, Class<T> modelClass,
+                                       FileBatchConsumer<T> dataConsumer) {
+        int batchSize = config.getBatchSize() > 0 ? config.getBatchSize() : DEFAULT_BATCH_SIZE;
+        readSingleFileWithCallback(fileIndex, sourceName, in, modelClass, dataConsumer, batchSize, false, ReadPools.NONE);
+    }
+    
+    /**
+     * 读取单个Excel文件并批量回调
+     * @param in 不为空时从该输入流读取，filePath只作为来源名称
+     * @param quiet 是否只在debug级别输出文件开始和完成日志(小文件合并读取时)
+     * @param pools 本次读取的行转换和分块解析线程池
+     */
+    private void readSingleFileWithCallback(int fileIndex, String filePath, InputStream in, Class<T> modelClass,
+                                            FileBatchConsumer<T> dataConsumer, int callbackBatchSize, boolean quiet,
+                                            ReadPools pools) {
+        if (quiet) {
+            log.debug("[{}] 开始读取文件: {}", processId, filePath);
+        } else {
+            log.info("[{}] 开始读取文件: {}", processId, filePath);
+        }
+        
+        try {
+            // 配置了分块并行解析时，大Sheet切分后由工作线程并行解析，按行顺序回调
+            if (pools.sheetParseExecutor != null && in == null && filePath.toLowerCase().endsWith(".xlsx")
+                    && readSheetInChunks(fileIndex, filePath, modelClass, dataConsumer, callbackBatchSize, pools)) {
+                return;
+            }
+            ReadListener<T> listener = createBatchListener(fileIndex, filePath, callbackBatchSize, quiet, 0,
+                    dataConsumer);
+            ReadListener<?> readListener = wrapListener(fileIndex, modelClass, listener, pools.convertExecutor);
             
             // 使用EasyExcel的流式读取
-            EasyExcel.read(filePath, modelClass, listener)
-                    .extraRead(CellExtraTypeEnum.COMMENT)  // 读取批注
-                    .extraRead(CellExtraTypeEnum.MERGE)    // 读取合并单元格
-                    .ignoreEmptyRow(true)                  // 忽略空行
-                    .sheet()
-                    .doRead();
+            boolean schemaLess = Row.class.equals(modelClass);
+            boolean xls = filePath.toLowerCase().endsWith(".xls");
+            ExcelReaderBuilder readerBuilder = in != null ?
+                    EasyExcel.read(in, schemaLess ? null : modelClass, readListener)
+                            .excelType(xls ? ExcelTypeEnum.XLS : ExcelTypeEnum.XLSX) :
+                    EasyExcel.read(filePath, schemaLess ? null : modelClass, readListener);
+            applyReadOptions(readerBuilder, readListener, sharedStringCacheSelector);
+            if (config.isStreamingXls() && xls) {
+                XlsStreamReader.read(readerBuilder, 0);
+            } else {
+                readerBuilder.sheet().doRead();
+            }
         } catch (ExcelAnalysisException e) {
+            if (MergeCancelledException.isCause(e)) {
+                throw new MergeCancelledException(cancellationToken.getReason());
+            }
             // 处理EasyExcel的分析异常
+            fileErrorCount.incrementAndGet();
             if (config.isCollectErrors()) {
                 ErrorRecord<T> errorRecord = ErrorRecord.readError(
                         "Excel分析", null, filePath, -1L, "Excel分析异常: " + e.getMessage(), e);
@@ -310,7 +450,11 @@ public class ExcelReader<T> {
                 log.error("[{}] Excel分析异常，但继续处理: {}", processId, filePath, e);
             }
         } catch (Exception e) {
+            if (MergeCancelledException.isCause(e)) {
+                throw new MergeCancelledException(cancellationToken.getReason());
+            }
             // 处理其他异常
+            fileErrorCount.incrementAndGet();
             if (config.isCollectErrors()) {
                 ErrorRecord<T> errorRecord = ErrorRecord.readError(
                         "文件读取", null, filePath, -1L, "读取文件异常: " + e.getMessage(), e);
@@ -324,16 +468,345 @@ public class ExcelReader<T> {
         }
     }
     
+    /**
+     * 分块并行读取大Sheet，各分块按整文件读取的流程解析，异常行号还原为原文件行号
+     * @return Sheet未达到分块阈值或无法切分时返回false，由调用方整文件读取
+     */
+    private boolean readSheetInChunks(int fileIndex, String filePath, Class<T> modelClass, FileBatchConsumer<T> dataConsumer,
+                                      int callbackBatchSize, ReadPools pools) throws Exception {
+        boolean schemaLess = Row.class.equals(modelClass);
+        ParallelSheetReader<T> reader = new ParallelSheetReader<>(processId, pools.sheetParseExecutor, config.getParallelSheetThreads(),
+                tempDir(config), sharedStringCacheSelector,
+                (chunkFile, rowOffset, sharedStrings, date1904, sink) -> {
+                    // 分块的批次交给读取线程按分块顺序回调
+                    ReadListener<T> listener = createBatchListener(fileIndex, filePath, callbackBatchSize, true,
+                            rowOffset, (index, batch) -> sink.accept(batch));
+                    ReadListener<?> readListener = wrapListener(fileIndex, modelClass, listener, pools.convertExecutor);
+                    ExcelReaderBuilder readerBuilder = EasyExcel.read(chunkFile, schemaLess ? null : modelClass, readListener);
+                    // 与整文件读取相同的读取选项，共享字符串表换成所有分块共用的一份
+                    applyReadOptions(readerBuilder, readListener, sharedStrings);
+                    readerBuilder.use1904windowing(date1904).sheet().doRead();
+                });
+        return reader.read(fileIndex, filePath, headRowCount(modelClass), config.getParallelSheetMinBytes(), dataConsumer);
+    }
+    
+    /**
+     * 在批次监听器外包装行转换: 无模型读取时先把按列下标的Map转换为共享表头的Row；
+     * 配置了行转换线程时，解析线程只收集原始单元格，由转换线程并行生成模型对象后按行顺序交给同一个监听器
+     * @param converter 行转换线程池，未配置时为null
+     */
+    private ReadListener<?> wrapListener(int fileIndex, Class<T> modelClass, ReadListener<T> listener,
+                                         ExecutorService converter) {
+        if (Row.class.equals(modelClass)) {
+            return new RowReadListener<>(listener, headers -> schemaFor(fileIndex, headers), config.getHeadMap());
+        }
+        if (converter != null) {
+            return new ParallelConvertReadListener<>(listener, modelClass, converter,
+                    CONVERT_CHUNK_ROWS, config.getConvertThreads() * 2);
+        }
+        return listener;
+    }
+    
+    /**
+     * 整文件读取和分块读取共用的读取选项
+     */
+    private static void applyReadOptions(ExcelReaderBuilder readerBuilder, ReadListener<?> readListener,
+                                         ReadCacheSelector sharedStrings) {
+        readerBuilder
+                .useDefaultListener(!(readListener instanceof ParallelConvertReadListener))  // 并行转换时不使用EasyExcel的模型构建监听器
+                .filedCacheLocation(CacheLocationEnum.MEMORY)  // 模型字段和格式注解解析结果跨文件复用，默认每个文件读完即丢弃
+                .readCacheSelector(sharedStrings)      // 大共享字符串表写入内存映射临时文件
+                .extraRead(CellExtraTypeEnum.COMMENT)  // 读取批注
+                .extraRead(CellExtraTypeEnum.MERGE)    // 读取合并单元格
+                .ignoreEmptyRow(true);                 // 忽略空行
+    }
+    
+    /**
+     * 表头行数: 无模型读取为1行，模型读取为@ExcelProperty声明的最大表头层数
+     */
+    private static int headRowCount(Class<?> modelClass) {
+        int rows = 1;
+        if (modelClass != null && !Row.class.equals(modelClass)) {
+            for (ModelMetadata.FieldAccessor field : ModelMetadata.of(modelClass).getFields()) {
+                rows = Math.max(rows, field.getHeads().length);
+            }
+        }
+        return rows;
+    }
+    
+    /**
+     * 创建按批次回调的监听器
+     * @param quiet 是否只在debug级别输出文件完成日志
+     * @param rowOffset 加到异常行号上的偏移(分块读取时为分块与原Sheet的行号差)
+     */
+    private ReadListener<T> createBatchListener(int fileIndex, String filePath, int callbackBatchSize, boolean quiet,
+                                                int rowOffset, FileBatchConsumer<T> dataConsumer) {
+        return new AnalysisEventListener<T>() {
+            // 当前批次，只由读取当前文件的线程访问
+            private List<T> batchBuffer = new ArrayList<>(callbackBatchSize);
+            // 文件内行数，批次回调时才累加到共享计数器，避免每行两次原子操作
+            private long fileRows;
+            private long unflushedRows;
+            // 下一次内存检查的行数
+            private long nextMemoryCheck = MEMORY_CHECK_ROWS;
+            
+            @Override
+            public void invoke(T data, AnalysisContext context) {
+                // 检查取消，抛出后EasyExcel停止解析当前文件
+                cancellationToken.throwIfCancelled();
+                try {
+                    // 只有在数据有效时才处理
+                    if (data != null) {
+                        if (stringDictionary != null) {
+                            stringDictionary.canonicalize(data);
+                        }
+                        batchBuffer.add(data);
+                    } else if (config.isCollectErrors() && config.isSkipInvalidData()) {
+                        // 记录空数据错误
+                        recordRowError(filePath, rowIndex(context), null, "空数据行", null);
+                    }
+                    
+                    // 累计行数
+                    fileRows++;
+                    unflushedRows++;
+                    
+                    // 达到批次大小，回调处理
+                    if (batchBuffer.size() >= callbackBatchSize) {
+                        processBatch();
+                    }
+                    
+                    // 定期检查内存
+                    if (fileRows >= nextMemoryCheck) {
+                        nextMemoryCheck += MEMORY_CHECK_ROWS;
+                        MemoryMonitor.checkForGC(0.75f);
+                    }
+                    
+                } catch (Exception e) {
+                    if (MergeCancelledException.isCause(e)) {
+                        // 批次回调中取消(如读取流已关闭)，不是行错误
+                        throw e;
+                    }
+                    handleRowException(filePath, rowIndex(context), data, e);
+                }
+            }
+            
+            @Override
+            public void doAfterAllAnalysed(AnalysisContext context) {
+                // 处理最后一批数据
+                if (!batchBuffer.isEmpty()) {
+                    processBatch();
+                }
+                flushRowCount();
+                
+                if (quiet) {
+                    log.debug("[{}] 文件读取完成: {}, 总行数: {}", processId, filePath, fileRows);
+                } else {
+                    log.info("[{}] 文件读取完成: {}, 总行数: {}", processId, filePath, fileRows);
+                }
+            }
+            
+            @Override
+            public void onException(Exception exception, AnalysisContext context) throws Exception {
+                if (MergeCancelledException.isCause(exception)) {
+                    throw exception;
+                }
+                // 处理读取过程中的异常(并行转换时当前行已前移，转换异常自带行号)
+                long rowIdx;
+                if (exception instanceof ExcelDataConvertException
+                        && ((ExcelDataConvertException) exception).getRowIndex() != null) {
+                    rowIdx = ((ExcelDataConvertException) exception).getRowIndex().longValue() + rowOffset;
+                } else {
+                    rowIdx = rowIndex(context);
+                }
+                if (!(exception instanceof ExcelDataConvertException)) {
+                    // 解析异常后EasyExcel不再读取该文件的后续内容
+                    fileErrorCount.incrementAndGet();
+                }
+                
+                handleRowException(filePath, rowIdx, null, exception);
+                
+                // 如果配置为继续处理，则不抛出异常
+                if (config.isContinueOnError()) {
+                    // 不抛出异常，继续处理
+                } else {
+                    // 抛出异常，中断处理
+                    throw exception;
+                }
+            }
+            
+            /**
+             * 当前行在原文件中的行号
+             */
+            private long rowIndex(AnalysisContext context) {
+                return context.readRowHolder() != null ?
+                        context.readRowHolder().getRowIndex().longValue() + rowOffset : -1L;
+            }
+            
+            private void flushRowCount() {
+                if (unflushedRows > 0) {
+                    totalProcessedRows.addAndGet(unflushedRows);
+                    progress.addReadRows(unflushedRows);
+                    unflushedRows = 0;
+                }
+            }
+            
+            private void processBatch() {
+                try {
+                    flushRowCount();
+                    if (batchBuffer.isEmpty()) return;
+                    cancellationToken.throwIfCancelled();
+                    
+                    // 不复制批次，直接把列表移交给回调方，换一个新列表
+                    List<T> batch = batchBuffer;
+                    batchBuffer = new ArrayList<>(callbackBatchSize);
+                    dataConsumer.accept(fileIndex, batch);
+                } catch (Exception e) {
+                    if (MergeCancelledException.isCause(e)) {
+                        throw e;
+                    }
+                    log.error("[{}] 处理数据批次时发生错误", processId, e);
+                    
+                    if (config.isCollectErrors()) {
+                        // 记录批处理错误
+                        ErrorRecord<T> errorRecord = ErrorRecord.processError(
+                                "批处理", null, "处理数据批次失败: " + e.getMessage(), e);
+                        boolean shouldStop = errorCollector.collectError(errorRecord);
+                        
+                        if (shouldStop && !config.isContinueOnError()) {
+                            throw new RuntimeException("处理数据批次失败并停止处理", e);
+                        }
+                    } else if (!config.isContinueOnError()) {
+                        throw new RuntimeException("处理数据批次失败", e);
+                    }
+                    
+                    // 清空有问题的批次
+                    batchBuffer.clear();
+                }
+            }
+            
+            private void handleRowException(String source, long rowIndex, T data, Exception e) {
+                if (config.isCollectErrors()) {
+                    recordRowError(source, rowIndex, data, "处理行数据异常: " + e.getMessage(), e);
+                }
+                
+                if (config.isLogErrors()) {
+                    log.warn("[{}] 行数据处理异常 {}, 行号: {}", processId, source, rowIndex, e);
+                }
+                
+                if (!config.isContinueOnError() && !config.isSkipInvalidData()) {
+                    throw new RuntimeException("行数据处理异常, 文件: " + source + ", 行号: " + rowIndex, e);
+                }
+            }
+        };
+    }
+    
+    /**
+     * 取得共享的表头实例，表头文字相同的文件共用同一个实例
+     */
+    private RowSchema schemaFor(int fileIndex, List<String> headers) {
+        List<String> interned = new ArrayList<>(headers.size());
+        for (String header : headers) {
+            interned.add(headerPool.computeIfAbsent(header, h -> h));
+        }
+        RowSchema schema = schemaCache.computeIfAbsent(interned, RowSchema::new);
+        fileSchemas.put(fileIndex, schema);
+        return schema;
+    }
+    
+    /**
+     * 无模型读取时所有文件表头的并集，列按文件顺序、文件内列顺序首次出现的位置排列
+     * @return 没有读取到表头时返回null
+     */
+    public RowSchema getMergedSchema() {
+        RowSchema merged = null;
+        for (RowSchema schema : new TreeMap<>(fileSchemas).values()) {
+            merged = merged == null ? schema : merged.union(schema);
+        }
+        return merged;
+    }
+    
+    /**
+     * 字符串字典(未配置时为null)
+     */
+    public StringDictionary getStringDictionary() {
+        return stringDictionary;
+    }
+    
+    /**
+     * 已读取的总行数
+     */
+    public long getTotalProcessedRows() {
+        return totalProcessedRows.get();
+    }
+    
+    /**
+     * 文件未能完整读取的次数，不含单行转换失败(继续处理模式下文件错误只记录不抛出，调用方据此判断文件是否完整读取)
+     */
+    public int getFileErrorCount() {
+        return fileErrorCount.get();
+    }
+    
+    /**
+     * 读取单元，同一单元的文件在一个任务中依次读取
+     */
+    private static class ReadUnit {
+        // 文件下标，按文件列表顺序
+        private final List<Integer> fileIndexes = new ArrayList<>();
+        // 文件总字节数
+        private long bytes;
+        
+        private ReadUnit(int fileIndex, long bytes) {
+            this.fileIndexes.add(fileIndex);
+            this.bytes = bytes;
+        }
+    }
+    
+    /**
+     * 一次readFilesWithCallback期间使用的线程池，由该次调用创建并在结束时关闭，
+     * 同一个读取器上的多次读取互不影响
+     */
+    private static class ReadPools {
+        // 不使用任何线程池(输入流读取)
+        private static final ReadPools NONE = new ReadPools();
+        
+        // 单文件行转换线程池，未配置convertThreads时为null
+        private ExecutorService convertExecutor;
+        // 大Sheet分块解析线程池，未配置parallelSheetThreads时为null
+        private ExecutorService sheetParseExecutor;
+        
+        private void close() {
+            if (convertExecutor != null) {
+                convertExecutor.shutdownNow();
+            }
+            if (sheetParseExecutor != null) {
+                sheetParseExecutor.shutdownNow();
+            }
+        }
+    }
+    
+    /**
+     * 等待任务结束，忽略异常
+     */
+    private void awaitQuietly(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (Exception ignored) {
+                // 取消时只需等待任务退出
+            }
+        }
+    }
+    
     /**
      * 记录行错误
      */
     private void recordRowError(String source, long rowIndex, T data, String message, Exception e) {
         ErrorRecord<T> errorRecord;
         if (data != null) {
-            errorRecord = ErrorRecord.convertError("数据转换", data, source, 
+            errorRecord = ErrorRecord.convertError("数据转换", data, source,
                     rowIndex, message, e);
         } else {
-            errorRecord = ErrorRecord.readError("数据读取", null, source, 
+            errorRecord = ErrorRecord.readError("数据读取", null, source,
                     rowIndex, message, e);
         }
         
@@ -343,7 +816,7 @@ public class ExcelReader<T> {
         if (config.getErrorCallback() != null) {
             boolean continueProcessing = config.getErrorCallback().onError(
                     errorRecord, errorCollector.getErrorCount(), "READ");
-                    
+            
             // 如果回调返回false，则停止处理
             if (!continueProcessing) {
                 throw new RuntimeException("处理中止: " + message);
@@ -358,21 +831,62 @@ public class ExcelReader<T> {
     
     /**
      * 读取所有Excel文件并返回合并后的数据
+     * 结果按文件列表顺序、文件内行顺序排列，与文件并发读取的完成先后无关
      */
     public List<T> readFiles(List<String> files, Class<T> modelClass) throws Exception {
-        List<T> allData = new ArrayList<>();
+        if (files == null || files.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        // 每个文件一个分段，同一文件只会由一个线程写入
+        List<List<T>> segments = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            segments.add(new ArrayList<>());
+        }
         
         // 使用回调方式流式读取
-        readFilesWithCallback(files, modelClass, batch -> {
-            synchronized (allData) {
-                allData.addAll(batch);
-            }
-        });
+        readFilesWithCallback(files, modelClass, (FileBatchConsumer<T>) (fileIndex, batch) ->
+                segments.get(fileIndex).addAll(batch));
+        
+        int totalSize = 0;
+        for (List<T> segment : segments) {
+            totalSize += segment.size();
+        }
+        List<T> allData = new ArrayList<>(totalSize);
+        for (int i = 0; i < segments.size(); i++) {
+            allData.addAll(segments.get(i));
+            segments.set(i, null);
+        }
         
         log.info("[{}] 读取完成，总行数: {}", processId, allData.size());
         return allData;
     }
     
+    /**
+     * 以流的方式读取所有Excel文件，按需拉取，读取进度由消费速度决定，见{@link ExcelIterator}
+     * 流必须关闭(try-with-resources)，findFirst、limit等提前结束后关闭流即停止读取
+     */
+    public Stream<T> stream(List<String> files, Class<T> modelClass) {
+        ExcelIterator<T> iterator = iterator(files, modelClass);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+    
+    /**
+     * 以迭代器的方式读取所有Excel文件，提前结束时需要关闭迭代器
+     */
+    public ExcelIterator<T> iterator(List<String> files, Class<T> modelClass) {
+        return new ExcelIterator<>(this, files, modelClass, config.getStreamBufferBatches(), processId);
+    }
+    
+    /**
+     * 以Flow.Publisher发布读取结果，每个元素为一个批次，读取进度由订阅者的需求决定，见{@link ExcelPublisher}
+     */
+    public Flow.Publisher<List<T>> publisher(List<String> files, Class<T> modelClass) {
+        return new ExcelPublisher<>(this, files, modelClass, processId);
+    }
+    
     /**
      * 读取指定Excel文件的多个Sheet
      */
@@ -412,9 +926,9 @@ public class ExcelReader<T> {
                         @Override
                         public void onException(Exception exception, AnalysisContext context) throws Exception {
                             if (config.isCollectErrors()) {
-                                long rowIdx = context.readRowHolder() != null ? 
+                                long rowIdx = context.readRowHolder() != null ?
                                         context.readRowHolder().getRowIndex().longValue() : -1L;
-                                recordRowError(filePath, rowIdx, null, 
+                                recordRowError(filePath, rowIdx, null,
                                         "Sheet-" + currentSheetIndex + "读取异常: " + exception.getMessage(), exception);
                             }
                             
@@ -450,25 +964,6 @@ public class ExcelReader<T> {
         }
     }
     
-    /**
-     * 报告进度
-     */
-    private void reportProgress(long current, long total, String phase) {
-        if (progressCallback != null) {
-            progressCallback.onProgress(current, total, phase);
-        }
-    }
-    
-    /**
-     * 报告详细进度
-     */
-    private void reportDetailedProgress(String file, long rowCount) {
-        if (progressCallback != null) {
-            String message = "读取: " + file + ", 行数: " + rowCount;
-            progressCallback.onProgress(rowCount, -1, "读取数据", message);
-        }
-    }
-    
     /**
      * 读取所有Excel文件的适配方法（兼容旧API）
      */
@@ -481,8 +976,11 @@ public class ExcelReader<T> {
      */
     public ExcelReader(ExecutorService executorService, ProgressCallback progressCallback, String processId) {
         this.executorService = executorService;
-        this.progressCallback = progressCallback;
+        this.ownsProgress = true;
+        this.progress = new ProgressDispatcher(progressCallback, processId, 0, 0);
         this.processId = processId;
+        this.cancellationToken = new CancellationToken();
+        this.stringDictionary = null;
         
         // 创建默认配置
         ExcelConfig<T> defaultConfig = new ExcelConfig<>();
@@ -490,10 +988,11 @@ public class ExcelReader<T> {
         defaultConfig.setCollectErrors(true);
         defaultConfig.setMaxErrorCount(1000);
         this.config = defaultConfig;
+        this.sharedStringCacheSelector = sharedStringCacheSelector(defaultConfig, processId);
         
         // 初始化错误收集器
         this.errorCollector = new ErrorCollector<>(
-                processId, 
+                processId,
                 false,  // 默认不快速失败
                 1000);  // 默认最大错误数
     }
@@ -0,0 +1,110 @@
+package com.study.tools.highExcelTools.core;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * 把订阅到的批次依次写入{@link ExcelWriter}的{@link Flow.Subscriber}
+ * <p>
+ * 订阅时请求prefetchBatches个批次，之后每写完一个批次再请求一个，发布方最多领先写入prefetchBatches个批次。
+ * 批次在onNext中同步写入，写入较慢时发布方随之放慢。
+ * onComplete时关闭写入器，{@link #getCompletion()}以写入的行数完成；写入失败时取消订阅，
+ * 收到onError或写入失败时同样关闭写入器并异常完成，并删除不完整的目标文件(写入输出流时由调用方处理)。
+ * </p>
+ */
+@Slf4j
+public final class ExcelWriteSubscriber<T> implements Flow.Subscriber<List<T>> {
+    private final ExcelWriter<T> writer;
+    private final int prefetchBatches;
+    private final String processId;
+    // 目标文件，写入输出流时为null
+    private final String targetFile;
+    private final CompletableFuture<Long> completion = new CompletableFuture<>();
+    private Flow.Subscription subscription;
+    private long writtenRows;
+    
+    ExcelWriteSubscriber(ExcelWriter<T> writer, int prefetchBatches, String targetFile, String processId) {
+        this.writer = writer;
+        this.prefetchBatches = Math.max(1, prefetchBatches);
+        this.targetFile = targetFile;
+        this.processId = processId;
+    }
+    
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null) {
+            // 只接受一个订阅
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(prefetchBatches);
+    }
+    
+    @Override
+    public void onNext(List<T> batch) {
+        if (completion.isDone()) {
+            return;
+        }
+        try {
+            writer.append(batch);
+            writtenRows += batch.size();
+        } catch (Exception e) {
+            log.error("[{}] 写入订阅批次失败，取消订阅", processId, e);
+            subscription.cancel();
+            fail(e);
+            return;
+        }
+        subscription.request(1);
+    }
+    
+    @Override
+    public void onError(Throwable throwable) {
+        log.error("[{}] 发布方读取失败，停止写入", processId, throwable);
+        fail(throwable);
+    }
+    
+    @Override
+    public void onComplete() {
+        if (completion.isDone()) {
+            return;
+        }
+        try {
+            writer.finish();
+        } catch (IOException e) {
+            // 工作簿没有完整写出，按失败处理并删除不完整的目标文件
+            log.error("[{}] 完成写入失败", processId, e);
+            fail(e);
+            return;
+        }
+        completion.complete(writtenRows);
+    }
+    
+    /**
+     * 写入完成时以写入的行数完成，失败时异常完成
+     */
+    public CompletableFuture<Long> getCompletion() {
+        return completion;
+    }
+    
+    private void fail(Throwable throwable) {
+        if (completion.isDone()) {
+            return;
+        }
+        writer.abort();
+        if (targetFile != null) {
+            try {
+                Files.deleteIfExists(Paths.get(targetFile));
+            } catch (IOException e) {
+                log.warn("[{}] 删除未完成的输出文件失败: {}", processId, targetFile, e);
+            }
+        }
+        completion.completeExceptionally(throwable);
+    }
+} 
\ No newline at end of file
@@ -1,24 +1,33 @@
 package com.study.tools.highExcelTools.core;
 
 import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.enums.CacheLocationEnum;
 import com.alibaba.excel.write.metadata.WriteSheet;
 import com.alibaba.excel.write.metadata.style.WriteCellStyle;
 import com.alibaba.excel.write.style.HorizontalCellStyleStrategy;
 import com.study.tools.highExcelTools.config.ExcelConfig;
-import com.study.tools.highExcelTools.config.ProgressCallback;
 import com.study.tools.highExcelTools.model.ErrorCollector;
 import com.study.tools.highExcelTools.model.ErrorRecord;
+import com.study.tools.highExcelTools.model.Row;
+import com.study.tools.highExcelTools.model.RowSchema;
 import com.study.tools.highExcelTools.util.MemoryMonitor;
+import com.study.tools.highExcelTools.util.ProgressDispatcher;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -35,13 +44,22 @@ public class ExcelWriter<T> {
     private static final int GC_CHECK_BATCH_COUNT = 20;
     
     private final ExcelConfig<T> config;
-    private final ProgressCallback progressCallback;
+    // 进度分发器，写入线程只累加已写入行数
+    private final ProgressDispatcher progress;
+    // 分发器是否由本写入器创建(是则随写入器启停)
+    private final boolean ownsProgress;
     private final String processId;
     
     // 写入相关对象
     private com.alibaba.excel.ExcelWriter excelWriter;
     private WriteSheet writeSheet;
     private BufferedOutputStream bufferedOutputStream;
+    // 已放弃写入，不再向调用方的输出流写出工作簿结尾和缓冲内容
+    private volatile boolean discardOutput;
+    // 附加Sheet(如汇总Sheet)，按名称缓存
+    private final Map<String, WriteSheet> extraSheets = new HashMap<>();
+    // 无模型写入的输出表头(模型类为Row时使用)
+    private RowSchema outputSchema;
     
     // 性能统计
     private long startTime;
@@ -55,13 +73,21 @@ public class ExcelWriter<T> {
     private final DecimalFormat decimalFormat = new DecimalFormat("#.##");
     
     public ExcelWriter(ExcelConfig<T> config, String processId) {
+        this(config, processId, null);
+    }
+    
+    /**
+     * @param progress 合并流程共用的进度分发器，为空时写入器按配置自行创建
+     */
+    public ExcelWriter(ExcelConfig<T> config, String processId, ProgressDispatcher progress) {
         this.config = config;
-        this.progressCallback = config.getProgressCallback();
+        this.ownsProgress = progress == null;
+        this.progress = progress != null ? progress : ProgressDispatcher.create(config, processId);
         this.processId = processId;
         
         // 初始化错误收集器
         this.errorCollector = new ErrorCollector<>(
-                processId, 
+                processId,
                 !config.isContinueOnError(),  // failFast模式与continueOnError相反
                 config.getMaxErrorCount());
     }
@@ -70,40 +96,80 @@ public class ExcelWriter<T> {
      * 初始化写入器
      */
     public void init() throws Exception {
-        log.info("[{}] 初始化ExcelWriter: {}", processId, config.getTargetFile());
-        
-        // 确保目标目录存在
-        Path outputPath = Paths.get(config.getTargetFile());
-        Files.createDirectories(outputPath.getParent());
+        String target = targetName();
+        log.info("[{}] 初始化ExcelWriter: {}", processId, target);
         
         // 获取缓冲区大小
-        int bufferSize = config.getBufferSize() > 0 ? 
+        int bufferSize = config.getBufferSize() > 0 ?
                 config.getBufferSize() : DEFAULT_BUFFER_SIZE;
         
+        OutputStream out;
+        if (config.getTargetStream() != null) {
+            // 写入调用方的输出流，关闭时只刷新，流由调用方关闭；放弃写入后丢弃剩余输出
+            out = new FilterOutputStream(config.getTargetStream()) {
+                @Override
+                public void write(int b) throws IOException {
+                    if (!discardOutput) {
+                        this.out.write(b);
+                    }
+                }
+                
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    if (!discardOutput) {
+                        this.out.write(b, off, len);
+                    }
+                }
+                
+                @Override
+                public void flush() throws IOException {
+                    if (!discardOutput) {
+                        this.out.flush();
+                    }
+                }
+                
+                @Override
+                public void close() throws IOException {
+                    flush();
+                }
+            };
+        } else {
+            // 确保目标目录存在
+            Path outputPath = Paths.get(config.getTargetFile());
+            Files.createDirectories(outputPath.getParent());
+            out = new FileOutputStream(config.getTargetFile());
+        }
+        
         // 创建带缓冲的输出流
-        this.bufferedOutputStream = new BufferedOutputStream(
-                new FileOutputStream(config.getTargetFile()), bufferSize);
+        this.bufferedOutputStream = new BufferedOutputStream(out, bufferSize);
         
         // 创建单元格样式
         WriteCellStyle headWriteCellStyle = new WriteCellStyle();
         WriteCellStyle contentWriteCellStyle = new WriteCellStyle();
-        HorizontalCellStyleStrategy styleStrategy = 
+        HorizontalCellStyleStrategy styleStrategy =
                 new HorizontalCellStyleStrategy(headWriteCellStyle, contentWriteCellStyle);
         
-        // 创建ExcelWriter
-        this.excelWriter = EasyExcel.write(bufferedOutputStream, config.getModelClass())
+        // 创建ExcelWriter，无模型写入时不指定模型类，按输出表头写入单元格列表
+        this.excelWriter = EasyExcel.write(bufferedOutputStream, isRowMode() ? null : config.getModelClass())
+                .excelType(config.getTargetType())            // 为空时为xlsx
                 .registerWriteHandler(styleStrategy)
                 .inMemory(config.isUseInMemory())             // 内存模式
                 .autoCloseStream(config.isAutoCloseStream())  // 自动关闭流
                 .useDefaultStyle(false)                       // 禁用默认样式提高性能
+                .filedCacheLocation(CacheLocationEnum.MEMORY) // 模型字段和格式注解解析结果跨文件复用
                 .build();
-                
+        
         // 创建指定头的WriteSheet，考虑自定义表头
         if (config.getHeadList() != null && !config.getHeadList().isEmpty()) {
             // 使用自定义表头
             this.writeSheet = EasyExcel.writerSheet("Sheet1")
                     .head(config.getHeadList())
                     .build();
+        } else if (outputSchema != null) {
+            // 无模型写入使用输出表头
+            this.writeSheet = EasyExcel.writerSheet("Sheet1")
+                    .head(outputSchema.headList())
+                    .build();
         } else {
             // 使用默认表头
             this.writeSheet = EasyExcel.writerSheet("Sheet1").build();
@@ -111,8 +177,11 @@ public class ExcelWriter<T> {
         
         // 记录开始时间
         this.startTime = System.currentTimeMillis();
+        if (ownsProgress) {
+            progress.start();
+        }
         
-        log.info("[{}] ExcelWriter初始化完成，目标文件: {}", processId, config.getTargetFile());
+        log.info("[{}] ExcelWriter初始化完成，目标文件: {}", processId, target);
     }
     
     /**
@@ -127,6 +196,7 @@ public class ExcelWriter<T> {
         
         // 如果尚未初始化，先初始化
         if (excelWriter == null) {
+            initOutputSchema(data);
             init();
         }
         
@@ -143,13 +213,9 @@ public class ExcelWriter<T> {
                 List<T> batch = data.subList(i, endIndex);
                 
                 try {
-                    // 写入当前批次
+                    // 写入当前批次(进度由writeBatch累加)
                     writeBatch(batch);
                     
-                    // 更新进度
-                    int currentTotal = endIndex;
-                    reportProgress(currentTotal, totalSize, "写入数据");
-                    
                     // 每N个批次检查内存情况并可能触发GC
                     if ((i / batchSize) % GC_CHECK_BATCH_COUNT == 0) {
                         MemoryMonitor.checkForGC();
@@ -176,27 +242,142 @@ public class ExcelWriter<T> {
             long duration = System.currentTimeMillis() - startTime;
             double rowsPerSecond = duration > 0 ? (totalSize * 1000.0 / duration) : 0;
             
-            log.info("[{}] 数据写入完成，共写入 {} 行，耗时 {} ms，速度 {} 行/秒", 
+            log.info("[{}] 数据写入完成，共写入 {} 行，耗时 {} ms，速度 {} 行/秒",
                     processId, totalSize, duration, decimalFormat.format(rowsPerSecond));
                     
         } catch (Exception e) {
             log.error("[{}] 写入数据过程中发生错误", processId, e);
-            throw e;
-        } finally {
             // 确保资源正确释放
             if (!config.isAutoCloseStream()) {
-                finish();
+                abort();
+            }
+            throw e;
+        }
+        if (!config.isAutoCloseStream()) {
+            finish();
+        }
+    }
+    
+    /**
+     * 追加写入一批数据，不关闭写入器
+     * 用于外部排序归并等逐块产出数据的场景，全部写完后由调用方调用finish()
+     * @param rows 要写入的数据
+     */
+    public void append(List<T> rows) throws Exception {
+        if (rows == null || rows.isEmpty()) {
+            return;
+        }
+        
+        // 如果尚未初始化，先初始化
+        if (excelWriter == null) {
+            initOutputSchema(rows);
+            init();
+        }
+        
+        try {
+            writeBatch(rows);
+        } catch (Exception e) {
+            if (config.isCollectErrors()) {
+                ErrorRecord<T> errorRecord = ErrorRecord.writeError(
+                        "批次写入", rows.get(0), "写入批次数据失败: " + e.getMessage(), e);
+                boolean shouldStop = errorCollector.collectError(errorRecord);
+                
+                if (shouldStop && !config.isContinueOnError()) {
+                    throw new RuntimeException("写入批次数据失败并停止处理", e);
+                }
+            } else if (!config.isContinueOnError()) {
+                throw new RuntimeException("写入批次数据失败", e);
+            }
+        }
+    }
+    
+    /**
+     * 创建写入本写入器的Flow.Subscriber，预取批次数取streamBufferBatches，见{@link ExcelWriteSubscriber}
+     */
+    public ExcelWriteSubscriber<T> subscriber() {
+        return new ExcelWriteSubscriber<>(this, config.getStreamBufferBatches(),
+                config.getTargetStream() != null ? null : config.getTargetFile(), processId);
+    }
+    
+    /**
+     * 向指定名称的Sheet追加写入无模型类的行数据(如汇总结果)，不关闭写入器
+     * @param sheetName Sheet名称
+     * @param head 表头
+     * @param rows 行数据，每行依次为各列单元格值
+     */
+    public void appendToSheet(String sheetName, List<List<String>> head, List<List<Object>> rows) throws Exception {
+        if (rows == null || rows.isEmpty()) {
+            return;
+        }
+        
+        // 如果尚未初始化，先初始化
+        if (excelWriter == null) {
+            init();
+        }
+        
+        WriteSheet sheet = extraSheets.computeIfAbsent(sheetName,
+                name -> EasyExcel.writerSheet(name).head(head).build());
+        excelWriter.write(rows, sheet);
+    }
+    
+    /**
+     * 设置无模型写入的输出表头，需在首次写入前调用
+     * 各行按表头名对齐到输出表头，行中不存在的列写为空
+     */
+    public void setOutputSchema(RowSchema outputSchema) {
+        this.outputSchema = outputSchema;
+    }
+    
+    private String targetName() {
+        return config.getTargetStream() != null ? "输出流" : config.getTargetFile();
+    }
+    
+    private boolean isRowMode() {
+        return Row.class.equals(config.getModelClass());
+    }
+    
+    /**
+     * 未设置输出表头时，配置了自定义表头则按其最后一级表头对齐，否则使用第一行的表头
+     */
+    private void initOutputSchema(List<T> data) {
+        if (!isRowMode() || outputSchema != null) {
+            return;
+        }
+        if (config.getHeadList() != null && !config.getHeadList().isEmpty()) {
+            List<String> headers = new ArrayList<>(config.getHeadList().size());
+            for (List<String> head : config.getHeadList()) {
+                headers.add(head.get(head.size() - 1));
             }
+            outputSchema = new RowSchema(headers);
+        } else if (!data.isEmpty()) {
+            outputSchema = ((Row) data.get(0)).getSchema();
         }
     }
     
+    /**
+     * 无模型的行按输出表头转换为单元格列表
+     */
+    private List<List<Object>> toCells(List<T> batch) {
+        initOutputSchema(batch);
+        List<List<Object>> cells = new ArrayList<>(batch.size());
+        for (T row : batch) {
+            cells.add(((Row) row).toList(outputSchema));
+        }
+        return cells;
+    }
+    
     /**
      * 写入批次数据
      */
     private void writeBatch(List<T> batch) {
         try {
-            excelWriter.write(batch, writeSheet);
+            if (isRowMode()) {
+                excelWriter.write(toCells(batch), writeSheet);
+            } else {
+                excelWriter.write(batch, writeSheet);
+            }
             long written = writtenRows.addAndGet(batch.size());
+            progress.addWrittenRows(batch.size());
             
             if (written % 50000 == 0) {
                 log.debug("[{}] 已写入 {} 行数据", processId, written);
@@ -209,17 +390,48 @@ public class ExcelWriter<T> {
     
     /**
      * 完成写入并释放资源
+     * <p>
+     * xlsx在这一步才写出压缩包，失败时输出文件不完整，调用方不能再把结果当作成功返回
+     * </p>
+     * @throws IOException 完成工作簿或关闭输出流失败
      */
-    public void finish() {
+    public void finish() throws IOException {
+        Exception failure = release();
+        if (failure != null) {
+            throw new IOException("完成Excel写入失败: " + targetName(), failure);
+        }
+        log.info("[{}] Excel写入器正常关闭", processId);
+    }
+    
+    /**
+     * 放弃写入并释放资源，用于失败或取消后的清理，关闭时的错误只记录日志
+     * <p>
+     * 写入调用方输出流时丢弃还没写出的内容，不会补写出结构完整的文件；写入目标文件时由调用方删除文件
+     * </p>
+     */
+    public void abort() {
+        discardOutput = true;
+        Exception failure = release();
+        if (failure != null) {
+            log.warn("[{}] 放弃写入时关闭Excel写入器失败", processId, failure);
+        }
+    }
+    
+    /**
+     * 关闭写入器和输出流
+     * @return 第一个关闭错误，没有错误时为null
+     */
+    private Exception release() {
+        Exception failure = null;
         if (excelWriter != null) {
             try {
                 excelWriter.finish();
-                log.info("[{}] Excel写入器正常关闭", processId);
             } catch (Exception e) {
-                log.error("[{}] 关闭Excel写入器时发生错误", processId, e);
+                failure = e;
             } finally {
                 excelWriter = null;
                 writeSheet = null;
+                extraSheets.clear();
             }
         }
         
@@ -227,20 +439,18 @@ public class ExcelWriter<T> {
             try {
                 bufferedOutputStream.close();
             } catch (Exception e) {
-                log.error("[{}] 关闭输出流时发生错误", processId, e);
+                if (failure == null) {
+                    failure = e;
+                }
             } finally {
                 bufferedOutputStream = null;
             }
         }
-    }
-    
-    /**
-     * 报告进度
-     */
-    private void reportProgress(long current, long total, String phase) {
-        if (progressCallback != null) {
-            progressCallback.onProgress(current, total, phase);
+        
+        if (ownsProgress) {
+            progress.close();
         }
+        return failure;
     }
     
     /**
@@ -0,0 +1,23 @@
+package com.study.tools.highExcelTools.core;
+
+import java.util.List;
+
+/**
+ * 带文件下标的批次回调
+ * <p>
+ * 同一文件的批次按行顺序在同一线程中依次回调，不同文件的批次可能并发回调
+ * </p>
+ *
+ * @param <T> 数据模型类型
+ */
+@FunctionalInterface
+public interface FileBatchConsumer<T> {
+    
+    /**
+     * 处理一个批次
+     *
+     * @param fileIndex 批次所属文件在文件列表中的下标
+     * @param batch 批次数据，列表移交给回调方，可直接持有
+     */
+    void accept(int fileIndex, List<T> batch);
+} 
\ No newline at end of file
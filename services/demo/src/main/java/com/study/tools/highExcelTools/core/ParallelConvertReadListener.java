@@ -0,0 +1,247 @@
+package com.study.tools.highExcelTools.core;
+
+import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.converters.Converter;
+import com.alibaba.excel.converters.ConverterKeyBuild;
+import com.alibaba.excel.metadata.CellExtra;
+import com.alibaba.excel.metadata.Head;
+import com.alibaba.excel.metadata.data.ReadCellData;
+import com.alibaba.excel.metadata.property.ExcelContentProperty;
+import com.alibaba.excel.read.listener.ReadListener;
+import com.alibaba.excel.read.metadata.holder.ReadSheetHolder;
+import com.alibaba.excel.support.cglib.beans.BeanMap;
+import com.alibaba.excel.util.BeanMapUtils;
+import com.alibaba.excel.util.ClassUtils;
+import com.alibaba.excel.util.ConverterUtils;
+import com.study.tools.highExcelTools.util.ModelMetadata;
+import com.study.tools.highExcelTools.util.ModelMetadata.FieldAccessor;
+
+import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * 单文件行转换并行监听器
+ * 解析线程只收集EasyExcel解析出的原始单元格，按块提交到转换线程池，由多个线程并行把单元格转换为模型对象；
+ * 转换完成的块按提交顺序在解析线程中依次交给原有的批次监听器，文件内的行顺序和回调线程都保持不变。
+ * 单元格转换沿用EasyExcel的转换器和字段格式注解，结果与默认的模型读取一致。
+ * 转换线程只做单元格到模型对象的转换，过滤器和管道仍由批次回调后的数据处理按批次执行
+ *
+ * @param <T> 数据模型类型
+ */
+class ParallelConvertReadListener<T> implements ReadListener<Map<Integer, ReadCellData<?>>> {
+    
+    private final ReadListener<T> delegate;
+    private final Class<T> modelClass;
+    // 构造函数和字段访问器在进程内按模型类共享
+    private final ModelMetadata<T> metadata;
+    private final ExecutorService convertExecutor;
+    // 每个转换块的行数
+    private final int chunkRows;
+    // 最多同时在途的转换块数，超过后解析线程等待最早的块完成，限制原始单元格占用的内存
+    private final int maxPendingChunks;
+    
+    // 已提交、尚未交付的转换块，按提交顺序
+    private final ArrayDeque<Future<List<Object>>> pending = new ArrayDeque<>();
+    // 正在收集的原始行
+    private List<RawRow> chunk;
+    
+    // 转换计划，读到第一行数据时按表头匹配结果建立，之后只读
+    private int[] columns;
+    private Field[] fields;
+    private FieldAccessor[] accessors;
+    private ExcelContentProperty[] contentProperties;
+    private Map<ConverterKeyBuild.ConverterKey, Converter<?>> converterMap;
+    
+    ParallelConvertReadListener(ReadListener<T> delegate, Class<T> modelClass, ExecutorService convertExecutor,
+                                int chunkRows, int maxPendingChunks) {
+        this.delegate = delegate;
+        this.modelClass = modelClass;
+        this.metadata = ModelMetadata.of(modelClass);
+        this.convertExecutor = convertExecutor;
+        this.chunkRows = chunkRows;
+        this.maxPendingChunks = maxPendingChunks;
+        this.chunk = new ArrayList<>(chunkRows);
+    }
+    
+    @Override
+    public void invokeHead(Map<Integer, ReadCellData<?>> headMap, AnalysisContext context) {
+        delegate.invokeHead(headMap, context);
+    }
+    
+    @Override
+    public void invoke(Map<Integer, ReadCellData<?>> cells, AnalysisContext context) {
+        try {
+            if (columns == null) {
+                initPlan(context);
+            }
+            chunk.add(new RawRow(context.readRowHolder().getRowIndex(), cells));
+            if (chunk.size() >= chunkRows) {
+                submitChunk(context);
+            }
+        } catch (RuntimeException e) {
+            discardPending();
+            throw e;
+        }
+    }
+    
+    @Override
+    public void doAfterAllAnalysed(AnalysisContext context) {
+        try {
+            if (!chunk.isEmpty()) {
+                submitChunk(context);
+            }
+            while (!pending.isEmpty()) {
+                deliverOldest(context);
+            }
+        } catch (RuntimeException e) {
+            discardPending();
+            throw e;
+        }
+        delegate.doAfterAllAnalysed(context);
+    }
+    
+    @Override
+    public void extra(CellExtra extra, AnalysisContext context) {
+        delegate.extra(extra, context);
+    }
+    
+    @Override
+    public boolean hasNext(AnalysisContext context) {
+        return delegate.hasNext(context);
+    }
+    
+    @Override
+    public void onException(Exception exception, AnalysisContext context) throws Exception {
+        delegate.onException(exception, context);
+    }
+    
+    /**
+     * 按EasyExcel的表头匹配结果确定每列对应的字段、格式注解和转换器
+     */
+    private void initPlan(AnalysisContext context) {
+        ReadSheetHolder sheetHolder = context.readSheetHolder();
+        Map<Integer, Head> headMap = sheetHolder.excelReadHeadProperty().getHeadMap();
+        BeanMap sample = BeanMapUtils.create(metadata.newInstance());
+        
+        List<Integer> columnList = new ArrayList<>();
+        List<Field> fieldList = new ArrayList<>();
+        List<FieldAccessor> accessorList = new ArrayList<>();
+        List<ExcelContentProperty> propertyList = new ArrayList<>();
+        for (Map.Entry<Integer, Head> entry : headMap.entrySet()) {
+            Field field = entry.getValue().getField();
+            FieldAccessor accessor = field != null ? metadata.getField(field.getName()) : null;
+            if (accessor == null || !accessor.getField().equals(field) || accessor.isFinal()) {
+                continue;
+            }
+            columnList.add(entry.getKey());
+            fieldList.add(field);
+            accessorList.add(accessor);
+            propertyList.add(ClassUtils.declaredExcelContentProperty(sample, modelClass,
+                    entry.getValue().getFieldName(), sheetHolder));
+        }
+        columns = columnList.stream().mapToInt(Integer::intValue).toArray();
+        fields = fieldList.toArray(new Field[0]);
+        accessors = accessorList.toArray(new FieldAccessor[0]);
+        contentProperties = propertyList.toArray(new ExcelContentProperty[0]);
+        converterMap = sheetHolder.converterMap();
+    }
+    
+    /**
+     * 提交当前块，已完成的块按顺序交付，在途块过多时等待最早的块
+     */
+    private void submitChunk(AnalysisContext context) {
+        List<RawRow> rows = chunk;
+        chunk = new ArrayList<>(chunkRows);
+        pending.add(convertExecutor.submit(() -> convert(rows, context)));
+        
+        while (!pending.isEmpty() && (pending.size() > maxPendingChunks || pending.peek().isDone())) {
+            deliverOldest(context);
+        }
+    }
+    
+    /**
+     * 在解析线程中把最早的块交给批次监听器，转换失败的行按读取异常交给监听器处理
+     */
+    private void deliverOldest(AnalysisContext context) {
+        List<Object> converted;
+        try {
+            converted = pending.poll().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待行转换结果时被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("行转换失败", e.getCause());
+        }
+        
+        for (Object row : converted) {
+            if (row instanceof Exception) {
+                try {
+                    delegate.onException((Exception) row, context);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            } else {
+                delegate.invoke(modelClass.cast(row), context);
+            }
+        }
+    }
+    
+    /**
+     * 转换一个块(在转换线程中执行)，单行转换异常放在结果对应位置，不影响其它行
+     */
+    private List<Object> convert(List<RawRow> rows, AnalysisContext context) {
+        List<Object> result = new ArrayList<>(rows.size());
+        for (RawRow row : rows) {
+            T bean = metadata.newInstance();
+            try {
+                for (int i = 0; i < columns.length; i++) {
+                    ReadCellData<?> cell = row.cells.get(columns[i]);
+                    if (cell == null) {
+                        continue;
+                    }
+                    Object value = ConverterUtils.convertToJavaObject(cell, fields[i], contentProperties[i],
+                            converterMap, context, row.rowIndex, columns[i]);
+                    if (value != null) {
+                        accessors[i].set(bean, value);
+                    }
+                }
+                result.add(bean);
+            } catch (RuntimeException e) {
+                result.add(e);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 读取中止时取消尚未交付的转换块
+     */
+    private void discardPending() {
+        for (Future<List<Object>> future : pending) {
+            future.cancel(true);
+        }
+        pending.clear();
+        chunk.clear();
+    }
+    
+    /**
+     * 解析线程收集的原始行
+     */
+    private static class RawRow {
+        private final Integer rowIndex;
+        private final Map<Integer, ReadCellData<?>> cells;
+        
+        private RawRow(Integer rowIndex, Map<Integer, ReadCellData<?>> cells) {
+            this.rowIndex = rowIndex;
+            this.cells = cells;
+        }
+    }
+} 
\ No newline at end of file
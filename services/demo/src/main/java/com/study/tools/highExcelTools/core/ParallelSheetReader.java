@@ -0,0 +1,691 @@
+package com.study.tools.highExcelTools.core;
+
+import com.alibaba.excel.analysis.v07.handlers.sax.SharedStringsTableHandler;
+import com.alibaba.excel.cache.MapCache;
+import com.alibaba.excel.cache.ReadCache;
+import com.alibaba.excel.cache.selector.ReadCacheSelector;
+import com.alibaba.excel.context.AnalysisContext;
+import com.study.tools.highExcelTools.util.MergeCancelledException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.openxml4j.opc.PackageRelationshipTypes;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTWorkbookPr;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.WorkbookDocument;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.SAXParserFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 单个大Sheet分块并行解析
+ * <p>
+ * 一个Sheet只能由一个SAX解析器顺序解析，百万行的Sheet受单线程解析速度限制。这里把xlsx第一个Sheet的XML解压一遍，
+ * 在&lt;row边界切分为多个分块，每个分块写成只含该Sheet的小xlsx(不压缩)：原Sheet的XML头、表头行、本块的行和结尾标签，
+ * 样式原样复制，共享字符串表只解析一次，由所有分块共用。各分块在工作线程中按EasyExcel默认流程读取，
+ * 表头匹配、类型转换和异常处理与整文件读取一致；读取线程一边切分一边按分块顺序把批次交给回调，文件内行顺序和回调线程不变。
+ * 每个分块的批次经有界队列逐批交付，最早的分块边解析边回调，后续分块的队列满时解析线程等待，不整块缓存。
+ * </p>
+ * <p>
+ * 分块内的数据行按偏移重新编号，紧跟在表头行之后，避免EasyExcel为中间缺失的行号逐行补空行；行号偏移交给分块读取方还原异常行号。
+ * 行标签没有行号属性的Sheet无法切分，返回false由调用方整文件读取。
+ * </p>
+ *
+ * @param <T> 数据模型类型
+ */
+@Slf4j
+final class ParallelSheetReader<T> {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    // 识别标签时向后查看的最大字节数，行标签的属性不会超过该长度
+    private static final int TAG_LOOKAHEAD = 1024;
+    private static final long MIN_CHUNK_BYTES = 64 * 1024;
+    private static final long MAX_CHUNK_BYTES = 32 * 1024 * 1024;
+    private static final byte[] ROW = "<row".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SHEET_DATA_END = "</sheetData>".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SHEET_END = "</sheetData></worksheet>".getBytes(StandardCharsets.UTF_8);
+    private static final String SHEET_ENTRY = "xl/worksheets/sheet1.xml";
+    // 每个分块在途的最大批次数
+    private static final int CHUNK_QUEUE_BATCHES = 4;
+    
+    /**
+     * 读取一个分块文件
+     */
+    interface ChunkReader<T> {
+        /**
+         * @param chunkFile 分块xlsx文件
+         * @param rowOffset 分块内行号与原Sheet行号的差
+         * @param sharedStrings 返回共用共享字符串表的选择器
+         * @param date1904 原文件是否使用1904日期系统
+         * @param sink 分块内的批次，按行顺序
+         */
+        void read(String chunkFile, int rowOffset, ReadCacheSelector sharedStrings, boolean date1904,
+                  Consumer<List<T>> sink);
+    }
+    
+    private final String processId;
+    private final ExecutorService workers;
+    private final int threads;
+    private final Path tempDir;
+    private final ReadCacheSelector cacheSelector;
+    private final ChunkReader<T> chunkReader;
+    
+    ParallelSheetReader(String processId, ExecutorService workers, int threads, Path tempDir,
+                        ReadCacheSelector cacheSelector, ChunkReader<T> chunkReader) {
+        this.processId = processId;
+        this.workers = workers;
+        this.threads = threads;
+        this.tempDir = tempDir;
+        this.cacheSelector = cacheSelector;
+        this.chunkReader = chunkReader;
+    }
+    
+    /**
+     * 分块并行读取文件的第一个Sheet
+     *
+     * @param headRows 表头行数，行号不超过该值的行复制到每个分块
+     * @param minSheetBytes Sheet解压后小于该字节数时不分块
+     * @return Sheet太小或无法切分时返回false，此时没有回调任何批次
+     */
+    boolean read(int fileIndex, String filePath, int headRows, long minSheetBytes,
+                 FileBatchConsumer<T> consumer) throws Exception {
+        OPCPackage pkg = OPCPackage.open(new File(filePath), PackageAccess.READ);
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return false;
+            }
+            try (InputStream sheet = sheets.next()) {
+                long sheetBytes = sheets.getSheetPart().getSize();
+                if (sheetBytes < 0 || sheetBytes < minSheetBytes) {
+                    return false;
+                }
+                long chunkBytes = Math.max(MIN_CHUNK_BYTES, Math.min(MAX_CHUNK_BYTES, sheetBytes / (threads * 4L)));
+                ChunkTemplate template = new ChunkTemplate(readStyles(reader), isDate1904(reader));
+                ReadCache strings = loadSharedStrings(pkg);
+                Path chunkDir = null;
+                try {
+                    chunkDir = Files.createTempDirectory(Files.createDirectories(tempDir), "excel-chunk-" + processId + "-");
+                    long start = System.currentTimeMillis();
+                    int chunks = new Splitter(sheet, headRows, chunkBytes, chunkDir, template,
+                            new SharedStringsView(strings), fileIndex, consumer).run();
+                    if (chunks < 0) {
+                        return false;
+                    }
+                    log.info("[{}] 分块并行读取完成: {}, Sheet {} MB, {} 个分块, 耗时 {} ms", processId, filePath,
+                            sheetBytes >> 20, chunks, System.currentTimeMillis() - start);
+                    return true;
+                } finally {
+                    strings.destroy();
+                    if (chunkDir != null) {
+                        deleteQuietly(chunkDir);
+                    }
+                }
+            }
+        } finally {
+            pkg.revert();
+        }
+    }
+    
+    private static byte[] readStyles(XSSFReader reader) {
+        try (InputStream in = reader.getStylesData()) {
+            return readAll(in);
+        } catch (Exception e) {
+            // 没有样式表时EasyExcel同样可以读取，只是无法识别日期格式
+            return null;
+        }
+    }
+    
+    private static boolean isDate1904(XSSFReader reader) throws Exception {
+        try (InputStream in = reader.getWorkbookData()) {
+            CTWorkbookPr workbookPr = WorkbookDocument.Factory.parse(in).getWorkbook().getWorkbookPr();
+            return workbookPr != null && workbookPr.getDate1904();
+        }
+    }
+    
+    /**
+     * 按表大小选择存储方式，用EasyExcel的共享字符串解析器解析一次
+     */
+    private ReadCache loadSharedStrings(OPCPackage pkg) throws Exception {
+        List<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+        if (parts.isEmpty()) {
+            return new MapCache();
+        }
+        ReadCache cache = cacheSelector.readCache(parts.get(0));
+        cache.init(null);
+        try (InputStream in = parts.get(0).getInputStream()) {
+            SAXParserFactory factory = SAXParserFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+            factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+            XMLReader xmlReader = factory.newSAXParser().getXMLReader();
+            xmlReader.setContentHandler(new SharedStringsTableHandler(cache));
+            xmlReader.parse(new InputSource(in));
+        } catch (Exception e) {
+            cache.destroy();
+            throw e;
+        }
+        cache.putFinished();
+        return cache;
+    }
+    
+    private void deleteQuietly(Path dir) {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            log.warn("[{}] 删除分块临时文件失败: {}", processId, dir, e);
+        }
+    }
+    
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+    
+    /**
+     * 按&lt;row边界切分Sheet XML，写出分块并提交读取，已完成的分块按顺序交付
+     */
+    private final class Splitter {
+        private final InputStream in;
+        private final int headRows;
+        private final long chunkBytes;
+        private final Path chunkDir;
+        private final ChunkTemplate template;
+        private final SharedStringsView strings;
+        private final int fileIndex;
+        private final FileBatchConsumer<T> consumer;
+        
+        private final byte[] buf = new byte[BUFFER_SIZE];
+        private int limit;
+        // 尚未写出的第一个字节
+        private int mark;
+        private boolean eof;
+        
+        // 第一个<row之前的内容(含<sheetData>)和表头行，复制到每个分块
+        private byte[] prefix;
+        private final ByteArrayOutputStream header = new ByteArrayOutputStream();
+        private boolean inHeader = true;
+        
+        private ChunkWriter chunk;
+        private int chunkCount;
+        private final ArrayDeque<ChunkTask> pending = new ArrayDeque<>();
+        
+        Splitter(InputStream in, int headRows, long chunkBytes, Path chunkDir, ChunkTemplate template,
+                 SharedStringsView strings, int fileIndex, FileBatchConsumer<T> consumer) {
+            this.in = in;
+            this.headRows = headRows;
+            this.chunkBytes = chunkBytes;
+            this.chunkDir = chunkDir;
+            this.template = template;
+            this.strings = strings;
+            this.fileIndex = fileIndex;
+            this.consumer = consumer;
+        }
+        
+        /**
+         * @return 分块数，无法切分时返回-1
+         */
+        int run() throws Exception {
+            try {
+                int pos = 0;
+                while (true) {
+                    if (pos >= limit - TAG_LOOKAHEAD && !eof) {
+                        pos = fill(pos);
+                        continue;
+                    }
+                    if (pos >= limit) {
+                        if (prefix == null) {
+                            // 没有数据行(<sheetData/>)
+                            return -1;
+                        }
+                        throw new IllegalStateException("工作表XML不完整，缺少</sheetData>");
+                    }
+                    if (buf[pos] != '<') {
+                        pos++;
+                        continue;
+                    }
+                    if (startsWith(pos, SHEET_DATA_END)) {
+                        if (chunk == null) {
+                            return -1;
+                        }
+                        write(pos);
+                        submit();
+                        break;
+                    }
+                    if (startsWith(pos, ROW) && pos + ROW.length < limit && isTagNameEnd(buf[pos + ROW.length])) {
+                        pos = onRow(pos);
+                        if (pos < 0) {
+                            return -1;
+                        }
+                        continue;
+                    }
+                    pos++;
+                }
+                while (!pending.isEmpty()) {
+                    deliverOldest();
+                }
+                return chunkCount;
+            } catch (Exception e) {
+                discard();
+                throw e;
+            }
+        }
+        
+        /**
+         * 处理一个行标签
+         *
+         * @return 继续扫描的位置，无法切分时返回-1
+         */
+        private int onRow(int pos) throws Exception {
+            int tagEnd = indexOf((byte) '>', pos, limit);
+            if (tagEnd < 0) {
+                throw new IllegalStateException("行标签过长");
+            }
+            int[] number = rowNumber(pos, tagEnd);
+            long rowNumber = number == null ? -1 : parseLong(number[0], number[1]);
+            if (prefix == null) {
+                // 第一行: 之前的内容作为分块头部，没有行号时无法切分
+                if (rowNumber < 0) {
+                    return -1;
+                }
+                prefix = Arrays.copyOfRange(buf, 0, pos);
+                mark = pos;
+                chunk = new ChunkWriter(0);
+                chunk.write(prefix, 0, prefix.length);
+            }
+            if (inHeader && (rowNumber < 0 || rowNumber > headRows)) {
+                write(pos);
+                inHeader = false;
+            }
+            if (!inHeader && rowNumber > headRows && chunk.bytes >= chunkBytes) {
+                write(pos);
+                submit();
+                chunk = new ChunkWriter(rowNumber - (headRows + 1));
+                chunk.write(prefix, 0, prefix.length);
+                byte[] headerRows = header.toByteArray();
+                chunk.write(headerRows, 0, headerRows.length);
+            }
+            if (chunk.rowOffset > 0 && number != null) {
+                // 分块内重新编号
+                write(number[0]);
+                byte[] renumbered = Long.toString(rowNumber - chunk.rowOffset).getBytes(StandardCharsets.US_ASCII);
+                chunk.write(renumbered, 0, renumbered.length);
+                mark = number[1];
+            }
+            return tagEnd + 1;
+        }
+        
+        /**
+         * 行标签中r属性值的起止位置，没有时返回null
+         */
+        private int[] rowNumber(int tagStart, int tagEnd) {
+            for (int i = tagStart + ROW.length; i + 2 < tagEnd; i++) {
+                if (buf[i] == 'r' && isWhitespace(buf[i - 1]) && buf[i + 1] == '=' && (buf[i + 2] == '"' || buf[i + 2] == '\'')) {
+                    int start = i + 3;
+                    int end = start;
+                    while (end < tagEnd && buf[end] >= '0' && buf[end] <= '9') {
+                        end++;
+                    }
+                    return end > start && buf[end] == buf[i + 2] ? new int[]{start, end} : null;
+                }
+            }
+            return null;
+        }
+        
+        /**
+         * 写出[mark, pos)到当前分块，表头行同时保留一份
+         */
+        private void write(int pos) throws IOException {
+            if (pos <= mark) {
+                return;
+            }
+            if (chunk != null) {
+                chunk.write(buf, mark, pos - mark);
+                if (inHeader) {
+                    header.write(buf, mark, pos - mark);
+                }
+            }
+            mark = pos;
+        }
+        
+        /**
+         * 写出已扫描的内容后把剩余字节移到缓冲区开头并继续读取
+         *
+         * @return 扫描位置在新缓冲区中的位置
+         */
+        private int fill(int pos) throws IOException {
+            if (prefix != null) {
+                write(pos);
+            }
+            // 第一行之前的内容全部保留在缓冲区中，作为分块头部
+            int keep = prefix != null ? mark : 0;
+            if (prefix == null && limit == buf.length) {
+                throw new IllegalStateException("工作表第一行之前的内容过长");
+            }
+            System.arraycopy(buf, keep, buf, 0, limit - keep);
+            limit -= keep;
+            mark -= keep;
+            pos -= keep;
+            while (limit < buf.length) {
+                int n = in.read(buf, limit, buf.length - limit);
+                if (n < 0) {
+                    eof = true;
+                    break;
+                }
+                limit += n;
+            }
+            return pos;
+        }
+        
+        /**
+         * 结束当前分块并提交读取，在途分块过多时等待最早的分块
+         */
+        private void submit() throws Exception {
+            ChunkWriter finished = chunk;
+            chunk = null;
+            finished.finish();
+            chunkCount++;
+            ChunkTask task = new ChunkTask();
+            task.future = workers.submit(() -> {
+                try {
+                    chunkReader.read(finished.file.toString(), (int) finished.rowOffset,
+                            part -> strings, template.date1904, task::put);
+                } finally {
+                    try {
+                        Files.deleteIfExists(finished.file);
+                    } finally {
+                        task.finish();
+                    }
+                }
+                return null;
+            });
+            pending.add(task);
+            // 在途分块过多时读完最早的分块，否则只交付已经就绪的批次
+            while (pending.size() > threads) {
+                deliverOldest();
+            }
+            deliverReady();
+        }
+        
+        /**
+         * 等待最早的分块读取完成，边读边交付其批次
+         */
+        private void deliverOldest() throws Exception {
+            ChunkTask task = pending.peek();
+            List<T> batch;
+            while ((batch = task.batches.take()) != task.end) {
+                consumer.accept(fileIndex, batch);
+            }
+            pending.poll();
+            task.rethrow();
+        }
+        
+        /**
+         * 不等待，按分块顺序交付已经就绪的批次
+         */
+        private void deliverReady() throws Exception {
+            while (!pending.isEmpty()) {
+                ChunkTask task = pending.peek();
+                List<T> batch;
+                while ((batch = task.batches.poll()) != null && batch != task.end) {
+                    consumer.accept(fileIndex, batch);
+                }
+                if (batch == null) {
+                    return;
+                }
+                pending.poll();
+                task.rethrow();
+            }
+        }
+        
+        private void discard() {
+            for (ChunkTask task : pending) {
+                task.future.cancel(true);
+            }
+            pending.clear();
+            if (chunk != null) {
+                chunk.abort();
+                chunk = null;
+            }
+        }
+        
+        /**
+         * 一个分块的读取任务，批次经有界队列交给读取线程，以end标记结束
+         */
+        private final class ChunkTask {
+            private final BlockingQueue<List<T>> batches = new ArrayBlockingQueue<>(CHUNK_QUEUE_BATCHES);
+            // 结束标记，按引用比较
+            private final List<T> end = new ArrayList<>(0);
+            private Future<?> future;
+            
+            void put(List<T> batch) {
+                try {
+                    batches.put(batch);
+                } catch (InterruptedException e) {
+                    // 读取线程已放弃该文件
+                    Thread.currentThread().interrupt();
+                    throw new MergeCancelledException("分块读取已取消");
+                }
+            }
+            
+            void finish() {
+                try {
+                    batches.put(end);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            
+            /**
+             * 分块读取失败时抛出其异常
+             */
+            void rethrow() throws Exception {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    throw e;
+                }
+            }
+        }
+        
+        /**
+         * 一个分块xlsx，Sheet条目不压缩
+         */
+        private final class ChunkWriter {
+            private final Path file;
+            private final long rowOffset;
+            private final ZipOutputStream zip;
+            private long bytes;
+            
+            ChunkWriter(long rowOffset) throws IOException {
+                this.file = chunkDir.resolve(String.format("chunk-%05d.xlsx", chunkCount));
+                this.rowOffset = rowOffset;
+                this.zip = new ZipOutputStream(Files.newOutputStream(file));
+                zip.setLevel(Deflater.NO_COMPRESSION);
+                template.writeParts(zip);
+                zip.putNextEntry(new ZipEntry(SHEET_ENTRY));
+            }
+            
+            void write(byte[] bytes, int offset, int length) throws IOException {
+                zip.write(bytes, offset, length);
+                this.bytes += length;
+            }
+            
+            void finish() throws IOException {
+                zip.write(SHEET_END);
+                zip.closeEntry();
+                zip.close();
+            }
+            
+            void abort() {
+                try {
+                    zip.close();
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.debug("[{}] 删除分块文件失败: {}", processId, file, e);
+                }
+            }
+        }
+        
+        private boolean startsWith(int pos, byte[] token) {
+            if (pos + token.length > limit) {
+                return false;
+            }
+            for (int i = 0; i < token.length; i++) {
+                if (buf[pos + i] != token[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        private int indexOf(byte b, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (buf[i] == b) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        
+        private long parseLong(int from, int to) {
+            long value = 0;
+            for (int i = from; i < to; i++) {
+                value = value * 10 + (buf[i] - '0');
+            }
+            return value;
+        }
+    }
+    
+    private static boolean isTagNameEnd(byte b) {
+        return b == '>' || b == '/' || isWhitespace(b);
+    }
+    
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+    
+    /**
+     * 分块xlsx除Sheet外的固定部件
+     */
+    private static final class ChunkTemplate {
+        private final byte[] styles;
+        private final boolean date1904;
+        
+        ChunkTemplate(byte[] styles, boolean date1904) {
+            this.styles = styles;
+            this.date1904 = date1904;
+        }
+        
+        void writeParts(ZipOutputStream zip) throws IOException {
+            String styleType = "application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml";
+            put(zip, "[Content_Types].xml", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                    + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                    + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                    + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                    + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"" + XSSFRelation.WORKBOOK.getContentType() + "\"/>"
+                    + "<Override PartName=\"/" + SHEET_ENTRY + "\" ContentType=\"" + XSSFRelation.WORKSHEET.getContentType() + "\"/>"
+                    + "<Override PartName=\"/xl/sharedStrings.xml\" ContentType=\"" + XSSFRelation.SHARED_STRINGS.getContentType() + "\"/>"
+                    + (styles != null ? "<Override PartName=\"/xl/styles.xml\" ContentType=\"" + styleType + "\"/>" : "")
+                    + "</Types>");
+            put(zip, "_rels/.rels", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                    + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                    + "<Relationship Id=\"rId1\" Type=\"" + PackageRelationshipTypes.CORE_DOCUMENT + "\" Target=\"xl/workbook.xml\"/>"
+                    + "</Relationships>");
+            put(zip, "xl/workbook.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                    + "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\""
+                    + " xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+                    + (date1904 ? "<workbookPr date1904=\"1\"/>" : "")
+                    + "<sheets><sheet name=\"chunk\" sheetId=\"1\" r:id=\"rId1\"/></sheets></workbook>");
+            put(zip, "xl/_rels/workbook.xml.rels", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                    + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                    + "<Relationship Id=\"rId1\" Type=\"" + XSSFRelation.WORKSHEET.getRelation() + "\" Target=\"worksheets/sheet1.xml\"/>"
+                    + "<Relationship Id=\"rId2\" Type=\"" + XSSFRelation.SHARED_STRINGS.getRelation() + "\" Target=\"sharedStrings.xml\"/>"
+                    + (styles != null ? "<Relationship Id=\"rId3\" Type=\"" + XSSFRelation.STYLES.getRelation() + "\" Target=\"styles.xml\"/>" : "")
+                    + "</Relationships>");
+            // 字符串由共用的共享字符串表提供，分块内为空表
+            put(zip, "xl/sharedStrings.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                    + "<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" count=\"0\" uniqueCount=\"0\"/>");
+            if (styles != null) {
+                zip.putNextEntry(new ZipEntry("xl/styles.xml"));
+                zip.write(styles);
+                zip.closeEntry();
+            }
+        }
+        
+        private static void put(ZipOutputStream zip, String name, String content) throws IOException {
+            zip.putNextEntry(new ZipEntry(name));
+            zip.write(content.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+    }
+    
+    /**
+     * 分块读取共用的共享字符串表，只读；分块读取结束时EasyExcel的销毁调用不影响共用的表。
+     * 写入完成后堆内列表和内存映射文件实现都可以并发读取，不加锁
+     */
+    private static final class SharedStringsView implements ReadCache {
+        private final ReadCache delegate;
+        
+        SharedStringsView(ReadCache delegate) {
+            this.delegate = delegate;
+        }
+        
+        @Override
+        public void init(AnalysisContext analysisContext) {
+        }
+        
+        @Override
+        public void put(String value) {
+        }
+        
+        @Override
+        public String get(Integer key) {
+            return delegate.get(key);
+        }
+        
+        @Override
+        public void putFinished() {
+        }
+        
+        @Override
+        public void destroy() {
+        }
+    }
+} 
\ No newline at end of file
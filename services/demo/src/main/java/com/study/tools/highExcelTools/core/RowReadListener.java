@@ -0,0 +1,113 @@
+package com.study.tools.highExcelTools.core;
+
+import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.metadata.CellExtra;
+import com.alibaba.excel.metadata.data.ReadCellData;
+import com.alibaba.excel.read.listener.ReadListener;
+import com.alibaba.excel.util.ConverterUtils;
+import com.study.tools.highExcelTools.model.Row;
+import com.study.tools.highExcelTools.model.RowSchema;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * 无模型读取监听器
+ * 把EasyExcel按列下标返回的Map转换为共享表头的{@link Row}，再交给原有的批次监听器，
+ * 过滤、去重、写入等后续处理与模型类读取完全相同
+ *
+ * @param <T> 与Row相同，由调用方保证
+ */
+class RowReadListener<T> implements ReadListener<Map<Integer, String>> {
+    
+    private final ReadListener<T> delegate;
+    // 表头列表到共享表头实例的映射(由读取器统一缓存)
+    private final Function<List<String>, RowSchema> schemaFactory;
+    // 配置的列下标到表头映射，为空时使用文件的表头行
+    private final Map<Integer, String> headMap;
+    
+    private RowSchema schema;
+    private int[] columns;
+    
+    RowReadListener(ReadListener<T> delegate, Function<List<String>, RowSchema> schemaFactory,
+                    Map<Integer, String> headMap) {
+        this.delegate = delegate;
+        this.schemaFactory = schemaFactory;
+        this.headMap = headMap;
+    }
+    
+    @Override
+    public void invokeHead(Map<Integer, ReadCellData<?>> headCells, AnalysisContext context) {
+        initSchema(ConverterUtils.convertToStringMap(headCells, context));
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public void invoke(Map<Integer, String> data, AnalysisContext context) {
+        if (schema == null) {
+            // 文件没有表头行时按第一行数据的列下标生成表头
+            Map<Integer, String> generated = new TreeMap<>();
+            for (Integer column : data.keySet()) {
+                generated.put(column, null);
+            }
+            initSchema(generated);
+        }
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = data.get(columns[i]);
+        }
+        delegate.invoke((T) new Row(schema, values), context);
+    }
+    
+    /**
+     * 确定读取的列和共享表头，表头为空的列命名为"列N"
+     */
+    private void initSchema(Map<Integer, String> fileHead) {
+        Map<Integer, String> selected = new TreeMap<>();
+        if (headMap != null && !headMap.isEmpty()) {
+            // 按配置选取和命名列，忽略文件表头文字
+            selected.putAll(headMap);
+        } else {
+            int width = 0;
+            for (Integer column : fileHead.keySet()) {
+                width = Math.max(width, column + 1);
+            }
+            for (int i = 0; i < width; i++) {
+                String header = fileHead.get(i);
+                selected.put(i, header == null || header.trim().isEmpty() ? "列" + (i + 1) : header.trim());
+            }
+        }
+        
+        columns = new int[selected.size()];
+        List<String> headers = new ArrayList<>(selected.size());
+        int i = 0;
+        for (Map.Entry<Integer, String> entry : selected.entrySet()) {
+            columns[i++] = entry.getKey();
+            headers.add(entry.getValue());
+        }
+        schema = schemaFactory.apply(headers);
+    }
+    
+    @Override
+    public void extra(CellExtra extra, AnalysisContext context) {
+        delegate.extra(extra, context);
+    }
+    
+    @Override
+    public void doAfterAllAnalysed(AnalysisContext context) {
+        delegate.doAfterAllAnalysed(context);
+    }
+    
+    @Override
+    public boolean hasNext(AnalysisContext context) {
+        return delegate.hasNext(context);
+    }
+    
+    @Override
+    public void onException(Exception exception, AnalysisContext context) throws Exception {
+        delegate.onException(exception, context);
+    }
+} 
\ No newline at end of file
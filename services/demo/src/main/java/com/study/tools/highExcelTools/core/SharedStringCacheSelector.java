@@ -0,0 +1,42 @@
+package com.study.tools.highExcelTools.core;
+
+import com.alibaba.excel.cache.MapCache;
+import com.alibaba.excel.cache.ReadCache;
+import com.alibaba.excel.cache.selector.ReadCacheSelector;
+import com.study.tools.highExcelTools.util.MappedStringCache;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.opc.PackagePart;
+
+import java.nio.file.Path;
+
+/**
+ * 按xlsx共享字符串表解压后的大小选择存储方式
+ * <p>
+ * 不超过堆内阈值时使用EasyExcel的堆内列表；超过时使用{@link MappedStringCache}，替代EasyExcel默认的Ehcache。
+ * 大小取自zip条目记录的解压大小，无法取得时按堆内处理(与EasyExcel一致)。
+ * </p>
+ */
+@Slf4j
+class SharedStringCacheSelector implements ReadCacheSelector {
+    private final long maxHeapBytes;
+    private final int cacheEntries;
+    private final Path tempDir;
+    private final String processId;
+    
+    SharedStringCacheSelector(long maxHeapBytes, int cacheEntries, Path tempDir, String processId) {
+        this.maxHeapBytes = maxHeapBytes;
+        this.cacheEntries = cacheEntries;
+        this.tempDir = tempDir;
+        this.processId = processId;
+    }
+    
+    @Override
+    public ReadCache readCache(PackagePart sharedStringsTablePackagePart) {
+        long size = sharedStringsTablePackagePart.getSize();
+        if (size < 0 || size <= maxHeapBytes) {
+            return new MapCache();
+        }
+        log.info("[{}] 共享字符串表解压后 {} MB，超过堆内阈值，使用内存映射临时文件", processId, size >> 20);
+        return new MappedStringCache(tempDir, processId, cacheEntries);
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,223 @@
+package com.study.tools.highExcelTools.core;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.analysis.v03.XlsSaxAnalyser;
+import com.alibaba.excel.cache.ReadCache;
+import com.alibaba.excel.context.AnalysisContext;
+import com.alibaba.excel.context.xls.XlsReadContext;
+import com.alibaba.excel.exception.ExcelAnalysisException;
+import com.alibaba.excel.exception.ExcelAnalysisStopException;
+import com.alibaba.excel.read.builder.ExcelReaderBuilder;
+import com.alibaba.excel.read.metadata.ReadSheet;
+import com.alibaba.excel.read.metadata.holder.xls.XlsReadWorkbookHolder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.hssf.eventusermodel.EventWorkbookBuilder;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.MissingRecordAwareHSSFListener;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.ContinueRecord;
+import org.apache.poi.hssf.record.DBCellRecord;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FilePassRecord;
+import org.apache.poi.hssf.record.MulRKRecord;
+import org.apache.poi.hssf.record.RKRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RecordFactory;
+import org.apache.poi.hssf.record.RecordInputStream;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.common.UnicodeString;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * .xls(BIFF8)流式读取
+ * <p>
+ * EasyExcel读取xls时由POI把整个共享字符串表(SST)解析为SSTRecord，每个字符串一个UnicodeString，另有去重用的HashMap和装箱下标，
+ * 整个读取期间常驻内存；目标Sheet读完后还会继续解析其余所有Sheet的记录。
+ * 这里沿用EasyExcel的读取上下文和各类记录处理器(表头匹配、类型转换、监听器和异常回调与原流程完全一致)，只接管记录流：
+ * SST直接解码为紧凑的字符串数组，不创建SSTRecord；读完请求的Sheet后立即停止。
+ * </p>
+ * <p>
+ * 加密的xls需要解密记录流，交回EasyExcel原有流程读取。
+ * </p>
+ */
+@Slf4j
+final class XlsStreamReader {
+    
+    private final XlsReadContext context;
+    private final XlsReadWorkbookHolder holder;
+    // 记录处理链: 格式跟踪 -> 补齐缺失记录(行结束事件) -> EasyExcel记录处理器
+    private final FormatTrackingHSSFListener listener;
+    
+    // 当前BOF/EOF嵌套深度，Sheet内嵌的图表也有自己的BOF/EOF
+    private int bofDepth;
+    // 当前子流是否为需要读取的Sheet
+    private boolean readingSheet;
+    private int sheetsRead;
+    
+    private XlsStreamReader(XlsReadContext context) {
+        this.context = context;
+        this.holder = context.xlsReadWorkbookHolder();
+        this.listener = new FormatTrackingHSSFListener(
+                new MissingRecordAwareHSSFListener(new XlsSaxAnalyser(context)));
+        holder.setFormatTrackingHSSFListener(listener);
+        // 与EasyExcel相同，只用于公式转文本，不收集SST
+        holder.setHssfWorkbook(new EventWorkbookBuilder.SheetRecordCollectingListener(listener).getStubHSSFWorkbook());
+    }
+    
+    /**
+     * 读取指定Sheet，文件实际不是xls时按EasyExcel默认流程读取
+     *
+     * @param builder 已配置好监听器和读取参数的EasyExcel读取构建器
+     * @param sheetNo Sheet下标
+     */
+    static void read(ExcelReaderBuilder builder, int sheetNo) {
+        ReadSheet readSheet = EasyExcel.readSheet(sheetNo).build();
+        com.alibaba.excel.ExcelReader excelReader = builder.build();
+        try {
+            AnalysisContext analysisContext = excelReader.analysisContext();
+            if (!(analysisContext instanceof XlsReadContext)) {
+                excelReader.read(readSheet);
+                return;
+            }
+            new XlsStreamReader((XlsReadContext) analysisContext).execute(Collections.singletonList(readSheet));
+        } finally {
+            excelReader.finish();
+        }
+    }
+    
+    private void execute(List<ReadSheet> readSheets) {
+        holder.setParameterSheetDataList(readSheets);
+        holder.setReadAll(false);
+        
+        POIFSFileSystem poifs = holder.getPoifsFileSystem();
+        try (InputStream document = poifs.createDocumentInputStream(
+                HSSFWorkbook.getWorkbookDirEntryName(poifs.getRoot()))) {
+            if (!processRecords(new RecordInputStream(document), readSheets.size())) {
+                log.debug("xls文件已加密，按EasyExcel默认流程读取");
+                new XlsSaxAnalyser(context).execute();
+            }
+        } catch (ExcelAnalysisStopException e) {
+            // 监听器的hasNext返回false，与EasyExcel一样正常结束
+            log.debug("xls读取被监听器停止");
+        } catch (IOException e) {
+            throw new ExcelAnalysisException(e);
+        }
+    }
+    
+    /**
+     * 逐条处理记录，读完请求的Sheet后停止
+     *
+     * @return 遇到加密记录时返回false
+     */
+    private boolean processRecords(RecordInputStream in, int sheetCount) {
+        while (in.hasNextRecord()) {
+            in.nextRecord();
+            short sid = in.getSid();
+            if (sid == FilePassRecord.sid) {
+                return false;
+            }
+            if (sid == SSTRecord.sid) {
+                holder.setReadCache(readSharedStrings(in));
+                continue;
+            }
+            
+            Record record = RecordFactory.createSingleRecord(in);
+            // 与POI的RecordFactoryInputStream一致: 丢弃DBCell，RK转为数值记录，孤立的Continue记录不处理
+            if (record instanceof DBCellRecord || record instanceof ContinueRecord) {
+                continue;
+            }
+            if (record instanceof RKRecord) {
+                listener.processRecord(RecordFactory.convertToNumberRecord((RKRecord) record));
+                continue;
+            }
+            if (record instanceof MulRKRecord) {
+                for (Record number : RecordFactory.convertRKRecords((MulRKRecord) record)) {
+                    listener.processRecord(number);
+                }
+                continue;
+            }
+            
+            if (record instanceof BOFRecord) {
+                bofDepth++;
+                listener.processRecord(record);
+                if (bofDepth == 1 && ((BOFRecord) record).getType() == BOFRecord.TYPE_WORKSHEET) {
+                    readingSheet = !Boolean.TRUE.equals(holder.getIgnoreRecord());
+                }
+                continue;
+            }
+            
+            listener.processRecord(record);
+            if (record instanceof EOFRecord && --bofDepth == 0 && readingSheet) {
+                readingSheet = false;
+                if (++sheetsRead >= sheetCount) {
+                    return true;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 直接从记录流解码共享字符串，跨Continue记录的字符串由RecordInputStream处理
+     */
+    private static XlsSharedStrings readSharedStrings(RecordInputStream in) {
+        // 单元格引用总数，不需要
+        in.readInt();
+        int uniqueCount = in.readInt();
+        XlsSharedStrings strings = new XlsSharedStrings(uniqueCount);
+        for (int i = 0; i < uniqueCount; i++) {
+            // 当前记录已读完时，只有紧跟的Continue记录还属于SST(getNextSid需先调用hasNextRecord)
+            if (in.remaining() == 0 && !(in.hasNextRecord() && in.getNextSid() == ContinueRecord.sid)) {
+                log.warn("xls共享字符串表不完整，声明 {} 个，实际 {} 个", uniqueCount, i);
+                break;
+            }
+            strings.put(new UnicodeString(in).getString());
+        }
+        if (in.remaining() > 0) {
+            in.readRemainder();
+        }
+        return strings;
+    }
+    
+    /**
+     * 紧凑的共享字符串表，只保存字符串本身
+     */
+    private static final class XlsSharedStrings implements ReadCache {
+        private String[] strings;
+        private int size;
+        
+        private XlsSharedStrings(int capacity) {
+            this.strings = new String[capacity];
+        }
+        
+        @Override
+        public void init(AnalysisContext analysisContext) {
+        }
+        
+        @Override
+        public void put(String value) {
+            strings[size++] = value;
+        }
+        
+        @Override
+        public String get(Integer key) {
+            return key == null || key < 0 || key >= size ? null : strings[key];
+        }
+        
+        @Override
+        public void putFinished() {
+        }
+        
+        @Override
+        public void destroy() {
+            strings = null;
+            size = 0;
+        }
+    }
+} 
\ No newline at end of file
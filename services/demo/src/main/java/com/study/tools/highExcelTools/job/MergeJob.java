@@ -0,0 +1,55 @@
+package com.study.tools.highExcelTools.job;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 合并任务
+ * 任务的全部状态都在本类中，持久化到任务队列目录，服务重启后据此恢复排队和中断的任务
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class MergeJob {
+    /**
+     * 任务标识
+     */
+    private String jobId;
+    private String tenantId;
+    private MergeJobRequest request;
+    
+    /**
+     * 调度信息
+     */
+    private MergeJobStatus status;
+    private int priority;           // 租户内优先级
+    private long sequence;          // 提交序号，同优先级按提交顺序执行
+    private long fileBytes;         // 源文件总字节数
+    private long estimatedBytes;    // 估算内存占用(字节)，调度时从共享内存预算中预留
+    
+    /**
+     * 时间信息(毫秒时间戳，0表示未发生)
+     */
+    private long submitTime;
+    private long startTime;
+    private long finishTime;
+    
+    /**
+     * 执行结果
+     */
+    private long totalRows;         // 成功时为输出行数，取消时为已读取行数
+    private int processedBatches;
+    private String outputFile;
+    private String errorMessage;
+    private boolean cancelRequested;
+    
+    /**
+     * 创建副本，对外返回时使用，避免调用方看到调度线程正在修改的对象
+     */
+    public MergeJob snapshot() {
+        return toBuilder().build();
+    }
+} 
\ No newline at end of file
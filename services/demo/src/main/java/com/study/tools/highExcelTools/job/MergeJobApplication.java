@@ -0,0 +1,23 @@
+package com.study.tools.highExcelTools.job;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 合并任务服务启动类
+ */
+@SpringBootApplication
+public class MergeJobApplication {
+    public static void main(String[] args) {
+        SpringApplication application = new SpringApplication(MergeJobApplication.class);
+        // 只作为本服务的默认值，不写入模块共用的application.properties
+        Map<String, Object> defaults = new HashMap<>();
+        defaults.put("spring.application.name", "excel-merge-job");
+        defaults.put("server.port", 8090);
+        application.setDefaultProperties(defaults);
+        application.run(args);
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.study.tools.highExcelTools.job;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+
+/**
+ * 合并接口鉴权
+ * <p>
+ * 请求头{@value #TOKEN_HEADER}携带租户访问令牌，按{@link MergeJobProperties#getApiTokens()}找到对应租户后
+ * 放入请求属性{@value #TENANT_ATTRIBUTE}，接口只能提交、查询和取消本租户的任务；令牌缺失或不匹配时返回401。
+ * </p>
+ */
+@Slf4j
+@Component
+public class MergeJobAuthInterceptor implements HandlerInterceptor {
+    public static final String TOKEN_HEADER = "X-Api-Token";
+    public static final String TENANT_ATTRIBUTE = "mergeJobTenant";
+    
+    private final MergeJobProperties properties;
+    
+    public MergeJobAuthInterceptor(MergeJobProperties properties) {
+        this.properties = properties;
+        if (properties.getApiTokens().isEmpty()) {
+            log.warn("未配置合并接口访问令牌(excel.merge-job.api-tokens)，所有请求将被拒绝");
+        }
+    }
+    
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        String tenant = tenantOf(request.getHeader(TOKEN_HEADER));
+        if (tenant == null) {
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "访问令牌无效");
+            return false;
+        }
+        request.setAttribute(TENANT_ATTRIBUTE, tenant);
+        return true;
+    }
+    
+    /**
+     * 令牌对应的租户，逐个按固定时间比较，不因匹配位置泄露令牌内容
+     *
+     * @return 没有匹配的令牌时返回null
+     */
+    String tenantOf(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        byte[] actual = token.getBytes(StandardCharsets.UTF_8);
+        String tenant = null;
+        for (Map.Entry<String, String> entry : properties.getApiTokens().entrySet()) {
+            if (entry.getValue() != null && !entry.getValue().isEmpty()
+                    && MessageDigest.isEqual(actual, entry.getValue().getBytes(StandardCharsets.UTF_8))) {
+                tenant = entry.getKey();
+            }
+        }
+        return tenant;
+    }
+} 
\ No newline at end of file
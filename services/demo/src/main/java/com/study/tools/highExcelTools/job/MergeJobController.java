@@ -0,0 +1,71 @@
+package com.study.tools.highExcelTools.job;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 合并任务接口
+ */
+@RestController
+@RequestMapping("/api/merge/jobs")
+public class MergeJobController {
+    
+    @Autowired
+    private MergeJobService mergeJobService;
+    
+    // 提交合并任务，租户取自访问令牌
+    @PostMapping
+    public ResponseEntity<MergeJob> submit(@RequestBody MergeJobRequest request,
+                                           @RequestAttribute(MergeJobAuthInterceptor.TENANT_ATTRIBUTE) String tenantId) {
+        request.setTenantId(tenantId);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(mergeJobService.submit(request));
+    }
+    
+    // 查询任务状态
+    @GetMapping("/{jobId}")
+    public ResponseEntity<MergeJob> getStatus(@PathVariable String jobId,
+                                              @RequestAttribute(MergeJobAuthInterceptor.TENANT_ATTRIBUTE) String tenantId) {
+        MergeJob job = mergeJobService.get(jobId);
+        return isVisible(job, tenantId) ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+    
+    // 查询本租户的任务列表
+    @GetMapping
+    public ResponseEntity<List<MergeJob>> list(@RequestAttribute(MergeJobAuthInterceptor.TENANT_ATTRIBUTE) String tenantId) {
+        return ResponseEntity.ok(mergeJobService.list(tenantId));
+    }
+    
+    // 取消任务
+    @PostMapping("/{jobId}/cancel")
+    public ResponseEntity<MergeJob> cancel(@PathVariable String jobId,
+                                           @RequestAttribute(MergeJobAuthInterceptor.TENANT_ATTRIBUTE) String tenantId) {
+        if (!isVisible(mergeJobService.get(jobId), tenantId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(mergeJobService.cancel(jobId));
+    }
+    
+    // 其他租户的任务按不存在处理
+    private static boolean isVisible(MergeJob job, String tenantId) {
+        return job != null && tenantId.equals(job.getTenantId());
+    }
+    
+    // 参数不合法
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleInvalid(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Collections.singletonMap("error", e.getMessage()));
+    }
+    
+    // 未通过准入控制: 任务过大返回413，队列已满返回429
+    @ExceptionHandler(MergeJobRejectedException.class)
+    public ResponseEntity<Map<String, String>> handleRejected(MergeJobRejectedException e) {
+        HttpStatus status = e.isTooLarge() ? HttpStatus.PAYLOAD_TOO_LARGE : HttpStatus.TOO_MANY_REQUESTS;
+        return ResponseEntity.status(status).body(Collections.singletonMap("error", e.getMessage()));
+    }
+} 
\ No newline at end of file
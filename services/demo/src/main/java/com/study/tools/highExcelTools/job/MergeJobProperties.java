@@ -0,0 +1,49 @@
+package com.study.tools.highExcelTools.job;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 合并任务服务配置
+ */
+@Component
+@ConfigurationProperties(prefix = "excel.merge-job")
+@Data
+public class MergeJobProperties {
+    private String queueDir = System.getProperty("java.io.tmpdir") + "/excel-merge-jobs"; // 任务队列持久化目录
+    private String baseDir = System.getProperty("java.io.tmpdir") + "/excel-merge-files"; // 文件根目录，源文件和目标文件必须位于此目录下
+    private Map<String, String> modelClasses = new HashMap<>(); // 可用的数据模型(标识 -> 类全限定名)，请求按标识指定
+    private Map<String, String> apiTokens = new HashMap<>(); // 租户访问令牌(租户标识 -> 令牌)，未配置任何令牌时拒绝所有请求
+    private int workerThreads = 2;              // 同时执行的任务数
+    private int readThreads = 4;                // 所有任务共享的读取线程数
+    private int maxConcurrentFilesPerJob = 2;   // 单个任务同时读取的文件数
+    private long memoryBudgetMb = 0;            // 所有执行中任务共享的内存预算(MB)，0表示最大堆的一半
+    private int heapBytesPerFileByte = 10;      // 每字节源文件估算的堆内存字节数(xlsx为压缩格式，解析后膨胀明显)
+    private int maxQueuedJobs = 1000;           // 排队任务上限
+    private int maxQueuedJobsPerTenant = 100;   // 单个租户排队任务上限
+    private int defaultTenantWeight = 1;        // 未单独配置的租户权重
+    private Map<String, Integer> tenantWeights = new HashMap<>(); // 租户权重，权重越大分到的执行份额越多
+    private long retentionHours = 72;           // 已结束任务的保留时长(小时)，运行中定期清理
+    private long uploadMaxFileMb = 200;         // 上传合并单个文件的大小上限(MB)
+    private int uploadMaxFiles = 100;           // 上传合并单个请求的文件数上限(含表单字段)
+    private int uploadMaxConcurrent = 2;        // 同时进行的上传合并数，超过时拒绝请求
+    
+    /**
+     * 内存预算(字节)
+     */
+    public long memoryBudgetBytes() {
+        return memoryBudgetMb > 0 ? memoryBudgetMb * 1024 * 1024 : Runtime.getRuntime().maxMemory() / 2;
+    }
+    
+    /**
+     * 租户权重
+     */
+    public int weightOf(String tenantId) {
+        Integer weight = tenantWeights.get(tenantId);
+        return weight != null && weight > 0 ? weight : Math.max(defaultTenantWeight, 1);
+    }
+} 
\ No newline at end of file
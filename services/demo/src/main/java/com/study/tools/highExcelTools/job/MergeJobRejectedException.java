@@ -0,0 +1,20 @@
+package com.study.tools.highExcelTools.job;
+
+/**
+ * 合并任务未通过准入控制
+ */
+public class MergeJobRejectedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    
+    // 是否因任务本身过大被拒绝(否则为队列已满，可稍后重试)
+    private final boolean tooLarge;
+    
+    public MergeJobRejectedException(String message, boolean tooLarge) {
+        super(message);
+        this.tooLarge = tooLarge;
+    }
+    
+    public boolean isTooLarge() {
+        return tooLarge;
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.study.tools.highExcelTools.job;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 合并任务提交请求
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class MergeJobRequest {
+    private String tenantId;            // 租户(调用方团队)标识，公平调度按租户分配份额；通过接口提交时取自访问令牌
+    private List<String> sourceFiles;   // 源文件列表(文件根目录下的相对路径或绝对路径)
+    private String targetFile;          // 目标文件(文件根目录下)
+    private String modelClass;          // 数据模型标识(excel.merge-job.model-classes中注册的键)
+    private int priority;               // 优先级，只在同一租户内部生效，数值越大越先执行
+    private List<String> sortColumns;   // 排序列，格式"字段名或表头 [ASC|DESC]"
+    private boolean preserveOrder;      // 是否保持输出顺序
+} 
\ No newline at end of file
@@ -0,0 +1,586 @@
+package com.study.tools.highExcelTools.job;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.study.tools.highExcelTools.HighExcelTools;
+import com.study.tools.highExcelTools.config.ExcelConfig;
+import com.study.tools.highExcelTools.model.ExcelResult;
+import com.study.tools.highExcelTools.util.CancellationToken;
+import com.study.tools.highExcelTools.util.ThreadPoolManager;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 合并任务服务
+ * <p>
+ * 所有提交的合并任务进入持久化队列，由一个调度线程按租户加权公平({@link WeightedFairQueue})取出，
+ * 在固定大小的任务线程池中执行；所有任务共用一个读取线程池和一份内存预算，不再每次合并各建一个线程池。
+ * </p>
+ * <p>
+ * 准入控制: 提交时按源文件大小估算内存占用，超过总预算的任务直接拒绝，队列已满时拒绝并提示稍后重试；
+ * 调度时只有剩余预算足够才启动下一个任务。服务重启时排队中和执行中断的任务重新入队，超过当前预算的任务标记为失败。
+ * 已结束的任务超过{@link MergeJobProperties#getRetentionHours()}后由调度线程定期从内存和持久化目录中删除。
+ * </p>
+ * <p>
+ * 源文件和目标文件必须位于{@link MergeJobProperties#getBaseDir()}下，路径中不能有..和符号链接；
+ * 数据模型按{@link MergeJobProperties#getModelClasses()}中注册的标识查找，不按请求中的类名加载任意类。
+ * 任务记录的写盘由单独的持久化线程按顺序执行，不在调度锁内做磁盘IO。
+ * </p>
+ */
+@Slf4j
+@Service
+public class MergeJobService {
+    // 空闲时调度线程的唤醒间隔(秒)，顺便监控共享读取线程池
+    private static final long DISPATCH_IDLE_SECONDS = 5;
+    
+    private final MergeJobProperties properties;
+    private final ObjectMapper objectMapper;
+    private final HighExcelTools excelTools = new HighExcelTools();
+    
+    // 以下状态都由lock保护
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<String, MergeJob> jobs = new LinkedHashMap<>();
+    private final Map<String, CancellationToken> runningTokens = new HashMap<>();
+    private WeightedFairQueue queue;
+    private long reservedBytes;
+    private int runningJobs;
+    private long sequence;
+    private long lastPurgeTime;
+    private volatile boolean running;
+    
+    private MergeJobStore store;
+    // 任务记录持久化线程，单线程保证同一任务的多次保存按顺序落盘
+    private ExecutorService persistPool;
+    // 文件根目录(真实路径)
+    private Path baseDir;
+    // 已注册的数据模型
+    private final Map<String, Class<?>> models = new HashMap<>();
+    // 任务线程池，每个线程执行一个合并任务
+    private ExecutorService workerPool;
+    // 所有任务共享的读取线程池
+    private ThreadPoolExecutor readPool;
+    private Thread dispatcher;
+    
+    public MergeJobService(MergeJobProperties properties, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+    
+    /**
+     * 恢复持久化的任务并启动调度
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        baseDir = Files.createDirectories(Paths.get(properties.getBaseDir())).toRealPath();
+        for (Map.Entry<String, String> entry : properties.getModelClasses().entrySet()) {
+            try {
+                models.put(entry.getKey(), Class.forName(entry.getValue()));
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("注册的数据模型类不存在: " + entry.getValue(), e);
+            }
+        }
+        store = new MergeJobStore(Paths.get(properties.getQueueDir()), objectMapper);
+        queue = new WeightedFairQueue(properties::weightOf);
+        recover();
+        
+        workerPool = Executors.newFixedThreadPool(properties.getWorkerThreads(), namedThreadFactory("merge-job-"));
+        persistPool = Executors.newSingleThreadExecutor(namedThreadFactory("merge-job-store-"));
+        readPool = (ThreadPoolExecutor) ThreadPoolManager.createThreadPool(ExcelConfig.builder()
+                .corePoolSize(properties.getReadThreads())
+                .maximumPoolSize(properties.getReadThreads())
+                .build());
+        
+        running = true;
+        dispatcher = new Thread(this::dispatchLoop, "merge-job-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        
+        log.info("合并任务服务已启动: 任务线程={}, 读取线程={}, 内存预算={}MB, 排队任务={}",
+                properties.getWorkerThreads(), properties.getReadThreads(),
+                properties.memoryBudgetBytes() / 1024 / 1024, queue.size());
+    }
+    
+    /**
+     * 停止调度，执行中的任务取消后保持排队状态，下次启动时重新执行
+     */
+    @PreDestroy
+    public void shutdown() {
+        lock.lock();
+        try {
+            running = false;
+            runningTokens.values().forEach(token -> token.cancel("服务停止"));
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        ThreadPoolManager.shutdownThreadPool(workerPool, true);
+        ThreadPoolManager.shutdownThreadPool(readPool, true);
+        // 任务线程结束后再关闭，保证最后的状态已落盘
+        ThreadPoolManager.shutdownThreadPool(persistPool, false);
+        log.info("合并任务服务已停止");
+    }
+    
+    /**
+     * 提交合并任务
+     *
+     * @param request 提交请求
+     * @return 排队中的任务
+     * @throws IllegalArgumentException 请求参数不合法
+     * @throws MergeJobRejectedException 未通过准入控制
+     */
+    public MergeJob submit(MergeJobRequest request) {
+        validate(request);
+        request = confine(request);
+        
+        // 按源文件大小估算内存占用
+        long fileBytes = 0;
+        for (String sourceFile : request.getSourceFiles()) {
+            try {
+                fileBytes += Files.size(Paths.get(sourceFile));
+            } catch (IOException e) {
+                throw new IllegalArgumentException("源文件不存在或无法读取: " + sourceFile);
+            }
+        }
+        long estimatedBytes = fileBytes * properties.getHeapBytesPerFileByte();
+        String oversize = checkBudget(estimatedBytes);
+        if (oversize != null) {
+            throw new MergeJobRejectedException(oversize + "，请拆分源文件后提交", true);
+        }
+        
+        MergeJob submitted;
+        Future<?> saved;
+        lock.lock();
+        try {
+            if (!running) {
+                throw new MergeJobRejectedException("合并任务服务未启动", false);
+            }
+            if (queue.size() >= properties.getMaxQueuedJobs()) {
+                throw new MergeJobRejectedException("排队任务已达上限" + properties.getMaxQueuedJobs() + "，请稍后重试", false);
+            }
+            if (queue.size(request.getTenantId()) >= properties.getMaxQueuedJobsPerTenant()) {
+                throw new MergeJobRejectedException("租户排队任务已达上限" + properties.getMaxQueuedJobsPerTenant() + "，请稍后重试", false);
+            }
+            
+            MergeJob job = MergeJob.builder()
+                    .jobId(UUID.randomUUID().toString().replace("-", ""))
+                    .tenantId(request.getTenantId())
+                    .request(request)
+                    .status(MergeJobStatus.QUEUED)
+                    .priority(request.getPriority())
+                    .sequence(++sequence)
+                    .fileBytes(fileBytes)
+                    .estimatedBytes(estimatedBytes)
+                    .submitTime(System.currentTimeMillis())
+                    .build();
+            saved = persist(job);
+            jobs.put(job.getJobId(), job);
+            queue.offer(job);
+            changed.signalAll();
+            
+            log.info("[{}] 合并任务已提交: 租户={}, 文件数={}, 估算内存={}MB, 排队任务={}",
+                    job.getJobId(), job.getTenantId(), request.getSourceFiles().size(),
+                    estimatedBytes / 1024 / 1024, queue.size());
+            submitted = job.snapshot();
+        } finally {
+            lock.unlock();
+        }
+        
+        // 记录落盘后才确认提交，重启后不会丢失已受理的任务
+        try {
+            saved.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待合并任务持久化时被中断", e);
+        } catch (ExecutionException e) {
+            cancel(submitted.getJobId());
+            throw new IllegalStateException("合并任务持久化失败: " + e.getCause().getMessage(), e.getCause());
+        }
+        return submitted;
+    }
+    
+    /**
+     * 查询任务
+     *
+     * @return 任务不存在时返回null
+     */
+    public MergeJob get(String jobId) {
+        lock.lock();
+        try {
+            MergeJob job = jobs.get(jobId);
+            return job != null ? job.snapshot() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 查询任务列表(按提交顺序)
+     *
+     * @param tenantId 租户，为空时返回全部任务
+     */
+    public List<MergeJob> list(String tenantId) {
+        lock.lock();
+        try {
+            List<MergeJob> result = new ArrayList<>();
+            for (MergeJob job : jobs.values()) {
+                if (tenantId == null || tenantId.equals(job.getTenantId())) {
+                    result.add(job.snapshot());
+                }
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 取消任务
+     * 排队中的任务直接移出队列；执行中的任务发出取消请求，在下一个批次边界停止并删除未完成的输出文件
+     *
+     * @return 任务不存在时返回null
+     */
+    public MergeJob cancel(String jobId) {
+        lock.lock();
+        try {
+            MergeJob job = jobs.get(jobId);
+            if (job == null) {
+                return null;
+            }
+            
+            if (job.getStatus() == MergeJobStatus.QUEUED) {
+                queue.remove(jobId);
+                job.setCancelRequested(true);
+                job.setStatus(MergeJobStatus.CANCELLED);
+                job.setFinishTime(System.currentTimeMillis());
+                persist(job);
+                log.info("[{}] 排队中的合并任务已取消", jobId);
+            } else if (job.getStatus() == MergeJobStatus.RUNNING) {
+                job.setCancelRequested(true);
+                CancellationToken token = runningTokens.get(jobId);
+                if (token != null) {
+                    token.cancel("用户取消");
+                }
+                persist(job);
+                log.info("[{}] 已请求取消执行中的合并任务", jobId);
+            }
+            return job.snapshot();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 调度循环: 有空闲任务线程且剩余内存预算足够时，按公平顺序启动下一个任务
+     */
+    private void dispatchLoop() {
+        lock.lock();
+        try {
+            while (running) {
+                // 任务持续排队时调度线程不会空闲，按时间间隔清理
+                long now = System.currentTimeMillis();
+                if (now - lastPurgeTime >= TimeUnit.SECONDS.toMillis(DISPATCH_IDLE_SECONDS)) {
+                    lastPurgeTime = now;
+                    purgeExpired(now);
+                }
+                MergeJob job = runningJobs < properties.getWorkerThreads() ?
+                        queue.poll(properties.memoryBudgetBytes() - reservedBytes) : null;
+                if (job == null) {
+                    if (!changed.await(DISPATCH_IDLE_SECONDS, TimeUnit.SECONDS)) {
+                        ThreadPoolManager.monitorThreadPool(readPool);
+                    }
+                    continue;
+                }
+                launch(job);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 删除超过保留时长的已结束任务(调用方持有锁)
+     * 记录的删除交给持久化线程，排在该任务之前的保存之后执行
+     */
+    private void purgeExpired(long now) {
+        long expireBefore = now - TimeUnit.HOURS.toMillis(properties.getRetentionHours());
+        int purged = 0;
+        Iterator<MergeJob> iterator = jobs.values().iterator();
+        while (iterator.hasNext()) {
+            MergeJob job = iterator.next();
+            if (job.getStatus().isTerminal() && job.getFinishTime() < expireBefore) {
+                iterator.remove();
+                String jobId = job.getJobId();
+                persistPool.execute(() -> store.delete(jobId));
+                purged++;
+            }
+        }
+        if (purged > 0) {
+            log.info("已清理过期的合并任务{}条，剩余任务记录{}条", purged, jobs.size());
+        }
+    }
+    
+    /**
+     * 启动任务(调用方持有锁)
+     */
+    private void launch(MergeJob job) {
+        CancellationToken token = new CancellationToken();
+        job.setStatus(MergeJobStatus.RUNNING);
+        job.setStartTime(System.currentTimeMillis());
+        reservedBytes += job.getEstimatedBytes();
+        runningJobs++;
+        runningTokens.put(job.getJobId(), token);
+        persist(job);
+        
+        log.info("[{}] 开始执行合并任务: 租户={}, 等待{}ms, 已预留内存={}MB",
+                job.getJobId(), job.getTenantId(), job.getStartTime() - job.getSubmitTime(),
+                reservedBytes / 1024 / 1024);
+        workerPool.execute(() -> execute(job, token));
+    }
+    
+    /**
+     * 执行合并(任务线程)
+     */
+    @SuppressWarnings("unchecked")
+    private void execute(MergeJob job, CancellationToken token) {
+        ExcelResult<Object> result;
+        try {
+            // 执行前重新检查，恢复的任务和排队期间被替换为符号链接的路径同样不能越出根目录
+            validate(job.getRequest());
+            MergeJobRequest request = confine(job.getRequest());
+            ExcelConfig<Object> config = ExcelConfig.builder()
+                    .sourceFiles(request.getSourceFiles())
+                    .targetFile(request.getTargetFile())
+                    .modelClass((Class<Object>) models.get(request.getModelClass()))
+                    .sortColumns(request.getSortColumns())
+                    .preserveOrder(request.isPreserveOrder())
+                    .executor(readPool)
+                    .shutdownExecutor(false)
+                    .maxConcurrentFiles(properties.getMaxConcurrentFilesPerJob())
+                    .build();
+            result = excelTools.mergeExcel(config, token);
+        } catch (Throwable e) {
+            log.error("[{}] 合并任务执行异常", job.getJobId(), e);
+            result = ExcelResult.failure("MERGE", "合并任务执行异常: " + e.getMessage(), e);
+        }
+        complete(job, result);
+    }
+    
+    /**
+     * 记录任务结果并释放预留的内存
+     */
+    private void complete(MergeJob job, ExcelResult<?> result) {
+        lock.lock();
+        try {
+            reservedBytes -= job.getEstimatedBytes();
+            runningJobs--;
+            runningTokens.remove(job.getJobId());
+            
+            if (result.isCancelled() && !running && !job.isCancelRequested()) {
+                // 服务停止导致的取消，保持排队状态等待重启后重新执行
+                job.setStatus(MergeJobStatus.QUEUED);
+                job.setStartTime(0);
+            } else if (result.isCancelled()) {
+                job.setStatus(MergeJobStatus.CANCELLED);
+                job.setTotalRows(result.getTotalRows());
+                job.setProcessedBatches(result.getProcessedBatches());
+                job.setErrorMessage(result.getErrorMessage());
+            } else if (result.isSuccess()) {
+                job.setStatus(MergeJobStatus.SUCCEEDED);
+                job.setTotalRows(result.getTotalRows());
+                job.setOutputFile(result.getOutputFile());
+            } else {
+                job.setStatus(MergeJobStatus.FAILED);
+                job.setErrorMessage(result.getErrorMessage());
+            }
+            if (job.getStatus().isTerminal()) {
+                job.setFinishTime(System.currentTimeMillis());
+            }
+            persist(job);
+            changed.signalAll();
+            
+            log.info("[{}] 合并任务结束: 状态={}, 行数={}, 耗时={}ms",
+                    job.getJobId(), job.getStatus(), job.getTotalRows(),
+                    System.currentTimeMillis() - job.getStartTime());
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 保存任务记录(调用方持有锁)
+     * 在锁内复制快照并交给持久化线程，磁盘IO不占用调度锁
+     */
+    private Future<?> persist(MergeJob job) {
+        MergeJob snapshot = job.snapshot();
+        return persistPool.submit(() -> {
+            try {
+                store.save(snapshot);
+            } catch (RuntimeException e) {
+                log.error("[{}] 保存合并任务记录失败", snapshot.getJobId(), e);
+                throw e;
+            }
+        });
+    }
+    
+    /**
+     * 检查估算内存是否能放进内存预算
+     *
+     * @return 超过预算时返回原因，否则返回null
+     */
+    private String checkBudget(long estimatedBytes) {
+        long budget = properties.memoryBudgetBytes();
+        if (estimatedBytes <= budget) {
+            return null;
+        }
+        return String.format("任务估算内存%dMB超过内存预算%dMB", estimatedBytes / 1024 / 1024, budget / 1024 / 1024);
+    }
+    
+    /**
+     * 从持久化目录恢复任务: 排队中和执行中断的任务重新入队，过期的已结束任务删除
+     * 超过当前内存预算的任务(如预算调小后重启)永远无法调度，直接标记为失败，不阻塞所在租户的队列
+     */
+    private void recover() throws IOException {
+        long expireBefore = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(properties.getRetentionHours());
+        List<MergeJob> stored = store.loadAll();
+        stored.sort(Comparator.comparingLong(MergeJob::getSequence));
+        
+        int requeued = 0;
+        for (MergeJob job : stored) {
+            sequence = Math.max(sequence, job.getSequence());
+            if (job.getStatus().isTerminal()) {
+                if (job.getFinishTime() < expireBefore) {
+                    store.delete(job.getJobId());
+                    continue;
+                }
+            } else if (checkBudget(job.getEstimatedBytes()) != null) {
+                job.setStatus(MergeJobStatus.FAILED);
+                job.setErrorMessage(checkBudget(job.getEstimatedBytes()) + "，任务无法执行");
+                job.setFinishTime(System.currentTimeMillis());
+                store.save(job);
+                log.warn("[{}] 恢复的合并任务超过内存预算，已标记为失败", job.getJobId());
+            } else {
+                job.setStatus(MergeJobStatus.QUEUED);
+                job.setStartTime(0);
+                store.save(job);
+                queue.offer(job);
+                requeued++;
+            }
+            jobs.put(job.getJobId(), job);
+        }
+        if (!stored.isEmpty()) {
+            log.info("恢复合并任务记录{}条，重新入队{}条", jobs.size(), requeued);
+        }
+    }
+    
+    private void validate(MergeJobRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("请求不能为空");
+        }
+        if (request.getTenantId() == null || request.getTenantId().trim().isEmpty()) {
+            throw new IllegalArgumentException("租户标识不能为空");
+        }
+        if (request.getSourceFiles() == null || request.getSourceFiles().isEmpty()) {
+            throw new IllegalArgumentException("源文件列表不能为空");
+        }
+        if (request.getTargetFile() == null || request.getTargetFile().trim().isEmpty()) {
+            throw new IllegalArgumentException("目标文件不能为空");
+        }
+        if (request.getModelClass() == null) {
+            throw new IllegalArgumentException("数据模型不能为空");
+        }
+        if (!models.containsKey(request.getModelClass())) {
+            throw new IllegalArgumentException("未注册的数据模型: " + request.getModelClass());
+        }
+    }
+    
+    /**
+     * 把请求中的源文件和目标文件解析为根目录下的绝对路径
+     *
+     * @return 路径已替换的请求副本
+     * @throws IllegalArgumentException 路径越出根目录、包含..或符号链接，或源文件不存在
+     */
+    private MergeJobRequest confine(MergeJobRequest request) {
+        List<String> sourceFiles = new ArrayList<>(request.getSourceFiles().size());
+        for (String sourceFile : request.getSourceFiles()) {
+            Path path = resolvePath(sourceFile);
+            if (!Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
+                throw new IllegalArgumentException("源文件不存在或无法读取: " + sourceFile);
+            }
+            sourceFiles.add(path.toString());
+        }
+        Path target = resolvePath(request.getTargetFile());
+        if (target.equals(baseDir)) {
+            throw new IllegalArgumentException("目标文件不能是根目录: " + request.getTargetFile());
+        }
+        
+        MergeJobRequest confined = request.toBuilder().build();
+        confined.setSourceFiles(sourceFiles);
+        confined.setTargetFile(target.toString());
+        return confined;
+    }
+    
+    /**
+     * 相对路径按根目录解析，绝对路径必须位于根目录下；已存在的各级路径都不能是符号链接
+     */
+    private Path resolvePath(String file) {
+        Path input;
+        try {
+            input = Paths.get(file);
+        } catch (InvalidPathException e) {
+            throw new IllegalArgumentException("路径不合法: " + file);
+        }
+        for (Path part : input) {
+            if ("..".equals(part.toString())) {
+                throw new IllegalArgumentException("路径不能包含..: " + file);
+            }
+        }
+        Path path = baseDir.resolve(input).normalize();
+        if (!path.startsWith(baseDir)) {
+            throw new IllegalArgumentException("路径不在允许的目录下: " + file);
+        }
+        for (Path current = path; !current.equals(baseDir); current = current.getParent()) {
+            if (Files.isSymbolicLink(current)) {
+                throw new IllegalArgumentException("路径不能包含符号链接: " + file);
+            }
+        }
+        return path;
+    }
+    
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        return runnable -> new Thread(runnable, prefix + threadNumber.getAndIncrement());
+    }
+} 
\ No newline at end of file
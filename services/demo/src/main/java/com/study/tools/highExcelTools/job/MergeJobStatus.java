@@ -0,0 +1,19 @@
+package com.study.tools.highExcelTools.job;
+
+/**
+ * 合并任务状态
+ */
+public enum MergeJobStatus {
+    QUEUED,     // 排队中
+    RUNNING,    // 执行中
+    SUCCEEDED,  // 成功
+    FAILED,     // 失败
+    CANCELLED;  // 已取消
+    
+    /**
+     * 是否为终止状态
+     */
+    public boolean isTerminal() {
+        return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,72 @@
+package com.study.tools.highExcelTools.job;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 合并任务持久化存储
+ * 每个任务一个JSON文件，先写临时文件再原子替换，进程在写入中途退出也不会留下半个文件
+ */
+@Slf4j
+public class MergeJobStore {
+    private static final String SUFFIX = ".json";
+    
+    private final Path dir;
+    private final ObjectMapper objectMapper;
+    
+    public MergeJobStore(Path dir, ObjectMapper objectMapper) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.objectMapper = objectMapper;
+    }
+    
+    /**
+     * 保存任务(覆盖已有记录)
+     */
+    public void save(MergeJob job) {
+        Path file = dir.resolve(job.getJobId() + SUFFIX);
+        Path temp = dir.resolve(job.getJobId() + SUFFIX + ".tmp");
+        try {
+            objectMapper.writeValue(temp.toFile(), job);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("保存合并任务失败: " + job.getJobId(), e);
+        }
+    }
+    
+    /**
+     * 删除任务记录
+     */
+    public void delete(String jobId) {
+        try {
+            Files.deleteIfExists(dir.resolve(jobId + SUFFIX));
+        } catch (IOException e) {
+            log.warn("删除合并任务记录失败: {}", jobId, e);
+        }
+    }
+    
+    /**
+     * 读取全部任务记录，损坏的记录跳过
+     */
+    public List<MergeJob> loadAll() throws IOException {
+        List<MergeJob> jobs = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path file : files) {
+                try {
+                    jobs.add(objectMapper.readValue(file.toFile(), MergeJob.class));
+                } catch (IOException e) {
+                    log.warn("合并任务记录无法解析，已跳过: {}", file, e);
+                }
+            }
+        }
+        return jobs;
+    }
+} 
\ No newline at end of file
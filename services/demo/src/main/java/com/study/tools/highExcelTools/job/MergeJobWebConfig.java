@@ -0,0 +1,23 @@
+package com.study.tools.highExcelTools.job;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * 合并接口的Web配置
+ */
+@Configuration
+public class MergeJobWebConfig implements WebMvcConfigurer {
+    
+    private final MergeJobAuthInterceptor authInterceptor;
+    
+    public MergeJobWebConfig(MergeJobAuthInterceptor authInterceptor) {
+        this.authInterceptor = authInterceptor;
+    }
+    
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(authInterceptor).addPathPatterns("/api/merge/jobs/**", "/api/merge/upload");
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.study.tools.highExcelTools.job;
+
+import com.alibaba.excel.support.ExcelTypeEnum;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * 上传合并接口: 上传多个Excel文件，合并结果直接在响应中返回，与合并任务接口使用相同的令牌认证
+ */
+@RestController
+@RequestMapping("/api/merge/upload")
+public class UploadMergeController {
+    
+    @Autowired
+    private UploadMergeService uploadMergeService;
+    
+    // 边上传边合并，format为xlsx或csv
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public void merge(HttpServletRequest request, HttpServletResponse response,
+                      @RequestParam(defaultValue = "xlsx") String format) throws IOException {
+        ExcelTypeEnum type = UploadMergeService.outputType(format);
+        response.setContentType(type == ExcelTypeEnum.CSV ? "text/csv" :
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=merged" + type.getValue());
+        uploadMergeService.merge(request.getInputStream(), request.getContentType(), request.getCharacterEncoding(),
+                response.getOutputStream(), type);
+    }
+    
+    // 参数不合法或文件读取失败
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> handleInvalid(IllegalArgumentException e, HttpServletResponse response) {
+        resetDownload(response, e);
+        return ResponseEntity.badRequest()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
+                .body(Collections.singletonMap("error", e.getMessage()));
+    }
+    
+    // 上传文件超过大小上限或同时进行的上传合并已达上限
+    @ExceptionHandler(MergeJobRejectedException.class)
+    public ResponseEntity<Map<String, String>> handleRejected(MergeJobRejectedException e, HttpServletResponse response) {
+        resetDownload(response, e);
+        HttpStatus status = e.isTooLarge() ? HttpStatus.PAYLOAD_TOO_LARGE : HttpStatus.TOO_MANY_REQUESTS;
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
+                .body(Collections.singletonMap("error", e.getMessage()));
+    }
+    
+    /**
+     * 还没有输出时清除已设置的下载响应头；已经输出部分内容时不能再改状态码，
+     * 重新抛出异常由容器中断连接，客户端收到不完整的响应而不是截断的文件
+     */
+    private static void resetDownload(HttpServletResponse response, RuntimeException e) {
+        if (response.isCommitted()) {
+            throw e;
+        }
+        response.reset();
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,228 @@
+package com.study.tools.highExcelTools.job;
+
+import com.alibaba.excel.support.ExcelTypeEnum;
+import com.study.tools.highExcelTools.config.ExcelConfig;
+import com.study.tools.highExcelTools.core.ExcelReader;
+import com.study.tools.highExcelTools.core.ExcelWriter;
+import com.study.tools.highExcelTools.core.FileBatchConsumer;
+import com.study.tools.highExcelTools.model.Row;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.fileupload.FileItemIterator;
+import org.apache.commons.fileupload.FileItemStream;
+import org.apache.commons.fileupload.FileUpload;
+import org.apache.commons.fileupload.FileUploadBase;
+import org.apache.commons.fileupload.FileUploadException;
+import org.apache.commons.fileupload.UploadContext;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 上传合并服务
+ * <p>
+ * 按到达顺序逐个解析multipart请求体中的文件，每个文件直接从请求流读取并追加写入响应流，
+ * 不把上传文件保存为源文件，也不生成目标文件；前面的文件在后面的文件还在上传时已经合并完。
+ * </p>
+ * <p>
+ * csv边写入边输出；xlsx按流式写入，行数据暂存在POI的临时文件中，完成时输出。
+ * 失败时不补写文件结尾：还没有输出时调用方返回错误状态，已经输出部分内容时由调用方中断连接。
+ * 同时进行的上传合并数受uploadMaxConcurrent限制，超过时拒绝请求。
+ * </p>
+ * <p>
+ * 按无模型行读取，输出表头为第一个文件的表头，后续文件按表头名对齐。
+ * 只做按顺序合并，去重、排序等仍走{@link MergeJobService}按文件路径合并。
+ * </p>
+ */
+@Slf4j
+@Service
+public class UploadMergeService {
+    private final MergeJobProperties properties;
+    // 上传合并占用请求线程并边读边写，限制同时进行的数量
+    private final Semaphore permits;
+    
+    public UploadMergeService(MergeJobProperties properties) {
+        this.properties = properties;
+        this.permits = new Semaphore(Math.max(properties.getUploadMaxConcurrent(), 1));
+    }
+    
+    /**
+     * 输出格式对应的文件类型
+     * @param format xlsx或csv
+     */
+    public static ExcelTypeEnum outputType(String format) {
+        if ("xlsx".equalsIgnoreCase(format)) {
+            return ExcelTypeEnum.XLSX;
+        }
+        if ("csv".equalsIgnoreCase(format)) {
+            return ExcelTypeEnum.CSV;
+        }
+        throw new IllegalArgumentException("不支持的输出格式: " + format);
+    }
+    
+    /**
+     * 合并multipart请求体中的Excel文件并写入输出流，输出流由调用方关闭
+     * @param body 请求体
+     * @param contentType 请求的Content-Type(含boundary)
+     * @param encoding 请求的字符编码，可以为空
+     * @param out 输出流，失败时可能已写出部分内容
+     * @param type 输出文件类型
+     * @return 写入的行数
+     * @throws IllegalArgumentException 请求不合法、没有Excel文件或文件读取失败
+     * @throws MergeJobRejectedException 单个文件超过大小上限(tooLarge)或同时进行的上传合并已达上限
+     * @throws IOException 完成写入失败
+     */
+    public long merge(InputStream body, String contentType, String encoding, OutputStream out,
+                      ExcelTypeEnum type) throws IOException {
+        if (contentType == null || !contentType.toLowerCase().startsWith(FileUploadBase.MULTIPART)) {
+            throw new IllegalArgumentException("请求不是multipart请求");
+        }
+        if (!permits.tryAcquire()) {
+            throw new MergeJobRejectedException("同时进行的上传合并已达上限"
+                    + properties.getUploadMaxConcurrent() + "，请稍后重试", false);
+        }
+        try {
+            return doMerge(body, contentType, encoding, out, type);
+        } finally {
+            permits.release();
+        }
+    }
+    
+    private long doMerge(InputStream body, String contentType, String encoding, OutputStream out,
+                         ExcelTypeEnum type) throws IOException {
+        String processId = "upload-" + UUID.randomUUID().toString().substring(0, 8);
+        ExcelConfig<Row> config = ExcelConfig.<Row>builder()
+                .modelClass(Row.class)
+                .targetStream(out)
+                .targetType(type)
+                .useInMemory(false)      // 流式写入，行数不受堆内存限制
+                .continueOnError(false)  // 无模型读取没有行转换异常，文件读取失败时结束请求
+                .build();
+        
+        FileUpload upload = new FileUpload();
+        upload.setFileSizeMax(properties.getUploadMaxFileMb() * 1024 * 1024);
+        upload.setFileCountMax(properties.getUploadMaxFiles());
+        
+        ExcelReader<Row> reader = new ExcelReader<>(config, null, processId);
+        ExcelWriter<Row> writer = new ExcelWriter<>(config, processId);
+        long[] rows = new long[1];
+        FileBatchConsumer<Row> appender = (fileIndex, batch) -> {
+            try {
+                writer.append(batch);
+            } catch (Exception e) {
+                throw new IllegalStateException("写入合并结果失败: " + e.getMessage(), e);
+            }
+            rows[0] += batch.size();
+        };
+        int files = 0;
+        boolean finished = false;
+        try {
+            FileItemIterator parts = upload.getItemIterator(new RequestUploadContext(body, contentType, encoding));
+            while (parts.hasNext()) {
+                FileItemStream part = parts.next();
+                String name = fileName(part.getName());
+                if (part.isFormField() || name == null) {
+                    continue;
+                }
+                String lowerName = name.toLowerCase();
+                if (!lowerName.endsWith(".xlsx") && !lowerName.endsWith(".xls")) {
+                    log.warn("[{}] 跳过非Excel文件: {}", processId, name);
+                    continue;
+                }
+                try (InputStream in = part.openStream()) {
+                    reader.readStreamWithCallback(files++, name, in, Row.class, appender);
+                }
+            }
+            if (files == 0) {
+                throw new IllegalArgumentException("请求中没有Excel文件");
+            }
+            writer.finish();
+            finished = true;
+        } catch (FileUploadException e) {
+            MergeJobRejectedException tooLarge = tooLarge(e);
+            throw tooLarge != null ? tooLarge : new IllegalArgumentException("解析上传文件失败: " + e.getMessage(), e);
+        } catch (IOException | RuntimeException e) {
+            // 读取器把文件流的异常包装为"读取文件失败"，超过大小上限时单独处理
+            MergeJobRejectedException tooLarge = tooLarge(e);
+            if (tooLarge != null) {
+                throw tooLarge;
+            }
+            throw e;
+        } finally {
+            if (!finished) {
+                // 失败时不写出文件结尾，避免截断的结果看起来是完整文件
+                writer.abort();
+            }
+        }
+        log.info("[{}] 上传合并完成，文件数: {}，行数: {}", processId, files, rows[0]);
+        return rows[0];
+    }
+    
+    /**
+     * 异常链中有超过大小上限的异常时转换为过大拒绝
+     * @return 过大拒绝异常，不是超过大小上限时为null
+     */
+    private static MergeJobRejectedException tooLarge(Exception e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof FileUploadBase.FileSizeLimitExceededException
+                    || cause instanceof FileUploadBase.SizeLimitExceededException) {
+                return new MergeJobRejectedException("上传文件超过大小上限: " + cause.getMessage(), true);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * 去掉浏览器附带的客户端路径
+     */
+    private static String fileName(String name) {
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        return name.substring(Math.max(name.lastIndexOf('/'), name.lastIndexOf('\\')) + 1);
+    }
+    
+    /**
+     * 从请求流解析multipart，不依赖Servlet API
+     */
+    private static final class RequestUploadContext implements UploadContext {
+        private final InputStream body;
+        private final String contentType;
+        private final String encoding;
+        
+        RequestUploadContext(InputStream body, String contentType, String encoding) {
+            this.body = body;
+            this.contentType = contentType;
+            this.encoding = encoding;
+        }
+        
+        @Override
+        public String getCharacterEncoding() {
+            return encoding;
+        }
+        
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+        
+        @Override
+        @Deprecated
+        public int getContentLength() {
+            return -1;
+        }
+        
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+        
+        @Override
+        public InputStream getInputStream() {
+            return body;
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.study.tools.highExcelTools.job;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * 按租户加权公平的任务队列
+ * <p>
+ * 每个租户一个按优先级排列的子队列，租户之间按虚拟时间(起始时间标签)轮转：每取出一个任务，
+ * 该租户的虚拟时间增加 任务估算内存 / 租户权重，总是从虚拟时间最小的租户取任务。
+ * 任务越大、租户权重越小，下一次轮到得越晚，长期来看各租户占用的执行资源与权重成正比。
+ * 空闲租户重新提交任务时虚拟时间追平到当前值，不能用空闲期间积累的额度独占队列。
+ * </p>
+ * <p>
+ * 非线程安全，由调用方加锁。
+ * </p>
+ */
+public class WeightedFairQueue {
+    // 最小计费(1MB)，避免大量极小任务几乎不推进虚拟时间
+    private static final long MIN_COST = 1L << 20;
+    
+    // 租户内排序: 优先级高的先执行，同优先级按提交顺序
+    private static final Comparator<MergeJob> JOB_ORDER = Comparator
+            .comparingInt(MergeJob::getPriority).reversed()
+            .thenComparingLong(MergeJob::getSequence);
+    
+    // 租户子队列，按租户标识排序，虚拟时间相同时取出顺序确定
+    private final Map<String, TenantQueue> tenants = new TreeMap<>();
+    private final ToIntFunction<String> weights;
+    // 当前虚拟时间(最近一次取出任务时该任务的起始标签)
+    private double virtualTime;
+    private int size;
+    
+    private static class TenantQueue {
+        final PriorityQueue<MergeJob> jobs = new PriorityQueue<>(JOB_ORDER);
+        double pass;
+    }
+    
+    /**
+     * @param weights 租户权重
+     */
+    public WeightedFairQueue(ToIntFunction<String> weights) {
+        this.weights = weights;
+    }
+    
+    /**
+     * 加入任务
+     */
+    public void offer(MergeJob job) {
+        TenantQueue tenant = tenants.computeIfAbsent(job.getTenantId(), id -> new TenantQueue());
+        if (tenant.jobs.isEmpty()) {
+            tenant.pass = Math.max(tenant.pass, virtualTime);
+        }
+        tenant.jobs.add(job);
+        size++;
+    }
+    
+    /**
+     * 取出下一个任务
+     * 轮到的租户队首任务估算内存超过可用额度时返回null，等待执行中的任务释放内存，
+     * 不让其他小任务插队，避免大任务一直等不到足够的内存
+     *
+     * @param availableBytes 当前可用的内存额度
+     * @return 下一个任务，队列为空或内存不足时返回null
+     */
+    public MergeJob poll(long availableBytes) {
+        String nextTenant = null;
+        TenantQueue next = null;
+        for (Map.Entry<String, TenantQueue> entry : tenants.entrySet()) {
+            TenantQueue tenant = entry.getValue();
+            if (!tenant.jobs.isEmpty() && (next == null || tenant.pass < next.pass)) {
+                nextTenant = entry.getKey();
+                next = tenant;
+            }
+        }
+        if (next == null || next.jobs.peek().getEstimatedBytes() > availableBytes) {
+            return null;
+        }
+        
+        MergeJob job = next.jobs.poll();
+        size--;
+        virtualTime = next.pass;
+        next.pass += (double) Math.max(job.getEstimatedBytes(), MIN_COST) / Math.max(weights.applyAsInt(nextTenant), 1);
+        return job;
+    }
+    
+    /**
+     * 移除排队中的任务
+     *
+     * @return 任务在队列中时返回true
+     */
+    public boolean remove(String jobId) {
+        for (TenantQueue tenant : tenants.values()) {
+            if (tenant.jobs.removeIf(job -> job.getJobId().equals(jobId))) {
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 排队任务总数
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * 租户排队任务数
+     */
+    public int size(String tenantId) {
+        TenantQueue tenant = tenants.get(tenantId);
+        return tenant != null ? tenant.jobs.size() : 0;
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.study.tools.highExcelTools.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 去重统计信息
+ * 包含布隆过滤器预筛的命中情况和误判率
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DedupStatistics {
+    /**
+     * 是否启用布隆过滤器
+     */
+    private boolean bloomEnabled;
+    
+    /**
+     * 过滤器配置
+     */
+    private long expectedRows;              // 预计行数
+    private long bloomBitSize;              // 位数组大小
+    private int bloomHashFunctions;         // 哈希函数个数
+    private long bloomMemoryBytes;          // 位数组内存(字节)
+    
+    /**
+     * 误判率
+     */
+    private double designFalsePositiveRate;    // 按设计容量计算的理论误判率
+    private double estimatedFalsePositiveRate; // 按当前置位比例估算的误判率
+    private double observedFalsePositiveRate;  // 实际观测到的误判率
+    
+    /**
+     * 命中统计
+     */
+    private long keysChecked;           // 经过过滤器判断的键数
+    private long exactLookupsSkipped;   // 过滤器判定未出现、跳过精确查找的次数
+    private long exactLookups;          // 执行精确查找的次数
+    private long falsePositives;        // 过滤器误判次数
+    private long crossBatchDuplicates;  // 跨批次重复数
+    private long exactStoreSize;        // 精确存储中的键数
+    
+    /**
+     * 跳过精确查找的比例
+     */
+    public double getSkipRatio() {
+        return keysChecked > 0 ? (double) exactLookupsSkipped / keysChecked : 0.0;
+    }
+} 
\ No newline at end of file
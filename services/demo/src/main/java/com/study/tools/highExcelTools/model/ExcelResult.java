@@ -9,7 +9,7 @@ import java.util.List;
 /**
  * Excel操作结果类
  * 包含操作结果和统计信息
- * 
+ *
  * @param <T> 数据模型类型
  */
 @Data
@@ -63,6 +63,26 @@ public class ExcelResult<T> {
     private String errorDataFile;  // 错误数据导出文件
     private boolean hasErrors;     // 是否包含异常数据
     
+    /**
+     * 去重统计信息(启用布隆过滤器时包含误判率和命中统计)
+     */
+    private DedupStatistics dedupStatistics;
+    
+    /**
+     * 汇总Sheet行数(配置分组聚合时)
+     */
+    private long summaryRows;
+    
+    /**
+     * 是否被取消(取消时totalRows为已读取行数，timeMillis为取消前的耗时)
+     */
+    private boolean cancelled;
+    
+    /**
+     * 已处理批次数(取消时的部分统计)
+     */
+    private int processedBatches;
+    
     /**
      * 获取处理速度（行/秒）
      */
@@ -136,6 +156,26 @@ public class ExcelResult<T> {
                 .build();
     }
     
+    /**
+     * 创建取消结果(包含取消前的部分统计)
+     */
+    public static <T> ExcelResult<T> cancelled(
+            String operationType,
+            String reason,
+            int rowsRead,
+            int processedBatches,
+            long timeMillis) {
+        return ExcelResult.<T>builder()
+                .success(false)
+                .cancelled(true)
+                .operationType(operationType)
+                .errorMessage("任务已取消: " + reason)
+                .totalRows(rowsRead)
+                .processedBatches(processedBatches)
+                .timeMillis(timeMillis)
+                .build();
+    }
+    
     /**
      * 创建失败结果(包含异常数据)
      */
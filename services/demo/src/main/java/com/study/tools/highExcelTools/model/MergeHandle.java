@@ -0,0 +1,63 @@
+package com.study.tools.highExcelTools.model;
+
+import com.study.tools.highExcelTools.util.CancellationToken;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步合并任务句柄
+ * <p>
+ * 取消是协作式的：{@link #cancel()}只设置取消标记，合并流程在下一个行或批次边界停止读取，
+ * 关闭写入器并删除未完成的输出文件，Future以{@link ExcelResult#isCancelled()}为true的结果完成。
+ * </p>
+ *
+ * @param <T> 数据模型类型
+ */
+public class MergeHandle<T> {
+    // 操作ID，与日志中的[{}]前缀一致
+    private final String operationId;
+    // 合并结果
+    private final CompletableFuture<ExcelResult<T>> future;
+    // 取消标记
+    private final CancellationToken token;
+    
+    public MergeHandle(String operationId, CompletableFuture<ExcelResult<T>> future, CancellationToken token) {
+        this.operationId = operationId;
+        this.future = future;
+        this.token = token;
+    }
+    
+    public String getOperationId() {
+        return operationId;
+    }
+    
+    public CompletableFuture<ExcelResult<T>> getFuture() {
+        return future;
+    }
+    
+    /**
+     * 请求取消合并
+     * @return 任务尚未完成时返回true
+     */
+    public boolean cancel() {
+        return cancel("用户取消");
+    }
+    
+    /**
+     * 请求取消合并
+     * @param reason 取消原因，记录在结果的错误信息中
+     * @return 任务尚未完成时返回true
+     */
+    public boolean cancel(String reason) {
+        token.cancel(reason);
+        return !future.isDone();
+    }
+    
+    public boolean isCancelled() {
+        return token.isCancelled();
+    }
+    
+    public boolean isDone() {
+        return future.isDone();
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,105 @@
+package com.study.tools.highExcelTools.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 无模型读取模式下的数据行
+ * <p>
+ * 以共享的{@link RowSchema}加一个按列排列的值数组表示一行，不为每行创建HashMap和表头字符串。
+ * 读取时单元格值均为字符串，过滤、管道等处理中可以替换为其他类型。
+ * 使用方式与模型类相同: 将{@code Row.class}作为ExcelConfig的modelClass，键提取器等按表头取值，如 {@code row -> row.get("用户ID")}。
+ * </p>
+ */
+public final class Row {
+    
+    private final RowSchema schema;
+    private final Object[] values;
+    
+    public Row(RowSchema schema, Object[] values) {
+        if (values.length != schema.size()) {
+            throw new IllegalArgumentException("行数据列数与表头不一致: " + values.length + " != " + schema.size());
+        }
+        this.schema = schema;
+        this.values = values;
+    }
+    
+    public RowSchema getSchema() {
+        return schema;
+    }
+    
+    /**
+     * 列数
+     */
+    public int size() {
+        return values.length;
+    }
+    
+    /**
+     * 按列下标取值
+     */
+    public Object get(int column) {
+        return values[column];
+    }
+    
+    /**
+     * 按表头取值
+     * @return 表头不存在时返回null
+     */
+    public Object get(String header) {
+        int column = schema.indexOf(header);
+        return column >= 0 ? values[column] : null;
+    }
+    
+    /**
+     * 按表头取字符串值
+     */
+    public String getString(String header) {
+        Object value = get(header);
+        return value != null ? value.toString() : null;
+    }
+    
+    /**
+     * 按列下标设置值
+     */
+    public void set(int column, Object value) {
+        values[column] = value;
+    }
+    
+    /**
+     * 按表头设置值
+     */
+    public void set(String header, Object value) {
+        int column = schema.indexOf(header);
+        if (column < 0) {
+            throw new IllegalArgumentException("表头不存在: " + header);
+        }
+        values[column] = value;
+    }
+    
+    /**
+     * 按目标表头排列的单元格值，用于写入
+     * 表头相同时直接包装值数组，不复制
+     */
+    public List<Object> toList(RowSchema target) {
+        if (target == schema) {
+            return Arrays.asList(values);
+        }
+        List<Object> cells = new ArrayList<>(target.size());
+        for (int i = 0; i < target.size(); i++) {
+            cells.add(get(target.getHeader(i)));
+        }
+        return cells;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Row{");
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(schema.getHeader(i)).append('=').append(values[i]);
+        }
+        return sb.append('}').toString();
+    }
+} 
\ No newline at end of file
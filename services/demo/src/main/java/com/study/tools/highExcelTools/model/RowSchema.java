@@ -0,0 +1,97 @@
+package com.study.tools.highExcelTools.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 无模型行的表头索引
+ * <p>
+ * 同一表头的所有行共享一个实例，表头字符串只保存一份；行本身只保存按列下标排列的值数组。
+ * 重名表头按第一次出现的列建立索引。实例不可变，可在线程间共享。
+ * </p>
+ */
+public final class RowSchema {
+    
+    private final String[] headers;
+    private final Map<String, Integer> index;
+    
+    public RowSchema(List<String> headers) {
+        this.headers = headers.toArray(new String[0]);
+        this.index = new HashMap<>(this.headers.length * 2);
+        for (int i = 0; i < this.headers.length; i++) {
+            index.putIfAbsent(this.headers[i], i);
+        }
+    }
+    
+    /**
+     * 列数
+     */
+    public int size() {
+        return headers.length;
+    }
+    
+    /**
+     * 指定列的表头
+     */
+    public String getHeader(int column) {
+        return headers[column];
+    }
+    
+    /**
+     * 全部表头(只读)
+     */
+    public List<String> getHeaders() {
+        return Collections.unmodifiableList(Arrays.asList(headers));
+    }
+    
+    /**
+     * 表头对应的列下标
+     * @return 不存在时返回-1
+     */
+    public int indexOf(String header) {
+        Integer column = index.get(header);
+        return column != null ? column : -1;
+    }
+    
+    /**
+     * 转为EasyExcel写入所需的表头格式
+     */
+    public List<List<String>> headList() {
+        List<List<String>> head = new ArrayList<>(headers.length);
+        for (String header : headers) {
+            head.add(Collections.singletonList(header));
+        }
+        return head;
+    }
+    
+    /**
+     * 合并另一个表头，新增列追加在末尾
+     * @return 另一个表头的列已全部包含时返回当前实例
+     */
+    public RowSchema union(RowSchema other) {
+        if (other == null || other == this) {
+            return this;
+        }
+        List<String> merged = null;
+        for (String header : other.headers) {
+            if (!index.containsKey(header)) {
+                if (merged == null) {
+                    merged = new ArrayList<>(Arrays.asList(headers));
+                }
+                if (!merged.contains(header)) {
+                    merged.add(header);
+                }
+            }
+        }
+        return merged == null ? this : new RowSchema(merged);
+    }
+    
+    @Override
+    public String toString() {
+        return Arrays.toString(headers);
+    }
+} 
\ No newline at end of file
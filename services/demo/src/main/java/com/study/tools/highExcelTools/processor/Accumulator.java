@@ -0,0 +1,51 @@
+package com.study.tools.highExcelTools.processor;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 可合并的聚合累加器
+ * <p>
+ * 每个分组持有一个累加状态。读取线程各自对批次做局部聚合，再通过{@link #combine}合并到全局状态，
+ * 因此combine必须满足结合律。状态可编码到临时文件，聚合状态过大时按分区溢写。
+ * </p>
+ * <p>
+ * 实现需无状态、线程安全，所有数据都保存在累加状态中。常用实现见{@link Accumulators}。
+ * </p>
+ *
+ * @param <T> 数据模型类型
+ * @param <A> 累加状态类型
+ */
+public interface Accumulator<T, A> {
+    
+    /**
+     * 创建空状态
+     */
+    A create();
+    
+    /**
+     * 累加一行，可直接修改并返回传入的状态
+     */
+    A accumulate(A state, T row);
+    
+    /**
+     * 合并两个状态，可直接修改并返回left
+     */
+    A combine(A left, A right);
+    
+    /**
+     * 输出最终结果(写入汇总Sheet的单元格值)
+     */
+    Object finish(A state);
+    
+    /**
+     * 编码状态(溢写用)
+     */
+    void writeState(A state, DataOutput out) throws IOException;
+    
+    /**
+     * 解码状态(溢写用)
+     */
+    A readState(DataInput in) throws IOException;
+} 
\ No newline at end of file
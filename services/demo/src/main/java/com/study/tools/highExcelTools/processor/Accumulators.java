@@ -0,0 +1,252 @@
+package com.study.tools.highExcelTools.processor;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * 常用聚合累加器
+ * 数值提取结果为null的行不参与求和、平均和最值计算
+ */
+public final class Accumulators {
+    
+    private Accumulators() {
+    }
+    
+    /**
+     * 行数
+     */
+    public static <T> Accumulator<T, long[]> count() {
+        return new LongStateAccumulator<T>() {
+            @Override
+            public long[] accumulate(long[] state, T row) {
+                state[0]++;
+                return state;
+            }
+        };
+    }
+    
+    /**
+     * 非空值行数
+     */
+    public static <T> Accumulator<T, long[]> countNonNull(Function<T, ?> extractor) {
+        return new LongStateAccumulator<T>() {
+            @Override
+            public long[] accumulate(long[] state, T row) {
+                if (extractor.apply(row) != null) {
+                    state[0]++;
+                }
+                return state;
+            }
+        };
+    }
+    
+    /**
+     * 整数求和
+     */
+    public static <T> Accumulator<T, long[]> sumLong(Function<T, ? extends Number> extractor) {
+        return new LongStateAccumulator<T>() {
+            @Override
+            public long[] accumulate(long[] state, T row) {
+                Number value = extractor.apply(row);
+                if (value != null) {
+                    state[0] += value.longValue();
+                }
+                return state;
+            }
+        };
+    }
+    
+    /**
+     * 浮点求和
+     */
+    public static <T> Accumulator<T, double[]> sumDouble(Function<T, ? extends Number> extractor) {
+        return new DoubleStateAccumulator<T>(1) {
+            @Override
+            public double[] accumulate(double[] state, T row) {
+                Number value = extractor.apply(row);
+                if (value != null) {
+                    state[0] += value.doubleValue();
+                }
+                return state;
+            }
+            
+            @Override
+            public double[] combine(double[] left, double[] right) {
+                left[0] += right[0];
+                return left;
+            }
+            
+            @Override
+            public Object finish(double[] state) {
+                return state[0];
+            }
+        };
+    }
+    
+    /**
+     * 平均值，没有有效值时输出空单元格
+     */
+    public static <T> Accumulator<T, double[]> avg(Function<T, ? extends Number> extractor) {
+        // state[0]: 合计, state[1]: 有效行数
+        return new DoubleStateAccumulator<T>(2) {
+            @Override
+            public double[] accumulate(double[] state, T row) {
+                Number value = extractor.apply(row);
+                if (value != null) {
+                    state[0] += value.doubleValue();
+                    state[1]++;
+                }
+                return state;
+            }
+            
+            @Override
+            public double[] combine(double[] left, double[] right) {
+                left[0] += right[0];
+                left[1] += right[1];
+                return left;
+            }
+            
+            @Override
+            public Object finish(double[] state) {
+                return state[1] > 0 ? state[0] / state[1] : null;
+            }
+        };
+    }
+    
+    /**
+     * 整数最小值，没有有效值时输出空单元格
+     */
+    public static <T> Accumulator<T, long[]> minLong(Function<T, ? extends Number> extractor) {
+        return new ExtremeAccumulator<>(extractor, true);
+    }
+    
+    /**
+     * 整数最大值，没有有效值时输出空单元格
+     */
+    public static <T> Accumulator<T, long[]> maxLong(Function<T, ? extends Number> extractor) {
+        return new ExtremeAccumulator<>(extractor, false);
+    }
+    
+    /**
+     * 单个long计数/求和状态
+     */
+    private abstract static class LongStateAccumulator<T> implements Accumulator<T, long[]> {
+        @Override
+        public long[] create() {
+            return new long[1];
+        }
+        
+        @Override
+        public long[] combine(long[] left, long[] right) {
+            left[0] += right[0];
+            return left;
+        }
+        
+        @Override
+        public Object finish(long[] state) {
+            return state[0];
+        }
+        
+        @Override
+        public void writeState(long[] state, DataOutput out) throws IOException {
+            out.writeLong(state[0]);
+        }
+        
+        @Override
+        public long[] readState(DataInput in) throws IOException {
+            return new long[]{in.readLong()};
+        }
+    }
+    
+    /**
+     * 定长double数组状态
+     */
+    private abstract static class DoubleStateAccumulator<T> implements Accumulator<T, double[]> {
+        private final int width;
+        
+        DoubleStateAccumulator(int width) {
+            this.width = width;
+        }
+        
+        @Override
+        public double[] create() {
+            return new double[width];
+        }
+        
+        @Override
+        public void writeState(double[] state, DataOutput out) throws IOException {
+            for (double value : state) {
+                out.writeDouble(value);
+            }
+        }
+        
+        @Override
+        public double[] readState(DataInput in) throws IOException {
+            double[] state = new double[width];
+            for (int i = 0; i < width; i++) {
+                state[i] = in.readDouble();
+            }
+            return state;
+        }
+    }
+    
+    /**
+     * 最值状态: state[0]为是否有值(0/1), state[1]为当前最值
+     */
+    private static final class ExtremeAccumulator<T> implements Accumulator<T, long[]> {
+        private final Function<T, ? extends Number> extractor;
+        private final boolean min;
+        
+        ExtremeAccumulator(Function<T, ? extends Number> extractor, boolean min) {
+            this.extractor = extractor;
+            this.min = min;
+        }
+        
+        @Override
+        public long[] create() {
+            return new long[2];
+        }
+        
+        @Override
+        public long[] accumulate(long[] state, T row) {
+            Number value = extractor.apply(row);
+            if (value != null) {
+                offer(state, value.longValue());
+            }
+            return state;
+        }
+        
+        @Override
+        public long[] combine(long[] left, long[] right) {
+            if (right[0] != 0) {
+                offer(left, right[1]);
+            }
+            return left;
+        }
+        
+        @Override
+        public Object finish(long[] state) {
+            return state[0] != 0 ? state[1] : null;
+        }
+        
+        @Override
+        public void writeState(long[] state, DataOutput out) throws IOException {
+            out.writeLong(state[0]);
+            out.writeLong(state[1]);
+        }
+        
+        @Override
+        public long[] readState(DataInput in) throws IOException {
+            return new long[]{in.readLong(), in.readLong()};
+        }
+        
+        private void offer(long[] state, long value) {
+            if (state[0] == 0 || (min ? value < state[1] : value > state[1])) {
+                state[0] = 1;
+                state[1] = value;
+            }
+        }
+    }
+} 
\ No newline at end of file
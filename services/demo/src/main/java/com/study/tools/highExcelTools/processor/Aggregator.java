@@ -0,0 +1,528 @@
+package com.study.tools.highExcelTools.processor;
+
+import com.study.tools.highExcelTools.config.AggregationSpec;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * 流式分组聚合处理器
+ * <p>
+ * 与{@link DataProcessor}并列的处理阶段：每个批次先在调用线程中做局部哈希聚合，
+ * 再把局部结果合并到全局分组表，读取线程之间只在合并时短暂加锁。
+ * </p>
+ * <p>
+ * 全局分组数超过{@link AggregationSpec#getMaxGroupsInMemory()}时，按分组键哈希把全部状态溢写到临时目录的分区文件并清空内存表；
+ * 输出时逐个分区读回、合并同键状态后输出，每次只有一个分区的分组在内存中。
+ * 读回的分区仍超过分组上限时(键分布倾斜)，按下一级哈希把该分区再分区溢写，最多{@value #MAX_SPILL_LEVEL}级。
+ * </p>
+ * <p>
+ * 分组键提取异常交给{@link ErrorHandler}，该行不参与聚合。溢写时字符串、数值、布尔、日期以外的分组值按Java序列化编码，
+ * 读回后与内存中的值equals一致；不可序列化的分组值无法溢写，溢写时抛出异常。
+ * </p>
+ *
+ * @param <T> 数据模型类型
+ */
+@Slf4j
+public class Aggregator<T> implements AutoCloseable {
+    // 溢写分区数
+    private static final int SPILL_PARTITIONS = 16;
+    // 倾斜分区再分区的最大级数
+    private static final int MAX_SPILL_LEVEL = 3;
+    // 溢写文件缓冲
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+    
+    // 分组键编码类型标记
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_LONG = 2;
+    private static final byte TAG_INTEGER = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_BOOLEAN = 5;
+    private static final byte TAG_DECIMAL = 6;
+    private static final byte TAG_DATE = 7;
+    private static final byte TAG_SERIALIZED = 8;
+    
+    private final AggregationSpec<T> spec;
+    private final String processId;
+    private final List<Function<T, ?>> groupExtractors;
+    private final List<Accumulator<T, Object>> metrics;
+    private final ErrorHandler<T> errorHandler;
+    
+    // 全局分组表，访问时持有this锁
+    private Map<GroupKey, Object[]> groups = new HashMap<>();
+    
+    // 溢写状态
+    private Path spillDir;
+    private DataOutputStream[] spillOutputs;
+    private int spillCount = 0;
+    private int repartitionCount = 0;
+    
+    private final AtomicLong rowCount = new AtomicLong(0);
+    
+    /**
+     * 聚合过程中的异常处理回调
+     * 由调用方决定记录、忽略还是抛出异常中止处理
+     */
+    public interface ErrorHandler<T> {
+        /**
+         * 分组键提取异常，发生后该行不参与聚合
+         */
+        void onKeyExtractionError(T item, Exception e);
+    }
+    
+    /**
+     * 分组键提取异常只记录警告日志
+     */
+    public Aggregator(AggregationSpec<T> spec, String processId) {
+        this(spec, processId, null);
+    }
+    
+    /**
+     * @param errorHandler 异常处理回调(为空时只记录警告日志)
+     */
+    @SuppressWarnings("unchecked")
+    public Aggregator(AggregationSpec<T> spec, String processId, ErrorHandler<T> errorHandler) {
+        this.spec = spec;
+        this.processId = processId;
+        this.errorHandler = errorHandler != null ? errorHandler :
+                (item, e) -> log.warn("[{}] 提取分组键异常: {}", processId, e.getMessage());
+        this.groupExtractors = spec.getGroupExtractors();
+        this.metrics = new ArrayList<>();
+        for (Accumulator<T, ?> metric : spec.getMetrics()) {
+            metrics.add((Accumulator<T, Object>) metric);
+        }
+    }
+    
+    /**
+     * 聚合一个批次
+     * 局部聚合不持锁，可由多个读取线程并发调用
+     */
+    public void accumulate(List<T> rows) throws IOException {
+        if (rows == null || rows.isEmpty()) return;
+        
+        // 批次内局部聚合
+        Map<GroupKey, Object[]> partial = new HashMap<>();
+        int accepted = 0;
+        for (T row : rows) {
+            GroupKey key;
+            try {
+                key = keyOf(row);
+            } catch (Exception e) {
+                errorHandler.onKeyExtractionError(row, e);
+                continue;
+            }
+            Object[] states = partial.computeIfAbsent(key, k -> newStates());
+            for (int i = 0; i < states.length; i++) {
+                states[i] = metrics.get(i).accumulate(states[i], row);
+            }
+            accepted++;
+        }
+        rowCount.addAndGet(accepted);
+        
+        // 合并到全局状态
+        synchronized (this) {
+            for (Map.Entry<GroupKey, Object[]> entry : partial.entrySet()) {
+                Object[] existing = groups.putIfAbsent(entry.getKey(), entry.getValue());
+                if (existing != null) {
+                    combineInto(existing, entry.getValue());
+                }
+            }
+            
+            if (groups.size() > spec.getMaxGroupsInMemory()) {
+                spill();
+            }
+        }
+    }
+    
+    /**
+     * 输出汇总结果
+     *
+     * @param sink 输出回调，每次传入不超过chunkSize行，每行依次为分组值和指标值
+     * @param chunkSize 每次回调的行数
+     * @return 汇总行数
+     */
+    public synchronized long writeTo(Consumer<List<List<Object>>> sink, int chunkSize) throws IOException {
+        long start = System.currentTimeMillis();
+        long[] written = new long[1];
+        List<List<Object>> chunk = new ArrayList<>(chunkSize);
+        Consumer<Map<GroupKey, Object[]>> emit = table -> {
+            for (Map.Entry<GroupKey, Object[]> entry : table.entrySet()) {
+                chunk.add(toRow(entry.getKey(), entry.getValue()));
+                if (chunk.size() >= chunkSize) {
+                    sink.accept(new ArrayList<>(chunk));
+                    written[0] += chunk.size();
+                    chunk.clear();
+                }
+            }
+        };
+        
+        if (spillOutputs == null) {
+            emit.accept(groups);
+        } else {
+            // 剩余状态也写入分区，再逐个分区合并输出
+            if (!groups.isEmpty()) {
+                spill();
+            }
+            closeSpillOutputs();
+            for (int p = 0; p < SPILL_PARTITIONS; p++) {
+                emitPartition(partitionFile(p), 0, emit);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            sink.accept(new ArrayList<>(chunk));
+            written[0] += chunk.size();
+        }
+        groups = new HashMap<>();
+        
+        log.info("[{}] 分组聚合完成，输入行数: {}, 分组数: {}, 溢写次数: {}, 倾斜分区再分区次数: {}, 耗时: {}ms",
+                processId, rowCount.get(), written[0], spillCount, repartitionCount, System.currentTimeMillis() - start);
+        return written[0];
+    }
+    
+    /**
+     * 已聚合的行数
+     */
+    public long getRowCount() {
+        return rowCount.get();
+    }
+    
+    /**
+     * 删除溢写临时文件
+     */
+    @Override
+    public synchronized void close() {
+        closeSpillOutputs();
+        if (spillDir != null) {
+            // 包括倾斜分区再分区产生的子分区文件
+            try (Stream<Path> files = Files.list(spillDir)) {
+                files.forEach(this::deleteQuietly);
+            } catch (IOException e) {
+                log.warn("[{}] 列出聚合临时文件失败: {}", processId, spillDir, e);
+            }
+            deleteQuietly(spillDir);
+            spillDir = null;
+        }
+        groups = new HashMap<>();
+    }
+    
+    private GroupKey keyOf(T row) {
+        Object[] values = new Object[groupExtractors.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = groupExtractors.get(i).apply(row);
+        }
+        return new GroupKey(values);
+    }
+    
+    private Object[] newStates() {
+        Object[] states = new Object[metrics.size()];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = metrics.get(i).create();
+        }
+        return states;
+    }
+    
+    private void combineInto(Object[] target, Object[] source) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] = metrics.get(i).combine(target[i], source[i]);
+        }
+    }
+    
+    private List<Object> toRow(GroupKey key, Object[] states) {
+        List<Object> row = new ArrayList<>(key.values.length + states.length);
+        row.addAll(Arrays.asList(key.values));
+        for (int i = 0; i < states.length; i++) {
+            row.add(metrics.get(i).finish(states[i]));
+        }
+        return row;
+    }
+    
+    /**
+     * 把内存中的全部分组按键哈希追加到分区文件
+     */
+    private void spill() throws IOException {
+        long start = System.currentTimeMillis();
+        if (spillOutputs == null) {
+            Path baseDir = spec.getSpillDir() != null ?
+                    Paths.get(spec.getSpillDir()) : Paths.get(System.getProperty("java.io.tmpdir"));
+            Files.createDirectories(baseDir);
+            spillDir = Files.createTempDirectory(baseDir, "excel-agg-" + processId + "-");
+            spillOutputs = new DataOutputStream[SPILL_PARTITIONS];
+            for (int p = 0; p < SPILL_PARTITIONS; p++) {
+                spillOutputs[p] = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(partitionFile(p)), IO_BUFFER_SIZE));
+            }
+        }
+        
+        int spilledGroups = groups.size();
+        for (Map.Entry<GroupKey, Object[]> entry : groups.entrySet()) {
+            writeEntry(spillOutputs[partitionOf(entry.getKey(), 0)], entry.getKey(), entry.getValue());
+        }
+        groups = new HashMap<>();
+        spillCount++;
+        
+        log.info("[{}] 聚合状态溢写 #{}: {} 个分组, 耗时: {}ms",
+                processId, spillCount, spilledGroups, System.currentTimeMillis() - start);
+    }
+    
+    private void writeEntry(DataOutputStream out, GroupKey key, Object[] states) throws IOException {
+        writeKey(key, out);
+        for (int i = 0; i < states.length; i++) {
+            metrics.get(i).writeState(states[i], out);
+        }
+    }
+    
+    /**
+     * 读回一个分区文件，合并同键状态后输出
+     * 分组数超过内存上限时把已读入的分组和剩余记录按下一级哈希写入子分区，再逐个子分区递归输出
+     */
+    private void emitPartition(Path file, int level, Consumer<Map<GroupKey, Object[]>> emit) throws IOException {
+        Map<GroupKey, Object[]> table = new HashMap<>();
+        Path[] subFiles = null;
+        DataOutputStream[] subOutputs = null;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), IO_BUFFER_SIZE))) {
+            while (true) {
+                GroupKey key;
+                try {
+                    key = readKey(in);
+                } catch (EOFException e) {
+                    break;
+                }
+                Object[] states = new Object[metrics.size()];
+                for (int i = 0; i < states.length; i++) {
+                    states[i] = metrics.get(i).readState(in);
+                }
+                if (subOutputs != null) {
+                    writeEntry(subOutputs[partitionOf(key, level + 1)], key, states);
+                    continue;
+                }
+                Object[] existing = table.putIfAbsent(key, states);
+                if (existing != null) {
+                    combineInto(existing, states);
+                } else if (table.size() > spec.getMaxGroupsInMemory() && level < MAX_SPILL_LEVEL) {
+                    subFiles = new Path[SPILL_PARTITIONS];
+                    subOutputs = new DataOutputStream[SPILL_PARTITIONS];
+                    String name = file.getFileName().toString().replace(".bin", "");
+                    for (int p = 0; p < SPILL_PARTITIONS; p++) {
+                        subFiles[p] = spillDir.resolve(String.format("%s-%02d.bin", name, p));
+                        subOutputs[p] = new DataOutputStream(new BufferedOutputStream(
+                                Files.newOutputStream(subFiles[p]), IO_BUFFER_SIZE));
+                    }
+                    for (Map.Entry<GroupKey, Object[]> entry : table.entrySet()) {
+                        writeEntry(subOutputs[partitionOf(entry.getKey(), level + 1)], entry.getKey(), entry.getValue());
+                    }
+                    table = new HashMap<>();
+                    repartitionCount++;
+                    log.info("[{}] 聚合分区 {} 的分组数超过内存上限，按第{}级哈希再分区", processId, name, level + 1);
+                }
+            }
+        } finally {
+            if (subOutputs != null) {
+                for (DataOutputStream out : subOutputs) {
+                    out.close();
+                }
+            }
+        }
+        
+        if (subFiles == null) {
+            emit.accept(table);
+            return;
+        }
+        for (Path subFile : subFiles) {
+            emitPartition(subFile, level + 1, emit);
+            deleteQuietly(subFile);
+        }
+    }
+    
+    /**
+     * 分区号，每一级使用不同的哈希种子，同一分区内的键在下一级仍能分散
+     */
+    private static int partitionOf(GroupKey key, int level) {
+        int h = key.hashCode() ^ (level * 0x9E3779B9);
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        h *= 0xc2b2ae35;
+        h ^= (h >>> 16);
+        return (h & 0x7fffffff) % SPILL_PARTITIONS;
+    }
+    
+    private Path partitionFile(int partition) {
+        return spillDir.resolve(String.format("part-%02d.bin", partition));
+    }
+    
+    private void closeSpillOutputs() {
+        if (spillOutputs == null) return;
+        for (DataOutputStream out : spillOutputs) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                log.warn("[{}] 关闭聚合溢写文件失败", processId, e);
+            }
+        }
+        spillOutputs = null;
+    }
+    
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("[{}] 删除聚合临时文件失败: {}", processId, path, e);
+        }
+    }
+    
+    /**
+     * 编码分组键，其他类型按Java序列化编码，不可序列化时拒绝溢写
+     */
+    private static void writeKey(GroupKey key, DataOutput out) throws IOException {
+        for (Object value : key.values) {
+            if (value == null) {
+                out.writeByte(TAG_NULL);
+            } else if (value instanceof String) {
+                out.writeByte(TAG_STRING);
+                writeString(out, (String) value);
+            } else if (value instanceof Long) {
+                out.writeByte(TAG_LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Integer) {
+                out.writeByte(TAG_INTEGER);
+                out.writeInt((Integer) value);
+            } else if (value instanceof Double) {
+                out.writeByte(TAG_DOUBLE);
+                out.writeDouble((Double) value);
+            } else if (value instanceof Boolean) {
+                out.writeByte(TAG_BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            } else if (value instanceof BigDecimal) {
+                out.writeByte(TAG_DECIMAL);
+                writeString(out, value.toString());
+            } else if (value.getClass() == Date.class) {
+                out.writeByte(TAG_DATE);
+                out.writeLong(((Date) value).getTime());
+            } else if (value instanceof Serializable) {
+                // 如LocalDate、枚举，按原类型还原，与内存中的同值分组键equals一致
+                out.writeByte(TAG_SERIALIZED);
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {
+                    objectOut.writeObject(value);
+                }
+                out.writeInt(bytes.size());
+                bytes.writeTo((OutputStream) out);
+            } else {
+                throw new IllegalArgumentException("分组值类型不可序列化，无法溢写聚合状态: " + value.getClass().getName());
+            }
+        }
+    }
+    
+    private GroupKey readKey(DataInput in) throws IOException {
+        Object[] values = new Object[groupExtractors.size()];
+        for (int i = 0; i < values.length; i++) {
+            byte tag = in.readByte();
+            switch (tag) {
+                case TAG_NULL:
+                    values[i] = null;
+                    break;
+                case TAG_STRING:
+                    values[i] = readString(in);
+                    break;
+                case TAG_LONG:
+                    values[i] = in.readLong();
+                    break;
+                case TAG_INTEGER:
+                    values[i] = in.readInt();
+                    break;
+                case TAG_DOUBLE:
+                    values[i] = in.readDouble();
+                    break;
+                case TAG_BOOLEAN:
+                    values[i] = in.readBoolean();
+                    break;
+                case TAG_DECIMAL:
+                    values[i] = new BigDecimal(readString(in));
+                    break;
+                case TAG_DATE:
+                    values[i] = new Date(in.readLong());
+                    break;
+                case TAG_SERIALIZED:
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                        values[i] = objectIn.readObject();
+                    } catch (ClassNotFoundException e) {
+                        throw new IOException("反序列化分组键失败", e);
+                    }
+                    break;
+                default:
+                    throw new IOException("无法识别的分组键类型: " + tag);
+            }
+        }
+        return new GroupKey(values);
+    }
+    
+    private static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * 分组键，缓存哈希值
+     */
+    private static final class GroupKey {
+        private final Object[] values;
+        private final int hash;
+        
+        GroupKey(Object[] values) {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof GroupKey)) return false;
+            GroupKey other = (GroupKey) o;
+            return hash == other.hash && Arrays.equals(values, other.values);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,139 @@
+package com.study.tools.highExcelTools.processor;
+
+import com.study.tools.highExcelTools.model.DedupStatistics;
+import com.study.tools.highExcelTools.util.BloomFilter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 带布隆过滤器预筛的跨批次去重索引
+ * <p>
+ * 批次内去重完成后，每个键再经过本索引判断是否在之前的批次中出现过：
+ * 1. 布隆过滤器判定一定未出现：直接写入过滤器并追加到精确存储，跳过精确查找
+ * 2. 布隆过滤器判定可能出现：在精确存储中查找确认，区分真实重复与误判
+ * </p>
+ * <p>
+ * 对于大部分键都唯一的数据(如只追加的用户导出)，绝大多数行不会触发精确查找。
+ * 同一个键的判断通过分段锁串行化，不同键之间并发执行。
+ * </p>
+ */
+@Slf4j
+public class BloomDedupIndex {
+    // 分段锁数量(2的幂)
+    private static final int LOCK_STRIPES = 64;
+    
+    private final BloomFilter filter;
+    private final ExactKeyStore exactStore;
+    private final long expectedRows;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    
+    // 统计信息
+    private final LongAdder keysChecked = new LongAdder();
+    private final LongAdder bloomNegatives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    
+    /**
+     * @param expectedRows 预计行数，用于确定过滤器大小
+     * @param falsePositiveRate 目标误判率
+     * @param exactStore 精确键存储
+     */
+    public BloomDedupIndex(long expectedRows, double falsePositiveRate, ExactKeyStore exactStore) {
+        this.expectedRows = expectedRows;
+        this.filter = BloomFilter.create(expectedRows, falsePositiveRate);
+        this.exactStore = exactStore;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        
+        log.info("创建布隆过滤去重索引，预计行数: {}, 位数: {}, 哈希函数: {}, 内存: {}KB",
+                expectedRows, filter.getBitSize(), filter.getHashFunctions(), filter.memoryBytes() / 1024);
+    }
+    
+    /**
+     * 判断对象键是否首次出现，首次出现时记录该键
+     */
+    public boolean firstSeen(Object key) {
+        long hash = BloomFilter.hash64(key);
+        keysChecked.increment();
+        synchronized (locks[(int) hash & (LOCK_STRIPES - 1)]) {
+            if (!filter.mightContain(hash)) {
+                filter.put(hash);
+                exactStore.addNew(key);
+                bloomNegatives.increment();
+                return true;
+            }
+            return confirm(exactStore.addIfAbsent(key));
+        }
+    }
+    
+    /**
+     * 判断long键是否首次出现，首次出现时记录该键
+     */
+    public boolean firstSeen(long key) {
+        long hash = BloomFilter.hash64(key);
+        keysChecked.increment();
+        synchronized (locks[(int) hash & (LOCK_STRIPES - 1)]) {
+            if (!filter.mightContain(hash)) {
+                filter.put(hash);
+                exactStore.addNew(key);
+                bloomNegatives.increment();
+                return true;
+            }
+            return confirm(exactStore.addIfAbsent(key));
+        }
+    }
+    
+    /**
+     * 根据精确查找结果更新误判/重复统计
+     */
+    private boolean confirm(boolean added) {
+        if (added) {
+            // 布隆过滤器误判，实际是新键(其位已全部置位，无需再写入过滤器)
+            falsePositives.increment();
+        } else {
+            duplicates.increment();
+        }
+        return added;
+    }
+    
+    /**
+     * 获取统计信息
+     */
+    public DedupStatistics getStatistics() {
+        long checked = keysChecked.sum();
+        long negatives = bloomNegatives.sum();
+        long fp = falsePositives.sum();
+        // 观测误判率 = 误判次数 / 实际新键中经过过滤器判断的次数
+        long newKeys = negatives + fp;
+        
+        return DedupStatistics.builder()
+                .bloomEnabled(true)
+                .expectedRows(expectedRows)
+                .bloomBitSize(filter.getBitSize())
+                .bloomHashFunctions(filter.getHashFunctions())
+                .bloomMemoryBytes(filter.memoryBytes())
+                .designFalsePositiveRate(filter.designFalsePositiveRate())
+                .estimatedFalsePositiveRate(filter.estimatedFalsePositiveRate())
+                .observedFalsePositiveRate(newKeys > 0 ? (double) fp / newKeys : 0.0)
+                .keysChecked(checked)
+                .exactLookupsSkipped(negatives)
+                .exactLookups(checked - negatives)
+                .falsePositives(fp)
+                .crossBatchDuplicates(duplicates.sum())
+                .exactStoreSize(exactStore.size())
+                .build();
+    }
+    
+    /**
+     * 释放精确存储
+     */
+    public void close() {
+        try {
+            exactStore.close();
+        } catch (Exception e) {
+            log.warn("关闭精确键存储失败", e);
+        }
+    }
+} 
\ No newline at end of file
@@ -1,16 +1,18 @@
 package com.study.tools.highExcelTools.processor;
 
 import com.study.tools.highExcelTools.config.ExcelConfig;
-import com.study.tools.highExcelTools.config.ProgressCallback;
+import com.study.tools.highExcelTools.model.DedupStatistics;
 import com.study.tools.highExcelTools.model.ErrorCollector;
 import com.study.tools.highExcelTools.model.ErrorRecord;
 import com.study.tools.highExcelTools.util.MemoryMonitor;
+import com.study.tools.highExcelTools.util.ProgressDispatcher;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 /**
@@ -20,29 +22,102 @@ import java.util.stream.Collectors;
 @Slf4j
 public class DataProcessor<T> {
     private static final int PROCESS_BATCH_SIZE = 100_000; // 处理批次大小
+    private static final long DEFAULT_EXPECTED_ROWS = 1_000_000; // 未配置预计行数时布隆过滤器的默认容量
     
     private final ExcelConfig<T> config;
-    private final ProgressCallback progressCallback;
+    // 进度分发器，批次进度只记录最新阶段，由调度线程回调
+    private final ProgressDispatcher progress;
+    // 分发器是否由本处理器创建(是则在close时停止)
+    private final boolean ownsProgress;
     private final String processId;
     
     // 异常数据收集器
     @Getter
     private final ErrorCollector<T> errorCollector;
     
+    // 分区并行去重引擎
+    private final PartitionedDeduplicator<T> deduplicator;
+    
+    // 跨批次去重索引(启用布隆过滤器时创建)
+    private final BloomDedupIndex seenIndex;
+    
     public DataProcessor(ExcelConfig<T> config, String processId) {
+        this(config, processId, null);
+    }
+    
+    /**
+     * @param progress 合并流程共用的进度分发器，为空时处理器按配置自行创建
+     */
+    public DataProcessor(ExcelConfig<T> config, String processId, ProgressDispatcher progress) {
         this.config = config;
-        this.progressCallback = config.getProgressCallback();
+        this.ownsProgress = progress == null;
+        this.progress = progress != null ? progress : ProgressDispatcher.create(config, processId);
         this.processId = processId;
+        if (ownsProgress) {
+            this.progress.start();
+        }
         
         // 初始化错误收集器
         this.errorCollector = new ErrorCollector<>(
-                processId, 
+                processId,
                 !config.isContinueOnError(),  // failFast模式与continueOnError相反
                 config.getMaxErrorCount());
+        
+        // 启用布隆过滤器时创建跨批次去重索引，按预计行数确定过滤器大小
+        if (config.isEnableDeduplication() && config.isEnableBloomFilter()) {
+            long expectedRows = config.getExpectedRowCount() > 0 ?
+                    config.getExpectedRowCount() : DEFAULT_EXPECTED_ROWS;
+            // 默认精确存储放在临时文件中，堆内只保留布隆过滤器
+            ExactKeyStore keyStore = config.getDedupKeyStore() != null ?
+                    config.getDedupKeyStore() : new DiskKeyStore(Paths.get(config.getDedupTempDir() != null ?
+                    config.getDedupTempDir() : System.getProperty("java.io.tmpdir")), processId, expectedRows);
+            this.seenIndex = new BloomDedupIndex(expectedRows, config.getBloomFalsePositiveRate(), keyStore);
+        } else {
+            this.seenIndex = null;
+        }
+        
+        // 初始化去重引擎，键提取和合并异常沿用原有的错误处理逻辑
+        this.deduplicator = new PartitionedDeduplicator<>(
+                config.getKeyExtractor(),
+                config.getLongKeyExtractor(),
+                config.getMergeFunction(),
+                new PartitionedDeduplicator.ErrorHandler<T>() {
+                    @Override
+                    public void onKeyExtractionError(T item, Exception e) {
+                        handleKeyExtractionError(item, e);
+                    }
+                    
+                    @Override
+                    public void onMergeError(T existingItem, T item, Exception e) {
+                        handleMergeError(existingItem, item, e);
+                    }
+                },
+                config.getDedupParallelism(),
+                seenIndex);
     }
     
     /**
-     * 处理数据（过滤和去重）
+     * 对全部数据做一次保序去重
+     * 用于有序合并模式：各批次已按文件顺序拼接，这里去掉跨批次的重复键，保留每个键首次出现的位置
+     * 合并函数按原始顺序依次调用，需满足结合律才能与批次内预合并的结果一致
+     *
+     * @param data 按文件顺序拼接的数据
+     * @return 去重后的数据
+     */
+    public List<T> deduplicateOrdered(List<T> data) {
+        if (data == null || data.isEmpty() || !config.isEnableDeduplication() || !config.hasDedupKey()) {
+            return data;
+        }
+        
+        int beforeDedup = data.size();
+        List<T> result = deduplicateData(data);
+        log.info("[{}] 全局保序去重完成，数据行数: {} -> {}", processId, beforeDedup, result.size());
+        return result;
+    }
+    
+    /**
+     * 处理数据（过滤、管道转换和去重）
+     * 各阶段独立处理异常：阶段失败且配置为继续处理时跳过该阶段，以上一阶段的结果继续
      */
     public List<T> process(List<T> data) {
         if (data == null || data.isEmpty()) {
@@ -54,164 +129,74 @@ public class DataProcessor<T> {
         
         // 应用过滤器
         if (config.getFilter() != null) {
-            try {
-                result = applyFilter(data);
-                log.info("[{}] 应用过滤器后，数据行数: {} -> {}", processId, originalSize, result.size());
-                reportProgress(40, 100, "过滤完成");
-            } catch (Exception e) {
-                // 记录过滤操作异常
-                if (config.isCollectErrors()) {
-                    ErrorRecord<T> errorRecord = ErrorRecord.processError(
-                            "过滤操作", null, "过滤数据异常: " + e.getMessage(), e);
-                    boolean shouldStop = errorCollector.collectError(errorRecord);
-                    
-                    if (shouldStop && !config.isContinueOnError()) {
-                        throw new RuntimeException("过滤数据异常，已停止处理", e);
-                    }
-                    
-                    log.warn("[{}] 过滤数据异常，使用原始数据继续处理", processId, e);
-                    // 使用原始数据继续处理
-                    result = data;
-                } else if (!config.isContinueOnError()) {
-                    throw new RuntimeException("过滤数据异常", e);
-                } else {
-                    log.error("[{}] 过滤数据异常，使用原始数据继续处理", processId, e);
-                    // 使用原始数据继续处理
-                    result = data;
-                }
-            }
+            result = applyStage("过滤操作", result, this::applyFilter);
+            reportProgress(30, 100, "过滤完成");
+        }
+        
+        // 应用自定义管道，管道中的无状态算子融合为一次逐行循环
+        if (config.getPipeline() != null && !config.getPipeline().isEmpty()) {
+            result = applyStage("管道处理", result, config.getPipeline()::apply);
+            reportProgress(40, 100, "管道处理完成");
         }
         
         // 应用去重
-        if (config.isEnableDeduplication() && config.getKeyExtractor() != null) {
-            try {
-                int beforeDedup = result.size();
-                result = deduplicateData(result);
-                log.info("[{}] 应用去重后，数据行数: {} -> {}", processId, beforeDedup, result.size());
-                reportProgress(50, 100, "去重完成");
-            } catch (Exception e) {
-                // 记录去重操作异常
-                if (config.isCollectErrors()) {
-                    ErrorRecord<T> errorRecord = ErrorRecord.processError(
-                            "去重操作", null, "去重数据异常: " + e.getMessage(), e);
-                    boolean shouldStop = errorCollector.collectError(errorRecord);
-                    
-                    if (shouldStop && !config.isContinueOnError()) {
-                        throw new RuntimeException("去重数据异常，已停止处理", e);
-                    }
-                    
-                    log.warn("[{}] 去重数据异常，使用未去重数据继续处理", processId, e);
-                } else if (!config.isContinueOnError()) {
-                    throw new RuntimeException("去重数据异常", e);
-                } else {
-                    log.error("[{}] 去重数据异常，使用未去重数据继续处理", processId, e);
-                }
-            }
+        if (config.isEnableDeduplication() && config.hasDedupKey()) {
+            result = applyStage("去重操作", result, this::deduplicateData);
+            reportProgress(50, 100, "去重完成");
         }
         
+        log.info("[{}] 批次处理完成，数据行数: {} -> {}", processId, originalSize, result.size());
         return result;
     }
     
     /**
-     * 应用过滤器（并行处理）
+     * 执行一个处理阶段
+     * 异常时按配置记录错误后停止处理，或跳过该阶段使用输入数据继续处理
      */
-    private List<T> applyFilter(List<T> data) {
-        log.info("[{}] 开始应用过滤器，数据量: {}", processId, data.size());
-        
-        // 对大数据集分批处理
-        if (data.size() > PROCESS_BATCH_SIZE) {
-            return applyFilterBatched(data);
-        }
-        
+    private List<T> applyStage(String stage, List<T> data, UnaryOperator<List<T>> operator) {
         try {
-            // 并行过滤
-            return data.parallelStream()
-                    .filter(item -> {
-                        try {
-                            return config.getFilter().test(item);
-                        } catch (Exception e) {
-                            // 记录单条数据过滤异常
-                            handleFilterError(item, e);
-                            // 根据配置决定是否保留或跳过
-                            return !config.isSkipInvalidData();
-                        }
-                    })
-                    .collect(Collectors.toList());
+            return operator.apply(data);
         } catch (Exception e) {
-            log.error("[{}] 过滤过程中发生异常", processId, e);
-            
             if (config.isCollectErrors()) {
                 ErrorRecord<T> errorRecord = ErrorRecord.processError(
-                        "过滤操作", null, "批量过滤异常: " + e.getMessage(), e);
-                errorCollector.collectError(errorRecord);
-            }
-            
-            if (config.isContinueOnError()) {
-                // 在失败时返回原始数据
-                return new ArrayList<>(data);
+                        stage, null, stage + "异常: " + e.getMessage(), e);
+                boolean shouldStop = errorCollector.collectError(errorRecord);
+                
+                if (shouldStop && !config.isContinueOnError()) {
+                    throw new RuntimeException(stage + "异常，已停止处理", e);
+                }
+                
+                log.warn("[{}] {}异常，跳过该阶段继续处理", processId, stage, e);
+            } else if (!config.isContinueOnError()) {
+                throw new RuntimeException(stage + "异常", e);
             } else {
-                throw e;
+                log.error("[{}] {}异常，跳过该阶段继续处理", processId, stage, e);
             }
+            return data;
         }
     }
     
     /**
-     * 分批应用过滤器（防止OOM）
+     * 应用过滤器（并行处理，保持原有顺序）
      */
-    private List<T> applyFilterBatched(List<T> data) {
-        List<T> result = new ArrayList<>();
-        int totalSize = data.size();
-        
-        // 分批处理
-        for (int i = 0; i < totalSize; i += PROCESS_BATCH_SIZE) {
-            int endIndex = Math.min(i + PROCESS_BATCH_SIZE, totalSize);
-            List<T> batch = data.subList(i, endIndex);
-            
-            try {
-                // 并行过滤当前批次
-                List<T> filteredBatch = batch.parallelStream()
-                        .filter(item -> {
-                            try {
-                                return config.getFilter().test(item);
-                            } catch (Exception e) {
-                                // 记录单条数据过滤异常
-                                handleFilterError(item, e);
-                                // 根据配置决定是否保留或跳过
-                                return !config.isSkipInvalidData();
-                            }
-                        })
-                        .collect(Collectors.toList());
-                        
-                result.addAll(filteredBatch);
-            } catch (Exception e) {
-                log.error("[{}] 批次过滤异常: 批次{}-{}", processId, i, endIndex, e);
-                
-                if (config.isCollectErrors()) {
-                    ErrorRecord<T> errorRecord = ErrorRecord.processError(
-                            "批次过滤", null, String.format("批次过滤异常: 批次%d-%d: %s", i, endIndex, e.getMessage()), e);
-                    boolean shouldStop = errorCollector.collectError(errorRecord);
-                    
-                    if (shouldStop && !config.isContinueOnError()) {
-                        throw new RuntimeException("批次过滤异常，已停止处理", e);
-                    }
-                } else if (!config.isContinueOnError()) {
-                    throw new RuntimeException("批次过滤异常", e);
-                }
-                
-                // 在配置为继续处理时，添加未过滤的批次数据
-                if (config.isContinueOnError()) {
-                    result.addAll(batch);
-                }
-            }
-            
-            // 报告进度
-            reportProgress(i + batch.size(), totalSize, "过滤数据");
-            
-            // 检查内存使用情况
-            MemoryMonitor.checkForGC();
+    private List<T> applyFilter(List<T> data) {
+        return data.parallelStream()
+                .filter(this::testFilter)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * 应用过滤器，单条数据异常时按配置决定保留或跳过
+     */
+    private boolean testFilter(T item) {
+        try {
+            return config.getFilter().test(item);
+        } catch (Exception e) {
+            // 记录单条数据过滤异常
+            handleFilterError(item, e);
+            // 根据配置决定是否保留或跳过
+            return !config.isSkipInvalidData();
         }
-        
-        return result;
     }
     
     /**
@@ -234,124 +219,42 @@ public class DataProcessor<T> {
     }
     
     /**
-     * 数据去重（使用ConcurrentHashMap保证线程安全）
+     * 数据去重（哈希分区并行去重，各线程使用私有哈希表，无共享Map竞争）
+     * 配置了long主键提取器时使用原始类型索引，不产生装箱键和Entry对象
      */
     private List<T> deduplicateData(List<T> data) {
         log.info("[{}] 开始去重，数据量: {}", processId, data.size());
         
-        // 对大数据集分批处理
-        if (data.size() > PROCESS_BATCH_SIZE) {
-            return deduplicateDataBatched(data);
-        }
+        List<T> result = deduplicator.deduplicate(data);
         
-        ConcurrentHashMap<Object, T> uniqueMap = new ConcurrentHashMap<>(data.size());
+        // 报告进度
+        reportProgress(data.size(), data.size(), "去重数据");
         
-        // 并行填充去重Map
-        data.parallelStream().forEach(item -> {
-            try {
-                Object key = config.getKeyExtractor().apply(item);
-                if (key == null) return;
-                
-                uniqueMap.compute(key, (k, existingItem) -> {
-                    if (existingItem == null) {
-                        return item;
-                    } else if (config.getMergeFunction() != null) {
-                        try {
-                            // 应用自定义合并逻辑
-                            return config.getMergeFunction().apply(existingItem, item);
-                        } catch (Exception e) {
-                            // 记录合并异常
-                            handleMergeError(existingItem, item, e);
-                            return existingItem; // 失败时保留原值
-                        }
-                    } else {
-                        // 如果没有合并函数，保留第一个遇到的值
-                        return existingItem;
-                    }
-                });
-            } catch (Exception e) {
-                // 记录提取键异常
-                handleKeyExtractionError(item, e);
-            }
-        });
-        
-        return new ArrayList<>(uniqueMap.values());
-    }
-    
-    /**
-     * 分批去重数据（防止OOM）
-     */
-    private List<T> deduplicateDataBatched(List<T> data) {
-        ConcurrentHashMap<Object, T> uniqueMap = new ConcurrentHashMap<>();
-        int totalSize = data.size();
-        
-        // 分批处理
-        for (int i = 0; i < totalSize; i += PROCESS_BATCH_SIZE) {
-            int endIndex = Math.min(i + PROCESS_BATCH_SIZE, totalSize);
-            List<T> batch = data.subList(i, endIndex);
-            
-            try {
-                // 处理当前批次
-                for (T item : batch) {
-                    try {
-                        Object key = config.getKeyExtractor().apply(item);
-                        if (key == null) continue;
-                        
-                        uniqueMap.compute(key, (k, existingItem) -> {
-                            if (existingItem == null) {
-                                return item;
-                            } else if (config.getMergeFunction() != null) {
-                                try {
-                                    // 应用自定义合并逻辑
-                                    return config.getMergeFunction().apply(existingItem, item);
-                                } catch (Exception e) {
-                                    // 记录合并异常
-                                    handleMergeError(existingItem, item, e);
-                                    return existingItem; // 失败时保留原值
-                                }
-                            } else {
-                                // 如果没有合并函数，保留第一个遇到的值
-                                return existingItem;
-                            }
-                        });
-                    } catch (Exception e) {
-                        // 记录提取键异常
-                        handleKeyExtractionError(item, e);
-                    }
-                }
-            } catch (Exception e) {
-                log.error("[{}] 批次去重异常: 批次{}-{}", processId, i, endIndex, e);
-                
-                if (config.isCollectErrors()) {
-                    ErrorRecord<T> errorRecord = ErrorRecord.processError(
-                            "批次去重", null, String.format("批次去重异常: 批次%d-%d: %s", i, endIndex, e.getMessage()), e);
-                    boolean shouldStop = errorCollector.collectError(errorRecord);
-                    
-                    if (shouldStop && !config.isContinueOnError()) {
-                        throw new RuntimeException("批次去重异常，已停止处理", e);
-                    }
-                } else if (!config.isContinueOnError()) {
-                    throw new RuntimeException("批次去重异常", e);
-                }
-            }
-            
-            // 报告进度
-            reportProgress(i + batch.size(), totalSize, "去重数据");
-            
-            // 检查内存使用情况
+        // 检查内存使用情况
+        if (data.size() > PROCESS_BATCH_SIZE) {
             MemoryMonitor.checkForGC();
         }
         
-        return new ArrayList<>(uniqueMap.values());
+        return result;
     }
     
     /**
      * 处理键提取错误
      */
     private void handleKeyExtractionError(T item, Exception e) {
+        handleKeyExtractionError("键提取", item, e);
+    }
+    
+    /**
+     * 处理键提取错误，按错误收集配置记录，错误过多且不继续处理时抛出异常
+     * 也用于分组聚合等后续阶段的键提取
+     *
+     * @param stage 发生错误的阶段
+     */
+    public void handleKeyExtractionError(String stage, T item, Exception e) {
         if (config.isCollectErrors()) {
             ErrorRecord<T> errorRecord = ErrorRecord.processError(
-                    "键提取", item, "提取键异常: " + e.getMessage(), e);
+                    stage, item, "提取键异常: " + e.getMessage(), e);
             boolean shouldStop = errorCollector.collectError(errorRecord);
             
             if (shouldStop && !config.isContinueOnError()) {
@@ -383,12 +286,30 @@ public class DataProcessor<T> {
         }
     }
     
+    /**
+     * 获取去重统计信息
+     * @return 未启用布隆过滤器时返回null
+     */
+    public DedupStatistics getDedupStatistics() {
+        return seenIndex != null ? seenIndex.getStatistics() : null;
+    }
+    
+    /**
+     * 释放跨批次去重索引
+     */
+    public void close() {
+        if (seenIndex != null) {
+            seenIndex.close();
+        }
+        if (ownsProgress) {
+            progress.close();
+        }
+    }
+    
     /**
      * 报告进度
      */
     private void reportProgress(long current, long total, String phase) {
-        if (progressCallback != null) {
-            progressCallback.onProgress(current, total, phase);
-        }
+        progress.onProgress(current, total, phase);
     }
 } 
\ No newline at end of file
@@ -0,0 +1,461 @@
+package com.study.tools.highExcelTools.processor;
+
+import com.study.tools.highExcelTools.util.BloomFilter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 基于临时文件的精确键存储(启用布隆过滤器时的默认实现)
+ * <p>
+ * 对象键编码为字节后追加写入数据文件，索引为内存映射的开放寻址表，每个槽位16字节(键字节的64位哈希 + 数据偏移)；
+ * long键直接存放在另一张映射表中(键 + 占用标记)。映射区由操作系统页缓存管理，堆内只有写缓冲，
+ * 键的数量不再受堆大小限制。查找时按哈希定位槽位，哈希相同再从数据文件读回键字节逐字节比较。
+ * </p>
+ * <p>
+ * 只有字符串、Long、Integer、Double、BigDecimal、Boolean键按字节编码(字节相同与equals等价)，
+ * 其他类型的键无法保证这一点，保存在堆内集合中。所有方法串行执行。
+ * </p>
+ */
+@Slf4j
+public class DiskKeyStore implements ExactKeyStore {
+    // 槽位字节数
+    private static final int SLOT_BYTES = 16;
+    // 每个映射段1GB，槽位不会跨越映射段
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+    // 初始槽位数上限(稀疏文件，未写入的页不占磁盘)
+    private static final long MAX_INITIAL_SLOTS = 1L << 23;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_LONG = 2;
+    private static final byte TAG_INTEGER = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_DECIMAL = 5;
+    private static final byte TAG_BOOLEAN = 6;
+    
+    private final String processId;
+    private final Path tempDir;
+    private final long initialSlots;
+    private final Path dataFile;
+    private final FileChannel dataChannel;
+    private final byte[] writeBuffer = new byte[WRITE_BUFFER_SIZE];
+    private int buffered;
+    // 已写入数据文件的字节数，之后的数据还在写缓冲中
+    private long flushedBytes;
+    private ByteBuffer readBuffer = ByteBuffer.allocate(256);
+    
+    private SlotTable objectTable;
+    private SlotTable longTable;
+    private int tableGeneration;
+    private final Set<Object> otherKeys = new HashSet<>();
+    
+    /**
+     * @param baseDir 临时文件目录
+     * @param processId 处理ID(用于临时目录命名和日志)
+     * @param expectedKeys 预计键数量
+     */
+    public DiskKeyStore(Path baseDir, String processId, long expectedKeys) {
+        this.processId = processId;
+        this.initialSlots = tableSizeFor(Math.min(Math.max(expectedKeys, 1024) * 2, MAX_INITIAL_SLOTS));
+        try {
+            Files.createDirectories(baseDir);
+            this.tempDir = Files.createTempDirectory(baseDir, "excel-dedup-" + processId + "-");
+            this.dataFile = tempDir.resolve("keys.bin");
+            this.dataChannel = FileChannel.open(dataFile, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("创建去重键临时文件失败", e);
+        }
+    }
+    
+    @Override
+    public synchronized boolean addIfAbsent(Object key) {
+        byte[] bytes = encode(key);
+        if (bytes == null) {
+            return otherKeys.add(key);
+        }
+        SlotTable table = objectTable();
+        long hash = hash(bytes);
+        long slot = table.slotOf(hash);
+        long offset;
+        while ((offset = table.second(slot)) != 0) {
+            if (table.first(slot) == hash && sameKey(offset - 1, bytes)) {
+                return false;
+            }
+            slot = table.next(slot);
+        }
+        table.set(slot, hash, append(bytes) + 1);
+        grow(table, true);
+        return true;
+    }
+    
+    /**
+     * 键是否已存在，不写入
+     */
+    public synchronized boolean contains(Object key) {
+        byte[] bytes = encode(key);
+        if (bytes == null) {
+            return otherKeys.contains(key);
+        }
+        if (objectTable == null) {
+            return false;
+        }
+        long hash = hash(bytes);
+        long slot = objectTable.slotOf(hash);
+        long offset;
+        while ((offset = objectTable.second(slot)) != 0) {
+            if (objectTable.first(slot) == hash && sameKey(offset - 1, bytes)) {
+                return true;
+            }
+            slot = objectTable.next(slot);
+        }
+        return false;
+    }
+    
+    @Override
+    public synchronized void addNew(Object key) {
+        byte[] bytes = encode(key);
+        if (bytes == null) {
+            otherKeys.add(key);
+            return;
+        }
+        SlotTable table = objectTable();
+        long hash = hash(bytes);
+        long slot = table.slotOf(hash);
+        while (table.second(slot) != 0) {
+            slot = table.next(slot);
+        }
+        table.set(slot, hash, append(bytes) + 1);
+        grow(table, true);
+    }
+    
+    @Override
+    public synchronized boolean addIfAbsent(long key) {
+        SlotTable table = longTable();
+        long slot = table.slotOf(BloomFilter.hash64(key));
+        while (table.second(slot) != 0) {
+            if (table.first(slot) == key) {
+                return false;
+            }
+            slot = table.next(slot);
+        }
+        table.set(slot, key, 1);
+        grow(table, false);
+        return true;
+    }
+    
+    @Override
+    public synchronized void addNew(long key) {
+        SlotTable table = longTable();
+        long slot = table.slotOf(BloomFilter.hash64(key));
+        while (table.second(slot) != 0) {
+            slot = table.next(slot);
+        }
+        table.set(slot, key, 1);
+        grow(table, false);
+    }
+    
+    @Override
+    public synchronized long size() {
+        return (objectTable != null ? objectTable.size : 0) + (longTable != null ? longTable.size : 0) + otherKeys.size();
+    }
+    
+    /**
+     * 数据文件字节数(含写缓冲)
+     */
+    public synchronized long getDiskBytes() {
+        return flushedBytes + buffered;
+    }
+    
+    @Override
+    public synchronized void close() {
+        if (objectTable != null) {
+            objectTable.delete();
+            objectTable = null;
+        }
+        if (longTable != null) {
+            longTable.delete();
+            longTable = null;
+        }
+        otherKeys.clear();
+        try {
+            dataChannel.close();
+        } catch (IOException e) {
+            log.debug("[{}] 关闭去重键临时文件失败", processId, e);
+        }
+        deleteQuietly(dataFile);
+        deleteQuietly(tempDir);
+    }
+    
+    private SlotTable objectTable() {
+        if (objectTable == null) {
+            objectTable = new SlotTable(newTableFile(), initialSlots);
+        }
+        return objectTable;
+    }
+    
+    private SlotTable longTable() {
+        if (longTable == null) {
+            longTable = new SlotTable(newTableFile(), initialSlots);
+        }
+        return longTable;
+    }
+    
+    private Path newTableFile() {
+        return tempDir.resolve("slots-" + (tableGeneration++) + ".bin");
+    }
+    
+    /**
+     * 装载因子超过一半时按两倍容量重建表，对象表按保存的哈希重新定位，long表按键重新计算哈希
+     */
+    private void grow(SlotTable table, boolean objectKeys) {
+        if (table.size <= table.capacity >>> 1) {
+            return;
+        }
+        SlotTable resized = new SlotTable(newTableFile(), table.capacity << 1);
+        for (long slot = 0; slot < table.capacity; slot++) {
+            long second = table.second(slot);
+            if (second == 0) {
+                continue;
+            }
+            long first = table.first(slot);
+            long target = resized.slotOf(objectKeys ? first : BloomFilter.hash64(first));
+            while (resized.second(target) != 0) {
+                target = resized.next(target);
+            }
+            resized.set(target, first, second);
+        }
+        table.delete();
+        if (objectKeys) {
+            objectTable = resized;
+        } else {
+            longTable = resized;
+        }
+        log.debug("[{}] 去重键索引扩容至 {} 个槽位", processId, resized.capacity);
+    }
+    
+    /**
+     * 追加一个键(长度 + 字节)
+     *
+     * @return 键在数据文件中的偏移
+     */
+    private long append(byte[] bytes) {
+        long offset = flushedBytes + buffered;
+        int length = Integer.BYTES + bytes.length;
+        try {
+            if (buffered + length > writeBuffer.length) {
+                flush();
+            }
+            if (length > writeBuffer.length) {
+                // 超过写缓冲的键直接写入文件
+                ByteBuffer entry = ByteBuffer.allocate(length).putInt(bytes.length).put(bytes);
+                entry.flip();
+                writeFully(entry, flushedBytes);
+                flushedBytes += length;
+                return offset;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入去重键临时文件失败", e);
+        }
+        ByteBuffer.wrap(writeBuffer, buffered, Integer.BYTES).putInt(bytes.length);
+        System.arraycopy(bytes, 0, writeBuffer, buffered + Integer.BYTES, bytes.length);
+        buffered += length;
+        return offset;
+    }
+    
+    private void flush() throws IOException {
+        if (buffered == 0) {
+            return;
+        }
+        writeFully(ByteBuffer.wrap(writeBuffer, 0, buffered), flushedBytes);
+        flushedBytes += buffered;
+        buffered = 0;
+    }
+    
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += dataChannel.write(buffer, position);
+        }
+    }
+    
+    /**
+     * 数据文件中offset处的键是否与bytes相同，键要么完整在文件中，要么完整在写缓冲中
+     */
+    private boolean sameKey(long offset, byte[] bytes) {
+        if (offset >= flushedBytes) {
+            int start = (int) (offset - flushedBytes);
+            if (ByteBuffer.wrap(writeBuffer, start, Integer.BYTES).getInt() != bytes.length) {
+                return false;
+            }
+            start += Integer.BYTES;
+            for (int i = 0; i < bytes.length; i++) {
+                if (writeBuffer[start + i] != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        try {
+            int length = Integer.BYTES + bytes.length;
+            if (readBuffer.capacity() < length) {
+                readBuffer = ByteBuffer.allocate(Math.max(length, readBuffer.capacity() * 2));
+            }
+            readBuffer.clear().limit(length);
+            long position = offset;
+            while (readBuffer.hasRemaining()) {
+                int n = dataChannel.read(readBuffer, position);
+                if (n < 0) {
+                    break;
+                }
+                position += n;
+            }
+            readBuffer.flip();
+            if (readBuffer.remaining() < Integer.BYTES || readBuffer.getInt() != bytes.length
+                    || readBuffer.remaining() < bytes.length) {
+                return false;
+            }
+            for (byte b : bytes) {
+                if (readBuffer.get() != b) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取去重键临时文件失败", e);
+        }
+    }
+    
+    /**
+     * 按类型编码键，不支持的类型返回null
+     */
+    private static byte[] encode(Object key) {
+        if (key instanceof String) {
+            byte[] utf8 = ((String) key).getBytes(StandardCharsets.UTF_8);
+            byte[] bytes = new byte[utf8.length + 1];
+            bytes[0] = TAG_STRING;
+            System.arraycopy(utf8, 0, bytes, 1, utf8.length);
+            return bytes;
+        }
+        if (key instanceof Long) {
+            return ByteBuffer.allocate(9).put(TAG_LONG).putLong((Long) key).array();
+        }
+        if (key instanceof Integer) {
+            return ByteBuffer.allocate(5).put(TAG_INTEGER).putInt((Integer) key).array();
+        }
+        if (key instanceof Double) {
+            // 与Double.equals一致: 按doubleToLongBits比较
+            return ByteBuffer.allocate(9).put(TAG_DOUBLE).putLong(Double.doubleToLongBits((Double) key)).array();
+        }
+        if (key instanceof BigDecimal) {
+            // toString保留标度，与BigDecimal.equals一致
+            byte[] text = key.toString().getBytes(StandardCharsets.US_ASCII);
+            byte[] bytes = new byte[text.length + 1];
+            bytes[0] = TAG_DECIMAL;
+            System.arraycopy(text, 0, bytes, 1, text.length);
+            return bytes;
+        }
+        if (key instanceof Boolean) {
+            return new byte[]{TAG_BOOLEAN, (byte) ((Boolean) key ? 1 : 0)};
+        }
+        return null;
+    }
+    
+    private static long hash(byte[] bytes) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return BloomFilter.hash64(h);
+    }
+    
+    private static long tableSizeFor(long n) {
+        return Long.highestOneBit(Math.max(n - 1, 1)) << 1;
+    }
+    
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // 部分平台在映射区被回收前不允许删除
+            log.warn("[{}] 删除去重键临时文件失败: {}", processId, path, e);
+        }
+    }
+    
+    /**
+     * 内存映射的开放寻址表(线性探测)，槽位为两个long，第二个long为0表示空槽位
+     */
+    private final class SlotTable {
+        private final Path file;
+        private final MappedByteBuffer[] segments;
+        private final long capacity;
+        private final long mask;
+        private long size;
+        
+        SlotTable(Path file, long capacity) {
+            this.file = file;
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            long length = capacity * SLOT_BYTES;
+            int count = (int) ((length + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+            this.segments = new MappedByteBuffer[count];
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+                // 稀疏文件，读取未写入的区域得到0
+                raf.setLength(length);
+                FileChannel channel = raf.getChannel();
+                for (int i = 0; i < count; i++) {
+                    long position = (long) i << SEGMENT_BITS;
+                    segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, position,
+                            Math.min(SEGMENT_SIZE, length - position));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("创建去重键索引文件失败", e);
+            }
+        }
+        
+        long slotOf(long hash) {
+            return hash & mask;
+        }
+        
+        long next(long slot) {
+            return (slot + 1) & mask;
+        }
+        
+        long first(long slot) {
+            long position = slot * SLOT_BYTES;
+            return segments[(int) (position >>> SEGMENT_BITS)].getLong((int) (position & (SEGMENT_SIZE - 1)));
+        }
+        
+        long second(long slot) {
+            long position = slot * SLOT_BYTES + Long.BYTES;
+            return segments[(int) (position >>> SEGMENT_BITS)].getLong((int) (position & (SEGMENT_SIZE - 1)));
+        }
+        
+        void set(long slot, long first, long second) {
+            long position = slot * SLOT_BYTES;
+            MappedByteBuffer segment = segments[(int) (position >>> SEGMENT_BITS)];
+            int offset = (int) (position & (SEGMENT_SIZE - 1));
+            segment.putLong(offset, first);
+            segment.putLong(offset + Long.BYTES, second);
+            size++;
+        }
+        
+        void delete() {
+            deleteQuietly(file);
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,51 @@
+package com.study.tools.highExcelTools.processor;
+
+/**
+ * 跨批次去重的精确键存储
+ * <p>
+ * 布隆过滤器判定"一定未出现"的键通过{@link #addNew}直接追加，不做查找；
+ * 只有布隆过滤器判定"可能出现"的键才会调用{@link #addIfAbsent}做精确查找。
+ * 因此实现可以放在磁盘或堆外，查找代价较高也不会拖慢大多数行。
+ * </p>
+ * <p>
+ * 调用方保证同一个键不会被并发访问，不同键可能并发访问，实现需保证自身结构的线程安全
+ * </p>
+ */
+public interface ExactKeyStore extends AutoCloseable {
+    
+    /**
+     * 键不存在时写入
+     *
+     * @return 是否为新键
+     */
+    boolean addIfAbsent(Object key);
+    
+    /**
+     * 写入一个确定不存在的键
+     */
+    void addNew(Object key);
+    
+    /**
+     * long键不存在时写入
+     *
+     * @return 是否为新键
+     */
+    boolean addIfAbsent(long key);
+    
+    /**
+     * 写入一个确定不存在的long键
+     */
+    void addNew(long key);
+    
+    /**
+     * 已存储的键数量
+     */
+    long size();
+    
+    /**
+     * 释放资源
+     */
+    @Override
+    default void close() {
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,365 @@
+package com.study.tools.highExcelTools.processor;
+
+import com.study.tools.highExcelTools.util.RowCodec;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * 外部归并排序器
+ * <p>
+ * 数据按批次追加，内存缓冲达到预算时在内存中排序并溢写为临时目录中的一个有序段(run)；
+ * 全部追加完成后用最小堆对所有有序段做k路归并，按块回调输出，整个过程中内存只保留一个缓冲区和各有序段的读取缓冲。
+ * 数据量未超过预算时不落盘，直接内存排序输出。
+ * </p>
+ * <p>
+ * 有序段数量超过归并扇入上限时先分组归并为更大的有序段，避免同时打开过多文件。
+ * 比较相等的行按追加顺序输出(稳定排序)。
+ * </p>
+ *
+ * @param <T> 数据模型类型
+ */
+@Slf4j
+public class ExternalSorter<T> implements AutoCloseable {
+    // 单次归并同时打开的有序段上限
+    private static final int MAX_MERGE_FAN_IN = 128;
+    // 估算行大小的采样行数
+    private static final int SAMPLE_ROWS = 200;
+    // 堆内对象相对编码字节数的膨胀系数(对象头、引用、UTF-16字符串等)
+    private static final int HEAP_EXPANSION = 3;
+    // 每个有序段最少行数，避免估算偏大时产生过多小文件
+    private static final int MIN_RUN_ROWS = 1_000;
+    // 有序段文件读写缓冲
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+    
+    private final Comparator<T> comparator;
+    private final RowCodec<T> codec;
+    private final long memoryBudgetBytes;
+    private final Path baseDir;
+    private final String processId;
+    
+    private Path tempDir;
+    private List<T> buffer = new ArrayList<>();
+    private int runRowLimit = -1;
+    private final List<Run> runs = new ArrayList<>();
+    private int runSequence = 0;
+    
+    // 已追加的总行数
+    @Getter
+    private long totalRows = 0;
+    
+    /**
+     * @param comparator 排序比较器
+     * @param codec 有序段行编码器
+     * @param memoryBudgetBytes 内存预算(字节)，每个有序段在内存中排序时不超过该预算
+     * @param baseDir 临时目录(为空时使用系统临时目录)
+     * @param processId 处理ID(日志用)
+     */
+    public ExternalSorter(Comparator<T> comparator, RowCodec<T> codec, long memoryBudgetBytes,
+                          String baseDir, String processId) {
+        this.comparator = comparator;
+        this.codec = codec;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.baseDir = baseDir != null ? Paths.get(baseDir) : Paths.get(System.getProperty("java.io.tmpdir"));
+        this.processId = processId;
+    }
+    
+    /**
+     * 追加一批数据，缓冲区超过预算时溢写为有序段
+     * 可由多个读取线程并发调用
+     */
+    public synchronized void add(List<T> rows) throws IOException {
+        if (rows == null || rows.isEmpty()) return;
+        
+        if (runRowLimit < 0) {
+            runRowLimit = estimateRunRows(rows);
+            log.info("[{}] 外部排序内存预算: {}MB, 每个有序段最多 {} 行",
+                    processId, memoryBudgetBytes / (1024 * 1024), runRowLimit);
+        }
+        
+        for (T row : rows) {
+            buffer.add(row);
+            totalRows++;
+            if (buffer.size() >= runRowLimit) {
+                spill();
+            }
+        }
+    }
+    
+    /**
+     * 归并输出全部数据
+     *
+     * @param sink 输出回调，每次传入不超过chunkSize行的有序数据
+     * @param chunkSize 每次回调的行数
+     * @return 输出的总行数
+     */
+    public synchronized long mergeTo(Consumer<List<T>> sink, int chunkSize) throws IOException {
+        long start = System.currentTimeMillis();
+        
+        // 未溢写过，直接内存排序输出
+        if (runs.isEmpty()) {
+            buffer.sort(comparator);
+            List<T> sorted = buffer;
+            buffer = new ArrayList<>();
+            for (int i = 0; i < sorted.size(); i += chunkSize) {
+                sink.accept(new ArrayList<>(sorted.subList(i, Math.min(i + chunkSize, sorted.size()))));
+            }
+            log.info("[{}] 内存排序完成，行数: {}, 耗时: {}ms", processId, sorted.size(),
+                    System.currentTimeMillis() - start);
+            return sorted.size();
+        }
+        
+        // 剩余数据写为最后一个有序段
+        if (!buffer.isEmpty()) {
+            spill();
+        }
+        buffer = new ArrayList<>();
+        
+        // 有序段过多时分组预归并
+        List<Run> current = new ArrayList<>(runs);
+        while (current.size() > MAX_MERGE_FAN_IN) {
+            List<Run> next = new ArrayList<>();
+            for (int i = 0; i < current.size(); i += MAX_MERGE_FAN_IN) {
+                List<Run> group = current.subList(i, Math.min(i + MAX_MERGE_FAN_IN, current.size()));
+                next.add(group.size() == 1 ? group.get(0) : mergeToRun(group));
+            }
+            log.info("[{}] 有序段预归并: {} -> {}", processId, current.size(), next.size());
+            current = next;
+        }
+        
+        long[] written = new long[1];
+        List<T> chunk = new ArrayList<>(chunkSize);
+        merge(current, row -> {
+            chunk.add(row);
+            if (chunk.size() >= chunkSize) {
+                sink.accept(new ArrayList<>(chunk));
+                written[0] += chunk.size();
+                chunk.clear();
+            }
+        });
+        if (!chunk.isEmpty()) {
+            sink.accept(new ArrayList<>(chunk));
+            written[0] += chunk.size();
+        }
+        
+        log.info("[{}] 外部归并排序完成，有序段: {}, 行数: {}, 耗时: {}ms",
+                processId, runs.size(), written[0], System.currentTimeMillis() - start);
+        return written[0];
+    }
+    
+    /**
+     * 已生成的有序段数量
+     */
+    public synchronized int getRunCount() {
+        return runs.size();
+    }
+    
+    /**
+     * 删除所有临时文件
+     */
+    @Override
+    public synchronized void close() {
+        for (Run run : runs) {
+            deleteQuietly(run.file);
+        }
+        runs.clear();
+        buffer = new ArrayList<>();
+        if (tempDir != null) {
+            deleteQuietly(tempDir);
+            tempDir = null;
+        }
+    }
+    
+    /**
+     * 根据采样行的编码大小估算每个有序段的行数
+     */
+    private int estimateRunRows(List<T> rows) throws IOException {
+        int sampleSize = Math.min(rows.size(), SAMPLE_ROWS);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (int i = 0; i < sampleSize; i++) {
+            codec.write(rows.get(i), out);
+        }
+        out.flush();
+        
+        long bytesPerRow = Math.max(1, bytes.size() / sampleSize) * HEAP_EXPANSION + 16;
+        long limit = memoryBudgetBytes / bytesPerRow;
+        return (int) Math.max(MIN_RUN_ROWS, Math.min(limit, Integer.MAX_VALUE - 8));
+    }
+    
+    /**
+     * 排序缓冲区并写为一个有序段
+     */
+    private void spill() throws IOException {
+        long start = System.currentTimeMillis();
+        buffer.sort(comparator);
+        
+        Path file = newRunFile();
+        try (DataOutputStream out = openOutput(file)) {
+            for (T row : buffer) {
+                codec.write(row, out);
+            }
+        }
+        runs.add(new Run(file, buffer.size()));
+        
+        log.info("[{}] 写入有序段 #{}: {} 行, {}KB, 耗时: {}ms", processId, runs.size(), buffer.size(),
+                Files.size(file) / 1024, System.currentTimeMillis() - start);
+        // 重新分配缓冲区，让已写出的行尽快被回收
+        buffer = new ArrayList<>(Math.min(runRowLimit, 1 << 20));
+    }
+    
+    /**
+     * 把一组有序段归并为一个新的有序段
+     */
+    private Run mergeToRun(List<Run> group) throws IOException {
+        Path file = newRunFile();
+        long[] count = new long[1];
+        try (DataOutputStream out = openOutput(file)) {
+            merge(group, row -> {
+                try {
+                    codec.write(row, out);
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        
+        Run merged = new Run(file, count[0]);
+        runs.add(merged);
+        // 已归并的中间段不再需要
+        for (Run run : group) {
+            deleteQuietly(run.file);
+        }
+        return merged;
+    }
+    
+    /**
+     * 最小堆k路归并，值相等时按有序段下标输出以保持稳定
+     */
+    private void merge(List<Run> group, Consumer<T> output) throws IOException {
+        List<RunCursor> cursors = new ArrayList<>(group.size());
+        PriorityQueue<RunCursor> heap = new PriorityQueue<>(Math.max(1, group.size()), (a, b) -> {
+            int c = comparator.compare(a.head, b.head);
+            return c != 0 ? c : Integer.compare(a.order, b.order);
+        });
+        
+        try {
+            for (int i = 0; i < group.size(); i++) {
+                RunCursor cursor = new RunCursor(group.get(i), i);
+                cursors.add(cursor);
+                if (cursor.advance()) {
+                    heap.add(cursor);
+                }
+            }
+            
+            while (!heap.isEmpty()) {
+                RunCursor cursor = heap.poll();
+                output.accept(cursor.head);
+                if (cursor.advance()) {
+                    heap.add(cursor);
+                }
+            }
+        } finally {
+            for (RunCursor cursor : cursors) {
+                cursor.close();
+            }
+        }
+    }
+    
+    private Path newRunFile() throws IOException {
+        if (tempDir == null) {
+            Files.createDirectories(baseDir);
+            tempDir = Files.createTempDirectory(baseDir, "excel-sort-" + processId + "-");
+        }
+        return tempDir.resolve(String.format("run-%05d.bin", runSequence++));
+    }
+    
+    private DataOutputStream openOutput(Path file) throws IOException {
+        OutputStream out = Files.newOutputStream(file);
+        return new DataOutputStream(new BufferedOutputStream(out, IO_BUFFER_SIZE));
+    }
+    
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("[{}] 删除排序临时文件失败: {}", processId, path, e);
+        }
+    }
+    
+    /**
+     * 有序段文件及其行数
+     */
+    private static final class Run {
+        private final Path file;
+        private final long rows;
+        
+        Run(Path file, long rows) {
+            this.file = file;
+            this.rows = rows;
+        }
+    }
+    
+    /**
+     * 有序段读取游标
+     */
+    private final class RunCursor {
+        private final Run run;
+        private final int order;
+        private DataInputStream in;
+        private long remaining;
+        private T head;
+        
+        RunCursor(Run run, int order) throws IOException {
+            this.run = run;
+            this.order = order;
+            this.remaining = run.rows;
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run.file), IO_BUFFER_SIZE));
+        }
+        
+        /**
+         * 读取下一行到head
+         * @return 是否还有数据
+         */
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                head = null;
+                close();
+                return false;
+            }
+            head = codec.read(in);
+            remaining--;
+            return true;
+        }
+        
+        void close() {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    log.warn("[{}] 关闭有序段失败: {}", processId, run.file, e);
+                }
+                in = null;
+            }
+        }
+    }
+} 
\ No newline at end of file
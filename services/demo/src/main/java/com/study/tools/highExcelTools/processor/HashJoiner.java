@@ -0,0 +1,466 @@
+package com.study.tools.highExcelTools.processor;
+
+import com.study.tools.highExcelTools.config.ExcelConfig;
+import com.study.tools.highExcelTools.config.JoinSpec;
+import com.study.tools.highExcelTools.core.ExcelReader;
+import com.study.tools.highExcelTools.util.CancellationToken;
+import com.study.tools.highExcelTools.util.FieldRowCodec;
+import com.study.tools.highExcelTools.util.RowCodec;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 哈希连接处理器
+ * <p>
+ * 构建阶段用{@link ExcelReader}并行读取参考工作簿，按连接键建立内存哈希表(重复键保留第一个遇到的行)；
+ * 探测阶段各读取线程按批次并发查找补全，哈希表构建完成后只读，不需要加锁。
+ * 哈希表为键、行两个数组的开放寻址表，每个条目只占两个数组槽位，没有HashMap的Node对象开销。
+ * </p>
+ * <p>
+ * 参考数据行数超过{@link JoinSpec#getMaxBuildRows()}时切换为分区哈希连接：已建好的哈希表和后续参考数据按键哈希写入构建侧分区文件，
+ * 主数据在探测时同样写入探测侧分区文件，读取结束后逐个分区加载构建侧并流式探测，每次只有一个分区在内存中。
+ * 分区模式下输出按分区排列，不保持原始顺序。
+ * </p>
+ *
+ * @param <T> 主数据模型类型
+ * @param <R> 参考数据模型类型
+ */
+@Slf4j
+public class HashJoiner<T, R> implements AutoCloseable {
+    // 溢写文件缓冲
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+    
+    private final JoinSpec<T, R> spec;
+    private final ExcelConfig<T> config;
+    private final ExecutorService executor;
+    private final String processId;
+    // 取消令牌，构建阶段读取参考数据时检查
+    private final CancellationToken cancellationToken;
+    
+    // 内存哈希表(构建完成后只读)
+    private BuildTable<R> table = new BuildTable<>();
+    
+    // 分区模式状态
+    private volatile boolean graceMode = false;
+    private Path spillDir;
+    private DataOutputStream[] buildOutputs;
+    private DataOutputStream[] probeOutputs;
+    private long[] buildCounts;
+    private long[] probeCounts;
+    private RowCodec<T> probeCodec;
+    private RowCodec<R> buildCodec;
+    
+    // 统计
+    private final AtomicLong buildRows = new AtomicLong(0);
+    private final AtomicLong duplicateBuildKeys = new AtomicLong(0);
+    private final AtomicLong probedRows = new AtomicLong(0);
+    private final AtomicLong matchedRows = new AtomicLong(0);
+    
+    public HashJoiner(JoinSpec<T, R> spec, ExcelConfig<T> config, ExecutorService executor, String processId) {
+        this(spec, config, executor, processId, new CancellationToken());
+    }
+    
+    public HashJoiner(JoinSpec<T, R> spec, ExcelConfig<T> config, ExecutorService executor, String processId,
+                      CancellationToken cancellationToken) {
+        this.spec = spec;
+        this.config = config;
+        this.executor = executor;
+        this.processId = processId;
+        this.cancellationToken = cancellationToken;
+    }
+    
+    /**
+     * 读取参考数据并建立哈希表
+     */
+    public void build() throws Exception {
+        long start = System.currentTimeMillis();
+        
+        // 参考数据沿用主配置的读取和异常处理参数
+        ExcelConfig<R> referenceConfig = ExcelConfig.<R>builder()
+                .sourceFiles(spec.getReferenceFiles())
+                .modelClass(spec.getReferenceClass())
+                .batchSize(config.getBatchSize())
+                .maxConcurrentFiles(config.getMaxConcurrentFiles())
+                .continueOnError(config.isContinueOnError())
+                .maxErrorCount(config.getMaxErrorCount())
+                .collectErrors(config.isCollectErrors())
+                .logErrors(config.isLogErrors())
+                .skipInvalidData(config.isSkipInvalidData())
+                .readTimeoutMinutes(config.getReadTimeoutMinutes())
+                .build();
+        ExcelReader<R> reader = new ExcelReader<>(referenceConfig, executor, processId, cancellationToken);
+        
+        reader.readFilesWithCallback(spec.getReferenceFiles(), spec.getReferenceClass(), batch -> {
+            try {
+                addBuildRows(batch);
+            } catch (IOException e) {
+                throw new RuntimeException("写入连接分区文件失败", e);
+            }
+        });
+        
+        log.info("[{}] 连接构建完成，参考数据行数: {}, 重复键: {}, 模式: {}, 耗时: {}ms",
+                processId, buildRows.get(), duplicateBuildKeys.get(),
+                graceMode ? "分区哈希连接" : "内存哈希连接", System.currentTimeMillis() - start);
+    }
+    
+    /**
+     * 探测一个批次
+     * 内存模式下直接返回补全后的行；分区模式下行被写入探测侧分区文件，返回空列表，结果在{@link #finish}中输出
+     */
+    public List<T> probe(List<T> rows) throws IOException {
+        if (rows == null || rows.isEmpty()) {
+            return new ArrayList<>();
+        }
+        probedRows.addAndGet(rows.size());
+        
+        if (graceMode) {
+            synchronized (this) {
+                for (T row : rows) {
+                    Object key = spec.getProbeKey().apply(row);
+                    if (key == null) {
+                        // 空键不会匹配，不必落盘
+                        if (spec.getJoinType() == JoinSpec.JoinType.LEFT) {
+                            writeProbeRow(spec.getGracePartitions(), row);
+                        }
+                        continue;
+                    }
+                    writeProbeRow(partitionOf(key), row);
+                }
+            }
+            return new ArrayList<>();
+        }
+        
+        return joinBatch(rows, table);
+    }
+    
+    /**
+     * 输出分区模式下的连接结果，内存模式下无输出
+     *
+     * @param sink 输出回调
+     * @param chunkSize 每次回调的行数
+     * @return 输出行数
+     */
+    public synchronized long finish(Consumer<List<T>> sink, int chunkSize) throws IOException {
+        if (!graceMode) {
+            logStatistics();
+            return 0;
+        }
+        
+        long start = System.currentTimeMillis();
+        closeOutputs(buildOutputs);
+        closeOutputs(probeOutputs);
+        buildOutputs = null;
+        probeOutputs = null;
+        
+        long written = 0;
+        // 最后一个分区存放空键的行(仅左连接)
+        for (int p = 0; p <= spec.getGracePartitions(); p++) {
+            BuildTable<R> partitionTable = p < spec.getGracePartitions() ? loadBuildPartition(p) : new BuildTable<>();
+            if (partitionTable.size() > spec.getMaxBuildRows()) {
+                log.warn("[{}] 连接分区 {} 的参考数据行数 {} 超过内存上限 {}，可增大分区数",
+                        processId, p, partitionTable.size(), spec.getMaxBuildRows());
+            }
+            
+            List<T> chunk = new ArrayList<>(chunkSize);
+            try (DataInputStream in = openInput(probeFile(p))) {
+                for (long i = 0; i < probeCounts[p]; i++) {
+                    chunk.add(probeCodec.read(in));
+                    if (chunk.size() >= chunkSize) {
+                        written += emit(joinBatch(chunk, partitionTable), sink);
+                        chunk = new ArrayList<>(chunkSize);
+                    }
+                }
+            }
+            written += emit(joinBatch(chunk, partitionTable), sink);
+            
+            deleteQuietly(buildFile(p));
+            deleteQuietly(probeFile(p));
+        }
+        
+        log.info("[{}] 分区哈希连接完成，分区数: {}, 输出行数: {}, 耗时: {}ms",
+                processId, spec.getGracePartitions(), written, System.currentTimeMillis() - start);
+        logStatistics();
+        return written;
+    }
+    
+    public boolean isGraceMode() {
+        return graceMode;
+    }
+    
+    public long getMatchedRows() {
+        return matchedRows.get();
+    }
+    
+    /**
+     * 删除分区临时文件
+     */
+    @Override
+    public synchronized void close() {
+        closeOutputs(buildOutputs);
+        closeOutputs(probeOutputs);
+        buildOutputs = null;
+        probeOutputs = null;
+        if (spillDir != null) {
+            for (int p = 0; p <= spec.getGracePartitions(); p++) {
+                deleteQuietly(buildFile(p));
+                deleteQuietly(probeFile(p));
+            }
+            deleteQuietly(spillDir);
+            spillDir = null;
+        }
+        table = new BuildTable<>();
+    }
+    
+    private synchronized void addBuildRows(List<R> batch) throws IOException {
+        for (R row : batch) {
+            Object key = spec.getBuildKey().apply(row);
+            if (key == null) continue;
+            buildRows.incrementAndGet();
+            
+            if (graceMode) {
+                writeBuildRow(partitionOf(key), row);
+                continue;
+            }
+            
+            if (table.putIfAbsent(key, row) != null) {
+                duplicateBuildKeys.incrementAndGet();
+            }
+            if (table.size() > spec.getMaxBuildRows()) {
+                switchToGraceMode();
+            }
+        }
+    }
+    
+    /**
+     * 切换为分区哈希连接，把已建好的哈希表写入构建侧分区
+     */
+    private void switchToGraceMode() throws IOException {
+        log.warn("[{}] 参考数据超过内存上限 {} 行，切换为分区哈希连接，分区数: {}",
+                processId, spec.getMaxBuildRows(), spec.getGracePartitions());
+        
+        probeCodec = spec.getProbeRowCodec() != null ?
+                spec.getProbeRowCodec() : new FieldRowCodec<>(config.getModelClass());
+        buildCodec = spec.getBuildRowCodec() != null ?
+                spec.getBuildRowCodec() : new FieldRowCodec<>(spec.getReferenceClass());
+        
+        Path baseDir = spec.getSpillDir() != null ?
+                Paths.get(spec.getSpillDir()) : Paths.get(System.getProperty("java.io.tmpdir"));
+        Files.createDirectories(baseDir);
+        spillDir = Files.createTempDirectory(baseDir, "excel-join-" + processId + "-");
+        
+        // 多出的一个探测侧分区存放空键的行
+        int partitions = spec.getGracePartitions();
+        buildOutputs = new DataOutputStream[partitions];
+        probeOutputs = new DataOutputStream[partitions + 1];
+        buildCounts = new long[partitions];
+        probeCounts = new long[partitions + 1];
+        for (int p = 0; p <= partitions; p++) {
+            if (p < partitions) {
+                buildOutputs[p] = openOutput(buildFile(p));
+            }
+            probeOutputs[p] = openOutput(probeFile(p));
+        }
+        
+        table.forEach((key, row) -> writeBuildRow(partitionOf(key), row));
+        table = new BuildTable<>();
+        graceMode = true;
+    }
+    
+    private List<T> joinBatch(List<T> rows, BuildTable<R> lookup) {
+        List<T> result = new ArrayList<>(rows.size());
+        long matched = 0;
+        for (T row : rows) {
+            Object key = spec.getProbeKey().apply(row);
+            R reference = key != null ? lookup.get(key) : null;
+            if (reference != null) {
+                result.add(spec.getEnricher().apply(row, reference));
+                matched++;
+            } else if (spec.getJoinType() == JoinSpec.JoinType.LEFT) {
+                result.add(row);
+            }
+        }
+        matchedRows.addAndGet(matched);
+        return result;
+    }
+    
+    private BuildTable<R> loadBuildPartition(int partition) throws IOException {
+        BuildTable<R> partitionTable = new BuildTable<>();
+        try (DataInputStream in = openInput(buildFile(partition))) {
+            for (long i = 0; i < buildCounts[partition]; i++) {
+                R row = buildCodec.read(in);
+                partitionTable.putIfAbsent(spec.getBuildKey().apply(row), row);
+            }
+        }
+        return partitionTable;
+    }
+    
+    private long emit(List<T> rows, Consumer<List<T>> sink) {
+        if (rows.isEmpty()) return 0;
+        sink.accept(rows);
+        return rows.size();
+    }
+    
+    private void writeBuildRow(int partition, R row) throws IOException {
+        buildCodec.write(row, buildOutputs[partition]);
+        buildCounts[partition]++;
+    }
+    
+    private void writeProbeRow(int partition, T row) throws IOException {
+        probeCodec.write(row, probeOutputs[partition]);
+        probeCounts[partition]++;
+    }
+    
+    private int partitionOf(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return (h & 0x7fffffff) % spec.getGracePartitions();
+    }
+    
+    private Path buildFile(int partition) {
+        return spillDir.resolve(String.format("build-%03d.bin", partition));
+    }
+    
+    private Path probeFile(int partition) {
+        return spillDir.resolve(String.format("probe-%03d.bin", partition));
+    }
+    
+    private DataOutputStream openOutput(Path file) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), IO_BUFFER_SIZE));
+    }
+    
+    private DataInputStream openInput(Path file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(Files.newInputStream(file), IO_BUFFER_SIZE));
+    }
+    
+    private void closeOutputs(DataOutputStream[] outputs) {
+        if (outputs == null) return;
+        for (DataOutputStream out : outputs) {
+            if (out == null) continue;
+            try {
+                out.close();
+            } catch (IOException e) {
+                log.warn("[{}] 关闭连接分区文件失败", processId, e);
+            }
+        }
+    }
+    
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("[{}] 删除连接临时文件失败: {}", processId, path, e);
+        }
+    }
+    
+    private void logStatistics() {
+        log.info("[{}] 连接统计: 参考数据 {} 行, 探测 {} 行, 匹配 {} 行, 连接类型: {}",
+                processId, buildRows.get(), probedRows.get(), matchedRows.get(), spec.getJoinType());
+    }
+    
+    /**
+     * 构建侧哈希表: 线性探测的开放寻址表，只支持插入和查找
+     * 键和行分别存放在两个数组中，负载因子不超过0.5，写入只在构建阶段加锁进行，构建完成后并发只读
+     */
+    private static final class BuildTable<R> {
+        private static final int INITIAL_CAPACITY = 1024;
+        
+        private Object[] keys = new Object[INITIAL_CAPACITY];
+        private Object[] rows = new Object[INITIAL_CAPACITY];
+        private int size = 0;
+        
+        /**
+         * 键不存在时插入
+         * @return 已存在的行，插入成功返回null
+         */
+        R putIfAbsent(Object key, R row) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                Object existing = keys[i];
+                if (existing == null) {
+                    keys[i] = key;
+                    rows[i] = row;
+                    size++;
+                    return null;
+                }
+                if (existing.equals(key)) {
+                    return row(i);
+                }
+            }
+        }
+        
+        R get(Object key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                Object existing = keys[i];
+                if (existing == null) {
+                    return null;
+                }
+                if (existing.equals(key)) {
+                    return row(i);
+                }
+            }
+        }
+        
+        int size() {
+            return size;
+        }
+        
+        void forEach(EntryConsumer<R> consumer) throws IOException {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    consumer.accept(keys[i], row(i));
+                }
+            }
+        }
+        
+        @SuppressWarnings("unchecked")
+        private R row(int index) {
+            return (R) rows[index];
+        }
+        
+        private void resize() {
+            Object[] oldKeys = keys;
+            Object[] oldRows = rows;
+            keys = new Object[oldKeys.length * 2];
+            rows = new Object[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] == null) continue;
+                int i = slot(oldKeys[j], mask);
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                rows[i] = oldRows[j];
+            }
+        }
+        
+        /**
+         * 打散hashCode，避免连续整数键在线性探测中聚集
+         */
+        private static int slot(Object key, int mask) {
+            int h = key.hashCode() * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+    
+    private interface EntryConsumer<R> {
+        void accept(Object key, R row) throws IOException;
+    }
+} 
\ No newline at end of file
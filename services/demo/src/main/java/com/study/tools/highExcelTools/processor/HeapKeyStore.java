@@ -0,0 +1,55 @@
+package com.study.tools.highExcelTools.processor;
+
+import com.study.tools.highExcelTools.util.LongHashMap;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于堆内存的精确键存储
+ * 所有键都保存在堆内，只适合键数量较少、希望避免磁盘IO的场景，大数据量使用默认的{@link DiskKeyStore}
+ * 对象键使用并发Set，long键使用{@link LongHashMap}避免装箱
+ */
+public class HeapKeyStore implements ExactKeyStore {
+    private final Set<Object> objectKeys;
+    private final LongHashMap<Boolean> longKeys;
+    
+    /**
+     * @param expectedSize 预计键数量
+     */
+    public HeapKeyStore(int expectedSize) {
+        this.objectKeys = ConcurrentHashMap.newKeySet(Math.max(16, expectedSize));
+        this.longKeys = new LongHashMap<>(expectedSize);
+    }
+    
+    @Override
+    public boolean addIfAbsent(Object key) {
+        return objectKeys.add(key);
+    }
+    
+    @Override
+    public void addNew(Object key) {
+        objectKeys.add(key);
+    }
+    
+    @Override
+    public boolean addIfAbsent(long key) {
+        synchronized (longKeys) {
+            return longKeys.putIfAbsent(key, Boolean.TRUE) == null;
+        }
+    }
+    
+    @Override
+    public void addNew(long key) {
+        synchronized (longKeys) {
+            longKeys.put(key, Boolean.TRUE);
+        }
+    }
+    
+    @Override
+    public long size() {
+        synchronized (longKeys) {
+            return objectKeys.size() + longKeys.size();
+        }
+    }
+} 
\ No newline at end of file
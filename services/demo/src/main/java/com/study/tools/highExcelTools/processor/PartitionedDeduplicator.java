@@ -0,0 +1,552 @@
+package com.study.tools.highExcelTools.processor;
+
+import com.study.tools.highExcelTools.util.LongHashMap;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+
+/**
+ * 哈希分区并行去重引擎
+ * <p>
+ * 替代在共享ConcurrentHashMap上并发compute的做法，分两个阶段完成去重：
+ * 1. 扫描阶段：将数据按工作线程切片，每个线程独立提取键并计算哈希，按哈希高位把行号分散到P个分区桶中
+ * 2. 归并阶段：每个分区由一个线程独占一张开放寻址哈希表，按切片顺序依次插入，线程间没有任何共享写
+ * </p>
+ * <p>
+ * 同一分区内按原始数据顺序插入，因此"保留第一个遇到的值"以及mergeFunction的调用顺序与顺序去重完全一致
+ * </p>
+ * <p>
+ * 输出顺序与输入顺序一致：分区表只记录每个键首次出现的行号(序号)，保留的值写入按行号索引的数组，
+ * 最后按行号顺序扫描一遍输出，不需要排序，结果在多次运行之间是确定的
+ * </p>
+ * <p>
+ * 提供long键时走原始类型快速路径：键保存在long[]中，分区表同样以long[]存放键(哈希算法与{@link LongHashMap}一致)，不产生装箱对象
+ * </p>
+ * <p>
+ * 提供{@link BloomDedupIndex}时，批次内去重后的每个键再经过跨批次索引，在之前批次出现过的键被丢弃(保留第一个遇到的值)
+ * </p>
+ *
+ * @param <T> 数据模型类型
+ */
+@Slf4j
+public class PartitionedDeduplicator<T> {
+    // 低于该数据量时直接单线程去重，避免并行调度开销
+    private static final int PARALLEL_THRESHOLD = 10_000;
+    // 开放寻址表的最大装载因子
+    private static final float LOAD_FACTOR = 0.6f;
+    // 黄金分割乘数，用于打散哈希值
+    private static final int HASH_MIX = 0x9E3779B9;
+    
+    private final Function<T, Object> keyExtractor;
+    private final ToLongFunction<T> longKeyExtractor;
+    private final BiFunction<T, T, T> mergeFunction;
+    private final ErrorHandler<T> errorHandler;
+    private final int parallelism;
+    private final BloomDedupIndex seenIndex;
+    
+    /**
+     * 去重过程中的异常处理回调
+     * 由调用方决定记录、忽略还是抛出异常中止处理
+     */
+    public interface ErrorHandler<T> {
+        /**
+         * 键提取异常
+         */
+        void onKeyExtractionError(T item, Exception e);
+        
+        /**
+         * 合并函数异常，发生后保留已有值
+         */
+        void onMergeError(T existingItem, T item, Exception e);
+    }
+    
+    /**
+     * @param keyExtractor 主键提取器
+     * @param mergeFunction 数据合并函数(可为空，为空时保留第一个遇到的值；返回null按合并异常处理)
+     * @param errorHandler 异常处理回调
+     * @param parallelism 并行度(小于等于0时使用可用处理器数量)
+     */
+    public PartitionedDeduplicator(Function<T, Object> keyExtractor,
+                                   BiFunction<T, T, T> mergeFunction,
+                                   ErrorHandler<T> errorHandler,
+                                   int parallelism) {
+        this(keyExtractor, null, mergeFunction, errorHandler, parallelism);
+    }
+    
+    /**
+     * @param keyExtractor 主键提取器
+     * @param longKeyExtractor long主键提取器(不为空时优先使用原始类型快速路径)
+     * @param mergeFunction 数据合并函数(可为空，为空时保留第一个遇到的值；返回null按合并异常处理)
+     * @param errorHandler 异常处理回调
+     * @param parallelism 并行度(小于等于0时使用可用处理器数量)
+     */
+    public PartitionedDeduplicator(Function<T, Object> keyExtractor,
+                                   ToLongFunction<T> longKeyExtractor,
+                                   BiFunction<T, T, T> mergeFunction,
+                                   ErrorHandler<T> errorHandler,
+                                   int parallelism) {
+        this(keyExtractor, longKeyExtractor, mergeFunction, errorHandler, parallelism, null);
+    }
+    
+    /**
+     * @param keyExtractor 主键提取器
+     * @param longKeyExtractor long主键提取器(不为空时优先使用原始类型快速路径)
+     * @param mergeFunction 数据合并函数(可为空，为空时保留第一个遇到的值；返回null按合并异常处理)
+     * @param errorHandler 异常处理回调
+     * @param parallelism 并行度(小于等于0时使用可用处理器数量)
+     * @param seenIndex 跨批次去重索引(可为空)
+     */
+    public PartitionedDeduplicator(Function<T, Object> keyExtractor,
+                                   ToLongFunction<T> longKeyExtractor,
+                                   BiFunction<T, T, T> mergeFunction,
+                                   ErrorHandler<T> errorHandler,
+                                   int parallelism,
+                                   BloomDedupIndex seenIndex) {
+        this.keyExtractor = keyExtractor;
+        this.longKeyExtractor = longKeyExtractor;
+        this.mergeFunction = mergeFunction;
+        this.errorHandler = errorHandler;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.seenIndex = seenIndex;
+    }
+    
+    /**
+     * 是否使用long键快速路径
+     */
+    public boolean isPrimitiveKey() {
+        return longKeyExtractor != null;
+    }
+    
+    /**
+     * 对数据去重，结果保持每个键首次出现的位置顺序
+     *
+     * @param data 原始数据
+     * @return 去重后的数据
+     */
+    public List<T> deduplicate(List<T> data) {
+        if (data == null || data.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        // 保证按下标访问是O(1)的
+        List<T> rows = data instanceof RandomAccess ? data : new ArrayList<>(data);
+        int size = rows.size();
+        KeyColumn keys = new KeyColumn(size);
+        // 按行号存放保留的值，只有每个键首次出现的行号上有值
+        Object[] winners = new Object[size];
+        
+        if (size < PARALLEL_THRESHOLD || parallelism == 1) {
+            PartitionTable table = newTable(rows, keys, winners, size);
+            for (int i = 0; i < size; i++) {
+                if (keys.extract(rows.get(i), i)) {
+                    table.insert(i);
+                }
+            }
+            table.retainFirstSeen(seenIndex);
+            return collectInRowOrder(winners, table.size());
+        }
+        
+        // 分区数取不小于并行度的2的幂，便于用哈希高位定位分区
+        int partitionBits = 32 - Integer.numberOfLeadingZeros(Math.max(parallelism, 2) - 1);
+        int partitions = 1 << partitionBits;
+        int partitionShift = 32 - partitionBits;
+        int workers = parallelism;
+        int chunkSize = (size + workers - 1) / workers;
+        
+        // buckets[worker][partition] 存放该切片落入该分区的行号
+        int[][][] buckets = new int[workers][][];
+        int[][] bucketSizes = new int[workers][];
+        
+        // 阶段1：并行提取键并按分区分散行号
+        IntStream.range(0, workers).parallel().forEach(w -> {
+            int from = w * chunkSize;
+            int to = Math.min(from + chunkSize, size);
+            int[][] localBuckets = new int[partitions][];
+            int[] localSizes = new int[partitions];
+            int initialCapacity = Math.max(16, (to - from) / partitions + 16);
+            for (int p = 0; p < partitions; p++) {
+                localBuckets[p] = new int[initialCapacity];
+            }
+            
+            for (int i = from; i < to; i++) {
+                if (!keys.extract(rows.get(i), i)) continue;
+                
+                int p = keys.hashes[i] >>> partitionShift;
+                int[] bucket = localBuckets[p];
+                if (localSizes[p] == bucket.length) {
+                    bucket = Arrays.copyOf(bucket, bucket.length << 1);
+                    localBuckets[p] = bucket;
+                }
+                bucket[localSizes[p]++] = i;
+            }
+            
+            buckets[w] = localBuckets;
+            bucketSizes[w] = localSizes;
+        });
+        
+        // 阶段2：每个分区独占一张哈希表，按切片顺序插入以保持遇到顺序
+        // 不同分区的键不相交，因此写入winners的行号也互不重叠
+        int total = IntStream.range(0, partitions).parallel().map(p -> {
+            int expected = 0;
+            for (int w = 0; w < workers; w++) {
+                expected += bucketSizes[w][p];
+            }
+            
+            PartitionTable table = newTable(rows, keys, winners, expected);
+            for (int w = 0; w < workers; w++) {
+                int[] bucket = buckets[w][p];
+                int bucketSize = bucketSizes[w][p];
+                for (int j = 0; j < bucketSize; j++) {
+                    table.insert(bucket[j]);
+                }
+                // 尽早释放已处理的桶
+                buckets[w][p] = null;
+            }
+            
+            table.retainFirstSeen(seenIndex);
+            return table.size();
+        }).sum();
+        
+        // 阶段3：按行号顺序输出
+        List<T> result = collectInRowOrder(winners, total);
+        
+        log.debug("分区并行去重完成，分区数: {}, 键类型: {}, 数据量: {} -> {}",
+                partitions, isPrimitiveKey() ? "long" : "Object", size, result.size());
+        return result;
+    }
+    
+    /**
+     * 按行号顺序收集保留的值
+     */
+    @SuppressWarnings("unchecked")
+    private List<T> collectInRowOrder(Object[] winners, int expectedSize) {
+        List<T> result = new ArrayList<>(expectedSize);
+        for (Object winner : winners) {
+            if (winner != null) {
+                result.add((T) winner);
+            }
+        }
+        return result;
+    }
+    
+    private PartitionTable newTable(List<T> rows, KeyColumn keys, Object[] winners, int expectedSize) {
+        return isPrimitiveKey()
+                ? new LongKeyTable(rows, keys, winners, expectedSize)
+                : new ObjectKeyTable(rows, keys, winners, expectedSize);
+    }
+    
+    /**
+     * 对象键的哈希值打散，使高位(分区)和低位(槽位)都分布均匀
+     */
+    private static int mix(int h) {
+        h ^= (h >>> 16);
+        return h * HASH_MIX;
+    }
+    
+    /**
+     * 合并重复项，合并失败或合并函数返回null时按合并异常处理并保留原值
+     */
+    private T merge(T existingItem, T item) {
+        if (mergeFunction == null) {
+            // 如果没有合并函数，保留第一个遇到的值
+            return existingItem;
+        }
+        T merged;
+        try {
+            // 应用自定义合并逻辑
+            merged = mergeFunction.apply(existingItem, item);
+        } catch (Exception e) {
+            errorHandler.onMergeError(existingItem, item, e);
+            return existingItem;
+        }
+        if (merged == null) {
+            // 结果数组中null表示该行没有保留值，直接写入会静默丢失该键
+            errorHandler.onMergeError(existingItem, item, new IllegalStateException("合并函数返回了null"));
+            return existingItem;
+        }
+        return merged;
+    }
+    
+    /**
+     * 按行号存放的键列
+     * 每行的键和哈希只计算一次，扫描阶段写入、归并阶段读取，不同线程写入互不重叠的下标区间
+     */
+    private final class KeyColumn {
+        private final Object[] objectKeys;
+        private final long[] longKeys;
+        private final int[] hashes;
+        
+        KeyColumn(int size) {
+            this.objectKeys = isPrimitiveKey() ? null : new Object[size];
+            this.longKeys = isPrimitiveKey() ? new long[size] : null;
+            this.hashes = new int[size];
+        }
+        
+        /**
+         * 提取第row行的键
+         *
+         * @return 是否参与去重(键为空或提取失败时返回false)
+         */
+        boolean extract(T item, int row) {
+            try {
+                if (longKeys != null) {
+                    long key = longKeyExtractor.applyAsLong(item);
+                    longKeys[row] = key;
+                    hashes[row] = LongHashMap.hash(key);
+                } else {
+                    Object key = keyExtractor.apply(item);
+                    if (key == null) return false;
+                    objectKeys[row] = key;
+                    hashes[row] = mix(key.hashCode());
+                }
+                return true;
+            } catch (Exception e) {
+                errorHandler.onKeyExtractionError(item, e);
+                return false;
+            }
+        }
+    }
+    
+    /**
+     * 单个分区的私有哈希表(线性探测)
+     * 只记录键和该键首次出现的行号，保留的值写入共享的winners数组中该行号的位置
+     */
+    private abstract class PartitionTable {
+        protected final List<T> rows;
+        protected final Object[] winners;
+        // 槽位中存放 首次出现的行号 + 1，0表示空槽位
+        protected int[] firstRows;
+        protected int mask;
+        protected int size;
+        protected int threshold;
+        
+        PartitionTable(List<T> rows, Object[] winners, int expectedSize) {
+            this.rows = rows;
+            this.winners = winners;
+        }
+        
+        /**
+         * 插入第row行，键已存在时与首次出现的值合并
+         */
+        void insert(int row) {
+            int slot = hashOf(row) & mask;
+            int firstRow;
+            while ((firstRow = firstRows[slot] - 1) >= 0) {
+                if (sameKey(slot, row)) {
+                    if (mergeFunction != null) {
+                        @SuppressWarnings("unchecked")
+                        T existingItem = (T) winners[firstRow];
+                        winners[firstRow] = merge(existingItem, rows.get(row));
+                    }
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            
+            store(slot, row);
+            firstRows[slot] = row + 1;
+            winners[row] = rows.get(row);
+            if (++size > threshold) {
+                resize();
+            }
+        }
+        
+        /**
+         * 剔除在之前批次出现过的键
+         *
+         * @param seenIndex 跨批次去重索引(可为空)
+         */
+        void retainFirstSeen(BloomDedupIndex seenIndex) {
+            if (seenIndex == null) return;
+            for (int slot = 0; slot < firstRows.length; slot++) {
+                int firstRow = firstRows[slot] - 1;
+                if (firstRow >= 0 && !firstSeen(seenIndex, slot)) {
+                    winners[firstRow] = null;
+                    size--;
+                }
+            }
+        }
+        
+        int size() {
+            return size;
+        }
+        
+        protected int capacityFor(int expectedSize) {
+            return tableSizeFor((int) Math.ceil(Math.max(expectedSize, 4) / LOAD_FACTOR));
+        }
+        
+        /**
+         * 第row行键的哈希值
+         */
+        protected abstract int hashOf(int row);
+        
+        /**
+         * 槽位中的键是否与第row行的键相同
+         */
+        protected abstract boolean sameKey(int slot, int row);
+        
+        /**
+         * 把第row行的键写入槽位
+         */
+        protected abstract void store(int slot, int row);
+        
+        /**
+         * 槽位中的键是否首次出现
+         */
+        protected abstract boolean firstSeen(BloomDedupIndex seenIndex, int slot);
+        
+        /**
+         * 按新容量分配键数组
+         */
+        protected abstract void allocateKeys(int capacity);
+        
+        /**
+         * 扩容时迁移槽位中的键
+         */
+        protected abstract void moveKey(int fromSlot, int toSlot, Object oldKeys);
+        
+        /**
+         * 当前键数组
+         */
+        protected abstract Object keyArray();
+        
+        protected void allocate(int capacity) {
+            allocateKeys(capacity);
+            firstRows = new int[capacity];
+            mask = capacity - 1;
+            threshold = (int) (capacity * LOAD_FACTOR);
+        }
+        
+        private void resize() {
+            Object oldKeys = keyArray();
+            int[] oldFirstRows = firstRows;
+            allocate(oldFirstRows.length << 1);
+            
+            for (int i = 0; i < oldFirstRows.length; i++) {
+                if (oldFirstRows[i] == 0) continue;
+                int slot = hashOf(oldFirstRows[i] - 1) & mask;
+                while (firstRows[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                moveKey(i, slot, oldKeys);
+                firstRows[slot] = oldFirstRows[i];
+            }
+        }
+    }
+    
+    /**
+     * long键分区表，键直接存放在long[]中
+     */
+    private final class LongKeyTable extends PartitionTable {
+        private final long[] rowKeys;
+        private long[] keys;
+        
+        LongKeyTable(List<T> rows, KeyColumn keyColumn, Object[] winners, int expectedSize) {
+            super(rows, winners, expectedSize);
+            this.rowKeys = keyColumn.longKeys;
+            allocate(capacityFor(expectedSize));
+        }
+        
+        @Override
+        protected int hashOf(int row) {
+            return LongHashMap.hash(rowKeys[row]);
+        }
+        
+        @Override
+        protected boolean sameKey(int slot, int row) {
+            return keys[slot] == rowKeys[row];
+        }
+        
+        @Override
+        protected void store(int slot, int row) {
+            keys[slot] = rowKeys[row];
+        }
+        
+        @Override
+        protected boolean firstSeen(BloomDedupIndex seenIndex, int slot) {
+            return seenIndex.firstSeen(keys[slot]);
+        }
+        
+        @Override
+        protected void allocateKeys(int capacity) {
+            keys = new long[capacity];
+        }
+        
+        @Override
+        protected void moveKey(int fromSlot, int toSlot, Object oldKeys) {
+            keys[toSlot] = ((long[]) oldKeys)[fromSlot];
+        }
+        
+        @Override
+        protected Object keyArray() {
+            return keys;
+        }
+    }
+    
+    /**
+     * 对象键分区表，缓存哈希值以减少equals调用
+     */
+    private final class ObjectKeyTable extends PartitionTable {
+        private final Object[] rowKeys;
+        private final int[] rowHashes;
+        private Object[] keys;
+        
+        ObjectKeyTable(List<T> rows, KeyColumn keyColumn, Object[] winners, int expectedSize) {
+            super(rows, winners, expectedSize);
+            this.rowKeys = keyColumn.objectKeys;
+            this.rowHashes = keyColumn.hashes;
+            allocate(capacityFor(expectedSize));
+        }
+        
+        @Override
+        protected int hashOf(int row) {
+            return rowHashes[row];
+        }
+        
+        @Override
+        protected boolean sameKey(int slot, int row) {
+            int firstRow = firstRows[slot] - 1;
+            return rowHashes[firstRow] == rowHashes[row] && keys[slot].equals(rowKeys[row]);
+        }
+        
+        @Override
+        protected void store(int slot, int row) {
+            keys[slot] = rowKeys[row];
+        }
+        
+        @Override
+        protected boolean firstSeen(BloomDedupIndex seenIndex, int slot) {
+            return seenIndex.firstSeen(keys[slot]);
+        }
+        
+        @Override
+        protected void allocateKeys(int capacity) {
+            keys = new Object[capacity];
+        }
+        
+        @Override
+        protected void moveKey(int fromSlot, int toSlot, Object oldKeys) {
+            keys[toSlot] = ((Object[]) oldKeys)[fromSlot];
+        }
+        
+        @Override
+        protected Object keyArray() {
+            return keys;
+        }
+    }
+    
+    /**
+     * 返回不小于cap的2的幂
+     */
+    private static int tableSizeFor(int cap) {
+        int n = -1 >>> Integer.numberOfLeadingZeros(Math.max(cap, 2) - 1);
+        return n + 1;
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,248 @@
+package com.study.tools.highExcelTools.processor;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * 可组合的行处理管道
+ * <p>
+ * 无状态算子(map、filter、flatMap、peek)在执行时被融合为一个逐行处理的回调链，
+ * 每行数据依次经过所有算子后直接进入输出，算子之间不产生中间列表。
+ * 有状态算子(dedup、batch)需要看到整个批次，是管道中唯一的断点：断点之前的结果收集为一个列表，处理后继续进入下一段融合循环。
+ * </p>
+ * <p>
+ * 管道是不可变的，每次追加算子都返回新的管道，可以在多个读取线程间共享并发执行。
+ * </p>
+ * 示例:
+ * <pre>
+ * RowPipeline.&lt;UserModel&gt;identity()
+ *     .filter(user -&gt; user.getStatus() == 1)
+ *     .peek(user -&gt; user.setEmail(user.getEmail().toLowerCase()))
+ *     .dedup(UserModel::getId);
+ * </pre>
+ *
+ * @param <I> 输入类型
+ * @param <O> 输出类型
+ */
+@Slf4j
+public final class RowPipeline<I, O> {
+    
+    // 声明的输入类型，为空时不校验
+    private final Class<?> inputType;
+    private final List<Stage> stages;
+    
+    private RowPipeline(Class<?> inputType, List<Stage> stages) {
+        this.inputType = inputType;
+        this.stages = stages;
+    }
+    
+    /**
+     * 不做任何处理的空管道
+     */
+    public static <T> RowPipeline<T, T> identity() {
+        return new RowPipeline<>(null, Collections.emptyList());
+    }
+    
+    /**
+     * 声明输入类型的空管道，作为合并配置使用时校验与数据模型类一致
+     */
+    public static <T> RowPipeline<T, T> identity(Class<T> inputType) {
+        return new RowPipeline<>(inputType, Collections.emptyList());
+    }
+    
+    /**
+     * 逐行转换
+     */
+    public <R> RowPipeline<I, R> map(Function<? super O, ? extends R> mapper) {
+        return append(new StatelessStage(downstream -> row -> downstream.accept(mapper.apply(cast(row)))));
+    }
+    
+    /**
+     * 逐行过滤
+     */
+    public RowPipeline<I, O> filter(Predicate<? super O> predicate) {
+        return append(new StatelessStage(downstream -> row -> {
+            if (predicate.test(cast(row))) {
+                downstream.accept(row);
+            }
+        }));
+    }
+    
+    /**
+     * 一行展开为零到多行
+     */
+    public <R> RowPipeline<I, R> flatMap(Function<? super O, ? extends Iterable<? extends R>> mapper) {
+        return append(new StatelessStage(downstream -> row -> {
+            Iterable<? extends R> rows = mapper.apply(cast(row));
+            if (rows != null) {
+                for (R each : rows) {
+                    downstream.accept(each);
+                }
+            }
+        }));
+    }
+    
+    /**
+     * 逐行观察(或原地修改)，不改变数据流
+     */
+    public RowPipeline<I, O> peek(Consumer<? super O> action) {
+        return append(new StatelessStage(downstream -> row -> {
+            action.accept(cast(row));
+            downstream.accept(row);
+        }));
+    }
+    
+    /**
+     * 批次内去重，保留每个键第一个遇到的值(管道断点)
+     */
+    public RowPipeline<I, O> dedup(Function<O, Object> keyExtractor) {
+        return dedup(keyExtractor, null);
+    }
+    
+    /**
+     * 批次内去重，重复键按合并函数合并(管道断点)
+     * 键提取或合并失败时记录警告日志，该行不参与去重或保留已有值
+     */
+    public RowPipeline<I, O> dedup(Function<O, Object> keyExtractor, BiFunction<O, O, O> mergeFunction) {
+        PartitionedDeduplicator<O> deduplicator = new PartitionedDeduplicator<>(keyExtractor, mergeFunction,
+                new PartitionedDeduplicator.ErrorHandler<O>() {
+                    @Override
+                    public void onKeyExtractionError(O item, Exception e) {
+                        log.warn("管道去重提取键异常: {}", e.getMessage());
+                    }
+                    
+                    @Override
+                    public void onMergeError(O existingItem, O item, Exception e) {
+                        log.warn("管道去重合并异常: {}", e.getMessage());
+                    }
+                }, 0);
+        return batch(deduplicator::deduplicate);
+    }
+    
+    /**
+     * 批次级有状态算子(管道断点)，接收断点之前收集的整个批次
+     */
+    public RowPipeline<I, O> batch(UnaryOperator<List<O>> operator) {
+        return append(new BreakerStage(rows -> cast(operator.apply(cast(rows)))));
+    }
+    
+    /**
+     * 拼接另一个管道
+     */
+    public <R> RowPipeline<I, R> andThen(RowPipeline<O, R> next) {
+        if (next.stages.isEmpty()) {
+            return cast(this);
+        }
+        List<Stage> combined = new ArrayList<>(stages.size() + next.stages.size());
+        combined.addAll(stages);
+        combined.addAll(next.stages);
+        return new RowPipeline<>(inputType, Collections.unmodifiableList(combined));
+    }
+    
+    /**
+     * 声明的输入类型，未声明时为空
+     */
+    public Class<?> getInputType() {
+        return inputType;
+    }
+    
+    /**
+     * 是否没有任何算子
+     */
+    public boolean isEmpty() {
+        return stages.isEmpty();
+    }
+    
+    /**
+     * 处理一个批次
+     * 空管道直接返回输入，不复制
+     */
+    public List<O> apply(List<I> batch) {
+        if (stages.isEmpty()) {
+            return cast(batch);
+        }
+        
+        List<Object> input = cast(batch);
+        int segmentStart = 0;
+        for (int i = 0; i <= stages.size(); i++) {
+            if (i < stages.size() && !(stages.get(i) instanceof BreakerStage)) {
+                continue;
+            }
+            
+            // [segmentStart, i) 是一段连续的无状态算子，融合为一个回调链执行
+            if (i > segmentStart) {
+                input = runFused(stages.subList(segmentStart, i), input);
+            }
+            if (i < stages.size()) {
+                input = ((BreakerStage) stages.get(i)).operator.apply(input);
+            }
+            segmentStart = i + 1;
+        }
+        return cast(input);
+    }
+    
+    private List<Object> runFused(List<Stage> segment, List<Object> input) {
+        List<Object> output = new ArrayList<>(input.size());
+        RowSink sink = output::add;
+        for (int i = segment.size() - 1; i >= 0; i--) {
+            sink = ((StatelessStage) segment.get(i)).wrap.apply(sink);
+        }
+        for (Object row : input) {
+            sink.accept(row);
+        }
+        return output;
+    }
+    
+    private <R> RowPipeline<I, R> append(Stage stage) {
+        List<Stage> next = new ArrayList<>(stages.size() + 1);
+        next.addAll(stages);
+        next.add(stage);
+        return new RowPipeline<>(inputType, Collections.unmodifiableList(next));
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <X> X cast(Object value) {
+        return (X) value;
+    }
+    
+    /**
+     * 逐行回调
+     */
+    @FunctionalInterface
+    private interface RowSink {
+        void accept(Object row);
+    }
+    
+    private interface Stage {
+    }
+    
+    /**
+     * 无状态算子: 把下游回调包装为本算子的回调
+     */
+    private static final class StatelessStage implements Stage {
+        private final Function<RowSink, RowSink> wrap;
+        
+        StatelessStage(Function<RowSink, RowSink> wrap) {
+            this.wrap = wrap;
+        }
+    }
+    
+    /**
+     * 有状态算子: 处理整个批次
+     */
+    private static final class BreakerStage implements Stage {
+        private final UnaryOperator<List<Object>> operator;
+        
+        BreakerStage(UnaryOperator<List<Object>> operator) {
+            this.operator = operator;
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,162 @@
+package com.study.tools.highExcelTools.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 线程安全的布隆过滤器
+ * <p>
+ * 基于64位哈希的双重哈希(Kirsch-Mitzenmacher)生成k个位置，位数组使用AtomicLongArray，多线程并发写入无需加锁。
+ * mightContain返回false时键一定没有出现过；返回true时可能误判，误判率由预计元素数量和目标误判率决定。
+ * </p>
+ */
+public class BloomFilter {
+    private static final double LN2 = Math.log(2);
+    // 位数组上限(long个数)，约16GB位图，实际不会达到
+    private static final int MAX_WORDS = Integer.MAX_VALUE - 8;
+    
+    private final AtomicLongArray words;
+    private final long bitSize;
+    private final int hashFunctions;
+    private final long expectedInsertions;
+    
+    private BloomFilter(long bitSize, int hashFunctions, long expectedInsertions) {
+        int wordCount = (int) Math.min(MAX_WORDS, (bitSize + 63) >>> 6);
+        this.words = new AtomicLongArray(wordCount);
+        this.bitSize = (long) wordCount << 6;
+        this.hashFunctions = hashFunctions;
+        this.expectedInsertions = expectedInsertions;
+    }
+    
+    /**
+     * 按预计元素数量和目标误判率创建
+     *
+     * @param expectedInsertions 预计元素数量
+     * @param falsePositiveRate 目标误判率(0-1)
+     */
+    public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        double p = falsePositiveRate > 0 && falsePositiveRate < 1 ? falsePositiveRate : 0.01;
+        
+        // m = -n*ln(p) / (ln2)^2, k = m/n*ln2
+        long bits = (long) Math.ceil(-n * Math.log(p) / (LN2 * LN2));
+        int k = Math.max(1, (int) Math.round((double) bits / n * LN2));
+        return new BloomFilter(Math.max(64, bits), k, n);
+    }
+    
+    /**
+     * 是否可能包含
+     *
+     * @param hash64 键的64位哈希
+     * @return false表示一定不包含
+     */
+    public boolean mightContain(long hash64) {
+        long h1 = hash64;
+        long h2 = Long.rotateLeft(hash64, 32) | 1L;
+        for (int i = 1; i <= hashFunctions; i++) {
+            long bit = index(h1 + i * h2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * 写入
+     *
+     * @param hash64 键的64位哈希
+     * @return 是否有位发生变化(为true时说明写入前一定不包含)
+     */
+    public boolean put(long hash64) {
+        long h1 = hash64;
+        long h2 = Long.rotateLeft(hash64, 32) | 1L;
+        boolean changed = false;
+        for (int i = 1; i <= hashFunctions; i++) {
+            long bit = index(h1 + i * h2);
+            int wordIndex = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = words.get(wordIndex)) & mask) == 0) {
+                if (words.compareAndSet(wordIndex, current, current | mask)) {
+                    changed = true;
+                    break;
+                }
+            }
+        }
+        return changed;
+    }
+    
+    /**
+     * 根据当前置位比例估算的误判率
+     */
+    public double estimatedFalsePositiveRate() {
+        long setBits = 0;
+        for (int i = 0; i < words.length(); i++) {
+            setBits += Long.bitCount(words.get(i));
+        }
+        return Math.pow((double) setBits / bitSize, hashFunctions);
+    }
+    
+    /**
+     * 按设计容量计算的理论误判率
+     */
+    public double designFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashFunctions * expectedInsertions / bitSize), hashFunctions);
+    }
+    
+    public long getBitSize() {
+        return bitSize;
+    }
+    
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+    
+    /**
+     * 位图占用的内存(字节)
+     */
+    public long memoryBytes() {
+        return (long) words.length() * Long.BYTES;
+    }
+    
+    /**
+     * 计算任意键的64位哈希
+     * 字符串按字符逐个混合，避免只依赖32位hashCode导致大数据量下误判率升高
+     */
+    public static long hash64(Object key) {
+        if (key instanceof CharSequence) {
+            CharSequence cs = (CharSequence) key;
+            long h = 0xcbf29ce484222325L;
+            for (int i = 0; i < cs.length(); i++) {
+                h ^= cs.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            return mix64(h);
+        }
+        if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            return hash64(((Number) key).longValue());
+        }
+        return mix64(key.hashCode());
+    }
+    
+    /**
+     * 计算long键的64位哈希
+     */
+    public static long hash64(long key) {
+        return mix64(key);
+    }
+    
+    /**
+     * 64位哈希终结混合(SplitMix64)
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+    
+    private long index(long combined) {
+        // 组合哈希可能为负，取正后对位数取模
+        return (combined & Long.MAX_VALUE) % bitSize;
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.study.tools.highExcelTools.util;
+
+/**
+ * 协作式取消标记
+ * <p>
+ * 由发起方调用{@link #cancel}，读取、处理、写入各阶段在行或批次边界调用{@link #throwIfCancelled}检查，
+ * 检查到取消后抛出{@link MergeCancelledException}，由合并流程统一清理资源。
+ * </p>
+ */
+public class CancellationToken {
+    
+    private volatile boolean cancelled = false;
+    private volatile String reason;
+    
+    /**
+     * 请求取消
+     * @param reason 取消原因
+     */
+    public void cancel(String reason) {
+        if (!cancelled) {
+            this.reason = reason;
+            this.cancelled = true;
+        }
+    }
+    
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    public String getReason() {
+        return reason;
+    }
+    
+    /**
+     * 已取消时抛出MergeCancelledException
+     */
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new MergeCancelledException(reason);
+        }
+    }
+} 
\ No newline at end of file
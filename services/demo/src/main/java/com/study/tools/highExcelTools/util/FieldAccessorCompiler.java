@@ -0,0 +1,305 @@
+package com.study.tools.highExcelTools.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 字段访问类生成器
+ * <p>
+ * 为模型类层级中的每个类生成一个隐藏类，按字段序号tableswitch到对应的getfield/putfield加装箱拆箱。
+ * 同一个类的所有字段共用一个访问类，逐字段读写一行时调用点只有一个实现，JIT可以内联；
+ * 不经过反射或保存在实例字段中的MethodHandle(JDK 17不会对非常量MethodHandle做常量折叠，单次调用与Field.get相当)。
+ * 隐藏类作为声明类的嵌套成员定义，可以访问private字段，随模型元数据一起回收。
+ * </p>
+ * <p>
+ * final字段和在声明类所在包中不可访问的字段类型不生成；声明类的类加载器看不到{@link ModelMetadata.CompiledAccessor}
+ * 等无法定义隐藏类的情况返回null，由调用方退回MethodHandle。
+ * </p>
+ */
+final class FieldAccessorCompiler {
+    
+    private static final String OBJECT = "java/lang/Object";
+    private static final String ACCESSOR = ModelMetadata.CompiledAccessor.class.getName().replace('.', '/');
+    
+    private FieldAccessorCompiler() {
+    }
+    
+    /**
+     * 字段是否可以由生成的访问类读写
+     */
+    static boolean canCompile(Field field) {
+        return !Modifier.isFinal(field.getModifiers()) && isVisible(field.getType(), field.getDeclaringClass());
+    }
+    
+    /**
+     * 生成声明类的字段访问类
+     * @param fields 声明类中可以生成的字段，访问时的序号为列表下标
+     * @return 不能生成时返回null
+     */
+    static ModelMetadata.CompiledAccessor compile(Class<?> owner, List<Field> fields) {
+        if (fields.isEmpty() || !isVisible(ModelMetadata.CompiledAccessor.class, owner)) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(owner, MethodHandles.lookup())
+                    .defineHiddenClass(classBytes(owner, fields), true, MethodHandles.Lookup.ClassOption.NESTMATE);
+            return (ModelMetadata.CompiledAccessor) lookup
+                    .findConstructor(lookup.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (Throwable e) {
+            // 模块或类加载器限制，退回MethodHandle
+            return null;
+        }
+    }
+    
+    /**
+     * 类型可以在声明类所在的包中按名称解析和访问
+     */
+    private static boolean isVisible(Class<?> type, Class<?> owner) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+        try {
+            if (Class.forName(type.getName(), false, owner.getClassLoader()) != type) {
+                return false;
+            }
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+        if (type.getPackageName().equals(owner.getPackageName())) {
+            return true;
+        }
+        for (Class<?> c = type; c != null; c = c.getDeclaringClass()) {
+            if (!Modifier.isPublic(c.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static byte[] classBytes(Class<?> ownerType, List<Field> fields) throws IOException {
+        ConstantPool pool = new ConstantPool();
+        String owner = internalName(ownerType);
+        int thisClass = pool.classRef(owner + "$$FieldAccessor");
+        int objectClass = pool.classRef(OBJECT);
+        int accessorClass = pool.classRef(ACCESSOR);
+        int ownerClass = pool.classRef(owner);
+        int objectInit = pool.memberRef(10, objectClass, "<init>", "()V");
+        int code = pool.utf8("Code");
+        
+        // 构造函数
+        ByteArrayOutputStream init = new ByteArrayOutputStream();
+        init.write(0x2a);                                   // aload_0
+        writeOp(init, 0xb7, objectInit);                    // invokespecial Object.<init>
+        init.write(0xb1);                                   // return
+        
+        // Object get(Object row, int index)
+        byte[][] getCases = new byte[fields.size()][];
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            Class<?> type = field.getType();
+            ByteArrayOutputStream get = new ByteArrayOutputStream();
+            get.write(0x2b);                                // aload_1
+            writeOp(get, 0xc0, ownerClass);                 // checkcast 声明类
+            writeOp(get, 0xb4, pool.memberRef(9, ownerClass, field.getName(), type.descriptorString()));  // getfield
+            if (type.isPrimitive()) {
+                Class<?> box = MethodType.methodType(type).wrap().returnType();
+                writeOp(get, 0xb8, pool.memberRef(10, pool.classRef(internalName(box)), "valueOf",
+                        "(" + type.descriptorString() + ")" + box.descriptorString()));  // invokestatic 装箱
+            }
+            get.write(0xb0);                                // areturn
+            getCases[i] = get.toByteArray();
+        }
+        // 序号越界时返回null，调用方只传入生成时的序号
+        byte[] getBody = tableSwitch(0x1c, getCases, new byte[]{0x01, (byte) 0xb0});  // iload_2 / aconst_null, areturn
+        
+        // void set(Object row, int index, Object value)
+        byte[][] setCases = new byte[fields.size()][];
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            Class<?> type = field.getType();
+            ByteArrayOutputStream set = new ByteArrayOutputStream();
+            set.write(0x2b);                                // aload_1
+            writeOp(set, 0xc0, ownerClass);                 // checkcast 声明类
+            set.write(0x2d);                                // aload_3
+            if (type.isPrimitive()) {
+                Class<?> box = MethodType.methodType(type).wrap().returnType();
+                int boxClass = pool.classRef(internalName(box));
+                writeOp(set, 0xc0, boxClass);               // checkcast 包装类型
+                writeOp(set, 0xb6, pool.memberRef(10, boxClass, type.getName() + "Value",
+                        "()" + type.descriptorString()));  // invokevirtual 拆箱，null时抛NullPointerException
+            } else if (type != Object.class) {
+                writeOp(set, 0xc0, pool.classRef(internalName(type)));  // checkcast 字段类型
+            }
+            writeOp(set, 0xb5, pool.memberRef(9, ownerClass, field.getName(), type.descriptorString()));  // putfield
+            set.write(0xb1);                                // return
+            setCases[i] = set.toByteArray();
+        }
+        byte[] setBody = tableSwitch(0x1c, setCases, new byte[]{(byte) 0xb1});  // iload_2 / return
+        
+        int[][] methods = {
+                {pool.utf8("<init>"), pool.utf8("()V"), 1, 1},
+                {pool.utf8("get"), pool.utf8("(Ljava/lang/Object;I)Ljava/lang/Object;"), 2, 3},
+                {pool.utf8("set"), pool.utf8("(Ljava/lang/Object;ILjava/lang/Object;)V"), 3, 4},
+        };
+        byte[][] bodies = {init.toByteArray(), getBody, setBody};
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);                                  // minor_version
+        out.writeShort(49);                                 // major_version，按类型推导校验，不需要StackMapTable
+        pool.writeTo(out);
+        out.writeShort(0x0001 | 0x0010 | 0x0020);           // ACC_PUBLIC | ACC_FINAL | ACC_SUPER
+        out.writeShort(thisClass);
+        out.writeShort(objectClass);
+        out.writeShort(1);
+        out.writeShort(accessorClass);
+        out.writeShort(0);                                  // fields_count
+        out.writeShort(methods.length);
+        for (int i = 0; i < methods.length; i++) {
+            out.writeShort(0x0001);                         // ACC_PUBLIC
+            out.writeShort(methods[i][0]);
+            out.writeShort(methods[i][1]);
+            out.writeShort(1);
+            out.writeShort(code);
+            out.writeInt(12 + bodies[i].length);
+            out.writeShort(methods[i][2]);                  // max_stack
+            out.writeShort(methods[i][3]);                  // max_locals
+            out.writeInt(bodies[i].length);
+            out.write(bodies[i]);
+            out.writeShort(0);                              // exception_table_length
+            out.writeShort(0);                              // attributes_count
+        }
+        out.writeShort(0);                                  // attributes_count
+        out.flush();
+        return bytes.toByteArray();
+    }
+    
+    /**
+     * 加载序号后按序号跳转到各分支，越界时执行默认分支，各分支自行返回
+     * @param load 加载序号的指令
+     */
+    private static byte[] tableSwitch(int load, byte[][] cases, byte[] defaultCase) {
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+        code.write(load);
+        int switchAt = code.size();
+        code.write(0xaa);                                   // tableswitch
+        while (code.size() % 4 != 0) {
+            code.write(0);
+        }
+        int tableEnd = code.size() + 12 + cases.length * 4;
+        int[] offsets = new int[cases.length];
+        int position = tableEnd;
+        for (int i = 0; i < cases.length; i++) {
+            offsets[i] = position - switchAt;
+            position += cases[i].length;
+        }
+        writeInt(code, position - switchAt);               // default
+        writeInt(code, 0);                                  // low
+        writeInt(code, cases.length - 1);                   // high
+        for (int offset : offsets) {
+            writeInt(code, offset);
+        }
+        for (byte[] body : cases) {
+            code.write(body, 0, body.length);
+        }
+        code.write(defaultCase, 0, defaultCase.length);
+        return code.toByteArray();
+    }
+    
+    private static void writeInt(ByteArrayOutputStream code, int value) {
+        code.write(value >>> 24);
+        code.write(value >>> 16);
+        code.write(value >>> 8);
+        code.write(value);
+    }
+    
+    private static void writeOp(ByteArrayOutputStream code, int opcode, int index) {
+        code.write(opcode);
+        code.write(index >> 8);
+        code.write(index);
+    }
+    
+    /**
+     * 常量池中的类名，数组使用描述符
+     */
+    private static String internalName(Class<?> type) {
+        return type.getName().replace('.', '/');
+    }
+    
+    /**
+     * 常量池，相同常量只写一次
+     */
+    private static final class ConstantPool {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private int count = 1;
+        
+        int utf8(String value) throws IOException {
+            Integer index = indexes.get("U" + value);
+            if (index != null) {
+                return index;
+            }
+            out.writeByte(1);
+            out.writeUTF(value);
+            return add("U" + value);
+        }
+        
+        int classRef(String name) throws IOException {
+            Integer index = indexes.get("C" + name);
+            if (index != null) {
+                return index;
+            }
+            int nameIndex = utf8(name);
+            out.writeByte(7);
+            out.writeShort(nameIndex);
+            return add("C" + name);
+        }
+        
+        /**
+         * 字段或方法引用
+         * @param tag 9为字段，10为方法
+         */
+        int memberRef(int tag, int classIndex, String name, String descriptor) throws IOException {
+            String key = tag + ":" + classIndex + "." + name + descriptor;
+            Integer index = indexes.get(key);
+            if (index != null) {
+                return index;
+            }
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            out.writeByte(12);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+            int nameAndType = count++;
+            out.writeByte(tag);
+            out.writeShort(classIndex);
+            out.writeShort(nameAndType);
+            return add(key);
+        }
+        
+        private int add(String key) {
+            int index = count++;
+            indexes.put(key, index);
+            return index;
+        }
+        
+        void writeTo(DataOutputStream target) throws IOException {
+            out.flush();
+            target.writeShort(count);
+            bytes.writeTo(target);
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,244 @@
+package com.study.tools.highExcelTools.util;
+
+import com.study.tools.highExcelTools.util.ModelMetadata.FieldAccessor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * 基于字段反射的行编码器
+ * <p>
+ * 按声明顺序编码模型类(含父类)的所有非static、非transient字段，
+ * 支持Excel模型常用的字符串、数值、布尔、日期时间、BigDecimal和枚举类型，
+ * 其他类型需实现Serializable，按Java序列化编码。每个字段前写一个字节标识是否为null。
+ * </p>
+ * <p>
+ * 模型类需要有无参构造函数(EasyExcel读写同样要求)。字段访问器取自{@link ModelMetadata}，同一模型类只解析一次。
+ * 编码器本身无状态，可在线程间共享。
+ * </p>
+ *
+ * @param <T> 数据模型类型
+ */
+public class FieldRowCodec<T> implements RowCodec<T> {
+    
+    private final ModelMetadata<T> metadata;
+    private final List<FieldSlot> slots = new ArrayList<>();
+    
+    public FieldRowCodec(Class<T> modelClass) {
+        this.metadata = ModelMetadata.of(modelClass);
+        if (!metadata.hasNoArgConstructor()) {
+            throw new IllegalArgumentException("模型类缺少无参构造函数: " + modelClass.getName());
+        }
+        
+        // 父类字段在前
+        for (FieldAccessor field : metadata.getFields()) {
+            if (field.isTransient()) continue;
+            slots.add(new FieldSlot(field, typeOf(field)));
+        }
+    }
+    
+    @Override
+    public void write(T row, DataOutput out) throws IOException {
+        for (FieldSlot slot : slots) {
+            Object value = slot.field.get(row);
+            if (value == null) {
+                out.writeBoolean(false);
+                continue;
+            }
+            out.writeBoolean(true);
+            writeValue(slot, value, out);
+        }
+    }
+    
+    @Override
+    public T read(DataInput in) throws IOException {
+        try {
+            T row = metadata.newInstance();
+            for (FieldSlot slot : slots) {
+                if (!in.readBoolean()) continue;
+                Object value = readValue(slot, in);
+                slot.field.set(row, value);
+            }
+            return row;
+        } catch (IllegalStateException e) {
+            throw new IOException("创建或填充数据行失败", e);
+        }
+    }
+    
+    private void writeValue(FieldSlot slot, Object value, DataOutput out) throws IOException {
+        switch (slot.type) {
+            case STRING:
+                writeString(out, (String) value);
+                break;
+            case INT:
+                out.writeInt((Integer) value);
+                break;
+            case LONG:
+                out.writeLong((Long) value);
+                break;
+            case DOUBLE:
+                out.writeDouble((Double) value);
+                break;
+            case FLOAT:
+                out.writeFloat((Float) value);
+                break;
+            case SHORT:
+                out.writeShort((Short) value);
+                break;
+            case BYTE:
+                out.writeByte((Byte) value);
+                break;
+            case BOOLEAN:
+                out.writeBoolean((Boolean) value);
+                break;
+            case CHAR:
+                out.writeChar((Character) value);
+                break;
+            case BIG_DECIMAL:
+            case BIG_INTEGER:
+                writeString(out, value.toString());
+                break;
+            case DATE:
+                out.writeLong(((Date) value).getTime());
+                break;
+            case LOCAL_DATE:
+                out.writeLong(((LocalDate) value).toEpochDay());
+                break;
+            case LOCAL_DATE_TIME:
+                LocalDateTime dateTime = (LocalDateTime) value;
+                out.writeLong(dateTime.toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(dateTime.getNano());
+                break;
+            case LOCAL_TIME:
+                out.writeLong(((LocalTime) value).toNanoOfDay());
+                break;
+            case ENUM:
+                writeString(out, ((Enum<?>) value).name());
+                break;
+            default:
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {
+                    objectOut.writeObject(value);
+                }
+                out.writeInt(bytes.size());
+                out.write(bytes.toByteArray());
+        }
+    }
+    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object readValue(FieldSlot slot, DataInput in) throws IOException {
+        switch (slot.type) {
+            case STRING:
+                return readString(in);
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return in.readFloat();
+            case SHORT:
+                return in.readShort();
+            case BYTE:
+                return in.readByte();
+            case BOOLEAN:
+                return in.readBoolean();
+            case CHAR:
+                return in.readChar();
+            case BIG_DECIMAL:
+                return new BigDecimal(readString(in));
+            case BIG_INTEGER:
+                return new BigInteger(readString(in));
+            case DATE:
+                return new Date(in.readLong());
+            case LOCAL_DATE:
+                return LocalDate.ofEpochDay(in.readLong());
+            case LOCAL_DATE_TIME:
+                long seconds = in.readLong();
+                return LocalDateTime.ofEpochSecond(seconds, in.readInt(), ZoneOffset.UTC);
+            case LOCAL_TIME:
+                return LocalTime.ofNanoOfDay(in.readLong());
+            case ENUM:
+                return Enum.valueOf((Class<? extends Enum>) slot.field.getType(), readString(in));
+            default:
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return objectIn.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException("反序列化字段失败: " + slot.field.getName(), e);
+                }
+        }
+    }
+    
+    /**
+     * 字符串按 长度 + UTF-8字节 编码，不受writeUTF的64KB限制
+     */
+    static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static ValueType typeOf(FieldAccessor field) {
+        Class<?> type = field.getType();
+        if (type == String.class) return ValueType.STRING;
+        if (type == Integer.class || type == int.class) return ValueType.INT;
+        if (type == Long.class || type == long.class) return ValueType.LONG;
+        if (type == Double.class || type == double.class) return ValueType.DOUBLE;
+        if (type == Float.class || type == float.class) return ValueType.FLOAT;
+        if (type == Short.class || type == short.class) return ValueType.SHORT;
+        if (type == Byte.class || type == byte.class) return ValueType.BYTE;
+        if (type == Boolean.class || type == boolean.class) return ValueType.BOOLEAN;
+        if (type == Character.class || type == char.class) return ValueType.CHAR;
+        if (type == BigDecimal.class) return ValueType.BIG_DECIMAL;
+        if (type == BigInteger.class) return ValueType.BIG_INTEGER;
+        // 只处理精确的Date类型，java.sql子类走序列化以保留原类型
+        if (type == Date.class) return ValueType.DATE;
+        if (type == LocalDate.class) return ValueType.LOCAL_DATE;
+        if (type == LocalDateTime.class) return ValueType.LOCAL_DATE_TIME;
+        if (type == LocalTime.class) return ValueType.LOCAL_TIME;
+        if (type.isEnum()) return ValueType.ENUM;
+        if (Serializable.class.isAssignableFrom(type) || type.isInterface()) return ValueType.SERIALIZED;
+        throw new IllegalArgumentException("字段类型不支持编码: " + field.getField().getDeclaringClass().getSimpleName()
+                + "." + field.getName() + " (" + type.getName() + ")");
+    }
+    
+    private enum ValueType {
+        STRING, INT, LONG, DOUBLE, FLOAT, SHORT, BYTE, BOOLEAN, CHAR,
+        BIG_DECIMAL, BIG_INTEGER, DATE, LOCAL_DATE, LOCAL_DATE_TIME, LOCAL_TIME, ENUM, SERIALIZED
+    }
+    
+    private static final class FieldSlot {
+        private final FieldAccessor field;
+        private final ValueType type;
+        
+        FieldSlot(FieldAccessor field, ValueType type) {
+            this.field = field;
+            this.type = type;
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,198 @@
+package com.study.tools.highExcelTools.util;
+
+import java.util.function.Consumer;
+
+/**
+ * 基于开放寻址(线性探测)的long键哈希表
+ * <p>
+ * 键直接存放在long[]中，值存放在并行的Object[]中，没有装箱的Long键，也没有HashMap.Node这样的每条记录对象。
+ * 每个条目约占 (8 + 引用大小) / 装载因子 字节，适合千万级数值主键的去重索引。
+ * </p>
+ * <p>
+ * 值不能为null，空槽位以值为null标识，因此任意long(包括0)都可以作为键。非线程安全。
+ * </p>
+ *
+ * @param <V> 值类型
+ */
+public class LongHashMap<V> {
+    // 最大装载因子
+    private static final float LOAD_FACTOR = 0.6f;
+    // 64位黄金分割乘数
+    private static final long HASH_MIX = 0x9E3779B97F4A7C15L;
+    
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int threshold;
+    
+    /**
+     * @param expectedSize 预计条目数
+     */
+    public LongHashMap(int expectedSize) {
+        int capacity = tableSizeFor((int) Math.ceil(Math.max(expectedSize, 4) / LOAD_FACTOR));
+        allocate(capacity);
+    }
+    
+    /**
+     * 计算long键的哈希值
+     */
+    public static int hash(long key) {
+        long h = key * HASH_MIX;
+        return (int) (h ^ (h >>> 32));
+    }
+    
+    /**
+     * 获取键对应的值
+     *
+     * @return 不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int slot = hash(key) & mask;
+        Object value;
+        while ((value = values[slot]) != null) {
+            if (keys[slot] == key) {
+                return (V) value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+    
+    /**
+     * 键不存在时写入
+     *
+     * @return 已存在的值；键不存在并完成写入时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("LongHashMap不支持null值");
+        }
+        
+        int slot = hash(key) & mask;
+        Object existing;
+        while ((existing = values[slot]) != null) {
+            if (keys[slot] == key) {
+                return (V) existing;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > threshold) {
+            resize();
+        }
+        return null;
+    }
+    
+    /**
+     * 写入或覆盖
+     */
+    public void put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("LongHashMap不支持null值");
+        }
+        
+        int slot = hash(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > threshold) {
+            resize();
+        }
+    }
+    
+    /**
+     * 是否包含键
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+    
+    /**
+     * 条目数
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * 遍历所有值(按槽位顺序)
+     */
+    @SuppressWarnings("unchecked")
+    public void forEachValue(Consumer<? super V> action) {
+        for (Object value : values) {
+            if (value != null) {
+                action.accept((V) value);
+            }
+        }
+    }
+    
+    /**
+     * 遍历所有条目(按槽位顺序)
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> action) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                action.accept(keys[i], (V) values[i]);
+            }
+        }
+    }
+    
+    /**
+     * 条目遍历回调
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+    
+    /**
+     * 估算索引结构本身占用的堆内存(字节)，不含值对象
+     */
+    public long estimatedBytes() {
+        return (long) keys.length * Long.BYTES + (long) values.length * 4L;
+    }
+    
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+    
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == null) continue;
+            int slot = hash(oldKeys[i]) & mask;
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+    
+    /**
+     * 返回不小于cap的2的幂
+     */
+    private static int tableSizeFor(int cap) {
+        int n = -1 >>> Integer.numberOfLeadingZeros(Math.max(cap, 2) - 1);
+        return n + 1;
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,115 @@
+package com.study.tools.highExcelTools.util;
+
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * long主键提取器工具类
+ * 将数值型或固定格式(如 USER%08d)的业务ID转换为long，供原始类型去重快速路径使用
+ */
+public class LongKeys {
+    // long最多可以安全容纳的十进制位数
+    private static final int MAX_DIGITS = 18;
+    
+    private LongKeys() {
+        // 工具类不允许实例化
+    }
+    
+    /**
+     * 数值型主键
+     * 主键为空时抛出异常，由去重流程按键提取异常处理
+     *
+     * @param getter 数值字段获取函数
+     */
+    public static <T> ToLongFunction<T> numeric(Function<T, ? extends Number> getter) {
+        return item -> {
+            Number value = getter.apply(item);
+            if (value == null) {
+                throw new IllegalArgumentException("主键为空");
+            }
+            return value.longValue();
+        };
+    }
+    
+    /**
+     * 固定前缀+定长数字格式的主键，如 USER%08d 格式的 USER00000001
+     * 前缀不匹配、数字位数不等于width或数字部分非法时抛出异常，保证不同的ID不会映射为相同的long
+     *
+     * @param prefix 固定前缀
+     * @param width 数字部分的位数
+     * @param getter 字符串字段获取函数
+     */
+    public static <T> ToLongFunction<T> prefixed(String prefix, int width, Function<T, String> getter) {
+        return item -> parsePrefixed(prefix, width, getter.apply(item));
+    }
+    
+    /**
+     * 固定前缀+不定长数字格式的主键，如 USER1、USER25
+     * 数字部分不允许前导零(否则 USER01 与 USER1 会映射为相同的long)，带前导零的定长ID使用{@link #prefixed(String, int, Function)}
+     *
+     * @param prefix 固定前缀
+     * @param getter 字符串字段获取函数
+     */
+    public static <T> ToLongFunction<T> prefixed(String prefix, Function<T, String> getter) {
+        return item -> parsePrefixed(prefix, getter.apply(item));
+    }
+    
+    /**
+     * 解析固定前缀+定长数字格式的ID
+     *
+     * @param prefix 固定前缀
+     * @param width 数字部分的位数
+     * @param id 原始ID
+     * @return 数字部分
+     */
+    public static long parsePrefixed(String prefix, int width, String id) {
+        if (width <= 0 || width > MAX_DIGITS) {
+            throw new IllegalArgumentException("主键数字位数非法: " + width);
+        }
+        long value = parseDigits(prefix, id);
+        if (id.length() - prefix.length() != width) {
+            throw new IllegalArgumentException("主键数字部分应为" + width + "位: " + id);
+        }
+        return value;
+    }
+    
+    /**
+     * 解析固定前缀+不定长数字格式的ID，数字部分不允许前导零
+     *
+     * @param prefix 固定前缀
+     * @param id 原始ID
+     * @return 数字部分
+     */
+    public static long parsePrefixed(String prefix, String id) {
+        long value = parseDigits(prefix, id);
+        if (id.length() - prefix.length() > 1 && id.charAt(prefix.length()) == '0') {
+            throw new IllegalArgumentException("主键数字部分包含前导零，请使用定长格式: " + id);
+        }
+        return value;
+    }
+    
+    private static long parseDigits(String prefix, String id) {
+        if (id == null) {
+            throw new IllegalArgumentException("主键为空");
+        }
+        if (!id.startsWith(prefix)) {
+            throw new IllegalArgumentException("主键前缀不匹配，期望: " + prefix + ", 实际: " + id);
+        }
+        
+        int length = id.length() - prefix.length();
+        if (length == 0 || length > MAX_DIGITS) {
+            throw new IllegalArgumentException("主键数字部分长度非法: " + id);
+        }
+        
+        // 手工解析，避免substring产生临时字符串
+        long value = 0;
+        for (int i = prefix.length(); i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("主键包含非数字字符: " + id);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
\ No newline at end of file
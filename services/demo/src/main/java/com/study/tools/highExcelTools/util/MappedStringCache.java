@@ -0,0 +1,265 @@
+package com.study.tools.highExcelTools.util;
+
+import com.alibaba.excel.cache.ReadCache;
+import com.alibaba.excel.context.AnalysisContext;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 内存映射文件实现的共享字符串表
+ * <p>
+ * xlsx的共享字符串表在读取任何行之前整体加载，百万级不同取值(邮箱、备注)时EasyExcel默认的堆内实现会占用数GB堆内存。
+ * 这里把字符串按UTF-8顺序写入数据文件，每个字符串的起始偏移写入索引文件，写完后两个文件都以只读方式映射，
+ * 按下标查找时由索引定位后直接从映射区解码。映射区由操作系统页缓存管理，不计入堆内存。
+ * </p>
+ * <p>
+ * 相邻行通常引用相近或重复的字符串，最近访问的字符串保存在堆内LRU缓存中。null按空字符串保存。
+ * </p>
+ * <p>
+ * 写入阶段(put/putFinished)只在解析线程中进行；写入完成后{@link #get(Integer)}可以被多个线程并发调用:
+ * 映射区只用绝对位置读取，不修改缓冲区的position，解码缓冲区每个线程一份，LRU缓存按下标分段加锁。
+ * </p>
+ */
+@Slf4j
+public class MappedStringCache implements ReadCache {
+    // 每个映射段1GB，单个MappedByteBuffer不能超过2GB
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+    // LRU缓存最多分为16段，每段独立加锁
+    private static final int MAX_CACHE_STRIPES = 16;
+    // 线程复用的解码缓冲区不超过该大小，更长的字符串临时分配
+    private static final int MAX_DECODE_BUFFER = 64 * 1024;
+    private static final ThreadLocal<byte[]> DECODE_BUFFER = ThreadLocal.withInitial(() -> new byte[256]);
+    
+    private final String processId;
+    private final Path tempDir;
+    private final Path dataFile;
+    private final Path indexFile;
+    // 分段LRU缓存，cacheEntries为0时为空数组
+    private final Map<Integer, String>[] recent;
+    
+    // 写入阶段
+    private DataOutputStream dataOut;
+    private DataOutputStream indexOut;
+    private long dataBytes;
+    private int size;
+    
+    // 读取阶段，putFinished中赋值后对读取线程可见
+    private volatile MappedByteBuffer[] data;
+    private volatile MappedByteBuffer[] index;
+    
+    /**
+     * @param baseDir 临时文件目录
+     * @param processId 处理ID(用于临时目录命名和日志)
+     * @param cacheEntries 堆内LRU缓存的字符串数，0表示不缓存
+     */
+    public MappedStringCache(Path baseDir, String processId, int cacheEntries) {
+        this.processId = processId;
+        this.recent = newCache(cacheEntries);
+        try {
+            Files.createDirectories(baseDir);
+            this.tempDir = Files.createTempDirectory(baseDir, "excel-sst-" + processId + "-");
+            this.dataFile = tempDir.resolve("strings.bin");
+            this.indexFile = tempDir.resolve("offsets.bin");
+            this.dataOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dataFile), IO_BUFFER_SIZE));
+            this.indexOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile), IO_BUFFER_SIZE));
+        } catch (IOException e) {
+            throw new UncheckedIOException("创建共享字符串临时文件失败", e);
+        }
+    }
+    
+    @Override
+    public void init(AnalysisContext analysisContext) {
+    }
+    
+    @Override
+    public void put(String value) {
+        if (dataOut == null) {
+            throw new IllegalStateException("共享字符串表已写入完成");
+        }
+        try {
+            indexOut.writeLong(dataBytes);
+            if (value != null && !value.isEmpty()) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                dataOut.write(bytes);
+                dataBytes += bytes.length;
+            }
+            size++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入共享字符串临时文件失败", e);
+        }
+    }
+    
+    @Override
+    public void putFinished() {
+        if (dataOut == null) {
+            return;
+        }
+        try {
+            // 结尾偏移，第i个字符串的长度为offset(i + 1) - offset(i)
+            indexOut.writeLong(dataBytes);
+            dataOut.close();
+            indexOut.close();
+            dataOut = null;
+            indexOut = null;
+            // 读取线程以data判断是否写入完成，index先赋值
+            index = map(indexFile, (size + 1L) * Long.BYTES);
+            data = map(dataFile, dataBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("映射共享字符串临时文件失败", e);
+        }
+        log.info("[{}] 共享字符串表写入临时文件: {} 个, {} MB", processId, size, dataBytes >> 20);
+    }
+    
+    @Override
+    public String get(Integer key) {
+        // 先读data，putFinished之前写入的size对当前线程可见
+        MappedByteBuffer[] dataSegments = data;
+        if (key == null || key < 0 || key >= size) {
+            return null;
+        }
+        if (dataSegments == null) {
+            throw new IllegalStateException("共享字符串表尚未写入完成");
+        }
+        if (recent.length == 0) {
+            return decode(dataSegments, index, key);
+        }
+        Map<Integer, String> stripe = recent[key & (recent.length - 1)];
+        String value;
+        synchronized (stripe) {
+            value = stripe.get(key);
+        }
+        if (value == null) {
+            // 解码不持有锁，并发解码同一个下标时结果相同
+            value = decode(dataSegments, index, key);
+            synchronized (stripe) {
+                stripe.put(key, value);
+            }
+        }
+        return value;
+    }
+    
+    @Override
+    public void destroy() {
+        try {
+            if (dataOut != null) {
+                dataOut.close();
+                indexOut.close();
+            }
+        } catch (IOException e) {
+            log.debug("[{}] 关闭共享字符串临时文件失败", processId, e);
+        }
+        dataOut = null;
+        indexOut = null;
+        data = null;
+        index = null;
+        for (Map<Integer, String> stripe : recent) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+        deleteQuietly(dataFile);
+        deleteQuietly(indexFile);
+        deleteQuietly(tempDir);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * 数据文件字节数
+     */
+    public long getDiskBytes() {
+        return dataBytes;
+    }
+    
+    /**
+     * 按缓存容量分段，段数为2的幂且不超过容量，每段容量向上取整
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<Integer, String>[] newCache(int cacheEntries) {
+        if (cacheEntries <= 0) {
+            return new Map[0];
+        }
+        int stripes = Integer.highestOneBit(Math.min(cacheEntries, MAX_CACHE_STRIPES));
+        int stripeEntries = (cacheEntries + stripes - 1) / stripes;
+        Map<Integer, String>[] cache = new Map[stripes];
+        for (int i = 0; i < stripes; i++) {
+            cache[i] = new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                    return size() > stripeEntries;
+                }
+            };
+        }
+        return cache;
+    }
+    
+    private static String decode(MappedByteBuffer[] data, MappedByteBuffer[] index, int key) {
+        long start = readLong(index, (long) key * Long.BYTES);
+        int length = (int) (readLong(index, (long) (key + 1) * Long.BYTES) - start);
+        if (length == 0) {
+            return "";
+        }
+        byte[] buffer = DECODE_BUFFER.get();
+        if (buffer.length < length) {
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+            if (buffer.length <= MAX_DECODE_BUFFER) {
+                DECODE_BUFFER.set(buffer);
+            }
+        }
+        // 字符串可能跨越两个映射段，按绝对位置读取，不改变共享缓冲区的position
+        int copied = 0;
+        while (copied < length) {
+            long position = start + copied;
+            MappedByteBuffer segment = data[(int) (position >>> SEGMENT_BITS)];
+            int offset = (int) (position & (SEGMENT_SIZE - 1));
+            int n = Math.min(length - copied, segment.limit() - offset);
+            segment.get(offset, buffer, copied, n);
+            copied += n;
+        }
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * 索引项8字节对齐，不会跨越映射段
+     */
+    private static long readLong(MappedByteBuffer[] index, long position) {
+        return index[(int) (position >>> SEGMENT_BITS)].getLong((int) (position & (SEGMENT_SIZE - 1)));
+    }
+    
+    private static MappedByteBuffer[] map(Path file, long length) throws IOException {
+        int segments = (int) ((length + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+        MappedByteBuffer[] buffers = new MappedByteBuffer[segments];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int i = 0; i < segments; i++) {
+                long position = (long) i << SEGMENT_BITS;
+                buffers[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(SEGMENT_SIZE, length - position));
+            }
+        }
+        return buffers;
+    }
+    
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // 部分平台在映射区被回收前不允许删除
+            log.warn("[{}] 删除共享字符串临时文件失败: {}", processId, path, e);
+        }
+    }
+} 
\ No newline at end of file
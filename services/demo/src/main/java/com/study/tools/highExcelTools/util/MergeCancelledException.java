@@ -0,0 +1,24 @@
+package com.study.tools.highExcelTools.util;
+
+/**
+ * 合并任务被取消
+ */
+public class MergeCancelledException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    
+    public MergeCancelledException(String reason) {
+        super("合并任务已取消" + (reason != null ? ": " + reason : ""));
+    }
+    
+    /**
+     * 异常链中是否包含取消异常(EasyExcel会把监听器中的异常包装为ExcelAnalysisException)
+     */
+    public static boolean isCause(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof MergeCancelledException) {
+                return true;
+            }
+        }
+        return false;
+    }
+} 
\ No newline at end of file
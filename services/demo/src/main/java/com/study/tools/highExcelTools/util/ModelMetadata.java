@@ -0,0 +1,326 @@
+package com.study.tools.highExcelTools.util;
+
+import com.alibaba.excel.annotation.ExcelProperty;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 模型类元数据缓存
+ * <p>
+ * 每个模型类在进程内只解析一次：字段列表(父类字段在前)、字段名和@ExcelProperty表头到字段的映射、无参构造函数和字段访问器。
+ * 无参构造函数优先通过LambdaMetafactory编译为函数对象。字段访问器与Field.get/set语义相同，直接读写字段，
+ * 不经过getter/setter(溢写编解码需要原样保存字段值，getter/setter中的格式化、校验等逻辑不能参与)。
+ * 字段访问器优先使用{@link FieldAccessorCompiler}为每个声明类生成的隐藏类，直接getfield/putfield，
+ * 不能生成时(如final字段)退回预先取得的MethodHandle。
+ * </p>
+ * <p>
+ * 元数据只读，可在线程间共享。缓存使用ClassValue，与模型类一起回收，不会因为缓存而使热部署的类加载器无法卸载。
+ * </p>
+ *
+ * @param <T> 数据模型类型
+ */
+public final class ModelMetadata<T> {
+    
+    private static final ClassValue<ModelMetadata<?>> CACHE = new ClassValue<ModelMetadata<?>>() {
+        @Override
+        protected ModelMetadata<?> computeValue(Class<?> type) {
+            return new ModelMetadata<>(type);
+        }
+    };
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    
+    private final Class<T> modelClass;
+    // 无参构造函数，模型类没有无参构造函数时为null
+    private final Supplier<T> constructor;
+    // 非static字段，父类字段在前
+    private final List<FieldAccessor> fields;
+    private final Map<String, FieldAccessor> byName = new LinkedHashMap<>();
+    private final Map<String, FieldAccessor> byHead = new LinkedHashMap<>();
+    
+    private ModelMetadata(Class<T> modelClass) {
+        this.modelClass = modelClass;
+        this.constructor = constructorOf(modelClass);
+        
+        List<Class<?>> hierarchy = new ArrayList<>();
+        for (Class<?> c = modelClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            hierarchy.add(0, c);
+        }
+        List<FieldAccessor> accessors = new ArrayList<>();
+        for (Class<?> c : hierarchy) {
+            List<Field> declared = new ArrayList<>();
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) continue;
+                declared.add(field);
+            }
+            // 每个声明类的字段共用一个生成的访问类
+            List<Field> compilable = new ArrayList<>();
+            for (Field field : declared) {
+                if (FieldAccessorCompiler.canCompile(field)) {
+                    compilable.add(field);
+                }
+            }
+            CompiledAccessor compiled = FieldAccessorCompiler.compile(c, compilable);
+            for (Field field : declared) {
+                int index = compiled != null ? compilable.indexOf(field) : -1;
+                FieldAccessor accessor = new FieldAccessor(field, index >= 0 ? compiled : null, index);
+                accessors.add(accessor);
+                // 子类字段覆盖同名的父类字段
+                byName.put(field.getName(), accessor);
+                for (String head : accessor.heads) {
+                    byHead.putIfAbsent(head, accessor);
+                }
+            }
+        }
+        this.fields = Collections.unmodifiableList(accessors);
+    }
+    
+    /**
+     * 取得模型类的元数据，首次调用时解析并缓存
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ModelMetadata<T> of(Class<T> modelClass) {
+        return (ModelMetadata<T>) CACHE.get(modelClass);
+    }
+    
+    public Class<T> getModelClass() {
+        return modelClass;
+    }
+    
+    public boolean hasNoArgConstructor() {
+        return constructor != null;
+    }
+    
+    /**
+     * 通过无参构造函数创建模型对象
+     */
+    public T newInstance() {
+        if (constructor == null) {
+            throw new IllegalArgumentException("模型类缺少无参构造函数: " + modelClass.getName());
+        }
+        return constructor.get();
+    }
+    
+    /**
+     * 所有非static字段，父类字段在前
+     */
+    public List<FieldAccessor> getFields() {
+        return fields;
+    }
+    
+    /**
+     * 按字段名查找
+     * @return 不存在时返回null
+     */
+    public FieldAccessor getField(String name) {
+        return byName.get(name);
+    }
+    
+    /**
+     * 按列名查找字段，先匹配字段名，再匹配@ExcelProperty表头
+     * @return 不存在时返回null
+     */
+    public FieldAccessor findColumn(String column) {
+        FieldAccessor accessor = byName.get(column);
+        return accessor != null ? accessor : byHead.get(column);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <T> Supplier<T> constructorOf(Class<T> modelClass) {
+        Constructor<T> declared;
+        try {
+            declared = modelClass.getDeclaredConstructor();
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+        if (isPublic(declared.getModifiers(), modelClass)) {
+            try {
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "get", MethodType.methodType(Supplier.class),
+                        MethodType.methodType(Object.class), LOOKUP.unreflectConstructor(declared),
+                        MethodType.methodType(modelClass));
+                return (Supplier<T>) site.getTarget().invokeExact();
+            } catch (Throwable e) {
+                // 退回MethodHandle
+            }
+        }
+        try {
+            MethodHandle handle = privateLookup(modelClass).unreflectConstructor(declared)
+                    .asType(MethodType.methodType(Object.class));
+            return () -> {
+                try {
+                    return (T) (Object) handle.invokeExact();
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new IllegalStateException("创建模型对象失败: " + modelClass.getName(), e);
+                }
+            };
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("无法访问模型类构造函数: " + modelClass.getName(), e);
+        }
+    }
+    
+    /**
+     * 类和成员都是public，且类可以从本类的类加载器解析(生成的函数对象按类名引用模型类)
+     */
+    private static boolean isPublic(int memberModifiers, Class<?> declaringClass) {
+        if (!Modifier.isPublic(memberModifiers) || !Modifier.isPublic(declaringClass.getModifiers())) {
+            return false;
+        }
+        try {
+            return Class.forName(declaringClass.getName(), false, ModelMetadata.class.getClassLoader()) == declaringClass;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+    
+    private static MethodHandles.Lookup privateLookup(Class<?> declaringClass) throws IllegalAccessException {
+        return MethodHandles.privateLookupIn(declaringClass, LOOKUP);
+    }
+    
+    /**
+     * 生成的字段访问类实现的接口，需要public以便模型类所在包中的隐藏类实现，只供字段访问器内部使用
+     */
+    public interface CompiledAccessor {
+        /**
+         * @param index 字段在声明类访问类中的序号
+         */
+        Object get(Object row, int index);
+        
+        void set(Object row, int index, Object value);
+    }
+    
+    /**
+     * 字段访问器，直接读写字段，与Field.get/set语义相同
+     */
+    public static final class FieldAccessor {
+        private final Field field;
+        private final String[] heads;
+        // 声明类的生成访问类，不能生成时为null
+        private final CompiledAccessor compiled;
+        private final int index;
+        // 生成了访问类时为null
+        private final MethodHandle getter;
+        // 生成了访问类或无法赋值时为null
+        private final MethodHandle setter;
+        
+        private FieldAccessor(Field field, CompiledAccessor compiled, int index) {
+            this.field = field;
+            ExcelProperty property = field.getAnnotation(ExcelProperty.class);
+            this.heads = property != null ? property.value() : new String[0];
+            this.compiled = compiled;
+            this.index = index;
+            if (compiled != null) {
+                this.getter = null;
+                this.setter = null;
+                return;
+            }
+            try {
+                this.getter = privateLookup(field.getDeclaringClass()).unreflectGetter(field)
+                        .asType(MethodType.methodType(Object.class, Object.class));
+                this.setter = setterOf(field);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("无法访问模型字段: " + field.getDeclaringClass().getName()
+                        + "." + field.getName(), e);
+            }
+        }
+        
+        public Field getField() {
+            return field;
+        }
+        
+        public String getName() {
+            return field.getName();
+        }
+        
+        public Class<?> getType() {
+            return field.getType();
+        }
+        
+        /**
+         * @ExcelProperty声明的表头，没有注解时为空数组
+         */
+        public String[] getHeads() {
+            return heads;
+        }
+        
+        public boolean isTransient() {
+            return Modifier.isTransient(field.getModifiers());
+        }
+        
+        public boolean isFinal() {
+            return Modifier.isFinal(field.getModifiers());
+        }
+        
+        /**
+         * 是否使用生成的访问类
+         */
+        boolean isCompiled() {
+            return compiled != null;
+        }
+        
+        /**
+         * 读取字段值，不调用getter
+         */
+        public Object get(Object row) {
+            if (compiled != null) {
+                return compiled.get(row, index);
+            }
+            try {
+                return (Object) getter.invokeExact(row);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("读取字段失败: " + field.getName(), e);
+            }
+        }
+        
+        /**
+         * 设置字段值，不调用setter，基本类型字段不接受null。final字段与Field.set一样直接写入(record等不允许写入的字段除外)
+         */
+        public void set(Object row, Object value) {
+            if (compiled != null) {
+                compiled.set(row, index, value);
+                return;
+            }
+            if (setter == null) {
+                throw new IllegalStateException("字段不能赋值: " + field.getName());
+            }
+            try {
+                setter.invokeExact(row, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException("设置字段失败: " + field.getName(), e);
+            }
+        }
+        
+        /**
+         * final字段只能通过已设置为可访问的Field取得写入句柄
+         */
+        private static MethodHandle setterOf(Field field) throws IllegalAccessException {
+            MethodType type = MethodType.methodType(void.class, Object.class, Object.class);
+            if (!Modifier.isFinal(field.getModifiers())) {
+                return privateLookup(field.getDeclaringClass()).unreflectSetter(field).asType(type);
+            }
+            try {
+                field.setAccessible(true);
+                return LOOKUP.unreflectSetter(field).asType(type);
+            } catch (RuntimeException | IllegalAccessException e) {
+                return null;
+            }
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,250 @@
+package com.study.tools.highExcelTools.util;
+
+import com.study.tools.highExcelTools.config.ExcelConfig;
+import com.study.tools.highExcelTools.config.ProgressCallback;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 异步进度分发器
+ * <p>
+ * 读取、处理、写入线程只累加行数计数器或记录最新阶段，不直接调用进度回调；
+ * 由一个后台调度线程按{@link ExcelConfig#getProgressIntervalMillis()}的间隔汇总发布，
+ * 并在调度线程中计算速度(行/秒)和预计剩余时间，回调耗时不影响读取和写入的吞吐量。
+ * </p>
+ * <p>
+ * 两次发布之间的阶段事件只保留最新的一个；行数进度以"读取数据"、"写入数据"阶段发布，
+ * current为累计行数，total为预计总行数(未知时为-1)，message中带速度和预计剩余时间。
+ * </p>
+ */
+@Slf4j
+public class ProgressDispatcher implements ProgressCallback, AutoCloseable {
+    // 默认发布间隔(毫秒)
+    private static final long DEFAULT_INTERVAL_MILLIS = 500;
+    
+    // 所有分发器共用的调度线程，回调在该线程中依次执行
+    private static volatile ScheduledExecutorService scheduler;
+    
+    private final ProgressCallback delegate;
+    private final String processId;
+    private final long intervalMillis;
+    
+    // 已读取、已写入行数
+    private final LongAdder readRows = new LongAdder();
+    private final LongAdder writtenRows = new LongAdder();
+    // 预计读取、写入总行数(-1表示未知)
+    private final long expectedReadRows;
+    private volatile long expectedWriteRows = -1;
+    // 尚未发布的最新阶段事件
+    private final AtomicReference<PhaseEvent> pendingPhase = new AtomicReference<>();
+    
+    // 发布任务
+    private ScheduledFuture<?> task;
+    // 以下状态只在调度线程中访问
+    private final RateWindow readRate = new RateWindow();
+    private final RateWindow writeRate = new RateWindow();
+    
+    public ProgressDispatcher(ProgressCallback delegate, String processId, long intervalMillis, long expectedReadRows) {
+        this.delegate = delegate;
+        this.processId = processId;
+        this.intervalMillis = intervalMillis > 0 ? intervalMillis : DEFAULT_INTERVAL_MILLIS;
+        this.expectedReadRows = expectedReadRows > 0 ? expectedReadRows : -1;
+    }
+    
+    /**
+     * 按配置创建分发器，配置中没有进度回调时所有方法都只更新计数器
+     */
+    public static ProgressDispatcher create(ExcelConfig<?> config, String processId) {
+        return new ProgressDispatcher(config.getProgressCallback(), processId,
+                config.getProgressIntervalMillis(), config.getExpectedRowCount());
+    }
+    
+    /**
+     * 开始定时发布，重复调用无副作用
+     */
+    public synchronized void start() {
+        if (delegate == null || task != null) {
+            return;
+        }
+        // 速度统计起点在调用线程中取值，再交给调度线程
+        long read = readRows.sum();
+        long written = writtenRows.sum();
+        long now = System.nanoTime();
+        scheduler().execute(() -> resetRates(read, written, now));
+        task = scheduler().scheduleWithFixedDelay(this::publish, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * 停止定时发布，尚未发布的进度在调度线程中最后发布一次，不等待回调完成
+     */
+    @Override
+    public synchronized void close() {
+        if (task == null) {
+            return;
+        }
+        task.cancel(false);
+        task = null;
+        scheduler().execute(this::publish);
+    }
+    
+    /**
+     * 记录阶段事件，由调度线程在下一次发布时回调
+     */
+    @Override
+    public void onProgress(long current, long total, String phase, String message) {
+        if (delegate != null) {
+            pendingPhase.set(new PhaseEvent(current, total, phase, message));
+        }
+    }
+    
+    /**
+     * 累加已读取行数
+     */
+    public void addReadRows(long rows) {
+        readRows.add(rows);
+    }
+    
+    /**
+     * 累加已写入行数
+     */
+    public void addWrittenRows(long rows) {
+        writtenRows.add(rows);
+    }
+    
+    /**
+     * 设置预计写入总行数，用于计算写入阶段的预计剩余时间
+     */
+    public void setExpectedWriteRows(long rows) {
+        this.expectedWriteRows = rows;
+    }
+    
+    public long getReadRows() {
+        return readRows.sum();
+    }
+    
+    public long getWrittenRows() {
+        return writtenRows.sum();
+    }
+    
+    /**
+     * 发布一次进度(在调度线程中执行)
+     */
+    private void publish() {
+        PhaseEvent phase = pendingPhase.getAndSet(null);
+        if (phase != null) {
+            deliver(phase.current, phase.total, phase.phase, phase.message);
+        }
+        
+        long now = System.nanoTime();
+        long read = readRows.sum();
+        if (readRate.advance(read, now)) {
+            deliver(read, expectedReadRows, "读取数据", readRate.describe(read, expectedReadRows));
+        }
+        long written = writtenRows.sum();
+        if (writeRate.advance(written, now)) {
+            deliver(written, expectedWriteRows, "写入数据", writeRate.describe(written, expectedWriteRows));
+        }
+    }
+    
+    /**
+     * 设置速度统计起点(在调度线程中执行)
+     */
+    private void resetRates(long read, long written, long now) {
+        readRate.reset(read, now);
+        writeRate.reset(written, now);
+    }
+    
+    /**
+     * 调用进度回调，回调异常只记录日志
+     */
+    private void deliver(long current, long total, String phase, String message) {
+        try {
+            delegate.onProgress(current, total, phase, message);
+        } catch (Exception e) {
+            log.warn("[{}] 进度回调异常: {}", processId, e.getMessage());
+        }
+    }
+    
+    private static ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            synchronized (ProgressDispatcher.class) {
+                if (scheduler == null) {
+                    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+                        Thread thread = new Thread(r, "excel-progress");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    executor.setRemoveOnCancelPolicy(true);
+                    scheduler = executor;
+                }
+            }
+        }
+        return scheduler;
+    }
+    
+    /**
+     * 阶段事件
+     */
+    private static class PhaseEvent {
+        private final long current;
+        private final long total;
+        private final String phase;
+        private final String message;
+        
+        private PhaseEvent(long current, long total, String phase, String message) {
+            this.current = current;
+            this.total = total;
+            this.phase = phase;
+            this.message = message;
+        }
+    }
+    
+    /**
+     * 行数速度统计: 速度取最近一个发布间隔的值，预计剩余时间按开始以来的平均速度计算
+     */
+    private static class RateWindow {
+        private long startRows;
+        private long startNanos;
+        private long lastRows;
+        private long lastNanos;
+        private double rowsPerSecond;
+        
+        private void reset(long rows, long nanos) {
+            startRows = lastRows = rows;
+            startNanos = lastNanos = nanos;
+            rowsPerSecond = 0;
+        }
+        
+        /**
+         * 行数有变化时更新速度
+         * @return 行数是否有变化
+         */
+        private boolean advance(long rows, long nanos) {
+            if (rows == lastRows) {
+                return false;
+            }
+            long elapsed = nanos - lastNanos;
+            rowsPerSecond = elapsed > 0 ? (rows - lastRows) * 1e9 / elapsed : 0;
+            lastRows = rows;
+            lastNanos = nanos;
+            return true;
+        }
+        
+        private String describe(long rows, long expected) {
+            StringBuilder message = new StringBuilder("速度: ").append(Math.round(rowsPerSecond)).append(" 行/秒");
+            long elapsed = lastNanos - startNanos;
+            if (expected > 0 && rows < expected && elapsed > 0 && rows > startRows) {
+                double average = (rows - startRows) * 1e9 / elapsed;
+                long etaSeconds = (long) Math.ceil((expected - rows) / average);
+                message.append(", 预计剩余: ").append(etaSeconds).append(" 秒");
+            }
+            return message.toString();
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,24 @@
+package com.study.tools.highExcelTools.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 行数据二进制编码器
+ * 用于把数据行溢写到临时文件(如外部排序的有序段)并按顺序读回
+ *
+ * @param <T> 数据模型类型
+ */
+public interface RowCodec<T> {
+    
+    /**
+     * 写入一行
+     */
+    void write(T row, DataOutput out) throws IOException;
+    
+    /**
+     * 读取一行
+     */
+    T read(DataInput in) throws IOException;
+} 
\ No newline at end of file
@@ -0,0 +1,133 @@
+package com.study.tools.highExcelTools.util;
+
+import com.study.tools.highExcelTools.model.Row;
+import com.study.tools.highExcelTools.model.RowSchema;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 无模型行的编码器
+ * <p>
+ * 表头不写入每一行，只写表头编号；编号到表头的对应关系保存在编码器实例中，
+ * 因此同一批溢写文件必须由同一个编码器实例写入和读回(外部排序的一个排序器即满足)。
+ * 单元格值前写一个类型字节，读取后的字符串以及常见数值类型按原类型还原，其他类型按Java序列化编码。
+ * </p>
+ */
+public class RowValueCodec implements RowCodec<Row> {
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte LONG = 2;
+    private static final byte INT = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte BIG_DECIMAL = 5;
+    private static final byte BOOLEAN = 6;
+    private static final byte SERIALIZED = 7;
+    
+    // 表头编号(按实例区分，不同文件的同名表头由读取器合并为同一实例)
+    private final Map<RowSchema, Integer> schemaIds = new ConcurrentHashMap<>();
+    private final List<RowSchema> schemas = new CopyOnWriteArrayList<>();
+    
+    @Override
+    public void write(Row row, DataOutput out) throws IOException {
+        out.writeInt(schemaId(row.getSchema()));
+        for (int i = 0; i < row.size(); i++) {
+            writeValue(row.get(i), out);
+        }
+    }
+    
+    @Override
+    public Row read(DataInput in) throws IOException {
+        RowSchema schema = schemas.get(in.readInt());
+        Object[] values = new Object[schema.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readValue(in);
+        }
+        return new Row(schema, values);
+    }
+    
+    private int schemaId(RowSchema schema) {
+        Integer id = schemaIds.get(schema);
+        if (id != null) {
+            return id;
+        }
+        synchronized (schemas) {
+            return schemaIds.computeIfAbsent(schema, s -> {
+                schemas.add(s);
+                return schemas.size() - 1;
+            });
+        }
+    }
+    
+    private static void writeValue(Object value, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            FieldRowCodec.writeString(out, (String) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(BIG_DECIMAL);
+            FieldRowCodec.writeString(out, value.toString());
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else {
+            out.writeByte(SERIALIZED);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream objectOut = new ObjectOutputStream(bytes)) {
+                objectOut.writeObject(value);
+            }
+            out.writeInt(bytes.size());
+            out.write(bytes.toByteArray());
+        }
+    }
+    
+    private static Object readValue(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return FieldRowCodec.readString(in);
+            case LONG:
+                return in.readLong();
+            case INT:
+                return in.readInt();
+            case DOUBLE:
+                return in.readDouble();
+            case BIG_DECIMAL:
+                return new BigDecimal(FieldRowCodec.readString(in));
+            case BOOLEAN:
+                return in.readBoolean();
+            case SERIALIZED:
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return objectIn.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException("反序列化单元格失败", e);
+                }
+            default:
+                throw new IOException("未知的单元格类型: " + type);
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,79 @@
+package com.study.tools.highExcelTools.util;
+
+import com.study.tools.highExcelTools.model.Row;
+import com.study.tools.highExcelTools.util.ModelMetadata.FieldAccessor;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 排序列解析工具
+ * <p>
+ * 把 "字段名或表头 [ASC|DESC]" 形式的排序列转换为比较器，多列按先后顺序依次比较。
+ * 列名先按字段名匹配，再按@ExcelProperty表头匹配；字段值需实现Comparable，null值排在最后。
+ * 无模型读取模式({@link Row})下列名即表头，按单元格值比较。
+ * </p>
+ * 示例: SortKeys.comparator(UserModel.class, Arrays.asList("注册时间 DESC", "id"))
+ */
+public final class SortKeys {
+    
+    private SortKeys() {
+    }
+    
+    /**
+     * 根据排序列创建比较器
+     *
+     * @param modelClass 数据模型类
+     * @param sortColumns 排序列
+     * @return 比较器
+     */
+    public static <T> Comparator<T> comparator(Class<T> modelClass, List<String> sortColumns) {
+        if (sortColumns == null || sortColumns.isEmpty()) {
+            throw new IllegalArgumentException("排序列不能为空");
+        }
+        
+        Comparator<T> result = null;
+        for (String spec : sortColumns) {
+            Comparator<T> column = columnComparator(modelClass, spec);
+            result = result == null ? column : result.thenComparing(column);
+        }
+        return result;
+    }
+    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Comparator<T> columnComparator(Class<T> modelClass, String spec) {
+        String[] parts = spec.trim().split("\\s+");
+        if (parts.length == 0 || parts[0].isEmpty() || parts.length > 2) {
+            throw new IllegalArgumentException("排序列格式错误: " + spec);
+        }
+        
+        boolean descending = false;
+        if (parts.length == 2) {
+            String direction = parts[1].toUpperCase(Locale.ROOT);
+            if ("DESC".equals(direction)) {
+                descending = true;
+            } else if (!"ASC".equals(direction)) {
+                throw new IllegalArgumentException("排序方向只能是ASC或DESC: " + spec);
+            }
+        }
+        
+        Comparator<Comparable> natural = Comparator.naturalOrder();
+        Comparator<Comparable> values = Comparator.nullsLast(descending ? natural.reversed() : natural);
+        
+        if (Row.class.equals(modelClass)) {
+            String header = parts[0];
+            return (a, b) -> values.compare((Comparable) ((Row) a).get(header), (Comparable) ((Row) b).get(header));
+        }
+        
+        FieldAccessor field = ModelMetadata.of(modelClass).findColumn(parts[0]);
+        if (field == null) {
+            throw new IllegalArgumentException("找不到排序列: " + parts[0] + " (" + modelClass.getSimpleName() + ")");
+        }
+        Class<?> type = field.getType();
+        if (!type.isPrimitive() && !Comparable.class.isAssignableFrom(type)) {
+            throw new IllegalArgumentException("排序字段不可比较: " + field.getName() + " (" + type.getName() + ")");
+        }
+        return (a, b) -> values.compare((Comparable) field.get(a), (Comparable) field.get(b));
+    }
+} 
\ No newline at end of file
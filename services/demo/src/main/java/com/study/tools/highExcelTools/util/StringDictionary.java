@@ -0,0 +1,202 @@
+package com.study.tools.highExcelTools.util;
+
+import com.study.tools.highExcelTools.model.Row;
+import com.study.tools.highExcelTools.model.RowSchema;
+import com.study.tools.highExcelTools.util.ModelMetadata.FieldAccessor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 低基数字符串列的字典
+ * <p>
+ * 城市、省份、等级、状态这类列在百万行中只有几十个不同取值，而EasyExcel为每个单元格创建新的String。
+ * 读取时把这些列的值替换为字典中的同值实例，合并结果中相同取值只保留一份，读取期间新建的字符串也很快成为垃圾，降低老年代压力。
+ * </p>
+ * <p>
+ * 列可以显式配置(字段名、@ExcelProperty表头或无模型模式的表头)，也可以自动识别：所有String列都先进入字典，
+ * 某列不同取值超过上限后判定为高基数列，清空该列字典并不再处理。显式配置的列不受该上限约束，只受{@link #CONFIGURED_MAX_DISTINCT}保护。
+ * </p>
+ * <p>
+ * 一个读取任务一个实例，线程安全。
+ * </p>
+ */
+@Slf4j
+public class StringDictionary {
+    // 显式配置列的不同值上限，超过后新值不再进入字典(已有值仍然复用)
+    public static final int CONFIGURED_MAX_DISTINCT = 65_536;
+    
+    private final Set<String> configuredColumns;
+    private final boolean autoDetect;
+    private final int maxDistinct;
+    
+    // 列名到列字典
+    private final Map<String, ColumnDictionary> columns = new ConcurrentHashMap<>();
+    // 模型类到需要处理的字段
+    private final Map<Class<?>, FieldSlot[]> beanSlots = new ConcurrentHashMap<>();
+    // 无模型表头到各列字典
+    private final Map<RowSchema, ColumnDictionary[]> rowSlots = new ConcurrentHashMap<>();
+    
+    /**
+     * @param configuredColumns 显式配置的列(可为空)
+     * @param autoDetect 是否自动识别其他String列
+     * @param maxDistinct 自动识别时每列的不同值上限
+     */
+    public StringDictionary(Collection<String> configuredColumns, boolean autoDetect, int maxDistinct) {
+        this.configuredColumns = configuredColumns != null ? new HashSet<>(configuredColumns) : new HashSet<>();
+        this.autoDetect = autoDetect;
+        this.maxDistinct = maxDistinct;
+    }
+    
+    /**
+     * 将一行中字典列的值替换为字典实例
+     * @param row 模型对象或{@link Row}
+     */
+    public void canonicalize(Object row) {
+        if (row instanceof Row) {
+            canonicalizeRow((Row) row);
+            return;
+        }
+        
+        FieldSlot[] slots = beanSlots.computeIfAbsent(row.getClass(), this::resolveFields);
+        for (FieldSlot slot : slots) {
+            if (slot.column.disabled) continue;
+            String value = (String) slot.field.get(row);
+            if (value != null) {
+                String canonical = slot.column.intern(value);
+                if (canonical != value) {
+                    slot.field.set(row, canonical);
+                }
+            }
+        }
+    }
+    
+    private void canonicalizeRow(Row row) {
+        ColumnDictionary[] slots = rowSlots.computeIfAbsent(row.getSchema(), this::resolveHeaders);
+        for (int i = 0; i < slots.length; i++) {
+            ColumnDictionary column = slots[i];
+            if (column == null || column.disabled) continue;
+            Object value = row.get(i);
+            if (value instanceof String) {
+                row.set(i, column.intern((String) value));
+            }
+        }
+    }
+    
+    /**
+     * 各列字典的统计(列名 -> 不同值数量，已判定为高基数的列为-1)
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        for (Map.Entry<String, ColumnDictionary> entry : columns.entrySet()) {
+            ColumnDictionary column = entry.getValue();
+            statistics.put(entry.getKey(), column.disabled ? -1L : column.values.size());
+        }
+        return statistics;
+    }
+    
+    /**
+     * 输出字典统计日志
+     */
+    public void logStatistics(String processId) {
+        for (Map.Entry<String, ColumnDictionary> entry : columns.entrySet()) {
+            ColumnDictionary column = entry.getValue();
+            if (column.disabled) {
+                log.info("[{}] 字符串字典: 列 {} 不同值超过{}，按高基数列处理", processId, entry.getKey(), maxDistinct);
+            } else {
+                log.info("[{}] 字符串字典: 列 {} 不同值 {}，复用 {} 次",
+                        processId, entry.getKey(), column.values.size(), column.hits.sum());
+            }
+        }
+    }
+    
+    private FieldSlot[] resolveFields(Class<?> modelClass) {
+        List<FieldSlot> slots = new ArrayList<>();
+        for (FieldAccessor field : ModelMetadata.of(modelClass).getFields()) {
+            if (field.getType() != String.class || field.isFinal()) {
+                continue;
+            }
+            ColumnDictionary column = columnFor(field.getName(), field.getHeads());
+            if (column != null) {
+                slots.add(new FieldSlot(field, column));
+            }
+        }
+        return slots.toArray(new FieldSlot[0]);
+    }
+    
+    private ColumnDictionary[] resolveHeaders(RowSchema schema) {
+        ColumnDictionary[] slots = new ColumnDictionary[schema.size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = columnFor(schema.getHeader(i), new String[0]);
+        }
+        return slots;
+    }
+    
+    /**
+     * 取得列字典，列既未配置也不自动识别时返回null
+     */
+    private ColumnDictionary columnFor(String name, String[] headers) {
+        boolean matched = configuredColumns.contains(name);
+        for (String header : headers) {
+            matched |= configuredColumns.contains(header);
+        }
+        boolean configured = matched;
+        if (!configured && !autoDetect) {
+            return null;
+        }
+        int limit = configured ? CONFIGURED_MAX_DISTINCT : maxDistinct;
+        return columns.computeIfAbsent(name, key -> new ColumnDictionary(configured, limit));
+    }
+    
+    private static class FieldSlot {
+        final FieldAccessor field;
+        final ColumnDictionary column;
+        
+        FieldSlot(FieldAccessor field, ColumnDictionary column) {
+            this.field = field;
+            this.column = column;
+        }
+    }
+    
+    /**
+     * 单列字典
+     */
+    private static class ColumnDictionary {
+        final Map<String, String> values = new ConcurrentHashMap<>();
+        final LongAdder hits = new LongAdder();
+        final boolean configured;
+        final int limit;
+        // 自动识别的列超过不同值上限后停用
+        volatile boolean disabled;
+        
+        ColumnDictionary(boolean configured, int limit) {
+            this.configured = configured;
+            this.limit = limit;
+        }
+        
+        String intern(String value) {
+            String existing = values.get(value);
+            if (existing != null) {
+                hits.increment();
+                return existing;
+            }
+            if (values.size() >= limit) {
+                if (!configured) {
+                    disabled = true;
+                    values.clear();
+                }
+                return value;
+            }
+            existing = values.putIfAbsent(value, value);
+            return existing != null ? existing : value;
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,176 @@
+package com.study.tools.excelNew;
+
+import com.alibaba.excel.EasyExcel;
+import com.study.tools.excelNew.util.DirectoryMergeWatcher;
+import com.study.tools.excelNew.util.ExcelMergeUtil;
+import com.study.tools.highExcelTools.example.UserModel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 目录监听增量合并测试
+ */
+public class DirectoryMergeWatcherTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private static List<UserModel> users(int from, int to) {
+        List<UserModel> users = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            UserModel user = new UserModel();
+            user.setId("USER" + i);
+            user.setUsername("name" + i);
+            users.add(user);
+        }
+        return users;
+    }
+    
+    /**
+     * 先写到落地目录之外再移入，模拟上游投递
+     */
+    private void drop(Path landing, String name, List<UserModel> users) throws Exception {
+        Path staged = tempDir.resolve(name);
+        EasyExcel.write(staged.toFile(), UserModel.class).sheet().doWrite(users);
+        Files.move(staged, landing.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertTrue(condition.getAsBoolean(), "等待超时");
+    }
+    
+    @Test
+    void testNewFilesAreAppendedAsPartsWithoutRereading() throws Exception {
+        Path landing = Files.createDirectory(tempDir.resolve("landing"));
+        Path output = tempDir.resolve("out").resolve("merged.xlsx");
+        drop(landing, "a.xlsx", users(0, 100));
+        
+        WatchConfig<UserModel> config = WatchConfig.<UserModel>builder()
+                .sourceDir(landing.toString())
+                .targetFile(output.toString())
+                .modelClass(UserModel.class)
+                .keyExtractor(UserModel::getId)
+                .settleMillis(200)
+                .pollMillis(50)
+                .build();
+        
+        try (DirectoryMergeWatcher<UserModel> watcher = ExcelMergeUtil.watchDirectory(config)) {
+            // 启动时已存在的文件
+            await(() -> watcher.getPublishedParts().size() == 1);
+            assertEquals(100, watcher.getTotalRows());
+            
+            // 新文件与已处理的数据有50个重复键，只追加新键
+            drop(landing, "b.xlsx", users(50, 150));
+            await(() -> watcher.getPublishedParts().size() == 2);
+            
+            assertEquals(2, watcher.getIngestedFileCount());
+            assertEquals(150, watcher.getTotalRows());
+            assertTrue(watcher.getMaxLatencyMillis() >= 200, "延迟应包含稳定等待时间");
+            assertTrue(watcher.getAverageLatencyMillis() > 0);
+            
+            String second = watcher.getPublishedParts().get(1);
+            assertTrue(second.endsWith("merged_00002.xlsx"), second);
+            List<UserModel> rows = EasyExcel.read(second).head(UserModel.class).sheet().doReadSync();
+            assertEquals(50, rows.size());
+            assertEquals("USER100", rows.get(0).getId());
+        }
+    }
+    
+    @Test
+    void testStateSurvivesRestartAndBrokenFileIsQuarantined() throws Exception {
+        Path landing = Files.createDirectory(tempDir.resolve("landing"));
+        Path output = tempDir.resolve("out").resolve("merged.xlsx");
+        drop(landing, "a.xlsx", users(0, 100));
+        
+        WatchConfig<UserModel> config = WatchConfig.<UserModel>builder()
+                .sourceDir(landing.toString())
+                .targetFile(output.toString())
+                .modelClass(UserModel.class)
+                .keyExtractor(UserModel::getId)
+                .settleMillis(200)
+                .pollMillis(50)
+                .build();
+        
+        try (DirectoryMergeWatcher<UserModel> watcher = ExcelMergeUtil.watchDirectory(config)) {
+            await(() -> watcher.getPublishedParts().size() == 1);
+        }
+        
+        // 重启后不重新读取a.xlsx，去重键也已恢复；损坏的文件被隔离，不影响同一轮的其它文件
+        Path broken = tempDir.resolve("broken.xlsx");
+        EasyExcel.write(broken.toFile(), UserModel.class).sheet().doWrite(users(1000, 1100));
+        byte[] content = Files.readAllBytes(broken);
+        Files.write(broken, Arrays.copyOf(content, content.length / 2));
+        Files.move(broken, landing.resolve("broken.xlsx"), StandardCopyOption.ATOMIC_MOVE);
+        drop(landing, "b.xlsx", users(50, 150));
+        
+        try (DirectoryMergeWatcher<UserModel> watcher = ExcelMergeUtil.watchDirectory(config)) {
+            await(() -> watcher.getPublishedParts().size() == 1);
+            
+            String part = watcher.getPublishedParts().get(0);
+            assertTrue(part.endsWith("merged_00002.xlsx"), part);
+            assertEquals(50, watcher.getTotalRows());
+            List<UserModel> rows = EasyExcel.read(part).head(UserModel.class).sheet().doReadSync();
+            assertEquals(50, rows.size());
+            assertEquals("USER100", rows.get(0).getId());
+            
+            assertFalse(Files.exists(landing.resolve("broken.xlsx")));
+            assertTrue(Files.exists(output.getParent().resolve("merged_quarantine").resolve("broken.xlsx")));
+            assertEquals(2, watcher.getIngestedFileCount());
+        }
+    }
+    
+    @Test
+    void testDeletedFileIsForgottenAndJournalOnlyGrows() throws Exception {
+        Path landing = Files.createDirectory(tempDir.resolve("landing"));
+        Path output = tempDir.resolve("out").resolve("merged.xlsx");
+        Path journal = output.getParent().resolve(".merged_journal");
+        drop(landing, "a.xlsx", users(0, 100));
+        
+        WatchConfig<UserModel> config = WatchConfig.<UserModel>builder()
+                .sourceDir(landing.toString())
+                .targetFile(output.toString())
+                .modelClass(UserModel.class)
+                .keyExtractor(UserModel::getId)
+                .settleMillis(200)
+                .pollMillis(50)
+                .build();
+        
+        try (DirectoryMergeWatcher<UserModel> watcher = ExcelMergeUtil.watchDirectory(config)) {
+            await(() -> watcher.getPublishedParts().size() == 1);
+            long firstRound = Files.size(journal);
+            
+            // 删除后不再记录，同名文件再次出现时重新处理，已提交的键仍然去重
+            Files.delete(landing.resolve("a.xlsx"));
+            await(() -> watcher.getIngestedFileCount() == 0);
+            drop(landing, "a.xlsx", users(50, 120));
+            await(() -> watcher.getPublishedParts().size() == 2);
+            
+            assertEquals(120, watcher.getTotalRows());
+            assertEquals(1, watcher.getIngestedFileCount());
+            // 每轮只追加本轮的变化，不重写已有内容
+            assertTrue(Files.size(journal) > firstRound);
+            assertTrue(Files.size(journal) < firstRound * 2, "第二轮只追加20个新键");
+        }
+        
+        drop(landing, "b.xlsx", users(110, 130));
+        try (DirectoryMergeWatcher<UserModel> watcher = ExcelMergeUtil.watchDirectory(config)) {
+            await(() -> watcher.getPublishedParts().size() == 1);
+            assertEquals(10, watcher.getTotalRows());
+            assertEquals(2, watcher.getIngestedFileCount());
+        }
+    }
+} 
\ No newline at end of file
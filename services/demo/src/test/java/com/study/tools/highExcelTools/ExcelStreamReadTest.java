@@ -0,0 +1,106 @@
+package com.study.tools.highExcelTools;
+
+import com.alibaba.excel.EasyExcel;
+import com.study.tools.highExcelTools.config.ExcelConfig;
+import com.study.tools.highExcelTools.core.ExcelIterator;
+import com.study.tools.highExcelTools.core.ExcelReader;
+import com.study.tools.highExcelTools.example.UserModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 按需拉取读取测试
+ */
+public class ExcelStreamReadTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private ExecutorService executor;
+    private final List<String> files = new ArrayList<>();
+    
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        for (int f = 0; f < 3; f++) {
+            List<UserModel> users = new ArrayList<>();
+            for (int i = 0; i < 5000; i++) {
+                UserModel user = new UserModel();
+                user.setId("USER" + f + "_" + i);
+                user.setAge(20 + i % 50);
+                users.add(user);
+            }
+            String file = tempDir.resolve("users" + f + ".xlsx").toString();
+            EasyExcel.write(file, UserModel.class).sheet().doWrite(users);
+            files.add(file);
+        }
+    }
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    private ExcelConfig<UserModel> config() {
+        return ExcelConfig.<UserModel>builder()
+                .modelClass(UserModel.class)
+                .batchSize(100)
+                .maxConcurrentFiles(1)
+                .streamBufferBatches(2)
+                .build();
+    }
+    
+    private static boolean streamThreadAlive() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().startsWith("excel-stream-"));
+    }
+    
+    @Test
+    void testStreamMatchesReadFiles() throws Exception {
+        List<UserModel> expected = new ExcelReader<>(config(), executor, "list").readFiles(files, UserModel.class);
+        
+        List<UserModel> actual;
+        try (Stream<UserModel> stream = new ExcelReader<>(config(), executor, "stream").stream(files, UserModel.class)) {
+            actual = stream.collect(Collectors.toList());
+        }
+        assertEquals(15000, actual.size());
+        assertEquals(expected, actual);
+        
+        // 读完后迭代器自动关闭
+        ExcelIterator<UserModel> iterator = new ExcelReader<>(config(), executor, "iterator").iterator(files, UserModel.class);
+        int count = 0;
+        while (iterator.hasNext()) {
+            assertEquals(expected.get(count++), iterator.next());
+        }
+        assertEquals(15000, count);
+        assertFalse(iterator.hasNext());
+        assertFalse(streamThreadAlive());
+    }
+    
+    @Test
+    void testClosingStreamStopsReading() {
+        ExcelReader<UserModel> reader = new ExcelReader<>(config(), executor, "limit");
+        List<String> ids;
+        try (Stream<UserModel> stream = reader.stream(files, UserModel.class)) {
+            ids = stream.limit(150).map(UserModel::getId).collect(Collectors.toList());
+        }
+        
+        assertEquals(150, ids.size());
+        assertEquals("USER0_149", ids.get(149));
+        // 有界队列限制了提前读取的行数，关闭后读取线程已退出
+        assertTrue(reader.getTotalProcessedRows() < 1000, "已读取 " + reader.getTotalProcessedRows() + " 行");
+        assertFalse(streamThreadAlive());
+    }
+} 
\ No newline at end of file
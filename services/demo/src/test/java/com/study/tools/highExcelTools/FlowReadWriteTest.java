@@ -0,0 +1,237 @@
+package com.study.tools.highExcelTools;
+
+import com.alibaba.excel.EasyExcel;
+import com.study.tools.highExcelTools.config.ExcelConfig;
+import com.study.tools.highExcelTools.core.ExcelReader;
+import com.study.tools.highExcelTools.core.ExcelWriteSubscriber;
+import com.study.tools.highExcelTools.core.ExcelWriter;
+import com.study.tools.highExcelTools.example.UserModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Flow发布与订阅测试
+ */
+public class FlowReadWriteTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private ExecutorService executor;
+    private final List<String> files = new ArrayList<>();
+    
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        for (int f = 0; f < 2; f++) {
+            List<UserModel> users = new ArrayList<>();
+            for (int i = 0; i < 3000; i++) {
+                UserModel user = new UserModel();
+                user.setId("USER" + f + "_" + i);
+                user.setAge(20 + i % 50);
+                users.add(user);
+            }
+            String file = tempDir.resolve("users" + f + ".xlsx").toString();
+            EasyExcel.write(file, UserModel.class).sheet().doWrite(users);
+            files.add(file);
+        }
+    }
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    private ExcelConfig<UserModel> config(String targetFile) {
+        return ExcelConfig.<UserModel>builder()
+                .modelClass(UserModel.class)
+                .targetFile(targetFile)
+                .batchSize(100)
+                .maxConcurrentFiles(1)
+                .build();
+    }
+    
+    private static boolean publishThreadAlive() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().startsWith("excel-publish-"));
+    }
+    
+    @Test
+    void testPublisherFeedsWriteSubscriber() throws Exception {
+        String target = tempDir.resolve("out/merged.xlsx").toString();
+        ExcelReader<UserModel> reader = new ExcelReader<>(config(target), executor, "publish");
+        ExcelWriteSubscriber<UserModel> subscriber = new ExcelWriter<>(config(target), "subscribe").subscriber();
+        
+        reader.publisher(files, UserModel.class).subscribe(subscriber);
+        
+        assertEquals(Long.valueOf(6000), subscriber.getCompletion().get(60, TimeUnit.SECONDS));
+        List<UserModel> expected = new ExcelReader<>(config(target), executor, "expected").readFiles(files, UserModel.class);
+        List<UserModel> actual = EasyExcel.read(target).head(UserModel.class).sheet().doReadSync();
+        assertEquals(expected, actual);
+    }
+    
+    @Test
+    void testDemandPacesReading() throws Exception {
+        ExcelReader<UserModel> reader = new ExcelReader<>(config(null), executor, "demand");
+        List<List<UserModel>> received = new CopyOnWriteArrayList<>();
+        List<String> signals = new CopyOnWriteArrayList<>();
+        CountDownLatch twoBatches = new CountDownLatch(2);
+        Flow.Subscription[] subscription = new Flow.Subscription[1];
+        
+        reader.publisher(files, UserModel.class).subscribe(new Flow.Subscriber<List<UserModel>>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription[0] = s;
+                s.request(2);
+            }
+            
+            @Override
+            public void onNext(List<UserModel> batch) {
+                received.add(batch);
+                twoBatches.countDown();
+            }
+            
+            @Override
+            public void onError(Throwable throwable) {
+                signals.add("error");
+            }
+            
+            @Override
+            public void onComplete() {
+                signals.add("complete");
+            }
+        });
+        
+        assertTrue(twoBatches.await(30, TimeUnit.SECONDS));
+        Thread.sleep(300);
+        // 没有更多需求时读取停在下一个批次
+        assertEquals(2, received.size());
+        assertEquals("USER0_0", received.get(0).get(0).getId());
+        assertTrue(reader.getTotalProcessedRows() <= 300, "已读取 " + reader.getTotalProcessedRows() + " 行");
+        
+        subscription[0].cancel();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (publishThreadAlive() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        // 取消后读取线程退出，不再发出任何信号
+        assertFalse(publishThreadAlive());
+        assertEquals(2, received.size());
+        assertEquals(Collections.emptyList(), signals);
+    }
+    
+    @Test
+    void testCancelDoesNotWaitForRunningOnNext() throws Exception {
+        ExcelReader<UserModel> reader = new ExcelReader<>(config(tempDir.resolve("unused.xlsx").toString()),
+                executor, "cancel");
+        CountDownLatch inOnNext = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Flow.Subscription[] subscription = new Flow.Subscription[1];
+        reader.publisher(files, UserModel.class).subscribe(new Flow.Subscriber<List<UserModel>>() {
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                subscription[0] = s;
+                s.request(1);
+            }
+            
+            @Override
+            public void onNext(List<UserModel> batch) {
+                inOnNext.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            
+            @Override
+            public void onError(Throwable throwable) {
+            }
+            
+            @Override
+            public void onComplete() {
+            }
+        });
+        assertTrue(inOnNext.await(10, TimeUnit.SECONDS));
+        
+        // onNext阻塞期间从其它线程request和cancel立即返回
+        CompletableFuture.runAsync(() -> {
+            subscription[0].request(1);
+            subscription[0].cancel();
+        }).get(2, TimeUnit.SECONDS);
+        release.countDown();
+    }
+    
+    @Test
+    void testFailedWriteSubscriberDeletesTarget() throws Exception {
+        Path target = tempDir.resolve("out/failed.xlsx");
+        ExcelWriteSubscriber<UserModel> subscriber = new ExcelWriter<>(config(target.toString()), "fail").subscriber();
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+            
+            @Override
+            public void cancel() {
+            }
+        });
+        UserModel user = new UserModel();
+        user.setId("USER1");
+        subscriber.onNext(Collections.singletonList(user));
+        assertTrue(Files.exists(target));
+        
+        subscriber.onError(new IllegalStateException("读取失败"));
+        assertTrue(subscriber.getCompletion().isCompletedExceptionally());
+        assertFalse(Files.exists(target), "失败时删除不完整的目标文件");
+    }
+    
+    @Test
+    void testFinishFailureCompletesExceptionally() {
+        // 内存模式在完成时才写出工作簿，写出失败时不能按成功完成
+        OutputStream broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("磁盘已满");
+            }
+        };
+        ExcelConfig<UserModel> config = ExcelConfig.<UserModel>builder()
+                .modelClass(UserModel.class)
+                .targetStream(broken)
+                .build();
+        ExcelWriteSubscriber<UserModel> subscriber = new ExcelWriter<>(config, "finish").subscriber();
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+            }
+            
+            @Override
+            public void cancel() {
+            }
+        });
+        UserModel user = new UserModel();
+        user.setId("USER1");
+        subscriber.onNext(Collections.singletonList(user));
+        subscriber.onComplete();
+        
+        assertTrue(subscriber.getCompletion().isCompletedExceptionally());
+    }
+} 
\ No newline at end of file
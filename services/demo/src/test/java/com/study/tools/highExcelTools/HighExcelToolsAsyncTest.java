@@ -0,0 +1,128 @@
+package com.study.tools.highExcelTools;
+
+import com.alibaba.excel.EasyExcel;
+import com.study.tools.highExcelTools.config.ExcelConfig;
+import com.study.tools.highExcelTools.core.ExcelReader;
+import com.study.tools.highExcelTools.example.UserModel;
+import com.study.tools.highExcelTools.model.ExcelResult;
+import com.study.tools.highExcelTools.model.MergeHandle;
+import com.study.tools.highExcelTools.util.MergeCancelledException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 异步合并与取消测试
+ */
+public class HighExcelToolsAsyncTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private List<String> sourceFiles;
+    
+    @BeforeEach
+    void setUp() {
+        sourceFiles = new ArrayList<>();
+        for (int f = 0; f < 2; f++) {
+            List<UserModel> rows = new ArrayList<>();
+            for (int i = 0; i < 5000; i++) {
+                UserModel user = new UserModel();
+                user.setId("USER" + (f * 5000 + i));
+                user.setPoints(i);
+                rows.add(user);
+            }
+            String file = tempDir.resolve("source" + f + ".xlsx").toString();
+            EasyExcel.write(file, UserModel.class).sheet().doWrite(rows);
+            sourceFiles.add(file);
+        }
+    }
+    
+    @Test
+    void testAsyncMergeCompletes() throws Exception {
+        String target = tempDir.resolve("out/merged.xlsx").toString();
+        ExcelConfig<UserModel> config = ExcelConfig.simpleConfig(sourceFiles, target, UserModel.class);
+        
+        MergeHandle<UserModel> handle = new HighExcelTools().mergeExcelAsync(config);
+        ExcelResult<UserModel> result = handle.getFuture().get(60, TimeUnit.SECONDS);
+        
+        assertTrue(result.isSuccess());
+        assertFalse(result.isCancelled());
+        assertEquals(10000, result.getTotalRows());
+        assertTrue(Files.exists(tempDir.resolve("out/merged.xlsx")));
+    }
+    
+    @Test
+    void testCancelDeletesPartialOutputAndReportsPartialStats() throws Exception {
+        String target = tempDir.resolve("out/cancelled.xlsx").toString();
+        CountDownLatch firstBatch = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        
+        // 第一个批次进入过滤器后阻塞，等待测试线程发出取消
+        ExcelConfig<UserModel> config = ExcelConfig.<UserModel>builder()
+                .sourceFiles(sourceFiles)
+                .targetFile(target)
+                .modelClass(UserModel.class)
+                .batchSize(500)
+                .filter(user -> {
+                    firstBatch.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return true;
+                })
+                .build();
+        
+        MergeHandle<UserModel> handle = new HighExcelTools().mergeExcelAsync(config);
+        assertTrue(firstBatch.await(60, TimeUnit.SECONDS));
+        assertTrue(handle.cancel("测试取消"));
+        release.countDown();
+        
+        ExcelResult<UserModel> result = handle.getFuture().get(60, TimeUnit.SECONDS);
+        
+        assertTrue(result.isCancelled());
+        assertFalse(result.isSuccess());
+        assertTrue(result.getErrorMessage().contains("测试取消"));
+        assertTrue(result.getTotalRows() > 0 && result.getTotalRows() < 10000,
+                "已读取行数应为部分统计: " + result.getTotalRows());
+        assertFalse(Files.exists(tempDir.resolve("out/cancelled.xlsx")));
+        assertTrue(handle.isDone());
+    }
+    
+    @Test
+    void testCancelFromBatchCallbackStopsReadingFile() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ExcelConfig<UserModel> config = ExcelConfig.<UserModel>builder()
+                .sourceFiles(sourceFiles.subList(0, 1))
+                .modelClass(UserModel.class)
+                .batchSize(500)
+                .build();
+        ExcelReader<UserModel> reader = new ExcelReader<>(config, executor, "test");
+        AtomicInteger batches = new AtomicInteger();
+        
+        // 批次回调中抛出的取消异常不按行错误处理，读取立即停止
+        Exception e = assertThrows(Exception.class, () -> reader.readFilesWithCallback(sourceFiles.subList(0, 1),
+                UserModel.class, batch -> {
+                    batches.incrementAndGet();
+                    throw new MergeCancelledException("回调取消");
+                }));
+        assertTrue(MergeCancelledException.isCause(e), e.toString());
+        assertEquals(1, batches.get());
+        executor.shutdownNow();
+    }
+} 
\ No newline at end of file
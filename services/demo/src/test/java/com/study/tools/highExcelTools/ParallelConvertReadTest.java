@@ -0,0 +1,95 @@
+package com.study.tools.highExcelTools;
+
+import com.alibaba.excel.EasyExcel;
+import com.study.tools.highExcelTools.config.ExcelConfig;
+import com.study.tools.highExcelTools.core.ExcelReader;
+import com.study.tools.highExcelTools.example.UserModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 单文件并行行转换测试
+ */
+public class ParallelConvertReadTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private ExecutorService executor;
+    private String file;
+    
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        
+        // 表头与UserModel一致，第777行的年龄不是数字，转换失败
+        file = tempDir.resolve("users.xlsx").toString();
+        List<List<Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            rows.add(Arrays.asList("USER" + i, "name" + i, i == 777 ? "abc" : String.valueOf(20 + i % 50),
+                    "u" + i + "@test.com", "1380000" + i, String.valueOf(i * 10),
+                    "2024-01-02 03:04:05", String.valueOf(i % 2), "R" + (i % 7)));
+        }
+        List<List<String>> head = new ArrayList<>();
+        for (String name : Arrays.asList("用户ID", "用户名", "年龄", "邮箱", "手机号", "积分", "注册时间", "状态", "备注")) {
+            head.add(Collections.singletonList(name));
+        }
+        EasyExcel.write(file).head(head).sheet().doWrite(rows);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    private ExcelConfig<UserModel> config(int convertThreads) {
+        return ExcelConfig.<UserModel>builder()
+                .modelClass(UserModel.class)
+                .batchSize(700)
+                .convertThreads(convertThreads)
+                .build();
+    }
+    
+    @Test
+    void testParallelConvertMatchesSequentialRead() throws Exception {
+        ExcelReader<UserModel> sequentialReader = new ExcelReader<>(config(0), executor, "seq");
+        List<UserModel> expected = sequentialReader.readFiles(Collections.singletonList(file), UserModel.class);
+        
+        ExcelReader<UserModel> parallelReader = new ExcelReader<>(config(4), executor, "par");
+        Set<String> callbackThreads = ConcurrentHashMap.newKeySet();
+        List<UserModel> actual = new ArrayList<>();
+        parallelReader.readFilesWithCallback(Collections.singletonList(file), UserModel.class, batch -> {
+            callbackThreads.add(Thread.currentThread().getName());
+            actual.addAll(batch);
+        });
+        
+        // 行顺序、字段转换(含日期格式)与逐行读取一致，转换失败的行同样被跳过并记录
+        assertEquals(4999, expected.size());
+        assertEquals(expected, actual);
+        assertNotNull(actual.get(0).getRegisterTime());
+        assertEquals("USER778", actual.get(777).getId());
+        assertEquals(sequentialReader.getErrorCollector().getErrorCount(),
+                parallelReader.getErrorCollector().getErrorCount());
+        assertEquals(sequentialReader.getErrorCollector().getErrorRecords().get(0).getRowIndex(),
+                parallelReader.getErrorCollector().getErrorRecords().get(0).getRowIndex());
+        assertEquals(778L, parallelReader.getErrorCollector().getErrorRecords().get(0).getRowIndex());
+        
+        // 批次仍在同一个文件读取线程中回调
+        assertEquals(1, callbackThreads.size());
+        assertFalse(callbackThreads.iterator().next().startsWith("excel-convert"));
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,151 @@
+package com.study.tools.highExcelTools;
+
+import com.alibaba.excel.EasyExcel;
+import com.study.tools.highExcelTools.config.ExcelConfig;
+import com.study.tools.highExcelTools.core.ExcelReader;
+import com.study.tools.highExcelTools.example.UserModel;
+import com.study.tools.highExcelTools.model.Row;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 大Sheet分块并行读取测试
+ */
+public class ParallelSheetReadTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private ExecutorService executor;
+    private Path chunkDir;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(2);
+        chunkDir = Files.createDirectory(tempDir.resolve("chunks"));
+    }
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    private static List<List<String>> head() {
+        List<List<String>> head = new ArrayList<>();
+        for (String name : Arrays.asList("用户ID", "用户名", "年龄", "邮箱", "手机号", "积分", "注册时间", "状态", "备注")) {
+            head.add(Collections.singletonList(name));
+        }
+        return head;
+    }
+    
+    /**
+     * 第badRow行的年龄不是数字
+     */
+    private String write(int count, int badRow) {
+        List<List<Object>> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(Arrays.asList("USER" + i, "name" + i, i == badRow ? "abc" : (Object) (20 + i % 50),
+                    "u" + i + "@test.com", "1380000" + i, i * 10,
+                    "2024-01-02 03:04:05", String.valueOf(i % 2), "R" + (i % 7)));
+        }
+        String file = tempDir.resolve("users.xlsx").toString();
+        // 内存模式写入共享字符串表
+        EasyExcel.write(file).head(head()).inMemory(true).sheet("users").doWrite(rows);
+        return file;
+    }
+    
+    private <T> ExcelConfig<T> config(Class<T> modelClass, int parallelSheetThreads) {
+        return ExcelConfig.<T>builder()
+                .modelClass(modelClass)
+                .batchSize(500)
+                .parallelSheetThreads(parallelSheetThreads)
+                .parallelSheetMinBytes(0)
+                .sharedStringsTempDir(chunkDir.toString())
+                .build();
+    }
+    
+    @Test
+    void testChunkedReadMatchesSequentialRead() throws Exception {
+        String file = write(20000, 15000);
+        
+        ExcelReader<UserModel> sequential = new ExcelReader<>(config(UserModel.class, 0), executor, "sequential");
+        List<UserModel> expected = sequential.readFiles(Collections.singletonList(file), UserModel.class);
+        
+        ExcelReader<UserModel> chunked = new ExcelReader<>(config(UserModel.class, 3), executor, "chunked");
+        List<UserModel> actual = new ArrayList<>();
+        List<String> threads = new ArrayList<>();
+        chunked.readFilesWithCallback(Collections.singletonList(file), UserModel.class, batch -> {
+            threads.add(Thread.currentThread().getName());
+            actual.addAll(batch);
+        });
+        
+        // 行顺序、共享字符串和日期转换与整文件读取一致，批次都在文件读取线程中回调
+        assertEquals(19999, expected.size());
+        assertEquals(expected, actual);
+        assertNotNull(actual.get(0).getRegisterTime());
+        assertEquals(1, threads.stream().distinct().count());
+        // 转换失败的行号还原为原文件行号
+        assertEquals(1, chunked.getErrorCollector().getErrorCount());
+        assertEquals(sequential.getErrorCollector().getErrorRecords().get(0).getRowIndex(),
+                chunked.getErrorCollector().getErrorRecords().get(0).getRowIndex());
+        assertEquals(15001L, chunked.getErrorCollector().getErrorRecords().get(0).getRowIndex());
+        try (Stream<Path> files = Files.list(chunkDir)) {
+            assertEquals(0, files.count(), "读取结束后分块文件应被删除");
+        }
+    }
+    
+    @Test
+    void testSchemaLessChunkedRead() throws Exception {
+        String file = write(12000, -1);
+        
+        ExcelReader<Row> sequential = new ExcelReader<>(config(Row.class, 0), executor, "sequential");
+        List<Row> expected = sequential.readFiles(Collections.singletonList(file), Row.class);
+        ExcelReader<Row> chunked = new ExcelReader<>(config(Row.class, 2), executor, "chunked");
+        List<Row> actual = chunked.readFiles(Collections.singletonList(file), Row.class);
+        
+        assertEquals(12000, actual.size());
+        assertEquals(expected.stream().map(Row::toString).collect(Collectors.toList()),
+                actual.stream().map(Row::toString).collect(Collectors.toList()));
+        assertSame(actual.get(0).getSchema(), actual.get(actual.size() - 1).getSchema());
+        assertEquals("USER11999", actual.get(11999).getString("用户ID"));
+    }
+    
+    @Test
+    void testChunkedReadWithParallelConvertAndMappedStrings() throws Exception {
+        String file = write(20000, -1);
+        ExcelReader<UserModel> sequential = new ExcelReader<>(config(UserModel.class, 0), executor, "sequential");
+        List<UserModel> expected = sequential.readFiles(Collections.singletonList(file), UserModel.class);
+        
+        // 分块读取同样使用并行行转换，共享字符串表写入内存映射文件后由各分块并发读取
+        ExcelConfig<UserModel> config = ExcelConfig.<UserModel>builder()
+                .modelClass(UserModel.class)
+                .batchSize(500)
+                .parallelSheetThreads(3)
+                .parallelSheetMinBytes(0)
+                .convertThreads(2)
+                .sharedStringsHeapBytes(0)
+                .sharedStringsCacheEntries(64)
+                .sharedStringsTempDir(chunkDir.toString())
+                .build();
+        ExcelReader<UserModel> chunked = new ExcelReader<>(config, executor, "chunked");
+        List<UserModel> actual = chunked.readFiles(Collections.singletonList(file), UserModel.class);
+        
+        assertEquals(expected, actual);
+        assertEquals("u19999@test.com", actual.get(19999).getEmail());
+    }
+}
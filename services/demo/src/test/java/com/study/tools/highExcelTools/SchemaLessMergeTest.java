@@ -0,0 +1,129 @@
+package com.study.tools.highExcelTools;
+
+import com.alibaba.excel.EasyExcel;
+import com.study.tools.highExcelTools.config.ExcelConfig;
+import com.study.tools.highExcelTools.core.ExcelReader;
+import com.study.tools.highExcelTools.model.ExcelResult;
+import com.study.tools.highExcelTools.model.Row;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 无模型读取合并测试
+ */
+public class SchemaLessMergeTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private ExecutorService executor;
+    private String first;
+    private String second;
+    
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        
+        // 两个文件表头不同: 第二个文件多一列"等级"，并与第一个文件有重复ID
+        first = tempDir.resolve("a.xlsx").toString();
+        List<List<Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            rows.add(Arrays.asList("U" + i, "name" + i));
+        }
+        EasyExcel.write(first).head(head("用户ID", "姓名")).sheet().doWrite(rows);
+        
+        second = tempDir.resolve("b.xlsx").toString();
+        rows = new ArrayList<>();
+        for (int i = 200; i < 500; i++) {
+            rows.add(Arrays.asList("U" + i, "name" + i, "L" + (i % 3)));
+        }
+        EasyExcel.write(second).head(head("用户ID", "姓名", "等级")).sheet().doWrite(rows);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    private static List<List<String>> head(String... names) {
+        List<List<String>> head = new ArrayList<>();
+        for (String name : names) {
+            head.add(Collections.singletonList(name));
+        }
+        return head;
+    }
+    
+    @Test
+    void testRowsShareSchemaAndHeaderStrings() throws Exception {
+        ExcelConfig<Row> config = ExcelConfig.rowConfig(Arrays.asList(first, first), tempDir.resolve("x.xlsx").toString());
+        ExcelReader<Row> reader = new ExcelReader<>(config, executor, "test");
+        List<Row> rows = reader.readFiles(config.getSourceFiles(), Row.class);
+        
+        assertEquals(600, rows.size());
+        // 表头相同的两个文件共用一个表头实例
+        assertSame(rows.get(0).getSchema(), rows.get(599).getSchema());
+        assertEquals("U0", rows.get(0).get("用户ID"));
+        assertEquals("name299", rows.get(599).getString("姓名"));
+        assertNull(rows.get(0).get("不存在"));
+    }
+    
+    @Test
+    void testMergeDedupAndUnionHeaders() {
+        String target = tempDir.resolve("out/merged.xlsx").toString();
+        ExcelConfig<Row> config = ExcelConfig.rowConfig(Arrays.asList(first, second), target);
+        config.setEnableDeduplication(true);
+        config.setKeyExtractor(row -> row.get("用户ID"));
+        config.setFilter(row -> !"U499".equals(row.get("用户ID")));
+        config.setPreserveOrder(true);
+        
+        ExcelResult<Row> result = new HighExcelTools().mergeExcel(config);
+        assertTrue(result.isSuccess(), result.getErrorMessage());
+        assertEquals(499, result.getTotalRows());
+        
+        List<Map<Integer, String>> written = EasyExcel.read(target).headRowNumber(0).sheet().doReadSync();
+        // 输出表头为两个文件表头的并集
+        assertEquals("用户ID", written.get(0).get(0));
+        assertEquals("姓名", written.get(0).get(1));
+        assertEquals("等级", written.get(0).get(2));
+        assertEquals(500, written.size());
+        // 第一个文件没有"等级"列，写为空；保序去重保留首次出现的行
+        assertEquals("U0", written.get(1).get(0));
+        assertNull(written.get(1).get(2));
+        assertEquals("U300", written.get(301).get(0));
+        assertEquals("L0", written.get(301).get(2));
+    }
+    
+    @Test
+    void testSortByHeader() {
+        String target = tempDir.resolve("out/sorted.xlsx").toString();
+        ExcelConfig<Row> config = ExcelConfig.rowConfig(Collections.singletonList(second), target);
+        config.setSortColumns(Arrays.asList("等级 DESC", "用户ID"));
+        
+        ExcelResult<Row> result = new HighExcelTools().mergeExcel(config);
+        assertTrue(result.isSuccess(), result.getErrorMessage());
+        
+        List<Map<Integer, String>> written = EasyExcel.read(target).sheet().doReadSync();
+        assertEquals(300, written.size());
+        Map<String, Integer> lastLevelIndex = new HashMap<>();
+        for (int i = 0; i < written.size(); i++) {
+            lastLevelIndex.put(written.get(i).get(2), i);
+        }
+        assertEquals("L2", written.get(0).get(2));
+        assertTrue(lastLevelIndex.get("L2") < lastLevelIndex.get("L1"));
+        assertEquals("L0", written.get(299).get(2));
+    }
+} 
\ No newline at end of file
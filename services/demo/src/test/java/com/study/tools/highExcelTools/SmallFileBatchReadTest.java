@@ -0,0 +1,149 @@
+package com.study.tools.highExcelTools;
+
+import com.alibaba.excel.EasyExcel;
+import com.study.tools.highExcelTools.config.ExcelConfig;
+import com.study.tools.highExcelTools.core.ExcelReader;
+import com.study.tools.highExcelTools.core.FileBatchConsumer;
+import com.study.tools.highExcelTools.example.UserModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 小文件合并读取测试
+ */
+public class SmallFileBatchReadTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private ExecutorService executor;
+    private final List<String> files = new ArrayList<>();
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(3);
+        for (int f = 0; f < 40; f++) {
+            List<UserModel> users = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                UserModel user = new UserModel();
+                user.setId("USER" + f + "_" + i);
+                user.setUsername("name" + i);
+                users.add(user);
+            }
+            String file = tempDir.resolve("small" + f + ".xlsx").toString();
+            EasyExcel.write(file, UserModel.class).sheet().doWrite(users);
+            files.add(file);
+        }
+        // 中间夹一个损坏的小文件
+        Path broken = tempDir.resolve("broken.xlsx");
+        Files.write(broken, "not a workbook".getBytes());
+        files.add(20, broken.toString());
+    }
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    private ExcelConfig<UserModel> config(long smallFileBytes) {
+        return ExcelConfig.<UserModel>builder()
+                .modelClass(UserModel.class)
+                .smallFileBytes(smallFileBytes)
+                .smallFileGroupBytes(64 * 1024)
+                .continueOnError(true)
+                .build();
+    }
+    
+    @Test
+    void testSmallFilesShareReadTasksAndKeepFileOrder() throws Exception {
+        ExcelReader<UserModel> perFileReader = new ExcelReader<>(config(0), executor, "per-file");
+        List<UserModel> expected = perFileReader.readFiles(files, UserModel.class);
+        
+        ExcelReader<UserModel> groupedReader = new ExcelReader<>(config(256 * 1024), executor, "grouped");
+        Map<Integer, String> fileThreads = new ConcurrentHashMap<>();
+        List<UserModel> actual = groupedReader.readFiles(files, UserModel.class);
+        groupedReader.readFilesWithCallback(files, UserModel.class,
+                (FileBatchConsumer<UserModel>) (fileIndex, batch) -> {
+                    fileThreads.put(fileIndex, Thread.currentThread().getName());
+                });
+        
+        // 结果按文件顺序排列，与逐文件读取一致，损坏的文件只记录错误，不影响同任务的其它文件
+        assertEquals(800, expected.size());
+        assertEquals(expected, actual);
+        assertEquals("USER20_0", actual.get(400).getId());
+        assertEquals(perFileReader.getErrorCollector().getErrorCount(),
+                groupedReader.getErrorCollector().getErrorCount() / 2);
+        assertEquals(40, fileThreads.size());
+        
+        // 同一读取任务内的文件在同一个线程中依次读取
+        assertEquals(fileThreads.get(0), fileThreads.get(1));
+    }
+    
+    @Test
+    void testFewSmallFilesStillSpreadAcrossConcurrentTasks() throws Exception {
+        // 3个小文件远小于单元上限，仍按并发数拆成3个任务
+        List<String> few = files.subList(0, 3);
+        ExcelReader<UserModel> reader = new ExcelReader<>(config(256 * 1024), executor, "few");
+        Map<Integer, String> fileThreads = new ConcurrentHashMap<>();
+        CountDownLatch allStarted = new CountDownLatch(3);
+        reader.readFilesWithCallback(few, UserModel.class,
+                (FileBatchConsumer<UserModel>) (fileIndex, batch) -> {
+                    fileThreads.put(fileIndex, Thread.currentThread().getName());
+                    allStarted.countDown();
+                    try {
+                        // 三个任务并发时都能等到彼此
+                        allStarted.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+        
+        assertEquals(0, allStarted.getCount());
+        assertEquals(3, new HashSet<>(fileThreads.values()).size());
+    }
+    
+    @Test
+    void testBatchListsAreHandedOverToConsumer() throws Exception {
+        ExcelConfig<UserModel> config = ExcelConfig.<UserModel>builder()
+                .modelClass(UserModel.class)
+                .batchSize(7)
+                .continueOnError(true)
+                .build();
+        ExcelReader<UserModel> reader = new ExcelReader<>(config, executor, "hand-over");
+        // 回调中直接保留批次列表，读取器不会再清空或复用
+        List<List<UserModel>> kept = new ArrayList<>();
+        reader.readFilesWithCallback(files.subList(0, 3), UserModel.class, batch -> {
+            synchronized (kept) {
+                kept.add(batch);
+            }
+        });
+        
+        Set<List<UserModel>> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        distinct.addAll(kept);
+        assertEquals(kept.size(), distinct.size());
+        assertEquals(60, kept.stream().mapToInt(List::size).sum());
+        for (List<UserModel> batch : kept) {
+            assertFalse(batch.isEmpty());
+            assertNotNull(batch.get(0).getId());
+        }
+    }
+} 
\ No newline at end of file
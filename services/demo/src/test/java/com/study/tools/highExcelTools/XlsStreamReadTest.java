@@ -0,0 +1,167 @@
+package com.study.tools.highExcelTools;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.ExcelWriter;
+import com.alibaba.excel.support.ExcelTypeEnum;
+import com.study.tools.highExcelTools.config.ExcelConfig;
+import com.study.tools.highExcelTools.core.ExcelReader;
+import com.study.tools.highExcelTools.example.UserModel;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * .xls流式读取测试
+ */
+@Slf4j
+public class XlsStreamReadTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private ExecutorService executor;
+    
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    private static List<List<String>> head() {
+        List<List<String>> head = new ArrayList<>();
+        for (String name : Arrays.asList("用户ID", "用户名", "年龄", "邮箱", "手机号", "积分", "注册时间", "状态", "备注")) {
+            head.add(Collections.singletonList(name));
+        }
+        return head;
+    }
+    
+    /**
+     * 年龄和积分写为数值单元格，第badRow行的年龄不是数字
+     */
+    private static List<List<Object>> rows(int count, int badRow) {
+        List<List<Object>> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(Arrays.asList("USER" + i, "name" + i, i == badRow ? "abc" : (Object) (20 + i % 50),
+                    "u" + i + "@test.com", "1380000" + i, i * 10,
+                    "2024-01-02 03:04:05", String.valueOf(i % 2), "R" + (i % 7)));
+        }
+        return rows;
+    }
+    
+    private void write(String file, ExcelTypeEnum type, int count) {
+        ExcelWriter writer = EasyExcel.write(file).excelType(type).head(head()).build();
+        try {
+            writer.write(rows(count, 777), EasyExcel.writerSheet(0, "users").build());
+            // 第二个Sheet不应被读取
+            writer.write(rows(100, -1), EasyExcel.writerSheet(1, "other").build());
+        } finally {
+            writer.finish();
+        }
+    }
+    
+    private ExcelConfig<UserModel> config(boolean streamingXls) {
+        return ExcelConfig.<UserModel>builder()
+                .modelClass(UserModel.class)
+                .batchSize(500)
+                .streamingXls(streamingXls)
+                .build();
+    }
+    
+    @Test
+    void testStreamingXlsMatchesEasyExcelRead() throws Exception {
+        String file = tempDir.resolve("users.xls").toString();
+        write(file, ExcelTypeEnum.XLS, 3000);
+        
+        ExcelReader<UserModel> defaultReader = new ExcelReader<>(config(false), executor, "default");
+        List<UserModel> expected = defaultReader.readFiles(Collections.singletonList(file), UserModel.class);
+        
+        ExcelReader<UserModel> streamingReader = new ExcelReader<>(config(true), executor, "streaming");
+        List<UserModel> actual = new ArrayList<>();
+        List<Integer> batchSizes = new ArrayList<>();
+        streamingReader.readFilesWithCallback(Collections.singletonList(file), UserModel.class, batch -> {
+            batchSizes.add(batch.size());
+            actual.addAll(batch);
+        });
+        
+        // 共享字符串、数值和日期转换与EasyExcel一致，只读取第一个Sheet，转换失败的行同样被跳过并记录
+        assertEquals(2999, expected.size());
+        assertEquals(expected, actual);
+        assertEquals("USER778", actual.get(777).getId());
+        assertEquals(Integer.valueOf(21), actual.get(1).getAge());
+        assertNotNull(actual.get(0).getRegisterTime());
+        assertEquals(Integer.valueOf(500), batchSizes.get(0));
+        assertEquals(defaultReader.getErrorCollector().getErrorCount(),
+                streamingReader.getErrorCollector().getErrorCount());
+        assertEquals(778L, streamingReader.getErrorCollector().getErrorRecords().get(0).getRowIndex());
+    }
+    
+    /**
+     * xls与xlsx读取吞吐量和堆占用对比，耗时较长，默认不运行，通过 -Dperformance=true 手动运行
+     */
+    @Test
+    @Tag("performance")
+    @EnabledIfSystemProperty(named = "performance", matches = "true")
+    void benchmarkXlsAgainstXlsx() throws Exception {
+        int count = 60000;
+        for (ExcelTypeEnum type : Arrays.asList(ExcelTypeEnum.XLS, ExcelTypeEnum.XLSX)) {
+            String file = tempDir.resolve("bench" + type.getValue()).toString();
+            write(file, type, count);
+            for (boolean streamingXls : Arrays.asList(false, true)) {
+                if (type == ExcelTypeEnum.XLSX && !streamingXls) {
+                    continue;
+                }
+                // 第一轮预热，只输出第二轮
+                for (int round = 0; round < 2; round++) {
+                    ExcelReader<UserModel> reader = new ExcelReader<>(config(streamingXls), executor, "bench");
+                    HeapSampler sampler = new HeapSampler();
+                    long start = System.nanoTime();
+                    long[] rows = new long[1];
+                    reader.readFilesWithCallback(Collections.singletonList(file), UserModel.class, batch -> {
+                        rows[0] += batch.size();
+                        sampler.sample();
+                    });
+                    long millis = (System.nanoTime() - start) / 1_000_000;
+                    assertEquals(count - 1, rows[0]);
+                    if (round == 1) {
+                        log.info("{} streamingXls={}: {} 行, {} ms, {} 行/秒, 峰值堆 {} MB", type.getValue(),
+                                streamingXls, rows[0], millis, rows[0] * 1000 / Math.max(1, millis), sampler.peak >> 20);
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * 在批次回调中采样已用堆
+     */
+    private static final class HeapSampler {
+        private final Runtime runtime = Runtime.getRuntime();
+        private long peak;
+        
+        HeapSampler() {
+            System.gc();
+        }
+        
+        void sample() {
+            peak = Math.max(peak, runtime.totalMemory() - runtime.freeMemory());
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,209 @@
+package com.study.tools.highExcelTools.job;
+
+import com.alibaba.excel.EasyExcel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.study.tools.highExcelTools.example.UserModel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 合并任务服务测试
+ */
+public class MergeJobServiceTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private MergeJobProperties properties() {
+        MergeJobProperties properties = new MergeJobProperties();
+        properties.setQueueDir(tempDir.resolve("queue").toString());
+        properties.setWorkerThreads(1);
+        properties.setReadThreads(2);
+        properties.setMemoryBudgetMb(64);
+        properties.setBaseDir(tempDir.toString());
+        properties.getModelClasses().put("user", UserModel.class.getName());
+        return properties;
+    }
+    
+    private MergeJobRequest request(String tenantId, String target) {
+        List<String> sourceFiles = new ArrayList<>();
+        for (int f = 0; f < 2; f++) {
+            List<UserModel> rows = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                UserModel user = new UserModel();
+                user.setId("USER" + (f * 200 + i));
+                rows.add(user);
+            }
+            String file = tempDir.resolve(tenantId + f + ".xlsx").toString();
+            EasyExcel.write(file, UserModel.class).sheet().doWrite(rows);
+            sourceFiles.add(file);
+        }
+        MergeJobRequest request = new MergeJobRequest();
+        request.setTenantId(tenantId);
+        request.setSourceFiles(sourceFiles);
+        request.setTargetFile(target);
+        request.setModelClass("user");
+        return request;
+    }
+    
+    private MergeJob await(MergeJobService service, String jobId) throws InterruptedException {
+        for (int i = 0; i < 600; i++) {
+            MergeJob job = service.get(jobId);
+            if (job.getStatus().isTerminal()) {
+                return job;
+            }
+            Thread.sleep(100);
+        }
+        fail("任务未在60秒内结束: " + jobId);
+        return null;
+    }
+    
+    @Test
+    void testSubmitRunsOnSharedPool() throws Exception {
+        MergeJobService service = new MergeJobService(properties(), new ObjectMapper());
+        service.start();
+        try {
+            String target = tempDir.resolve("out/merged.xlsx").toString();
+            MergeJob submitted = service.submit(request("finance", target));
+            assertEquals(MergeJobStatus.QUEUED, submitted.getStatus());
+            assertTrue(submitted.getEstimatedBytes() > 0);
+            
+            MergeJob finished = await(service, submitted.getJobId());
+            assertEquals(MergeJobStatus.SUCCEEDED, finished.getStatus(), finished.getErrorMessage());
+            assertEquals(400, finished.getTotalRows());
+            assertTrue(Files.exists(Path.of(target)));
+        } finally {
+            service.shutdown();
+        }
+    }
+    
+    @Test
+    void testAdmissionControl() throws Exception {
+        MergeJobProperties properties = properties();
+        properties.setMemoryBudgetMb(1);
+        properties.setHeapBytesPerFileByte(1000);
+        MergeJobService service = new MergeJobService(properties, new ObjectMapper());
+        service.start();
+        try {
+            MergeJobRejectedException rejected = assertThrows(MergeJobRejectedException.class,
+                    () -> service.submit(request("ops", tempDir.resolve("big.xlsx").toString())));
+            assertTrue(rejected.isTooLarge());
+            
+            MergeJobRequest missing = request("ops", tempDir.resolve("x.xlsx").toString());
+            missing.setSourceFiles(Collections.singletonList(tempDir.resolve("missing.xlsx").toString()));
+            assertThrows(IllegalArgumentException.class, () -> service.submit(missing));
+        } finally {
+            service.shutdown();
+        }
+    }
+    
+    @Test
+    void testExpiredJobsArePurgedWhileRunning() throws Exception {
+        MergeJobProperties properties = properties();
+        properties.setRetentionHours(0);
+        MergeJobService service = new MergeJobService(properties, new ObjectMapper());
+        service.start();
+        try {
+            MergeJob submitted = service.submit(request("hr", tempDir.resolve("out/purged.xlsx").toString()));
+            Path record = Path.of(properties.getQueueDir()).resolve(submitted.getJobId() + ".json");
+            
+            // 结束后下一次清理时从内存和持久化目录中删除
+            for (int i = 0; i < 300 && (service.get(submitted.getJobId()) != null || Files.exists(record)); i++) {
+                Thread.sleep(100);
+            }
+            assertNull(service.get(submitted.getJobId()));
+            assertTrue(service.list("hr").isEmpty());
+            assertFalse(Files.exists(record));
+            assertTrue(Files.exists(tempDir.resolve("out/purged.xlsx")));
+        } finally {
+            service.shutdown();
+        }
+    }
+    
+    @Test
+    void testQueuedJobsSurviveRestart() throws Exception {
+        // 不启动调度，只验证持久化队列的恢复
+        MergeJobProperties properties = properties();
+        MergeJobStore store = new MergeJobStore(Path.of(properties.getQueueDir()), new ObjectMapper());
+        MergeJobRequest request = request("finance", tempDir.resolve("out/recovered.xlsx").toString());
+        store.save(MergeJob.builder()
+                .jobId("interrupted")
+                .tenantId("finance")
+                .request(request)
+                .status(MergeJobStatus.RUNNING)
+                .sequence(7)
+                .estimatedBytes(1024)
+                .submitTime(System.currentTimeMillis())
+                .startTime(System.currentTimeMillis())
+                .build());
+        // 估算内存超过预算的任务永远无法调度
+        store.save(MergeJob.builder()
+                .jobId("oversize")
+                .tenantId("finance")
+                .request(request)
+                .status(MergeJobStatus.QUEUED)
+                .sequence(6)
+                .estimatedBytes(properties.memoryBudgetBytes() + 1)
+                .submitTime(System.currentTimeMillis())
+                .build());
+        
+        MergeJobService service = new MergeJobService(properties, new ObjectMapper());
+        service.start();
+        try {
+            MergeJob finished = await(service, "interrupted");
+            assertEquals(MergeJobStatus.SUCCEEDED, finished.getStatus(), finished.getErrorMessage());
+            assertEquals(400, finished.getTotalRows());
+            assertEquals(MergeJobStatus.FAILED, service.get("oversize").getStatus());
+            
+            // 恢复后新提交的任务序号接续已有记录
+            MergeJob next = service.submit(request("ops", tempDir.resolve("out/next.xlsx").toString()));
+            assertEquals(8, next.getSequence());
+        } finally {
+            service.shutdown();
+        }
+    }
+    
+    @Test
+    void testPathsConfinedToBaseDirAndModelsWhitelisted() throws Exception {
+        MergeJobService service = new MergeJobService(properties(), new ObjectMapper());
+        service.start();
+        try {
+            MergeJobRequest escape = request("ops", "../escape.xlsx");
+            assertThrows(IllegalArgumentException.class, () -> service.submit(escape));
+            
+            Path outside = Files.createTempFile("outside", ".xlsx");
+            try {
+                MergeJobRequest absolute = request("ops", tempDir.resolve("out/a.xlsx").toString());
+                absolute.setSourceFiles(Collections.singletonList(outside.toString()));
+                assertThrows(IllegalArgumentException.class, () -> service.submit(absolute));
+                
+                Path link = tempDir.resolve("link.xlsx");
+                Files.createSymbolicLink(link, outside);
+                MergeJobRequest symlink = request("ops", tempDir.resolve("out/b.xlsx").toString());
+                symlink.setSourceFiles(Collections.singletonList("link.xlsx"));
+                assertThrows(IllegalArgumentException.class, () -> service.submit(symlink));
+            } finally {
+                Files.deleteIfExists(outside);
+            }
+            
+            MergeJobRequest unregistered = request("ops", "out/c.xlsx");
+            unregistered.setModelClass(UserModel.class.getName());
+            assertThrows(IllegalArgumentException.class, () -> service.submit(unregistered));
+            
+            // 相对路径按根目录解析
+            MergeJob job = service.submit(request("ops", "out/relative.xlsx"));
+            assertEquals(tempDir.toRealPath().resolve("out/relative.xlsx").toString(), job.getRequest().getTargetFile());
+            assertEquals(MergeJobStatus.SUCCEEDED, await(service, job.getJobId()).getStatus());
+        } finally {
+            service.shutdown();
+        }
+    }
+} 
\ No newline at end of file
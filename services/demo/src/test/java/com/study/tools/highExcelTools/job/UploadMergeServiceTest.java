@@ -0,0 +1,178 @@
+package com.study.tools.highExcelTools.job;
+
+import com.alibaba.excel.EasyExcel;
+import com.alibaba.excel.support.ExcelTypeEnum;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 上传合并服务测试
+ */
+public class UploadMergeServiceTest {
+    
+    private static final String BOUNDARY = "----excel-upload-boundary";
+    private static final String CONTENT_TYPE = "multipart/form-data; boundary=" + BOUNDARY;
+    
+    private final UploadMergeService service = new UploadMergeService(new MergeJobProperties());
+    
+    private static List<List<String>> head(String... names) {
+        List<List<String>> head = new ArrayList<>();
+        for (String name : names) {
+            head.add(Collections.singletonList(name));
+        }
+        return head;
+    }
+    
+    /**
+     * 两个列顺序不同的xlsx文件，夹带一个表单字段和一个非Excel文件
+     */
+    private static byte[] multipartBody() throws IOException {
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        List<List<Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            rows.add(Arrays.asList("U" + i, "name" + i));
+        }
+        EasyExcel.write(first).head(head("用户ID", "姓名")).sheet().doWrite(rows);
+        
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        rows = new ArrayList<>();
+        for (int i = 300; i < 500; i++) {
+            rows.add(Arrays.asList("name" + i, "U" + i));
+        }
+        EasyExcel.write(second).head(head("姓名", "用户ID")).sheet().doWrite(rows);
+        
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        part(body, "form-data; name=\"comment\"", "合并".getBytes(StandardCharsets.UTF_8));
+        part(body, "form-data; name=\"files\"; filename=\"a.xlsx\"", first.toByteArray());
+        part(body, "form-data; name=\"files\"; filename=\"readme.txt\"", "skip".getBytes(StandardCharsets.UTF_8));
+        part(body, "form-data; name=\"files\"; filename=\"C:\\\\upload\\\\b.xlsx\"", second.toByteArray());
+        body.write(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+    
+    private static void part(ByteArrayOutputStream body, String disposition, byte[] content) throws IOException {
+        body.write(("--" + BOUNDARY + "\r\nContent-Disposition: " + disposition
+                + "\r\nContent-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(content);
+        body.write("\r\n".getBytes(StandardCharsets.UTF_8));
+    }
+    
+    @Test
+    void testMergeUploadedFilesIntoResponse() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = service.merge(new ByteArrayInputStream(multipartBody()), CONTENT_TYPE, null, out, ExcelTypeEnum.XLSX);
+        
+        assertEquals(500, rows);
+        List<Map<Integer, String>> merged = EasyExcel.read(new ByteArrayInputStream(out.toByteArray()))
+                .headRowNumber(0).sheet().doReadSync();
+        assertEquals(501, merged.size());
+        // 输出表头取第一个文件，第二个文件按表头名对齐
+        assertEquals("用户ID", merged.get(0).get(0));
+        assertEquals("姓名", merged.get(0).get(1));
+        assertEquals("U0", merged.get(1).get(0));
+        assertEquals("U499", merged.get(500).get(0));
+        assertEquals("name499", merged.get(500).get(1));
+    }
+    
+    @Test
+    void testCsvOutputAndInvalidRequests() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.merge(new ByteArrayInputStream(multipartBody()), CONTENT_TYPE, null, out, ExcelTypeEnum.CSV);
+        
+        String[] lines = out.toString(StandardCharsets.UTF_8.name()).trim().split("\r?\n");
+        assertEquals(501, lines.length);
+        assertEquals("U300,name300", lines[301]);
+        
+        assertThrows(IllegalArgumentException.class, () -> service.merge(new ByteArrayInputStream(new byte[0]),
+                "application/json", null, new ByteArrayOutputStream(), ExcelTypeEnum.XLSX));
+        ByteArrayOutputStream empty = new ByteArrayOutputStream();
+        part(empty, "form-data; name=\"comment\"", "无文件".getBytes(StandardCharsets.UTF_8));
+        empty.write(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream emptyOut = new ByteArrayOutputStream();
+        assertThrows(IllegalArgumentException.class, () -> service.merge(new ByteArrayInputStream(empty.toByteArray()),
+                CONTENT_TYPE, null, emptyOut, ExcelTypeEnum.XLSX));
+        assertEquals(0, emptyOut.size());
+    }
+    
+    @Test
+    void testOversizedFileRejectedBeforeAnyOutput() throws Exception {
+        MergeJobProperties properties = new MergeJobProperties();
+        properties.setUploadMaxFileMb(1);
+        UploadMergeService limited = new UploadMergeService(properties);
+        
+        // 第一个文件正常合并，第二个文件超过1MB
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        EasyExcel.write(first).head(head("用户ID")).sheet().doWrite(Collections.singletonList(Collections.singletonList("U0")));
+        ByteArrayOutputStream large = new ByteArrayOutputStream();
+        List<List<Object>> rows = new ArrayList<>();
+        for (int i = 0; i < 60000; i++) {
+            rows.add(Arrays.asList(UUID.randomUUID().toString(), UUID.randomUUID().toString()));
+        }
+        EasyExcel.write(large).head(head("用户ID", "姓名")).sheet().doWrite(rows);
+        assertTrue(large.size() > 1024 * 1024);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        part(body, "form-data; name=\"files\"; filename=\"a.xlsx\"", first.toByteArray());
+        part(body, "form-data; name=\"files\"; filename=\"large.xlsx\"", large.toByteArray());
+        body.write(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MergeJobRejectedException e = assertThrows(MergeJobRejectedException.class, () -> limited.merge(
+                new ByteArrayInputStream(body.toByteArray()), CONTENT_TYPE, null, out, ExcelTypeEnum.XLSX));
+        assertTrue(e.isTooLarge());
+        // 已合并的第一个文件也没有输出
+        assertEquals(0, out.size());
+    }
+    
+    @Test
+    void testConcurrentUploadsLimited() throws Exception {
+        MergeJobProperties properties = new MergeJobProperties();
+        properties.setUploadMaxConcurrent(1);
+        UploadMergeService limited = new UploadMergeService(properties);
+        
+        // 第一个请求的请求体还在上传，占住唯一的名额
+        PipedOutputStream upload = new PipedOutputStream();
+        PipedInputStream body = new PipedInputStream(upload);
+        Thread first = new Thread(() -> {
+            try {
+                limited.merge(body, CONTENT_TYPE, null, new ByteArrayOutputStream(), ExcelTypeEnum.CSV);
+            } catch (Exception ignored) {
+                // 上传中断
+            }
+        });
+        first.start();
+        upload.write(("--" + BOUNDARY + "\r\n").getBytes(StandardCharsets.UTF_8));
+        upload.flush();
+        
+        try {
+            MergeJobRejectedException e = assertThrows(MergeJobRejectedException.class, () -> {
+                // 等待第一个请求开始合并
+                for (int i = 0; i < 100; i++) {
+                    limited.merge(new ByteArrayInputStream(multipartBody()), CONTENT_TYPE, null,
+                            new ByteArrayOutputStream(), ExcelTypeEnum.CSV);
+                    Thread.sleep(20);
+                }
+            });
+            assertFalse(e.isTooLarge());
+        } finally {
+            upload.close();
+            first.join(5000);
+        }
+        // 名额释放后可以再次合并
+        assertEquals(500, limited.merge(new ByteArrayInputStream(multipartBody()), CONTENT_TYPE, null,
+                new ByteArrayOutputStream(), ExcelTypeEnum.CSV));
+    }
+} 
\ No newline at end of file
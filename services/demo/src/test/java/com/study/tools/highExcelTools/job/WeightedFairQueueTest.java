@@ -0,0 +1,103 @@
+package com.study.tools.highExcelTools.job;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 加权公平队列测试
+ */
+public class WeightedFairQueueTest {
+    
+    private static final long MB = 1L << 20;
+    
+    private long sequence;
+    
+    private MergeJob job(String tenantId, int priority, long estimatedBytes) {
+        long seq = ++sequence;
+        return MergeJob.builder()
+                .jobId(tenantId + "-" + seq)
+                .tenantId(tenantId)
+                .priority(priority)
+                .sequence(seq)
+                .estimatedBytes(estimatedBytes)
+                .build();
+    }
+    
+    @Test
+    void testSharesFollowWeights() {
+        Map<String, Integer> weights = new HashMap<>();
+        weights.put("finance", 3);
+        weights.put("ops", 1);
+        WeightedFairQueue queue = new WeightedFairQueue(tenant -> weights.getOrDefault(tenant, 1));
+        for (int i = 0; i < 100; i++) {
+            queue.offer(job("finance", 0, 10 * MB));
+            queue.offer(job("ops", 0, 10 * MB));
+        }
+        
+        Map<String, Integer> served = new HashMap<>();
+        for (int i = 0; i < 40; i++) {
+            served.merge(queue.poll(Long.MAX_VALUE).getTenantId(), 1, Integer::sum);
+        }
+        
+        assertEquals(30, served.get("finance"));
+        assertEquals(10, served.get("ops"));
+        assertEquals(160, queue.size());
+    }
+    
+    @Test
+    void testPriorityOnlyWithinTenant() {
+        WeightedFairQueue queue = new WeightedFairQueue(tenant -> 1);
+        queue.offer(job("a", 0, MB));
+        queue.offer(job("a", 9, MB));
+        queue.offer(job("b", 0, MB));
+        
+        MergeJob first = queue.poll(Long.MAX_VALUE);
+        assertEquals("a", first.getTenantId());
+        assertEquals(9, first.getPriority());
+        // 租户a已经用掉一次份额，租户b的低优先级任务先于a的剩余任务
+        assertEquals("b", queue.poll(Long.MAX_VALUE).getTenantId());
+        assertEquals("a", queue.poll(Long.MAX_VALUE).getTenantId());
+        assertNull(queue.poll(Long.MAX_VALUE));
+    }
+    
+    @Test
+    void testIdleTenantDoesNotBankCredit() {
+        WeightedFairQueue queue = new WeightedFairQueue(tenant -> 1);
+        for (int i = 0; i < 10; i++) {
+            queue.offer(job("busy", 0, MB));
+        }
+        for (int i = 0; i < 10; i++) {
+            queue.poll(Long.MAX_VALUE);
+        }
+        
+        // 空闲租户重新提交后与活跃租户交替执行，而不是连续执行
+        for (int i = 0; i < 4; i++) {
+            queue.offer(job("busy", 0, MB));
+            queue.offer(job("idle", 0, MB));
+        }
+        int idleRun = 0;
+        int maxIdleRun = 0;
+        for (int i = 0; i < 8; i++) {
+            idleRun = "idle".equals(queue.poll(Long.MAX_VALUE).getTenantId()) ? idleRun + 1 : 0;
+            maxIdleRun = Math.max(maxIdleRun, idleRun);
+        }
+        assertTrue(maxIdleRun <= 2, "空闲租户不应积累额度: " + maxIdleRun);
+    }
+    
+    @Test
+    void testLargeHeadJobWaitsForMemory() {
+        WeightedFairQueue queue = new WeightedFairQueue(tenant -> 1);
+        queue.offer(job("a", 0, 100 * MB));
+        queue.offer(job("b", 0, MB));
+        
+        // 轮到的大任务内存不足时整体等待，小任务不插队
+        assertNull(queue.poll(50 * MB));
+        assertEquals("a", queue.poll(100 * MB).getTenantId());
+        assertTrue(queue.remove("b-2"));
+        assertEquals(0, queue.size());
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,146 @@
+package com.study.tools.highExcelTools.processor;
+
+import com.study.tools.highExcelTools.config.AggregationSpec;
+import com.study.tools.highExcelTools.example.UserModel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式分组聚合测试
+ */
+public class AggregatorTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private List<UserModel> generate(int rows) {
+        List<UserModel> data = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            UserModel user = new UserModel();
+            user.setId("USER" + i);
+            user.setStatus(i % 3);
+            user.setUsername("name" + (i % 5000));
+            user.setPoints(i % 7 == 0 ? null : i % 100);
+            data.add(user);
+        }
+        return data;
+    }
+    
+    private AggregationSpec<UserModel> spec(int maxGroups) {
+        return AggregationSpec.<UserModel>create()
+                .groupBy("状态", UserModel::getStatus)
+                .groupBy("用户名", UserModel::getUsername)
+                .metric("人数", Accumulators.count())
+                .metric("积分合计", Accumulators.sumLong(UserModel::getPoints))
+                .metric("最高积分", Accumulators.maxLong(UserModel::getPoints))
+                .metric("平均积分", Accumulators.avg(UserModel::getPoints))
+                .maxGroupsInMemory(maxGroups)
+                .spillDir(tempDir.toString());
+    }
+    
+    private Map<List<Object>, List<Object>> aggregate(AggregationSpec<UserModel> spec, List<UserModel> data) throws Exception {
+        Map<List<Object>, List<Object>> result = new HashMap<>();
+        try (Aggregator<UserModel> aggregator = new Aggregator<>(spec, "test")) {
+            // 模拟多个读取线程并发提交批次
+            IntStream.range(0, data.size() / 1000).parallel().forEach(i -> {
+                try {
+                    aggregator.accumulate(data.subList(i * 1000, (i + 1) * 1000));
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            aggregator.writeTo(rows -> rows.forEach(row ->
+                    assertNull(result.put(row.subList(0, 2), row.subList(2, row.size())), "分组不应重复输出")), 300);
+        }
+        return result;
+    }
+    
+    @Test
+    void testSpilledAggregationMatchesInMemory() throws Exception {
+        List<UserModel> data = generate(100_000);
+        
+        Map<List<Object>, List<Object>> inMemory = aggregate(spec(1_000_000), data);
+        Map<List<Object>, List<Object>> spilled = aggregate(spec(500), data);
+        
+        assertEquals(15_000, inMemory.size());
+        assertEquals(inMemory, spilled);
+        
+        // 抽查一个分组: 状态0、用户名name0
+        long count = 0;
+        long sum = 0;
+        long max = Long.MIN_VALUE;
+        int valid = 0;
+        for (UserModel user : data) {
+            if (user.getStatus() == 0 && "name0".equals(user.getUsername())) {
+                count++;
+                if (user.getPoints() != null) {
+                    sum += user.getPoints();
+                    max = Math.max(max, user.getPoints());
+                    valid++;
+                }
+            }
+        }
+        List<Object> metrics = inMemory.get(Arrays.asList(0, "name0"));
+        assertEquals(count, metrics.get(0));
+        assertEquals(sum, metrics.get(1));
+        assertEquals(max, metrics.get(2));
+        assertEquals((double) sum / valid, (Double) metrics.get(3), 1e-9);
+        
+        // 溢写文件已清理
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+    
+    @Test
+    void testSkewedSpillKeepsKeyTypesAndReportsExtractorErrors() throws Exception {
+        List<UserModel> data = generate(20_000);
+        data.get(10).setUsername(null);
+        AggregationSpec<UserModel> spec = AggregationSpec.<UserModel>create()
+                .groupBy("日期", user -> LocalDate.of(2024, 1, 1).plusDays(user.getUsername().hashCode() & 0xfff))
+                .groupBy("单位", user -> TimeUnit.values()[user.getStatus()])
+                .metric("人数", Accumulators.count())
+                // 每个溢写分区约1000个分组，远超内存上限，需要多级再分区
+                .maxGroupsInMemory(50)
+                .spillDir(tempDir.toString());
+        
+        AtomicInteger errors = new AtomicInteger();
+        Map<List<Object>, Object> result = new HashMap<>();
+        try (Aggregator<UserModel> aggregator = new Aggregator<>(spec, "test", (item, e) -> errors.incrementAndGet())) {
+            for (int i = 0; i < data.size(); i += 1000) {
+                aggregator.accumulate(data.subList(i, i + 1000));
+            }
+            aggregator.writeTo(rows -> rows.forEach(row ->
+                    assertNull(result.put(row.subList(0, 2), row.get(2)), "分组不应重复输出")), 300);
+        }
+        
+        assertEquals(1, errors.get());
+        Map<List<Object>, Long> expected = new HashMap<>();
+        for (UserModel user : data) {
+            if (user.getUsername() != null) {
+                expected.merge(Arrays.asList(LocalDate.of(2024, 1, 1).plusDays(user.getUsername().hashCode() & 0xfff),
+                        TimeUnit.values()[user.getStatus()]), 1L, Long::sum);
+            }
+        }
+        // 溢写读回的日期和枚举与原值equals
+        assertEquals(expected, result);
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,105 @@
+package com.study.tools.highExcelTools.processor;
+
+import com.study.tools.highExcelTools.model.DedupStatistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 布隆过滤器预筛跨批次去重测试
+ */
+public class BloomDedupIndexTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private static final PartitionedDeduplicator.ErrorHandler<String> FAIL = new PartitionedDeduplicator.ErrorHandler<String>() {
+        @Override
+        public void onKeyExtractionError(String item, Exception e) {
+            fail(e);
+        }
+        
+        @Override
+        public void onMergeError(String existingItem, String item, Exception e) {
+            fail(e);
+        }
+    };
+    
+    @Test
+    void testCrossBatchDuplicatesDropped() {
+        BloomDedupIndex index = new BloomDedupIndex(200_000, 0.01, new HeapKeyStore(1024));
+        PartitionedDeduplicator<String> deduplicator =
+                new PartitionedDeduplicator<>(id -> id, null, null, FAIL, 4, index);
+        
+        // 两个批次，第二个批次有一半的键在第一个批次出现过
+        List<String> batch1 = new ArrayList<>();
+        List<String> batch2 = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            batch1.add(String.format("USER%08d", i));
+            batch2.add(String.format("USER%08d", i + 50_000));
+        }
+        
+        assertEquals(100_000, deduplicator.deduplicate(batch1).size());
+        assertEquals(50_000, deduplicator.deduplicate(batch2).size());
+        
+        DedupStatistics stats = index.getStatistics();
+        assertEquals(200_000, stats.getKeysChecked());
+        assertEquals(50_000, stats.getCrossBatchDuplicates());
+        assertEquals(150_000, stats.getExactStoreSize());
+        // 唯一键中绝大多数应跳过精确查找
+        assertTrue(stats.getExactLookupsSkipped() >= 145_000, "跳过精确查找次数: " + stats.getExactLookupsSkipped());
+        assertTrue(stats.getObservedFalsePositiveRate() < 0.03, "观测误判率: " + stats.getObservedFalsePositiveRate());
+    }
+    
+    @Test
+    void testLongKeysUseSameIndex() {
+        BloomDedupIndex index = new BloomDedupIndex(10_000, 0.01, new HeapKeyStore(16));
+        for (long key = 0; key < 5_000; key++) {
+            assertTrue(index.firstSeen(key));
+        }
+        for (long key = 0; key < 5_000; key++) {
+            assertFalse(index.firstSeen(key));
+        }
+        assertEquals(5_000, index.getStatistics().getCrossBatchDuplicates());
+    }
+    
+    @Test
+    void testDiskKeyStoreExactAcrossGrowthAndFlush() throws Exception {
+        // 预计键数远小于实际键数，触发多次扩容；键数据超过写缓冲，部分查找从文件读回
+        DiskKeyStore store = new DiskKeyStore(tempDir, "disk", 16);
+        BloomDedupIndex index = new BloomDedupIndex(1_000, 0.01, store);
+        for (int i = 0; i < 20_000; i++) {
+            assertTrue(index.firstSeen("USER" + i));
+            assertTrue(index.firstSeen((long) i));
+        }
+        for (int i = 0; i < 20_000; i++) {
+            assertFalse(index.firstSeen("USER" + i));
+            assertFalse(index.firstSeen((long) i));
+        }
+        assertTrue(store.getDiskBytes() > 64 * 1024);
+        
+        // 不同类型的相等值视为不同键，字节编码不等价于equals的类型保存在堆内
+        assertTrue(store.addIfAbsent(Integer.valueOf(7)));
+        assertTrue(store.addIfAbsent(Long.valueOf(7)));
+        assertTrue(store.addIfAbsent(new BigDecimal("1.0")));
+        assertTrue(store.addIfAbsent(new BigDecimal("1.00")));
+        assertFalse(store.addIfAbsent(new BigDecimal("1.0")));
+        assertTrue(store.addIfAbsent(LocalDate.of(2024, 1, 1)));
+        assertFalse(store.addIfAbsent(LocalDate.of(2024, 1, 1)));
+        assertEquals(40_005, store.size());
+        
+        index.close();
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count(), "关闭后应删除临时文件");
+        }
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.study.tools.highExcelTools.processor;
+
+import com.study.tools.highExcelTools.example.UserModel;
+import com.study.tools.highExcelTools.util.FieldRowCodec;
+import com.study.tools.highExcelTools.util.SortKeys;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 外部归并排序测试
+ */
+public class ExternalSorterTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private List<UserModel> generate(int rows) {
+        List<UserModel> data = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            UserModel user = new UserModel();
+            user.setId(String.format("USER%08d", i));
+            user.setUsername("用户" + i);
+            // 取值范围较小，保证有大量相等的排序键
+            user.setAge((int) ((i * 2654435761L) % 60));
+            user.setRegisterTime(new Date(1_600_000_000_000L + (i * 7919L % 1000) * 1000L));
+            user.setRemark(i % 3 == 0 ? null : "备注" + i);
+            data.add(user);
+        }
+        return data;
+    }
+    
+    @Test
+    void testSpilledRunsMergeToStableSortedOutput() throws Exception {
+        List<UserModel> data = generate(150_000);
+        Comparator<UserModel> comparator = SortKeys.comparator(UserModel.class, Arrays.asList("年龄", "注册时间 DESC"));
+        
+        List<UserModel> sorted = new ArrayList<>();
+        try (ExternalSorter<UserModel> sorter = new ExternalSorter<>(comparator,
+                new FieldRowCodec<>(UserModel.class), 64 * 1024, tempDir.toString(), "test")) {
+            for (int i = 0; i < data.size(); i += 5000) {
+                sorter.add(data.subList(i, Math.min(i + 5000, data.size())));
+            }
+            long written = sorter.mergeTo(sorted::addAll, 4000);
+            
+            // 预算很小，应产生超过归并扇入上限的有序段，触发分组预归并
+            assertTrue(sorter.getRunCount() > 128);
+            assertEquals(data.size(), written);
+        }
+        
+        // 与内存稳定排序结果逐行一致
+        List<UserModel> expected = new ArrayList<>(data);
+        expected.sort(comparator);
+        assertEquals(expected.size(), sorted.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), sorted.get(i));
+        }
+        
+        // 临时文件已清理
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+    
+    @Test
+    void testSortColumnSpecValidation() {
+        assertThrows(IllegalArgumentException.class,
+                () -> SortKeys.comparator(UserModel.class, Arrays.asList("不存在的列")));
+        assertThrows(IllegalArgumentException.class,
+                () -> SortKeys.comparator(UserModel.class, Arrays.asList("id UP")));
+        
+        UserModel a = new UserModel();
+        a.setId("A");
+        UserModel b = new UserModel();
+        b.setId(null);
+        assertTrue(SortKeys.comparator(UserModel.class, Arrays.asList("id DESC")).compare(a, b) < 0,
+                "null值应排在最后");
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,117 @@
+package com.study.tools.highExcelTools.processor;
+
+import com.alibaba.excel.EasyExcel;
+import com.study.tools.highExcelTools.config.ExcelConfig;
+import com.study.tools.highExcelTools.config.JoinSpec;
+import com.study.tools.highExcelTools.example.UserModel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 哈希连接测试
+ */
+public class HashJoinerTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private ExecutorService executor;
+    private String referenceFile;
+    
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(2);
+        
+        // 参考数据: 偶数ID的会员等级记录在备注中
+        List<UserModel> reference = new ArrayList<>();
+        for (int i = 0; i < 3000; i += 2) {
+            UserModel tier = new UserModel();
+            tier.setId("USER" + i);
+            tier.setRemark("LEVEL" + (i % 5));
+            reference.add(tier);
+        }
+        referenceFile = tempDir.resolve("tier.xlsx").toString();
+        EasyExcel.write(referenceFile, UserModel.class).sheet().doWrite(reference);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    private List<UserModel> probeSide() {
+        List<UserModel> rows = new ArrayList<>();
+        for (int i = 0; i < 4000; i++) {
+            UserModel user = new UserModel();
+            user.setId("USER" + i);
+            user.setPoints(i);
+            rows.add(user);
+        }
+        return rows;
+    }
+    
+    private Map<String, String> join(JoinSpec.JoinType joinType, int maxBuildRows) throws Exception {
+        JoinSpec<UserModel, UserModel> spec = JoinSpec.<UserModel, UserModel>builder()
+                .referenceFiles(Collections.singletonList(referenceFile))
+                .referenceClass(UserModel.class)
+                .probeKey(UserModel::getId)
+                .buildKey(UserModel::getId)
+                .enricher((user, tier) -> {
+                    user.setRemark(tier.getRemark());
+                    return user;
+                })
+                .joinType(joinType)
+                .maxBuildRows(maxBuildRows)
+                .gracePartitions(4)
+                .spillDir(tempDir.toString())
+                .build();
+        ExcelConfig<UserModel> config = ExcelConfig.simpleConfig(
+                Collections.emptyList(), tempDir.resolve("out.xlsx").toString(), UserModel.class);
+        
+        Map<String, String> result = new HashMap<>();
+        try (HashJoiner<UserModel, UserModel> joiner = new HashJoiner<>(spec, config, executor, "test")) {
+            joiner.build();
+            assertEquals(maxBuildRows < 1500, joiner.isGraceMode());
+            
+            List<UserModel> probe = probeSide();
+            for (int i = 0; i < probe.size(); i += 1000) {
+                joiner.probe(probe.subList(i, i + 1000)).forEach(row -> result.put(row.getId(), row.getRemark()));
+            }
+            joiner.finish(rows -> rows.forEach(row -> result.put(row.getId(), row.getRemark())), 256);
+        }
+        return result;
+    }
+    
+    @Test
+    void testInMemoryAndGraceJoinProduceSameRows() throws Exception {
+        Map<String, String> inMemory = join(JoinSpec.JoinType.LEFT, 100_000);
+        Map<String, String> grace = join(JoinSpec.JoinType.LEFT, 100);
+        
+        assertEquals(4000, inMemory.size());
+        assertEquals(inMemory, grace);
+        assertEquals("LEVEL2", inMemory.get("USER12"));
+        assertNull(inMemory.get("USER13"), "未匹配的行不补全");
+        assertNull(inMemory.get("USER3000"), "超出参考数据范围的行不补全");
+    }
+    
+    @Test
+    void testInnerJoinDropsUnmatchedRows() throws Exception {
+        Map<String, String> inner = join(JoinSpec.JoinType.INNER, 100);
+        
+        assertEquals(1500, inner.size());
+        assertTrue(inner.values().stream().allMatch(remark -> remark.startsWith("LEVEL")));
+    }
+} 
\ No newline at end of file
@@ -0,0 +1,228 @@
+package com.study.tools.highExcelTools.processor;
+
+import com.study.tools.highExcelTools.util.LongKeys;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分区并行去重引擎测试
+ */
+public class PartitionedDeduplicatorTest {
+    
+    private static final PartitionedDeduplicator.ErrorHandler<int[]> RETHROW = new PartitionedDeduplicator.ErrorHandler<int[]>() {
+        @Override
+        public void onKeyExtractionError(int[] item, Exception e) {
+            throw new RuntimeException(e);
+        }
+        
+        @Override
+        public void onMergeError(int[] existingItem, int[] item, Exception e) {
+            throw new RuntimeException(e);
+        }
+    };
+    
+    /**
+     * 生成测试数据: {key, 序号}
+     */
+    private List<int[]> generate(int rows, int distinctKeys) {
+        List<int[]> data = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            data.add(new int[]{(int) ((i * 2654435761L) % distinctKeys), i});
+        }
+        return data;
+    }
+    
+    @Test
+    void testKeepFirstSeenWithoutMergeFunction() {
+        List<int[]> data = generate(300_000, 50_000);
+        PartitionedDeduplicator<int[]> deduplicator =
+                new PartitionedDeduplicator<>(row -> row[0], null, RETHROW, 8);
+        
+        List<int[]> result = deduplicator.deduplicate(data);
+        
+        // 期望结果: 每个键第一次出现的行
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int[] row : data) {
+            expected.putIfAbsent(row[0], row[1]);
+        }
+        
+        assertEquals(expected.size(), result.size());
+        for (int[] row : result) {
+            assertEquals(expected.get(row[0]), row[1], "应保留第一个遇到的值");
+        }
+    }
+    
+    @Test
+    void testMergeFunctionAppliedInEncounterOrder() {
+        List<int[]> data = generate(200_000, 1_000);
+        // 合并函数记录最后一次出现的序号，同时校验调用顺序单调递增
+        PartitionedDeduplicator<int[]> deduplicator = new PartitionedDeduplicator<>(
+                row -> row[0],
+                (existing, incoming) -> {
+                    assertTrue(incoming[1] > existing[1], "合并顺序应与原始顺序一致");
+                    return new int[]{existing[0], incoming[1]};
+                },
+                RETHROW, 4);
+        
+        List<int[]> result = deduplicator.deduplicate(data);
+        
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int[] row : data) {
+            expected.put(row[0], row[1]);
+        }
+        
+        assertEquals(expected.size(), result.size());
+        for (int[] row : result) {
+            assertEquals(expected.get(row[0]), row[1]);
+        }
+    }
+    
+    @Test
+    void testOutputFollowsFirstSeenOrder() {
+        List<int[]> data = generate(250_000, 30_000);
+        
+        // 期望顺序: 每个键第一次出现的位置
+        List<Integer> expectedOrder = new ArrayList<>();
+        Map<Integer, Boolean> seen = new HashMap<>();
+        for (int[] row : data) {
+            if (seen.putIfAbsent(row[0], Boolean.TRUE) == null) {
+                expectedOrder.add(row[1]);
+            }
+        }
+        
+        for (int parallelism : new int[]{1, 3, 8}) {
+            List<int[]> result = new PartitionedDeduplicator<>(
+                    (int[] row) -> row[0], null, RETHROW, parallelism).deduplicate(data);
+            assertEquals(expectedOrder.size(), result.size());
+            for (int i = 0; i < result.size(); i++) {
+                assertEquals(expectedOrder.get(i), result.get(i)[1], "并行度" + parallelism + "下输出顺序应与首次出现顺序一致");
+            }
+            
+            List<int[]> byLong = new PartitionedDeduplicator<>(
+                    null, (int[] row) -> row[0], null, RETHROW, parallelism).deduplicate(data);
+            for (int i = 0; i < byLong.size(); i++) {
+                assertEquals(expectedOrder.get(i), byLong.get(i)[1], "long键路径输出顺序应与首次出现顺序一致");
+            }
+        }
+    }
+    
+    @Test
+    void testNullKeysSkippedAndKeyErrorsReported() {
+        List<int[]> data = generate(50_000, 100);
+        AtomicInteger keyErrors = new AtomicInteger();
+        PartitionedDeduplicator<int[]> deduplicator = new PartitionedDeduplicator<>(
+                row -> {
+                    if (row[1] % 10 == 0) return null;
+                    if (row[1] % 10 == 1) throw new IllegalStateException("bad key");
+                    return row[0];
+                },
+                null,
+                new PartitionedDeduplicator.ErrorHandler<int[]>() {
+                    @Override
+                    public void onKeyExtractionError(int[] item, Exception e) {
+                        keyErrors.incrementAndGet();
+                    }
+                    
+                    @Override
+                    public void onMergeError(int[] existingItem, int[] item, Exception e) {
+                        fail("不应发生合并异常");
+                    }
+                },
+                4);
+        
+        List<int[]> result = deduplicator.deduplicate(data);
+        
+        long expectedKeys = data.stream()
+                .filter(row -> row[1] % 10 > 1)
+                .map(row -> row[0])
+                .distinct()
+                .count();
+        assertEquals(5_000, keyErrors.get());
+        assertEquals(expectedKeys, result.size());
+    }
+    
+    @Test
+    void testNullMergeResultReportedAndExistingKept() {
+        List<int[]> data = generate(30_000, 100);
+        AtomicInteger mergeErrors = new AtomicInteger();
+        PartitionedDeduplicator<int[]> deduplicator = new PartitionedDeduplicator<>(
+                row -> row[0],
+                (existing, incoming) -> null,
+                new PartitionedDeduplicator.ErrorHandler<int[]>() {
+                    @Override
+                    public void onKeyExtractionError(int[] item, Exception e) {
+                        fail(e);
+                    }
+                    
+                    @Override
+                    public void onMergeError(int[] existingItem, int[] item, Exception e) {
+                        assertTrue(e instanceof IllegalStateException);
+                        mergeErrors.incrementAndGet();
+                    }
+                },
+                4);
+        
+        List<int[]> result = deduplicator.deduplicate(data);
+        
+        // 合并函数返回null时报告异常并保留首次出现的值，键不会丢失
+        assertEquals(100, result.size());
+        assertEquals(30_000 - 100, mergeErrors.get());
+        for (int[] row : result) {
+            assertTrue(row[1] < 100);
+        }
+    }
+    
+    @Test
+    void testPrimitiveKeyPathMatchesObjectKeyPath() {
+        // 模拟 USER%08d 格式的ID
+        List<String[]> data = new ArrayList<>();
+        for (int i = 0; i < 120_000; i++) {
+            data.add(new String[]{String.format("USER%08d", (i * 7919) % 40_000), String.valueOf(i)});
+        }
+        PartitionedDeduplicator.ErrorHandler<String[]> handler = new PartitionedDeduplicator.ErrorHandler<String[]>() {
+            @Override
+            public void onKeyExtractionError(String[] item, Exception e) {
+                fail(e);
+            }
+            
+            @Override
+            public void onMergeError(String[] existingItem, String[] item, Exception e) {
+                fail(e);
+            }
+        };
+        
+        List<String[]> byObject = new PartitionedDeduplicator<String[]>(
+                row -> row[0], null, handler, 4).deduplicate(data);
+        PartitionedDeduplicator<String[]> primitive = new PartitionedDeduplicator<>(
+                null, LongKeys.prefixed("USER", 8, (String[] row) -> row[0]), null, handler, 4);
+        List<String[]> byLong = primitive.deduplicate(data);
+        
+        assertTrue(primitive.isPrimitiveKey());
+        assertEquals(40_000, byObject.size());
+        Map<String, String> expected = new HashMap<>();
+        byObject.forEach(row -> expected.put(row[0], row[1]));
+        assertEquals(expected.size(), byLong.size());
+        for (String[] row : byLong) {
+            assertEquals(expected.get(row[0]), row[1], "两条路径应保留相同的行");
+        }
+    }
+    
+    @Test
+    void testPrefixedKeyRejectsForeignPrefix() {
+        assertEquals(12L, LongKeys.parsePrefixed("USER", 8, "USER00000012"));
+        assertEquals(1L, LongKeys.parsePrefixed("USER", "USER1"));
+        // 位数不同或带前导零的ID不能映射为相同的long
+        assertThrows(IllegalArgumentException.class, () -> LongKeys.parsePrefixed("USER", 8, "USER1"));
+        assertThrows(IllegalArgumentException.class, () -> LongKeys.parsePrefixed("USER", 8, "USER000000012"));
+        assertThrows(IllegalArgumentException.class, () -> LongKeys.parsePrefixed("USER", "USER01"));
+        assertThrows(IllegalArgumentException.class, () -> LongKeys.parsePrefixed("USER", "ADMIN0001"));
+        assertThrows(IllegalArgumentException.class, () -> LongKeys.parsePrefixed("USER", "USER12A"));
+    }
+} 
\ No newline at end of file
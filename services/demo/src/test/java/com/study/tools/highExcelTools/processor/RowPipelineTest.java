@@ -0,0 +1,94 @@
+package com.study.tools.highExcelTools.processor;
+
+import com.study.tools.highExcelTools.config.ExcelConfig;
+import com.study.tools.highExcelTools.example.UserModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 行处理管道测试
+ */
+public class RowPipelineTest {
+    
+    @Test
+    void testStatelessOperatorsAreFusedPerRow() {
+        List<String> trace = new ArrayList<>();
+        RowPipeline<Integer, String> pipeline = RowPipeline.<Integer>identity()
+                .peek(i -> trace.add("a" + i))
+                .filter(i -> i % 2 == 1)
+                .map(i -> i * 10)
+                .peek(i -> trace.add("b" + i))
+                .flatMap(i -> Arrays.asList(i, i + 1))
+                .map(String::valueOf);
+        
+        List<String> result = pipeline.apply(Arrays.asList(1, 2, 3));
+        
+        assertEquals(Arrays.asList("10", "11", "30", "31"), result);
+        // 每行依次经过所有算子，而不是逐个阶段处理整个批次
+        assertEquals(Arrays.asList("a1", "b10", "a2", "a3", "b30"), trace);
+    }
+    
+    @Test
+    void testDedupIsBreakerBetweenFusedSegments() {
+        List<String> trace = new ArrayList<>();
+        RowPipeline<int[], int[]> pipeline = RowPipeline.<int[]>identity()
+                .peek(row -> trace.add("before" + row[1]))
+                .dedup(row -> row[0], (existing, incoming) -> new int[]{existing[0], existing[1] + incoming[1]})
+                .peek(row -> trace.add("after" + row[0]));
+        
+        List<int[]> result = pipeline.apply(Arrays.asList(
+                new int[]{1, 1}, new int[]{2, 2}, new int[]{1, 3}));
+        
+        assertEquals(2, result.size());
+        assertArrayEquals(new int[]{1, 4}, result.get(0));
+        assertArrayEquals(new int[]{2, 2}, result.get(1));
+        // 断点之前的算子先处理完整个批次
+        assertEquals(Arrays.asList("before1", "before2", "before3", "after1", "after2"), trace);
+    }
+    
+    @Test
+    void testEmptyPipelineReturnsInputWithoutCopy() {
+        List<Integer> input = Arrays.asList(1, 2, 3);
+        RowPipeline<Integer, Integer> empty = RowPipeline.<Integer>identity()
+                .andThen(RowPipeline.identity());
+        
+        assertTrue(empty.isEmpty());
+        assertSame(input, empty.apply(input));
+    }
+    
+    @Test
+    void testFailedPipelineStageIsSkippedWithoutDroppingOtherStages() {
+        ExcelConfig<UserModel> config = ExcelConfig.<UserModel>builder()
+                .modelClass(UserModel.class)
+                .filter(user -> user.getStatus() == 1)
+                .pipeline(RowPipeline.identity(UserModel.class).peek(user -> {
+                    throw new IllegalStateException("管道异常");
+                }))
+                .enableDeduplication(true)
+                .keyExtractor(UserModel::getId)
+                .build();
+        List<UserModel> data = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            UserModel user = new UserModel();
+            user.setId("USER" + (i % 10));
+            user.setStatus(i % 2);
+            data.add(user);
+        }
+        
+        DataProcessor<UserModel> processor = new DataProcessor<>(config, "test");
+        try {
+            List<UserModel> result = processor.process(data);
+            // 管道阶段失败后跳过，过滤和去重仍然生效
+            assertEquals(5, result.size());
+            assertTrue(result.stream().allMatch(user -> user.getStatus() == 1));
+            assertEquals(1, processor.getErrorCollector().getErrorCount());
+        } finally {
+            processor.close();
+        }
+    }
+} 
\ No newline at end of file
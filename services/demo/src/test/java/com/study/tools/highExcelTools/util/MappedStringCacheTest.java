@@ -0,0 +1,126 @@
+package com.study.tools.highExcelTools.util;
+
+import com.alibaba.excel.EasyExcel;
+import com.study.tools.highExcelTools.config.ExcelConfig;
+import com.study.tools.highExcelTools.core.ExcelReader;
+import com.study.tools.highExcelTools.example.UserModel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 内存映射共享字符串表测试
+ */
+public class MappedStringCacheTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    @Test
+    void testStringsAreReadBackFromMappedFile() throws Exception {
+        MappedStringCache cache = new MappedStringCache(tempDir, "sst", 2);
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            values.add(i % 100 == 0 ? "" : "备注-" + i + "-😀");
+        }
+        values.forEach(cache::put);
+        cache.putFinished();
+        
+        assertEquals(10000, cache.size());
+        for (int i = values.size() - 1; i >= 0; i--) {
+            assertEquals(values.get(i), cache.get(i));
+        }
+        // 缓存淘汰后重新解码
+        assertEquals(values.get(1), cache.get(1));
+        assertEquals(values.get(1), cache.get(1));
+        assertNull(cache.get(10000));
+        assertNull(cache.get(null));
+        
+        cache.destroy();
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count(), "临时文件应被删除");
+        }
+    }
+    
+    @Test
+    void testConcurrentReadsAfterPutFinished() throws Exception {
+        MappedStringCache cache = new MappedStringCache(tempDir, "sst", 64);
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            // 长短不一，部分超过初始解码缓冲区
+            values.add("值-" + i + "-" + "x".repeat(i % 300));
+        }
+        values.forEach(cache::put);
+        cache.putFinished();
+        
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int n = 0; n < 50_000; n++) {
+                        int key = random.nextInt(values.size());
+                        assertEquals(values.get(key), cache.get(key));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+            cache.destroy();
+        }
+    }
+    
+    @Test
+    void testLargeSharedStringsTableIsReadFromDisk() throws Exception {
+        String file = tempDir.resolve("users.xlsx").toString();
+        List<UserModel> users = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            UserModel user = new UserModel();
+            user.setId("USER" + i);
+            user.setEmail("u" + i + "@test.com");
+            user.setRemark("R" + (i % 7));
+            users.add(user);
+        }
+        // 默认的流式写入使用内联字符串，内存模式才会生成共享字符串表
+        EasyExcel.write(file, UserModel.class).inMemory(true).sheet().doWrite(users);
+        
+        Path sstDir = Files.createDirectory(tempDir.resolve("sst"));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // 阈值为0时任何共享字符串表都写入临时文件
+            ExcelConfig<UserModel> config = ExcelConfig.<UserModel>builder()
+                    .modelClass(UserModel.class)
+                    .sharedStringsHeapBytes(0)
+                    .sharedStringsCacheEntries(16)
+                    .sharedStringsTempDir(sstDir.toString())
+                    .build();
+            ExcelReader<UserModel> reader = new ExcelReader<>(config, executor, "disk");
+            List<UserModel> actual = reader.readFiles(Collections.singletonList(file), UserModel.class);
+            
+            assertEquals(users, actual);
+            try (Stream<Path> files = Files.list(sstDir)) {
+                assertEquals(0, files.count(), "读取结束后临时文件应被删除");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+} 
\ No newline at end of file
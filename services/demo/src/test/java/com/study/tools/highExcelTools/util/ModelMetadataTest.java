@@ -0,0 +1,197 @@
+package com.study.tools.highExcelTools.util;
+
+import com.study.tools.highExcelTools.example.UserModel;
+import com.study.tools.highExcelTools.util.ModelMetadata.FieldAccessor;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 模型类元数据缓存测试
+ */
+@Slf4j
+public class ModelMetadataTest {
+    
+    /**
+     * 非public、没有getter/setter的模型，走MethodHandle直接访问字段
+     */
+    private static class PlainModel {
+        int count;
+        private final String fixed = "F";
+        transient String cache;
+    }
+    
+    private static class ChildModel extends PlainModel {
+        private long total;
+    }
+    
+    /**
+     * getter/setter带格式化逻辑的模型，访问器和编解码只读写字段本身
+     */
+    public static class FormattedModel {
+        private String name;
+        
+        public String getName() {
+            return name == null ? null : name.toUpperCase();
+        }
+        
+        public void setName(String name) {
+            this.name = name == null ? null : name.trim();
+        }
+    }
+    
+    @Test
+    void testMetadataIsCachedPerClass() {
+        assertSame(ModelMetadata.of(UserModel.class), ModelMetadata.of(UserModel.class));
+    }
+    
+    @Test
+    void testFieldAccessorsOnLombokModel() {
+        ModelMetadata<UserModel> metadata = ModelMetadata.of(UserModel.class);
+        UserModel user = metadata.newInstance();
+        
+        FieldAccessor id = metadata.getField("id");
+        id.set(user, "USER1");
+        assertEquals("USER1", user.getId());
+        assertEquals("USER1", id.get(user));
+        
+        // 按@ExcelProperty表头查找
+        FieldAccessor age = metadata.findColumn("年龄");
+        assertEquals("age", age.getName());
+        age.set(user, 30);
+        assertEquals(30, user.getAge());
+        assertNull(metadata.findColumn("不存在"));
+    }
+    
+    @Test
+    void testFieldHandleFallbackOnPrivateModel() {
+        ModelMetadata<ChildModel> metadata = ModelMetadata.of(ChildModel.class);
+        ChildModel model = metadata.newInstance();
+        
+        // 父类字段在前，基本类型字段自动装箱拆箱
+        assertEquals("count", metadata.getFields().get(0).getName());
+        metadata.getField("count").set(model, 5);
+        metadata.getField("total").set(model, 7L);
+        assertEquals(5, metadata.getField("count").get(model));
+        assertEquals(7L, model.total);
+        // private模型的普通字段也生成访问类，final字段退回MethodHandle
+        assertTrue(metadata.getField("count").isCompiled());
+        assertTrue(metadata.getField("total").isCompiled());
+        assertFalse(metadata.getField("fixed").isCompiled());
+        assertThrows(NullPointerException.class, () -> metadata.getField("count").set(model, null));
+        assertThrows(ClassCastException.class, () -> metadata.getField("cache").set(model, 1));
+        
+        assertTrue(metadata.getField("fixed").isFinal());
+        assertEquals("F", metadata.getField("fixed").get(model));
+        // final字段与Field.set一样可以写入，反序列化时需要
+        metadata.getField("fixed").set(model, "X");
+        assertEquals("X", metadata.getField("fixed").get(model));
+        assertTrue(metadata.getField("cache").isTransient());
+    }
+    
+    @Test
+    void testFieldRowCodecRoundTripWithFallbackAccessors() throws Exception {
+        FieldRowCodec<ChildModel> codec = new FieldRowCodec<>(ChildModel.class);
+        ChildModel model = new ChildModel();
+        model.count = 3;
+        model.total = 9L;
+        model.cache = "ignored";
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.write(model, new DataOutputStream(bytes));
+        ChildModel copy = codec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        
+        assertEquals(3, copy.count);
+        assertEquals(9L, copy.total);
+        assertNull(copy.cache);
+    }
+    
+    @Test
+    void testAccessorsBypassGetterAndSetter() throws Exception {
+        ModelMetadata<FormattedModel> metadata = ModelMetadata.of(FormattedModel.class);
+        FormattedModel model = metadata.newInstance();
+        FieldAccessor name = metadata.getField("name");
+        name.set(model, " mixed ");
+        assertEquals(" mixed ", name.get(model));
+        assertEquals(" MIXED ", model.getName());
+        
+        // 溢写编解码原样保存字段值
+        FieldRowCodec<FormattedModel> codec = new FieldRowCodec<>(FormattedModel.class);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.write(model, new DataOutputStream(bytes));
+        FormattedModel copy = codec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(" mixed ", name.get(copy));
+    }
+    
+    @Test
+    @Tag("performance")
+    @EnabledIfSystemProperty(named = "performance", matches = "true")
+    void benchmarkFieldAccess() throws Throwable {
+        List<FieldAccessor> accessors = ModelMetadata.of(UserModel.class).getFields();
+        Field[] fields = new Field[accessors.size()];
+        MethodHandle[] handles = new MethodHandle[accessors.size()];
+        for (int i = 0; i < fields.length; i++) {
+            assertTrue(accessors.get(i).isCompiled());
+            fields[i] = accessors.get(i).getField();
+            fields[i].setAccessible(true);
+            handles[i] = MethodHandles.privateLookupIn(UserModel.class, MethodHandles.lookup())
+                    .unreflectGetter(fields[i]).asType(MethodType.methodType(Object.class, Object.class));
+        }
+        UserModel[] users = new UserModel[1024];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = new UserModel();
+            users[i].setId("USER" + i);
+            users[i].setAge(i);
+        }
+        int rounds = 2000;
+        long cells = (long) rounds * users.length * fields.length;
+        for (int round = 0; round < 3; round++) {
+            long sink = 0;
+            long start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (UserModel user : users) {
+                    for (Field field : fields) {
+                        sink += field.get(user) != null ? 1 : 0;
+                    }
+                }
+            }
+            long reflect = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (UserModel user : users) {
+                    for (MethodHandle handle : handles) {
+                        sink += (Object) handle.invokeExact((Object) user) != null ? 1 : 0;
+                    }
+                }
+            }
+            long handle = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (UserModel user : users) {
+                    for (FieldAccessor accessor : accessors) {
+                        sink += accessor.get(user) != null ? 1 : 0;
+                    }
+                }
+            }
+            long compiled = System.nanoTime() - start;
+            if (round == 2) {
+                log.info("每个单元格读取耗时: Field.get {} ns, 实例字段MethodHandle {} ns, 生成的访问类 {} ns ({})",
+                        String.format("%.2f", (double) reflect / cells), String.format("%.2f", (double) handle / cells),
+                        String.format("%.2f", (double) compiled / cells), sink);
+            }
+        }
+    }
+} 
\ No newline at end of file
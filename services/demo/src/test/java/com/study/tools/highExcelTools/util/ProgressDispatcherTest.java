@@ -0,0 +1,66 @@
+package com.study.tools.highExcelTools.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 异步进度分发测试
+ */
+public class ProgressDispatcherTest {
+    
+    @Test
+    void testSlowCallbackDoesNotBlockProducers() throws Exception {
+        List<String> events = new CopyOnWriteArrayList<>();
+        CountDownLatch finalRows = new CountDownLatch(1);
+        ProgressDispatcher dispatcher = new ProgressDispatcher((current, total, phase, message) -> {
+            events.add(phase + ":" + current + ":" + total + ":" + message);
+            if ("读取数据".equals(phase) && current == 100_000) {
+                finalRows.countDown();
+            }
+            try {
+                // 模拟推送到远端的慢回调
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "test", 20, 200_000);
+        dispatcher.start();
+        
+        long start = System.nanoTime();
+        for (int i = 1; i <= 100; i++) {
+            dispatcher.addReadRows(1_000);
+            dispatcher.onProgress(i, 100, "处理完成");
+        }
+        long producerMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        dispatcher.close();
+        
+        // 生产方不等待回调，100次上报远小于一次回调的耗时
+        assertTrue(producerMillis < 200, "上报耗时: " + producerMillis + "ms");
+        assertTrue(finalRows.await(5, TimeUnit.SECONDS), "未收到最终行数: " + events);
+        
+        // 阶段事件合并为最新值，行数进度带速度和预计剩余时间
+        assertTrue(events.size() <= 4, "事件应被合并: " + events);
+        assertTrue(events.stream().anyMatch(e -> e.startsWith("处理完成:100:100")), events.toString());
+        String rows = events.stream().filter(e -> e.startsWith("读取数据:100000:200000")).findFirst().orElse("");
+        assertTrue(rows.contains("行/秒"), rows);
+    }
+    
+    @Test
+    void testWithoutCallbackOnlyCounts() {
+        ProgressDispatcher dispatcher = new ProgressDispatcher(null, "test", 0, 0);
+        dispatcher.start();
+        dispatcher.addReadRows(10);
+        dispatcher.addWrittenRows(5);
+        dispatcher.onProgress(1, 1, "完成");
+        dispatcher.close();
+        
+        assertEquals(10, dispatcher.getReadRows());
+        assertEquals(5, dispatcher.getWrittenRows());
+    }
+} 
\ No newline at end of file
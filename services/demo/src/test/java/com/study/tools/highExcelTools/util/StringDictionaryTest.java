@@ -0,0 +1,83 @@
+package com.study.tools.highExcelTools.util;
+
+import com.alibaba.excel.EasyExcel;
+import com.study.tools.highExcelTools.config.ExcelConfig;
+import com.study.tools.highExcelTools.core.ExcelReader;
+import com.study.tools.highExcelTools.example.UserModel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 字符串字典测试
+ */
+public class StringDictionaryTest {
+    
+    @TempDir
+    Path tempDir;
+    
+    private static UserModel user(int i) {
+        UserModel user = new UserModel();
+        user.setId("USER" + i);
+        // 每行新建字符串，模拟EasyExcel逐单元格创建
+        user.setRemark(new String("LEVEL" + (i % 4)));
+        return user;
+    }
+    
+    @Test
+    void testAutoDetectKeepsLowCardinalityColumns() {
+        StringDictionary dictionary = new StringDictionary(null, true, 16);
+        List<UserModel> rows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            UserModel user = user(i);
+            dictionary.canonicalize(user);
+            rows.add(user);
+        }
+        
+        assertSame(rows.get(1).getRemark(), rows.get(997).getRemark());
+        Map<String, Long> statistics = dictionary.getStatistics();
+        assertEquals(4L, statistics.get("remark"));
+        // 用户ID每行不同，超过上限后停用
+        assertEquals(-1L, statistics.get("id"));
+        assertNotSame(rows.get(5).getId(), user(5).getId());
+    }
+    
+    @Test
+    void testConfiguredColumnsByHeaderDuringRead() throws Exception {
+        List<String> files = new ArrayList<>();
+        for (int f = 0; f < 2; f++) {
+            List<UserModel> rows = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                rows.add(user(f * 500 + i));
+            }
+            String file = tempDir.resolve("users" + f + ".xlsx").toString();
+            EasyExcel.write(file, UserModel.class).sheet().doWrite(rows);
+            files.add(file);
+        }
+        
+        ExcelConfig<UserModel> config = ExcelConfig.simpleConfig(files, tempDir.resolve("out.xlsx").toString(), UserModel.class);
+        config.setDictionaryColumns(Collections.singletonList("备注"));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ExcelReader<UserModel> reader = new ExcelReader<>(config, executor, "test");
+            List<UserModel> rows = reader.readFiles(files, UserModel.class);
+            
+            assertEquals(1000, rows.size());
+            // 两个文件由不同线程读取，相同取值仍共用一个实例
+            assertSame(rows.get(0).getRemark(), rows.get(996).getRemark());
+            assertEquals(Arrays.asList("remark"), new ArrayList<>(reader.getStringDictionary().getStatistics().keySet()));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+} 
\ No newline at end of file